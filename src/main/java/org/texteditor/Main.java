@@ -1,12 +1,13 @@
 package org.texteditor;
 
 import javafx.application.Application;
+import javafx.collections.ListChangeListener;
 import javafx.scene.Scene;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import javafx.scene.layout.VBox;
+import javafx.scene.layout.Region;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
@@ -14,13 +15,19 @@ import org.texteditor.controllers.EventController;
 import org.texteditor.controllers.FileController;
 import org.texteditor.controllers.TabController;
 import org.texteditor.controllers.TextFileController;
+import org.texteditor.io.JournalStore;
+import org.texteditor.io.RecoveredDocument;
 import org.texteditor.model.TextFile;
+import org.texteditor.model.document.Rope;
 import org.texteditor.viewers.pane.AlertPane;
 import org.texteditor.viewers.pane.FindPane;
+import org.texteditor.viewers.pane.SearchResultsPane;
 import org.texteditor.viewers.pane.TextEditorPane;
 
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
@@ -49,10 +56,15 @@ public class Main extends Application {
     private static TextFileController textFileController;
     private static EventController eventController;
     private TabController tabController;
+    private FileController fileController;
+    private JournalStore journalStore;
 
     private static Stage primaryStage;
     private static Stage alertPaneStage;
     private static Stage findPaneStage;
+    private static FindPane findPane;
+    private static Stage searchResultsPaneStage;
+    private static SearchResultsPane searchResultsPane;
 
     /**
      * Main method to launch the JavaFX application.
@@ -96,34 +108,87 @@ public class Main extends Application {
         }
     }
 
+    /**
+     * Overrides the stop() method of the Application class, waiting for the files still being
+     * saved in the background and committing the edit journals before the application exits.
+     */
+    @Override
+    public void stop() {
+        if (fileController != null)
+            fileController.awaitPendingSaves();
+
+        if (journalStore != null)
+            journalStore.close();
+    }
+
     /**
      * Initializes the controllers used by the application.
      *
      * @param stage The main stage of the application
      */
     private void initializeControllers(Stage stage) {
-        textFileController = new TextFileController();
+        journalStore = new JournalStore(JournalStore.defaultDirectory());
+        textFileController = new TextFileController(journalStore);
         tabController = new TabController(stage);
-        FileController fileController = new FileController(stage);
+        fileController = new FileController(stage);
         eventController = new EventController(textFileController,
                 tabController, fileController);
     }
 
     /**
-     * Initializes and creates the sub-panes, including the alert pane and find pane.
+     * Initializes and creates the sub-panes, including the alert pane, find pane and search results pane.
      * This method is responsible for setting up the necessary components and configurations
-     * to create and display the alert pane and find pane within the application.
+     * to create and display the alert pane, find pane and search results pane within the application.
      */
     private void initializeSubPanes() {
         createAlertPane();
         createFindPane();
+        createSearchResultsPane();
     }
 
     /**
      * Checks the file situation and takes appropriate actions.
+     * Unsaved tabs left behind by the previous session are recovered from their journals;
+     * a new typing area is added only when there is nothing to recover.
      */
     private void checkSituation() {
-        addNewTypingArea();
+        defineTabRemovalEvent();
+
+        List<RecoveredDocument> recoveredDocuments = journalStore.recover();
+
+        if (recoveredDocuments.isEmpty())
+            addNewTypingArea();
+        else
+            recoveredDocuments.forEach(this::addRecoveredTypingArea);
+    }
+
+    /**
+     * Forgets the text file of every tab removed from the TabPane, deleting its journal.
+     */
+    private void defineTabRemovalEvent() {
+        TabPane tabPane = tabController.lookupTabPane();
+
+        tabPane.getTabs().addListener((ListChangeListener<Tab>) change -> {
+            while (change.next()) {
+                change.getRemoved().forEach(tab -> textFileController.removeTextFile(tab.getId()));
+            }
+        });
+    }
+
+    /**
+     * Adds a tab for an unsaved document recovered from its journal.
+     *
+     * @param recoveredDocument The recovered document.
+     */
+    private void addRecoveredTypingArea(RecoveredDocument recoveredDocument) {
+        TabPane tabPane = tabController.lookupTabPane();
+
+        TextFile textFile = textFileController.addRecoveredTextFile(recoveredDocument);
+
+        Tab newTab = tabController.createNewTab(textFile, textFile.name(), textFile.uuid().toString());
+
+        tabController.addTab(newTab, tabPane);
+        tabController.selectedAndFocusTab(newTab, tabPane);
     }
 
     /**
@@ -135,12 +200,11 @@ public class Main extends Application {
         String name = "Sem título (0)";
 
         TextFile textFile = new TextFile(UUID.randomUUID(),
-                name, null, "", false);
+                name, null, new Rope(), StandardCharsets.UTF_8, false);
 
         textFileController.addTextFile(textFile);
 
-        Tab newTab = tabController.createNewTab(textFile, textFile.name(),
-                textFile.uuid().toString(), textFile.text());
+        Tab newTab = tabController.createNewTab(textFile, textFile.name(), textFile.uuid().toString());
 
         tabController.addTab(newTab, tabPane);
         tabController.selectedAndFocusTab(newTab, tabPane);
@@ -192,10 +256,10 @@ public class Main extends Application {
     private static void createFindPane() {
         findPaneStage = new Stage();
 
-        FindPane findPane = new FindPane(eventController);
+        findPane = new FindPane(eventController);
         findPane.configure();
 
-        Scene scene = new Scene(findPane, 525, 280);
+        Scene scene = new Scene(findPane, 525, 300);
         scene.getStylesheets().add(getFindCSSFile());
 
         findPaneStage.setScene(scene);
@@ -209,6 +273,23 @@ public class Main extends Application {
         );
     }
 
+    /**
+     * Creates and configures a search results pane, listing the matches of a search over several texts.
+     */
+    private static void createSearchResultsPane() {
+        searchResultsPaneStage = new Stage();
+
+        searchResultsPane = new SearchResultsPane();
+        searchResultsPane.configure();
+
+        Scene scene = new Scene(searchResultsPane, 640, 400);
+
+        searchResultsPaneStage.setScene(scene);
+        searchResultsPaneStage.setTitle("Resultados da pesquisa");
+        searchResultsPaneStage.initOwner(primaryStage);
+        searchResultsPaneStage.initStyle(StageStyle.UTILITY);
+    }
+
     /**
      * Displays the configured alert pane stage, making it visible to the user.
      */
@@ -223,6 +304,28 @@ public class Main extends Application {
         findPaneStage.show();
     }
 
+    /**
+     * Displays the configured find pane stage with its find-in-files tab selected.
+     */
+    public static void showFindInFilesPane() {
+        findPane.getTabPane().getTabs().stream()
+                .filter(tab -> "findinfiles-tabpane-section".equals(tab.getId()))
+                .findFirst()
+                .ifPresent(tab -> findPane.getTabPane().getSelectionModel().select(tab));
+
+        findPaneStage.show();
+    }
+
+    /**
+     * Displays the configured search results pane stage, making it visible to the user.
+     *
+     * @return The search results pane, to fill with results.
+     */
+    public static SearchResultsPane showSearchResultsPane() {
+        searchResultsPaneStage.show();
+        return searchResultsPane;
+    }
+
     /**
      * Creates an ImageView for an icon based on the specified FileName.
      *
@@ -249,20 +352,20 @@ public class Main extends Application {
     }
 
     /**
-     * Finds the preferred width for a VBox based on a given font size.
+     * Finds the preferred width for a line number region based on a given font size.
      * Uses a predefined map of font sizes to widths, and returns the width that corresponds
      * to the largest font size that is less than or equal to the given font size.
      *
      * @param newSize The font size for which to find the corresponding width.
-     * @param vBox    The VBox for which to find the preferred width if no match is found in the map.
-     * @return The preferred width for the VBox based on the font size.
+     * @param region  The region for which to find the preferred width if no match is found in the map.
+     * @return The preferred width for the region based on the font size.
      */
-    public static double findSizeToWidth(double newSize, VBox vBox) {
+    public static double findSizeToWidth(double newSize, Region region) {
         return sizeToWidth.entrySet()
                 .stream()
                 .filter(entry -> newSize >= entry.getKey())
                 .map(Map.Entry::getValue)
                 .reduce((first, second) -> second)
-                .orElse(vBox.getPrefWidth());
+                .orElse(region.getPrefWidth());
     }
 }
\ No newline at end of file
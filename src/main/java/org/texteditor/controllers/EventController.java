@@ -1,35 +1,109 @@
 package org.texteditor.controllers;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
+import javafx.concurrent.Worker;
+import javafx.concurrent.WorkerStateEvent;
 import javafx.scene.control.Label;
-import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.control.*;
 import javafx.scene.input.Clipboard;
 import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
 import javafx.stage.Stage;
 import javafx.stage.Window;
-import org.apache.commons.lang3.StringUtils;
+import javafx.util.Duration;
 import org.texteditor.Main;
+import org.texteditor.io.FileCheckTask;
+import org.texteditor.io.FileSnapshot;
+import org.texteditor.io.FollowFileTask;
+import org.texteditor.io.FollowLargeFileTask;
+import org.texteditor.io.FollowTask;
+import org.texteditor.io.LargeFileIndexTask;
+import org.texteditor.io.LargeTextFile;
+import org.texteditor.io.MergeFileTask;
+import org.texteditor.io.OpenFileTask;
+import org.texteditor.io.SaveFileTask;
 import org.texteditor.model.TextFile;
+import org.texteditor.model.document.DirtyTracker;
+import org.texteditor.model.document.LineIndex;
+import org.texteditor.model.document.MergeResult;
+import org.texteditor.model.document.PieceTable;
+import org.texteditor.model.document.Rope;
+import org.texteditor.model.document.TextDocument;
+import org.texteditor.search.ChunkedText;
+import org.texteditor.search.FindAllTask;
+import org.texteditor.search.FindInFilesTask;
+import org.texteditor.search.LargeFileSearchTask;
+import org.texteditor.search.GlobFilter;
+import org.texteditor.search.LineHit;
+import org.texteditor.search.LineSearchTask;
+import org.texteditor.search.ReplaceAllEngine;
+import org.texteditor.search.ReplaceAllTask;
+import org.texteditor.search.MatchIndex;
+import org.texteditor.search.Replacement;
+import org.texteditor.search.SearchEngine;
+import org.texteditor.search.SearchEngineCache;
+import org.texteditor.search.SearchQuery;
+import org.texteditor.search.TrigramIndex;
+import org.texteditor.viewers.control.DocumentArea;
+import org.texteditor.viewers.pane.HighlightPane;
+import org.texteditor.viewers.pane.LargeFilePane;
+import org.texteditor.viewers.pane.LineNumberPane;
+import org.texteditor.viewers.pane.SearchResultsPane;
 
 import java.awt.*;
 import java.awt.datatransfer.StringSelection;
 import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * The EventController class handles various events in the text editor application.
  */
 public class EventController {
 
+    private static final System.Logger LOGGER = System.getLogger(EventController.class.getName());
+
+    private static final int SEARCH_CACHE_CAPACITY = 16;
+    private static final Duration FIND_AS_YOU_TYPE_DELAY = Duration.millis(200);
+    private static final int MAX_COPIED_LINES = 10_000;
+
     private final TextFileController textFileController;
     private final TabController tabController;
     private final FileController fileController;
+    private final ReplaceAllEngine replaceAllEngine = new ReplaceAllEngine();
+    private final SearchEngineCache searchEngineCache = new SearchEngineCache(SEARCH_CACHE_CAPACITY);
+
+    private final PauseTransition findAsYouTypeDelay = new PauseTransition(FIND_AS_YOU_TYPE_DELAY);
+    private final List<LineSearchTask> tabSearchTasks = new ArrayList<>();
+
+    private MatchIndex matchIndex;
+    private FindAllTask findAllTask;
+    private ReplaceAllTask replaceAllTask;
+    private HighlightPane highlightedPane;
+    private FindInFilesTask findInFilesTask;
+    private LargeFileSearchTask largeFileSearchTask;
+    private final Map<Path, TrigramIndex> trigramIndexes = new HashMap<>();
+    private final Map<Tab, FollowTask> followTasks = new HashMap<>();
+    private final Map<Tab, FileWatch> fileWatches = new HashMap<>();
+    private final Map<Tab, Integer> savingTabs = new HashMap<>();
+    private final Set<Tab> checkingTabs = new HashSet<>();
+    private final Set<Tab> recheckTabs = new HashSet<>();
 
     /**
      * Constructs an EventController with necessary controllers.
@@ -65,20 +139,19 @@ public class EventController {
      * @param isUndo A boolean indicating whether to perform an undo operation (true) or redo operation (false).
      */
     private void handleUndoRedoEvent(boolean isUndo) {
-        Tab selectedTab = getCurrentSelectTab();
-        if (selectedTab == null) return;
-
-        BorderPane borderPane = (BorderPane) selectedTab.getContent();
-        TextArea textArea = (TextArea) borderPane.getCenter();
+        DocumentArea documentArea = getCurrentDocumentArea();
+        if (documentArea == null) return;
 
         if (isUndo)
-            textArea.undo();
+            documentArea.undo();
         else
-            textArea.redo();
+            documentArea.redo();
     }
 
     /**
-     * Cuts or copies the selected text from the current tab's TextArea to the system clipboard.
+     * Cuts or copies the selected text from the current tab's DocumentArea to the system clipboard.
+     * A cut removes only the selected range, as a single ranged edit of the document. In the
+     * read-only tab of a large file, the selected lines are copied instead, up to a limit.
      *
      * @param isCutOperation A boolean indicating whether to perform a cut operation (true) or copy operation (false).
      */
@@ -86,12 +159,20 @@ public class EventController {
         Tab selectedTab = getCurrentSelectTab();
         if (selectedTab == null) return;
 
-        BorderPane borderPane = (BorderPane) selectedTab.getContent();
-        TextArea textArea = (TextArea) borderPane.getCenter();
-        String selectedText = textArea.getSelectedText();
+        String selectedText;
+        DocumentArea documentArea = getCurrentDocumentArea();
+        LargeFilePane largeFilePane = getLargeFilePane(selectedTab);
+
+        if (documentArea != null) {
+            selectedText = documentArea.getSelectedText();
 
-        if (isCutOperation)
-            textArea.setText(textArea.getText().replace(selectedText, ""));
+            if (isCutOperation)
+                documentArea.deleteText(documentArea.getSelection());
+        } else if (largeFilePane != null && !isCutOperation) {
+            selectedText = largeFilePane.getSelectedText(MAX_COPIED_LINES);
+        } else {
+            return;
+        }
 
         java.awt.datatransfer.Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
         StringSelection stringSelection = new StringSelection(selectedText);
@@ -114,54 +195,39 @@ public class EventController {
 
     /**
      * Handles the event when the user wants to paste text from the clipboard into the text area.
+     * The clipboard text replaces the selection as a single ranged edit, so the rest of the
+     * document is neither copied nor laid out again.
      */
     public void onPasteEvent() {
         Clipboard clipboard = Clipboard.getSystemClipboard();
 
-        Tab selectedTab = getCurrentSelectTab();
-        if (selectedTab == null) return;
-
-        BorderPane borderPane = (BorderPane) selectedTab.getContent();
-        TextArea textArea = (TextArea) borderPane.getCenter();
+        DocumentArea documentArea = getCurrentDocumentArea();
+        if (documentArea == null) return;
 
         if (!clipboard.hasString()) return;
 
-        String clipboardText = clipboard.getString();
-        String text = textArea.getText();
-        int position = textArea.getCaretPosition();
-
-        StringBuilder stringBuilder = new StringBuilder(text);
-        stringBuilder.insert(position, clipboardText);
-
-        textArea.setText(stringBuilder.toString());
-        textArea.positionCaret(position);
+        documentArea.replaceSelection(clipboard.getString());
     }
 
     /**
      * Handles the event when the user wants to delete the selected text in the text area.
      */
     public void onDeleteEvent() {
-        Tab selectedTab = getCurrentSelectTab();
-        if (selectedTab == null) return;
+        DocumentArea documentArea = getCurrentDocumentArea();
+        if (documentArea == null) return;
 
-        BorderPane borderPane = (BorderPane) selectedTab.getContent();
-        TextArea textArea = (TextArea) borderPane.getCenter();
-
-        String selectedText = textArea.getSelectedText();
-
-        textArea.setText(textArea.getText().replace(selectedText, ""));
+        documentArea.deleteText(documentArea.getSelection());
     }
 
     /**
      * Handles the event when the user wants to select all text in the text area.
      */
     public void onSelectAllEvent() {
-        Tab selectedTab = getCurrentSelectTab();
+        DocumentArea documentArea = getCurrentDocumentArea();
 
-        if (selectedTab == null) return;
+        if (documentArea == null) return;
 
-        BorderPane borderPane = (BorderPane) selectedTab.getContent();
-        ((TextArea) borderPane.getCenter()).selectAll();
+        documentArea.selectAll();
     }
 
     /**
@@ -174,6 +240,19 @@ public class EventController {
         return tabPane.getSelectionModel().getSelectedItem();
     }
 
+    /**
+     * Returns the document of the currently selected tab.
+     *
+     * @return The document of the selected tab or null if none is selected.
+     */
+    private TextDocument getCurrentDocument() {
+        Tab selectedTab = getCurrentSelectTab();
+        if (selectedTab == null) return null;
+
+        TextFile textFile = textFileController.requestTextFile(selectedTab.getId());
+        return textFile != null ? textFile.document() : null;
+    }
+
     /**
      * Handles the event when the user attempts to quit the application.
      * Exits the application by calling Platform.exit().
@@ -184,14 +263,49 @@ public class EventController {
 
     /**
      * Handles the event when the user wants to save all open tabs.
-     * Iterates through all tabs in the TabPane and saves each file using saveFile method.
+     * Starts saving every tab bound to a file at once; the FileController writes them in parallel,
+     * up to its concurrency limit. An unmodified tab is only written if its file is missing, which
+     * its save task checks in the background. A failing file does not stop the others: the
+     * failures are collected and reported together once every save has finished.
      */
     public void onSaveAllEvent() {
         TabPane tabPane = tabController.lookupTabPane();
+        List<SaveFileTask> tasks = new ArrayList<>();
+
         tabPane.getTabs().forEach(tab -> {
-            if (tab != null)
-                saveFile(tab);
+            if (tab == null) return;
+
+            TextFile textFile = textFileController.requestTextFile(tab.getId());
+            if (textFile != null && textFile.saved())
+                tasks.add(startWrite(textFile, textFile.filePath(), tab, !textFile.modified()));
         });
+
+        reportSaveAllFailures(tasks);
+    }
+
+    /**
+     * Waits for every save of a "Save All" batch to finish and shows one error dialog listing
+     * the files that could not be written, if any.
+     *
+     * @param tasks The save tasks of the batch.
+     */
+    private void reportSaveAllFailures(List<SaveFileTask> tasks) {
+        List<String> failures = new ArrayList<>();
+        int[] remaining = {tasks.size()};
+
+        for (SaveFileTask task : tasks) {
+            task.stateProperty().addListener((observable, oldState, state) -> {
+                if (state == Worker.State.FAILED)
+                    failures.add(task.getTarget().getFileName() + ": " + task.getException().getMessage());
+
+                boolean finished = state == Worker.State.SUCCEEDED || state == Worker.State.FAILED
+                        || state == Worker.State.CANCELLED;
+
+                if (finished && --remaining[0] == 0 && !failures.isEmpty())
+                    showErrorAlert(failures.size() + " de " + tasks.size() + " arquivos não puderam ser salvos",
+                            String.join("\n", failures));
+            });
+        }
     }
 
     /**
@@ -248,439 +362,1422 @@ public class EventController {
     }
 
     /**
-     * Opens the specified file, creates a new tab, and displays its content.
+     * Opens the specified file in a new tab. The file is decoded on a background thread and
+     * streamed into the tab, so the UI stays responsive and the beginning of the file is shown
+     * while the rest loads. If the file cannot be read, the tab is closed and an error is shown.
      *
      * @param selectedFile File to be opened
      */
     private void openFile(File selectedFile) {
-        String content = fileController.readFile(selectedFile);
-        createTab(selectedFile.getName(), selectedFile.getPath(), content);
+        openFile(selectedFile, tab -> {});
     }
 
     /**
-     * Saves the content of the specified tab.
+     * Opens the specified file in a new tab, as {@link #openFile(File)} does, and hands the tab to
+     * the given action once the whole file is loaded.
      *
-     * @param tab Tab to be saved
+     * @param selectedFile File to be opened
+     * @param onOpened     The action receiving the tab of the loaded file.
      */
-    private void saveFile(Tab tab) {
-        saveFileInternal(tab, false);
-    }
+    private void openFile(File selectedFile, Consumer<Tab> onOpened) {
+        if (fileController.isLargeFile(selectedFile)) {
+            openLargeFile(selectedFile, onOpened);
+            return;
+        }
 
-    /**
-     * Saves the content of the specified tab with a new name or location.
-     *
-     * @param tab Tab to be saved as
-     */
-    private void saveFileAs(Tab tab) {
-        saveFileInternal(tab, true);
-    }
+        TextFile textFile = new TextFile(UUID.randomUUID(), selectedFile.getName(), selectedFile.getPath(),
+                new PieceTable(), StandardCharsets.UTF_8, true);
 
-    /**
-     * Saves the content of a TextArea associated with a specific Tab.
-     *
-     * @param tab    The Tab containing the TextArea to be saved.
-     * @param saveAs A boolean indicating whether to perform a "Save As" operation.
-     */
-    private void saveFileInternal(Tab tab, boolean saveAs) {
-        BorderPane borderPane = (BorderPane) tab.getContent();
-        TextArea textArea = (TextArea) borderPane.getCenter();
+        textFileController.addTextFile(textFile);
 
-        String tabId = tab.getId();
+        OpenFileTask task = new OpenFileTask(selectedFile.toPath());
+        textFile.dirtyTracker().setLoading(true);
+        Tab newTab = tabController.createLoadingTab(textFile, textFile.name(), textFile.uuid().toString(), task);
 
-        TextFile textFile = textFileController.requestTextFile(tabId);
+        TabPane tabPane = tabController.lookupTabPane();
 
-        if (textFile.saved() && !saveAs)
-            saveExistingFile(textArea, textFile);
-        else if (textFile.saved())
-            saveFileAsOperation(textArea, tab);
-        else if (saveAs)
-            saveFileAsOperation(textArea, tab);
-    }
+        task.setOnSucceeded(event -> {
+            fileLoaded(newTab, task);
+            onOpened.accept(newTab);
+        });
+        task.setOnFailed(event -> {
+            tabPane.getTabs().remove(newTab);
+            showErrorAlert("Não foi possível abrir o arquivo " + selectedFile.getName(),
+                    task.getException().getMessage());
+        });
 
-    /**
-     * Saves changes to an existing TextFile.
-     *
-     * @param textArea The TextArea containing the modified text.
-     * @param textFile The TextFile to be updated.
-     */
-    private void saveExistingFile(TextArea textArea, TextFile textFile) {
-        textFileController.updateTextFile(textFile.uuid().toString(), textArea.getText());
-        fileController.writeFile(textFile.filePath(), textArea.getText());
+        tabController.addTab(newTab, tabPane);
+        tabController.selectedAndFocusTab(newTab, tabPane);
+
+        fileController.runInBackground(task);
     }
 
     /**
-     * Saves the content of the TextArea to a new file and updates associated components.
+     * Records what an OpenFileTask read into the text file of a tab: the charset of the file, the
+     * snapshot of the file along with the text it held, and the loaded text as saved, then watches
+     * the file for changes made outside the editor.
      *
-     * @param textArea The TextArea component containing the text content.
-     * @param tab      The Tab associated with the file being edited.
+     * @param tab  The tab of the loaded file.
+     * @param task The task that loaded the file.
      */
-    private void saveFileAsOperation(TextArea textArea, Tab tab) {
-        File selectedFile = fileController.createFileChooserAndSaveFile("Salvar arquivo");
+    private void fileLoaded(Tab tab, OpenFileTask task) {
+        textFileController.updateCharset(tab.getId(), task.getValue());
 
-        if (selectedFile == null) return;
+        TextFile textFile = textFileController.requestTextFile(tab.getId());
+        textFileController.updateSnapshot(tab.getId(), task.getSnapshot(), textFile.document().chunks());
+        textFile.dirtyTracker().markSaved(textFile.document().version(), task.getContentHash());
 
-        textFileController.updateTextFile(tab.getId(), selectedFile.getPath(), textArea.getText());
-        fileController.writeFile(selectedFile.getPath(), textArea.getText());
-        tab.setText(selectedFile.getName());
+        watchTab(tab, Path.of(textFile.filePath()).toAbsolutePath());
     }
 
     /**
-     * Saves the content of the currently selected tab in the internal application context.
+     * Opens a large file read-only in a new tab, without loading it into a document. The lines of
+     * the file are indexed on a background thread, and shown as they are indexed; each line is
+     * read from the file when it is displayed.
      *
-     * @return true if the file is successfully saved, false otherwise.
+     * @param selectedFile File to be opened
+     * @param onOpened     The action receiving the tab of the file once it is fully indexed.
      */
-    public boolean saveFileInternal() {
-        TabPane tabPane = tabController.lookupTabPane();
-        Tab selectedTab = tabPane.getSelectionModel().getSelectedItem();
-
-        if (selectedTab == null) return false;
+    private void openLargeFile(File selectedFile, Consumer<Tab> onOpened) {
+        LargeTextFile largeTextFile;
 
-        String tabId = selectedTab.getId();
-
-        BorderPane borderPane = (BorderPane) selectedTab.getContent();
-        TextArea textArea = (TextArea) borderPane.getCenter();
+        try {
+            largeTextFile = LargeTextFile.open(selectedFile.toPath());
+        } catch (IOException e) {
+            showErrorAlert("Não foi possível abrir o arquivo " + selectedFile.getName(), e.getMessage());
+            return;
+        }
 
-        TextFile textFile = textFileController.requestTextFile(tabId);
+        LargeFileIndexTask task = new LargeFileIndexTask(largeTextFile);
+        Tab newTab = tabController.createLargeFileTab(selectedFile.getName(), UUID.randomUUID().toString(), task);
 
-        if (textFile.saved()) {
-            textFileController.updateTextFile(textFile.uuid().toString(), textArea.getText());
-            fileController.writeFile(textFile.filePath(), textArea.getText());
+        TabPane tabPane = tabController.lookupTabPane();
 
-        } else {
-            File selectedFile = fileController.createFileChooserAndSaveFile("Salvar arquivo");
+        task.setOnSucceeded(event -> onOpened.accept(newTab));
+        task.setOnFailed(event -> {
+            tabPane.getTabs().remove(newTab);
+            showErrorAlert("Não foi possível abrir o arquivo " + selectedFile.getName(),
+                    task.getException().getMessage());
+        });
 
-            if (selectedFile == null) return false;
+        tabController.addTab(newTab, tabPane);
+        tabController.selectedAndFocusTab(newTab, tabPane);
 
-            textFileController.updateTextFile(tabId, selectedFile.getPath(), textArea.getText());
-            fileController.writeFile(selectedFile.getPath(), textArea.getText());
-        }
-        return true;
+        fileController.runInBackground(task);
     }
 
     /**
-     * Creates a new tab with the specified name file path, and content.
-     *
-     * @param name     Name of the new tab
-     * @param filePath File path associated with the new tab
-     * @param content  Content to be displayed in the new tab
+     * Handles the event when the user wants to follow the file of the current tab as it grows, or
+     * to stop following it. Only what is appended to the file is read, each time the shared file
+     * watcher tells the file may have changed.
      */
-    private void createTab(String name, String filePath, String content) {
-        TextFile textFile = new TextFile(UUID.randomUUID(), name, filePath, content, true);
+    public void onFollowEvent() {
+        Tab selectedTab = getCurrentSelectTab();
+        if (selectedTab == null) return;
 
-        textFileController.addTextFile(textFile);
+        FollowTask running = followTasks.remove(selectedTab);
+        if (running != null) {
+            running.cancel();
+            return;
+        }
 
-        Tab newTab = tabController.createNewTab(textFile, textFile.name(), textFile.uuid().toString(),
-                textFile.text());
+        Path path;
+        FollowTask task;
+        LargeFilePane largeFilePane = getLargeFilePane(selectedTab);
+        TextFile textFile = textFileController.requestTextFile(selectedTab.getId());
 
-        TabPane tabPane = tabController.lookupTabPane();
-        tabController.addTab(newTab, tabPane);
-        tabController.selectedAndFocusTab(newTab, tabPane);
-    }
+        if (largeFilePane != null) {
+            if (!largeFilePane.getFile().isIndexed()) {
+                showErrorAlert("Não foi possível acompanhar o arquivo", "O arquivo ainda está sendo indexado.");
+                return;
+            }
 
-    /**
-     * Creates a new untitled tab and displays it.
-     *
-     * @param tabName Name to be given to the new tab
-     */
-    private void createNewTab(String tabName) {
-        TextFile textFile = new TextFile(UUID.randomUUID(), tabName, null, "",
-                false);
-        textFileController.addTextFile(textFile);
+            path = largeFilePane.getFile().getPath();
+            FollowLargeFileTask followLargeFileTask = new FollowLargeFileTask(largeFilePane.getFile());
+            tabController.followLargeFile(selectedTab, followLargeFileTask);
+            task = followLargeFileTask;
 
-        Tab newTab = tabController.createNewTab(textFile, textFile.name(), textFile.uuid().toString(),
-                textFile.text());
+        } else if (textFile != null && textFile.saved() && textFile.filePath() != null) {
+            path = Path.of(textFile.filePath());
+            FileSnapshot snapshot = textFileController.requestSnapshot(selectedTab.getId());
+            long position = snapshot != null ? snapshot.size() : path.toFile().length();
 
-        TabPane tabPane = tabController.lookupTabPane();
-        tabController.addTab(newTab, tabPane);
-        tabController.selectedAndFocusTab(newTab, tabPane);
-    }
+            FollowFileTask followFileTask = new FollowFileTask(path, textFile.charset(), position);
+            tabController.followFile(selectedTab, followFileTask);
+            trackFollowedText(textFile.dirtyTracker(), followFileTask);
+            task = followFileTask;
 
-    public void onUpdateEvent() {
+        } else {
+            showErrorAlert("Não foi possível acompanhar o arquivo", "A aba não está associada a um arquivo.");
+            return;
+        }
 
+        startFollowing(selectedTab, path, task);
     }
 
     /**
-     * Triggered when a find event occurs. Shows the find pane.
+     * Keeps a followed document from counting as modified. If it was unmodified when following
+     * started, the text the task appends extends the hash of the saved text, and the followed text
+     * counts as saved once the task stops.
+     *
+     * @param dirtyTracker The tracker of the followed document.
+     * @param task         The task following the file, not started yet.
      */
-    public void onFindEvent() {
-        Main.showFindPane();
-    }
+    private void trackFollowedText(DirtyTracker dirtyTracker, FollowFileTask task) {
+        boolean unmodified = !dirtyTracker.isModified();
+        if (unmodified) task.setContentHash(dirtyTracker.getSavedHash());
 
-    /**
-     * Triggered when a find nearby event occurs. Shows the find pane.
-     */
-    public void onFindNearbyEvent() {
-        Main.showFindPane();
-    }
+        dirtyTracker.setLoading(true);
 
-    /**
-     * Triggered when a find and replace event occurs. Shows the find pane.
-     */
-    public void onFindAndReplaceEvent() {
-        Main.showFindPane();
+        task.runningProperty().addListener((observable, wasRunning, running) -> {
+            if (running) return;
+
+            if (unmodified) dirtyTracker.markSaved(-1, task.getContentHash());
+            else dirtyTracker.setLoading(false);
+        });
     }
 
     /**
-     * Increases the font size of the text area and adjusts the width of the VBox to fit the new font size.
+     * Starts a task following the file of a tab, until the task is cancelled, by the user or by
+     * closing the tab, or fails.
+     *
+     * @param tab  The tab of the followed file.
+     * @param path The path of the followed file.
+     * @param task The task following the file.
      */
-    public void onEnlargeEvent() {
-        BorderPane borderPane = getCurrentBorderPane();
-        if (borderPane == null) return;
-
-        VBox vBox = (VBox) borderPane.getLeft();
-        TextArea textArea = (TextArea) borderPane.getCenter();
+    private void startFollowing(Tab tab, Path path, FollowTask task) {
+        Runnable unwatch;
+        try {
+            unwatch = fileController.watchFile(path, task::signal, true);
+        } catch (IOException e) {
+            showErrorAlert("Não foi possível acompanhar o arquivo " + path.getFileName(), e.getMessage());
+            return;
+        }
 
-        Font font = textArea.getFont();
-        double newSize = font.getSize();
+        followTasks.put(tab, task);
 
-        newSize = newSize *= 1.05;
+        task.runningProperty().addListener((observable, wasRunning, isRunning) -> {
+            if (isRunning) return;
 
-        vBox.setPrefWidth(Main.findSizeToWidth(newSize, vBox));
+            unwatch.run();
+            followTasks.remove(tab, task);
+            if (task instanceof FollowFileTask) takeSnapshot(tab, path, true);
+        });
+        task.setOnFailed(event -> showErrorAlert("Não foi possível acompanhar o arquivo " + path.getFileName(),
+                task.getException().getMessage()));
+        tab.tabPaneProperty().addListener((observable, oldTabPane, tabPane) -> {
+            if (tabPane == null) task.cancel();
+        });
 
-        textArea.setStyle("-fx-font-size: " + newSize + "px;");
-        vBox.setStyle("-fx-font-size: " + newSize + "px;");
+        fileController.runInBackground(task);
     }
 
     /**
-     * Decreases the font size of the text area and adjusts the width of the VBox to fit the new font size.
+     * Watches the file of a tab for changes made outside the editor, through the file watcher
+     * shared by every tab. The file is watched until the tab is closed, or another file is
+     * watched for it after a "Save As".
+     *
+     * @param tab  The tab of the file.
+     * @param path The path of the file.
      */
-    public void onReduceEvent() {
-        BorderPane borderPane = getCurrentBorderPane();
-        if (borderPane == null) return;
-
-        VBox vBox = (VBox) borderPane.getLeft();
-        TextArea textArea = (TextArea) borderPane.getCenter();
+    private void watchTab(Tab tab, Path path) {
+        FileWatch watched = fileWatches.get(tab);
+        if (watched != null && watched.path().equals(path)) return;
+
+        Runnable unwatch;
+        try {
+            unwatch = fileController.watchFile(path, () -> Platform.runLater(() -> checkExternalChange(tab)), false);
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Cannot watch " + path, e);
+            return;
+        }
 
-        Font font = textArea.getFont();
-        double newSize = font.getSize();
+        fileWatches.put(tab, new FileWatch(path, unwatch));
+        if (watched != null) {
+            watched.unwatch().run();
+            return;
+        }
 
-        newSize = newSize /= 1.05;
+        tab.tabPaneProperty().addListener((observable, oldTabPane, tabPane) -> {
+            if (tabPane != null) return;
 
-        vBox.setPrefWidth(Main.findSizeToWidth(newSize, vBox));
+            FileWatch fileWatch = fileWatches.remove(tab);
+            if (fileWatch != null) fileWatch.unwatch().run();
 
-        textArea.setStyle("-fx-font-size: " + newSize + "px;");
-        vBox.setStyle("-fx-font-size: " + newSize + "px;");
+            savingTabs.remove(tab);
+            checkingTabs.remove(tab);
+            recheckTabs.remove(tab);
+        });
     }
 
     /**
-     * Restores the font size of the text area and the width of the VBox to their default values.
+     * Checks whether the file of a tab was changed outside the editor since the tab last read or
+     * wrote it, and if so asks the user whether to reload the file or merge its changes. A tab is
+     * checked once at a time, and not while it is saved or followed; a change reported meanwhile
+     * is checked afterwards. A file that was deleted is left alone.
+     *
+     * @param tab The tab of the file.
      */
-    public void onRestoreDefaultZoomEvent() {
-        BorderPane borderPane = getCurrentBorderPane();
-        if (borderPane == null) return;
+    private void checkExternalChange(Tab tab) {
+        if (tab.getTabPane() == null || followTasks.containsKey(tab)) return;
 
-        VBox vBox = (VBox) borderPane.getLeft();
-        TextArea textArea = (TextArea) borderPane.getCenter();
+        if (checkingTabs.contains(tab) || savingTabs.containsKey(tab)) {
+            recheckTabs.add(tab);
+            return;
+        }
 
-        vBox.setPrefWidth(40.0);
+        TextFile textFile = textFileController.requestTextFile(tab.getId());
+        FileSnapshot snapshot = textFileController.requestSnapshot(tab.getId());
+        if (textFile == null || textFile.filePath() == null || snapshot == null) return;
 
-        textArea.setStyle("-fx-font-size: 12px;");
-        vBox.setStyle("-fx-font-size: 12px;");
-    }
+        Path path = Path.of(textFile.filePath());
+        FileCheckTask task = new FileCheckTask(path, snapshot);
+        checkingTabs.add(tab);
 
-    /**
-     * Handles the event when the "Find" button is clicked.
-     *
-     * @param findTextId       The ID of the text to find.
-     * @param matchWholeWordId The ID of the checkbox indicating whether to match whole words.
-     * @param caseSensitiveId  The ID of the checkbox indicating whether the search is case-sensitive.
-     */
-    public void onNextFindButtonEvent(String findTextId, String matchWholeWordId, String caseSensitiveId) {
-        searchWord(findTextId, "", matchWholeWordId, caseSensitiveId, false, false);
+        task.setOnSucceeded(event -> {
+            FileSnapshot current = task.getValue();
+
+            if (snapshot != textFileController.requestSnapshot(tab.getId()) || savingTabs.containsKey(tab)) {
+                recheckTabs.add(tab);
+                checkFinished(tab);
+
+            } else if (current != null) {
+                if (current != snapshot)
+                    textFileController.updateSnapshot(tab.getId(), current, textFileController.requestSavedContent(tab.getId()));
+                checkFinished(tab);
+
+            } else {
+                askExternalChange(tab, path);
+            }
+        });
+        task.setOnFailed(event -> checkFinished(tab));
+
+        fileController.runInBackground(task);
     }
 
     /**
-     * Handles the event when the "Find and Replace" button is clicked.
+     * Ends the check of a tab, checking it again if a change was reported meanwhile.
      *
-     * @param findTextId       The ID of the text to find.
-     * @param replaceTextId    The ID of the text to replace.
-     * @param matchWholeWordId The ID of the checkbox indicating whether to match whole words.
-     * @param caseSensitiveId  The ID of the checkbox indicating whether the search is case-sensitive.
+     * @param tab The checked tab.
      */
-    public void onFindAndReplaceButtonEvent(String findTextId, String replaceTextId, String matchWholeWordId, String caseSensitiveId) {
-        searchWord(findTextId, replaceTextId, matchWholeWordId, caseSensitiveId, false, true);
+    private void checkFinished(Tab tab) {
+        checkingTabs.remove(tab);
+        if (recheckTabs.remove(tab)) checkExternalChange(tab);
     }
 
     /**
-     * Handles the event when the "Find and Replace All" button is clicked.
+     * Asks the user what to do with the file of a tab changed outside the editor: reload it,
+     * losing the edits made in the tab, merge its changes into them, or keep the tab as it is.
      *
-     * @param findTextId       The ID of the text to find.
-     * @param replaceTextId    The ID of the text to replace.
-     * @param matchWholeWordId The ID of the checkbox indicating whether to match whole words.
-     * @param caseSensitiveId  The ID of the checkbox indicating whether the search is case-sensitive.
+     * @param tab  The tab of the changed file.
+     * @param path The path of the changed file.
      */
-    public void onFindAndReplaceAllButtonEvent(String findTextId, String replaceTextId, String matchWholeWordId, String caseSensitiveId) {
-        searchWord(findTextId, replaceTextId, matchWholeWordId, caseSensitiveId, true, true);
+    private void askExternalChange(Tab tab, Path path) {
+        ButtonType reload = new ButtonType("Recarregar");
+        ButtonType merge = new ButtonType("Mesclar");
+        ButtonType ignore = new ButtonType("Ignorar", ButtonBar.ButtonData.CANCEL_CLOSE);
+
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "", reload, merge, ignore);
+        alert.setTitle("Arquivo modificado");
+        alert.setHeaderText("O arquivo " + path.getFileName() + " foi modificado fora do editor.");
+        alert.setContentText("Recarregar descarta as alterações feitas no editor. "
+                + "Mesclar aplica as alterações do disco sobre elas, marcando os conflitos.");
+
+        ButtonType answer = alert.showAndWait().orElse(ignore);
+
+        if (tab.getTabPane() == null) checkFinished(tab);
+        else if (answer == reload) reloadFile(tab, path);
+        else if (answer == merge) mergeFile(tab, path);
+        else takeSnapshot(tab, path, false);
     }
 
     /**
-     * Searches for the specified word in the text area and optionally replaces it.
+     * Loads the file of a tab again, replacing the content of the tab.
      *
-     * @param findTextId          The ID of the text to find.
-     * @param replaceTextId       The ID of the text to replace.
-     * @param matchWholeWordId    The ID of the checkbox indicating whether to match whole words.
-     * @param caseSensitiveId     The ID of the checkbox indicating whether the search is case-sensitive.
-     * @param searchAndReplaceAll Indicates whether to search and replace all occurrences.
-     * @param searchAndReplace    Indicates whether to perform a search and replace operation.
+     * @param tab  The tab of the file.
+     * @param path The path of the file.
      */
-    private void searchWord(String findTextId, String replaceTextId, String matchWholeWordId, String caseSensitiveId, boolean searchAndReplaceAll, boolean searchAndReplace) {
-        Stage findStage = getFindStage();
-        if (findStage == null) return;
-
-        TextArea textArea = getCurrentTextArea();
-        if (textArea == null) return;
+    private void reloadFile(Tab tab, Path path) {
+        OpenFileTask task = new OpenFileTask(path);
+        TextFile textFile = textFileController.requestTextFile(tab.getId());
 
-        int caretPosition = textArea.getCaretPosition();
-
-        String findText = getFindText(findStage, findTextId);
-        String replaceText = "";
+        if (textFile == null || !tabController.reloadTab(tab, task)) {
+            checkFinished(tab);
+            return;
+        }
 
-        if (searchAndReplace) replaceText = getReplaceText(findStage, replaceTextId);
+        textFile.dirtyTracker().setLoading(true);
+        task.runningProperty().addListener((observable, wasRunning, running) -> {
+            if (!running) textFile.dirtyTracker().setLoading(false);
+        });
 
-        boolean matchWholeWord = isMatchWholeWord(findStage, matchWholeWordId);
-        boolean caseSensitive = isCaseSensitiveSearchRequested(findStage, caseSensitiveId);
+        task.setOnSucceeded(event -> {
+            fileLoaded(tab, task);
+            checkFinished(tab);
+        });
+        task.setOnFailed(event -> {
+            showErrorAlert("Não foi possível recarregar o arquivo " + path.getFileName(),
+                    task.getException().getMessage());
+            checkFinished(tab);
+        });
+        task.setOnCancelled(event -> checkFinished(tab));
 
-        if (!searchAndReplaceAll)
-            performSearch(textArea, findText, replaceText, caretPosition, caseSensitive, matchWholeWord);
-        else
-            performSearch(textArea, findText, replaceText, caseSensitive, matchWholeWord);
+        fileController.runInBackground(task);
     }
 
     /**
-     * Handles the event when the "Count" button is clicked to count occurrences of a word.
+     * Merges the changes made to the file of a tab outside the editor into the edits made in the
+     * tab, in the background, and applies the merge as one ranged edit that can be undone. If the
+     * tab is edited while the merge runs, the file is checked again instead.
      *
-     * @param findTextId       The ID of the text to find.
-     * @param matchWholeWordId The ID of the checkbox indicating whether to match whole words.
-     * @param caseSensitiveId  The ID of the checkbox indicating whether the search is case-sensitive.
+     * @param tab  The tab of the file.
+     * @param path The path of the file.
      */
-    public void onCountEvent(String findTextId, String matchWholeWordId, String caseSensitiveId) {
-        Stage findStage = getFindStage();
-        if (findStage == null) return;
-
-        Label label = getFindLabel(findStage);
-        TextArea textArea = getCurrentTextArea();
-        if (textArea == null) return;
-
-        String text = textArea.getText();
-        String findText = getFindText(findStage, findTextId);
+    private void mergeFile(Tab tab, Path path) {
+        TextFile textFile = textFileController.requestTextFile(tab.getId());
+        Iterable<CharBuffer> base = textFileController.requestSavedContent(tab.getId());
+        DocumentArea documentArea = getDocumentArea(tab);
 
-        if (findText.isEmpty()) {
-            label.setText("");
+        if (textFile == null || base == null || documentArea == null) {
+            checkFinished(tab);
             return;
         }
 
-        boolean matchWholeWord = isMatchWholeWord(findStage, matchWholeWordId);
-        boolean caseSensitive = isCaseSensitiveSearchRequested(findStage, caseSensitiveId);
+        TextDocument document = textFile.document();
+        long version = document.version();
+        MergeFileTask task = new MergeFileTask(path, base, document.chunks());
+        tabController.trackTask(tab, task);
+
+        task.setOnSucceeded(event -> {
+            if (document.version() != version) {
+                recheckTabs.add(tab);
+                checkFinished(tab);
+                return;
+            }
 
-        int count = performSearch(text, findText, caseSensitive, matchWholeWord);
+            MergeResult result = task.getValue();
+            if (result != null) documentArea.replaceText(result.start(), result.end(), result.text());
 
-        label.setText("Total: " + count + " correspondência no arquivo.");
+            textFileController.updateSnapshot(tab.getId(), task.getSnapshot(), List.of(task.getText()));
+            textFile.dirtyTracker().markSaved(-1, task.getContentHash());
+            checkFinished(tab);
+
+            if (result != null && result.conflicts() > 0) {
+                Alert alert = new Alert(Alert.AlertType.WARNING);
+                alert.setTitle("Aviso");
+                alert.setHeaderText("A mesclagem de " + path.getFileName() + " tem conflitos.");
+                alert.setContentText(result.conflicts() + " trecho(s) alterado(s) no editor e no disco "
+                        + "foram marcados entre <<<<<<< e >>>>>>>.");
+                alert.show();
+            }
+        });
+        task.setOnFailed(event -> {
+            showErrorAlert("Não foi possível mesclar o arquivo " + path.getFileName(),
+                    task.getException().getMessage());
+            checkFinished(tab);
+        });
+        task.setOnCancelled(event -> checkFinished(tab));
+
+        fileController.runInBackground(task);
     }
 
     /**
-     * Performs a search and optional replacement operation on the given text.
+     * Takes a new snapshot of the file of a tab in the background, so that its current content no
+     * longer counts as changed outside the editor. When the change is ignored, the text the file
+     * held when the tab last read or wrote it stays the base of a later merge; once the file was
+     * followed, the tab holds what the file holds, and its content becomes the base.
      *
-     * @param textArea       The text area in which to perform the search and replacement.
-     * @param findText       The text to find.
-     * @param replaceText    The text to replace if a match is found.
-     * @param caseSensitive  Indicates whether the search is case-sensitive.
-     * @param matchWholeWord Indicates whether to match whole words only.
+     * @param tab      The tab of the file.
+     * @param path     The path of the file.
+     * @param followed Whether the tab has just followed the file.
      */
-    private void performSearch(TextArea textArea, String findText, String replaceText, boolean caseSensitive, boolean matchWholeWord) {
-        if (textArea == null || findText == null || findText.isEmpty()) {
-            return;
-        }
+    private void takeSnapshot(Tab tab, Path path, boolean followed) {
+        FileCheckTask task = new FileCheckTask(path, null);
+        checkingTabs.add(tab);
 
-        String text = textArea.getText();
-        String[] splitText = text.split("\\s");
+        task.setOnSucceeded(event -> {
+            TextFile textFile = textFileController.requestTextFile(tab.getId());
 
-        for (int i = 0; i < splitText.length; i++) {
-            splitText[i] = replaceIfMatch(splitText[i], findText, replaceText, caseSensitive, matchWholeWord);
-        }
+            if (textFile != null) {
+                Iterable<CharBuffer> content = followed
+                        ? textFile.document().chunks() : textFileController.requestSavedContent(tab.getId());
+                textFileController.updateSnapshot(tab.getId(), task.getValue(), content);
+            }
+            checkFinished(tab);
+        });
+        task.setOnFailed(event -> checkFinished(tab));
 
-        String newText = String.join(" ", splitText);
-        textArea.setText(newText);
+        fileController.runInBackground(task);
     }
 
     /**
-     * Replaces a word if it matches the specified criteria.
+     * Shows an error dialog.
      *
-     * @param word           The word to check for a match.
-     * @param findText       The text to find.
-     * @param replaceText    The text to replace if a match is found.
-     * @param caseSensitive  Indicates whether the comparison should be case-sensitive.
-     * @param matchWholeWord Indicates whether to match whole words only.
-     * @return The original word if no match is found, or the replacement text if a match is found.
+     * @param header  The summary of the error.
+     * @param content The details of the error.
      */
-    private String replaceIfMatch(String word, String findText, String replaceText, boolean caseSensitive, boolean matchWholeWord) {
-        if (caseSensitive && matchWholeWord && word.equals(findText))
-            return replaceText;
-
-        if (caseSensitive && !matchWholeWord && StringUtils.contains(word, findText))
-            return replaceText;
-
-        if (!caseSensitive && matchWholeWord && word.equalsIgnoreCase(findText))
-            return replaceText;
-
-        if (!caseSensitive && !matchWholeWord && StringUtils.containsIgnoreCase(word, findText))
-            return replaceText;
-
-        return word;
+    private void showErrorAlert(String header, String content) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Erro");
+        alert.setHeaderText(header);
+        alert.setContentText(content);
+        alert.show();
     }
 
     /**
-     * Performs a search for the specified word in the text area and optionally replaces it.
+     * Saves the content of the specified tab.
      *
-     * @param textArea       The text area in which to perform the search and replacement.
-     * @param findText       The text to find.
-     * @param replaceText    The text to replace if a match is found.
-     * @param caretPosition  The position of the caret in the text area.
-     * @param caseSensitive  Indicates whether the search is case-sensitive.
-     * @param matchWholeWord Indicates whether to match whole words only.
+     * @param tab Tab to be saved
      */
-    private void performSearch(TextArea textArea, String findText, String replaceText, int caretPosition, boolean caseSensitive, boolean matchWholeWord) {
-        String text = textArea.getText(caretPosition, textArea.getText().length());
-        Pattern regex = createRegexPattern(findText, caseSensitive, matchWholeWord);
-        Matcher matcher = regex.matcher(text);
-
-        if (caretPosition == textArea.getText().length()) {
-            Platform.runLater(() -> textArea.positionCaret(0));
-            return;
-        }
-
-        if (matcher.find()) {
-            if (!replaceText.isEmpty())
-                textArea.replaceText(caretPosition + matcher.start(), caretPosition + matcher.end(),
-                        replaceText);
-
-            textArea.selectRange(caretPosition + matcher.start(), caretPosition + matcher.end());
-        } else {
-            Platform.runLater(() -> textArea.positionCaret(0));
-        }
+    private void saveFile(Tab tab) {
+        saveFileInternal(tab, false);
     }
 
     /**
-     * Performs a search for the specified word in the given text and returns the count of occurrences.
+     * Saves the content of the specified tab with a new name or location.
      *
-     * @param text           The text in which to perform the search.
-     * @param findText       The text to find.
-     * @param caseSensitive  Indicates whether the search is case-sensitive.
-     * @param matchWholeWord Indicates whether to match whole words only.
-     * @return The count of occurrences of the word in the text.
+     * @param tab Tab to be saved as
      */
-    private int performSearch(String text, String findText, boolean caseSensitive, boolean matchWholeWord) {
-        Pattern regex = createRegexPattern(findText, caseSensitive, matchWholeWord);
-        Matcher matcher = regex.matcher(text);
-
-        int count = 0;
-        while (matcher.find()) {
-            count++;
-        }
-        return count;
+    private void saveFileAs(Tab tab) {
+        saveFileInternal(tab, true);
     }
 
     /**
-     * Retrieves the find information label from the specified stage.
+     * Saves the document associated with a specific Tab.
+     *
+     * @param tab    The Tab whose document is to be saved.
+     * @param saveAs A boolean indicating whether to perform a "Save As" operation.
+     */
+    private void saveFileInternal(Tab tab, boolean saveAs) {
+        String tabId = tab.getId();
+
+        TextFile textFile = textFileController.requestTextFile(tabId);
+        if (textFile == null) return;
+
+        if (textFile.saved() && !saveAs)
+            saveExistingFile(textFile, tab);
+        else if (textFile.saved())
+            saveFileAsOperation(textFile, tab);
+        else if (saveAs)
+            saveFileAsOperation(textFile, tab);
+    }
+
+    /**
+     * Writes the document of an existing TextFile back to its file. An unmodified document is only
+     * written if its file no longer exists, which the save task checks off the JavaFX Application
+     * Thread.
+     *
+     * @param textFile The TextFile to be saved.
+     * @param tab      The Tab associated with the file being edited.
+     */
+    private void saveExistingFile(TextFile textFile, Tab tab) {
+        writeDocument(textFile, textFile.filePath(), tab, !textFile.modified());
+    }
+
+    /**
+     * Starts writing the document of a TextFile in the background, showing the progress on its
+     * tab and an error dialog if the file could not be written.
+     *
+     * @param textFile      The TextFile to be saved.
+     * @param filePath      The path of the file to write.
+     * @param tab           The Tab associated with the file being edited.
+     * @param onlyIfMissing Whether to write the file only if it does not exist.
+     */
+    private void writeDocument(TextFile textFile, String filePath, Tab tab, boolean onlyIfMissing) {
+        SaveFileTask task = startWrite(textFile, filePath, tab, onlyIfMissing);
+
+        task.setOnFailed(event -> showErrorAlert("Não foi possível salvar o arquivo " + task.getTarget().getFileName(),
+                task.getException().getMessage()));
+    }
+
+    /**
+     * Binds a TextFile to a new file and starts writing its document there. The journal of the
+     * TextFile is deleted only once the file is written, so its edits stay recoverable if the
+     * write fails.
+     *
+     * @param textFile The TextFile to be saved.
+     * @param filePath The path of the new file.
+     * @param tab      The Tab associated with the file being edited.
+     */
+    private void writeDocumentAs(TextFile textFile, String filePath, Tab tab) {
+        textFileController.updateTextFile(tab.getId(), filePath);
+        writeDocument(textFile, filePath, tab, false);
+    }
+
+    /**
+     * Starts writing the document of a TextFile in the background, showing the progress on its tab.
+     * Once the file is written, the journal the TextFile had while untitled is deleted. A task that
+     * found its file in place and wrote nothing leaves the state of the TextFile as it was.
+     *
+     * @param textFile      The TextFile to be saved.
+     * @param filePath      The path of the file to write.
+     * @param tab           The Tab associated with the file being edited.
+     * @param onlyIfMissing Whether to write the file only if it does not exist.
+     * @return The task writing the file.
+     */
+    private SaveFileTask startWrite(TextFile textFile, String filePath, Tab tab, boolean onlyIfMissing) {
+        long version = textFile.document().version();
+        SaveFileTask task = fileController.writeFile(filePath, textFile.document(), textFile.charset(),
+                onlyIfMissing);
+        tabController.trackTask(tab, task);
+
+        savingTabs.merge(tab, 1, Integer::sum);
+
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_SUCCEEDED, event -> {
+            if (task.isSkipped()) {
+                saveFinished(tab);
+                return;
+            }
+
+            textFileController.updateSnapshot(tab.getId(), task.getSnapshot(), task.getChunks());
+            textFile.dirtyTracker().markSaved(version, task.getContentHash());
+            textFileController.detachJournal(tab.getId());
+            watchTab(tab, task.getTarget());
+            saveFinished(tab);
+        });
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_FAILED, event -> saveFinished(tab));
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, event -> saveFinished(tab));
+        return task;
+    }
+
+    /**
+     * Counts a save of a tab as finished. Once no save of the tab is running, its file is checked
+     * for the changes made outside the editor that were reported during the saves.
+     *
+     * @param tab The tab that was saved.
+     */
+    private void saveFinished(Tab tab) {
+        savingTabs.computeIfPresent(tab, (savedTab, count) -> count > 1 ? count - 1 : null);
+
+        if (!savingTabs.containsKey(tab) && recheckTabs.remove(tab)) checkExternalChange(tab);
+    }
+
+    /**
+     * Saves the document of a TextFile to a new file and updates associated components.
+     *
+     * @param textFile The TextFile to be saved.
+     * @param tab      The Tab associated with the file being edited.
+     */
+    private void saveFileAsOperation(TextFile textFile, Tab tab) {
+        File selectedFile = fileController.createFileChooserAndSaveFile("Salvar arquivo");
+
+        if (selectedFile == null) return;
+
+        writeDocumentAs(textFile, selectedFile.getPath(), tab);
+        tab.setText(selectedFile.getName());
+    }
+
+    /**
+     * Saves the content of the currently selected tab in the internal application context.
+     *
+     * @return true if the save was started, false if there is no tab, the tab shows a read-only large
+     *         file or the user cancelled the file chooser.
+     */
+    public boolean saveFileInternal() {
+        TabPane tabPane = tabController.lookupTabPane();
+        Tab selectedTab = tabPane.getSelectionModel().getSelectedItem();
+
+        if (selectedTab == null) return false;
+
+        String tabId = selectedTab.getId();
+
+        TextFile textFile = textFileController.requestTextFile(tabId);
+        if (textFile == null) return false;
+
+        if (textFile.saved()) {
+            writeDocument(textFile, textFile.filePath(), selectedTab, false);
+
+        } else {
+            File selectedFile = fileController.createFileChooserAndSaveFile("Salvar arquivo");
+
+            if (selectedFile == null) return false;
+
+            writeDocumentAs(textFile, selectedFile.getPath(), selectedTab);
+        }
+        return true;
+    }
+
+    /**
+     * Creates a new untitled tab and displays it.
+     *
+     * @param tabName Name to be given to the new tab
+     */
+    private void createNewTab(String tabName) {
+        TextFile textFile = new TextFile(UUID.randomUUID(), tabName, null, new Rope(),
+                StandardCharsets.UTF_8, false);
+        textFileController.addTextFile(textFile);
+
+        Tab newTab = tabController.createNewTab(textFile, textFile.name(), textFile.uuid().toString());
+
+        TabPane tabPane = tabController.lookupTabPane();
+        tabController.addTab(newTab, tabPane);
+        tabController.selectedAndFocusTab(newTab, tabPane);
+    }
+
+    public void onUpdateEvent() {
+
+    }
+
+    /**
+     * Triggered when a find event occurs. Shows the find pane.
+     */
+    public void onFindEvent() {
+        Main.showFindPane();
+    }
+
+    /**
+     * Triggered when a find nearby event occurs. Searches forwards with the find pane settings.
+     */
+    public void onFindNearbyEvent() {
+        searchFromFindPane(false);
+    }
+
+    /**
+     * Triggered when a find previous event occurs. Searches backwards with the find pane settings.
+     */
+    public void onFindPreviousEvent() {
+        searchFromFindPane(true);
+    }
+
+    /**
+     * Repeats the search of the open find pane, forwards or backwards, with the settings of its
+     * selected tab. The find pane is shown instead when it is closed or has nothing to search for.
+     *
+     * @param searchBackwards Indicates whether to search for the previous occurrence instead of the next.
+     */
+    private void searchFromFindPane(boolean searchBackwards) {
+        Stage findStage = getFindStage();
+
+        String prefix = findStage != null && findStage.getTitle().equalsIgnoreCase("Substituir")
+                ? "findandreplace" : "find";
+        String findTextId = prefix.equals("find") ? "find-textfield-id" : "findandreplace-textfield1-id";
+
+        if (findStage == null || getFindText(findStage, findTextId).isEmpty()) {
+            Main.showFindPane();
+            return;
+        }
+
+        searchWord(findTextId, "", prefix + "-checkbox1-id", prefix + "-checkbox2-id", prefix + "-checkbox3-id",
+                false, false, searchBackwards);
+    }
+
+    /**
+     * Triggered when a find in files event occurs. Shows the find pane on its find-in-files tab.
+     */
+    public void onFindInFilesEvent() {
+        Main.showFindInFilesPane();
+    }
+
+    /**
+     * Triggered when a find and replace event occurs. Shows the find pane.
+     */
+    public void onFindAndReplaceEvent() {
+        Main.showFindPane();
+    }
+
+    /**
+     * Increases the font size of the text area and adjusts the width of the LineNumberPane to fit the new font size.
+     */
+    public void onEnlargeEvent() {
+        BorderPane borderPane = getCurrentBorderPane();
+        if (borderPane == null || !(borderPane.getCenter() instanceof DocumentArea documentArea)) return;
+
+        LineNumberPane lineNumberPane = (LineNumberPane) borderPane.getLeft();
+
+        Font font = documentArea.getFont();
+        double newSize = font.getSize();
+
+        newSize = newSize *= 1.05;
+
+        lineNumberPane.setPrefWidth(Main.findSizeToWidth(newSize, lineNumberPane));
+
+        documentArea.setStyle("-fx-font-size: " + newSize + "px;");
+        lineNumberPane.setStyle("-fx-font-size: " + newSize + "px;");
+    }
+
+    /**
+     * Decreases the font size of the text area and adjusts the width of the LineNumberPane to fit the new font size.
+     */
+    public void onReduceEvent() {
+        BorderPane borderPane = getCurrentBorderPane();
+        if (borderPane == null || !(borderPane.getCenter() instanceof DocumentArea documentArea)) return;
+
+        LineNumberPane lineNumberPane = (LineNumberPane) borderPane.getLeft();
+
+        Font font = documentArea.getFont();
+        double newSize = font.getSize();
+
+        newSize = newSize /= 1.05;
+
+        lineNumberPane.setPrefWidth(Main.findSizeToWidth(newSize, lineNumberPane));
+
+        documentArea.setStyle("-fx-font-size: " + newSize + "px;");
+        lineNumberPane.setStyle("-fx-font-size: " + newSize + "px;");
+    }
+
+    /**
+     * Restores the font size of the text area and the width of the LineNumberPane to their default values.
+     */
+    public void onRestoreDefaultZoomEvent() {
+        BorderPane borderPane = getCurrentBorderPane();
+        if (borderPane == null || !(borderPane.getCenter() instanceof DocumentArea documentArea)) return;
+
+        LineNumberPane lineNumberPane = (LineNumberPane) borderPane.getLeft();
+
+        lineNumberPane.setPrefWidth(40.0);
+
+        documentArea.setStyle("-fx-font-size: 12px;");
+        lineNumberPane.setStyle("-fx-font-size: 12px;");
+    }
+
+    /**
+     * Handles the event when the "Find" button is clicked.
+     *
+     * @param findTextId       The ID of the text to find.
+     * @param matchWholeWordId The ID of the checkbox indicating whether to match whole words.
+     * @param caseSensitiveId  The ID of the checkbox indicating whether the search is case-sensitive.
+     * @param regexId          The ID of the checkbox indicating whether the text is a regular expression.
+     */
+    public void onNextFindButtonEvent(String findTextId, String matchWholeWordId, String caseSensitiveId, String regexId) {
+        searchWord(findTextId, "", matchWholeWordId, caseSensitiveId, regexId, false, false, false);
+    }
+
+    /**
+     * Handles the event when the "Find Previous" button is clicked.
+     *
+     * @param findTextId       The ID of the text to find.
+     * @param matchWholeWordId The ID of the checkbox indicating whether to match whole words.
+     * @param caseSensitiveId  The ID of the checkbox indicating whether the search is case-sensitive.
+     * @param regexId          The ID of the checkbox indicating whether the text is a regular expression.
+     */
+    public void onPreviousFindButtonEvent(String findTextId, String matchWholeWordId, String caseSensitiveId, String regexId) {
+        searchWord(findTextId, "", matchWholeWordId, caseSensitiveId, regexId, false, false, true);
+    }
+
+    /**
+     * Handles the event when the "Find and Replace" button is clicked.
+     *
+     * @param findTextId       The ID of the text to find.
+     * @param replaceTextId    The ID of the text to replace.
+     * @param matchWholeWordId The ID of the checkbox indicating whether to match whole words.
+     * @param caseSensitiveId  The ID of the checkbox indicating whether the search is case-sensitive.
+     * @param regexId          The ID of the checkbox indicating whether the text is a regular expression.
+     */
+    public void onFindAndReplaceButtonEvent(String findTextId, String replaceTextId, String matchWholeWordId, String caseSensitiveId, String regexId) {
+        searchWord(findTextId, replaceTextId, matchWholeWordId, caseSensitiveId, regexId, false, true, false);
+    }
+
+    /**
+     * Handles the event when the "Find and Replace All" button is clicked.
+     *
+     * @param findTextId       The ID of the text to find.
+     * @param replaceTextId    The ID of the text to replace.
+     * @param matchWholeWordId The ID of the checkbox indicating whether to match whole words.
+     * @param caseSensitiveId  The ID of the checkbox indicating whether the search is case-sensitive.
+     * @param regexId          The ID of the checkbox indicating whether the text is a regular expression.
+     */
+    public void onFindAndReplaceAllButtonEvent(String findTextId, String replaceTextId, String matchWholeWordId, String caseSensitiveId, String regexId) {
+        searchWord(findTextId, replaceTextId, matchWholeWordId, caseSensitiveId, regexId, true, true, false);
+    }
+
+    /**
+     * Searches for the specified word in the text area and optionally replaces it.
+     *
+     * @param findTextId          The ID of the text to find.
+     * @param replaceTextId       The ID of the text to replace.
+     * @param matchWholeWordId    The ID of the checkbox indicating whether to match whole words.
+     * @param caseSensitiveId     The ID of the checkbox indicating whether the search is case-sensitive.
+     * @param regexId             The ID of the checkbox indicating whether the text is a regular expression.
+     * @param searchAndReplaceAll Indicates whether to search and replace all occurrences.
+     * @param searchAndReplace    Indicates whether to perform a search and replace operation.
+     * @param searchBackwards     Indicates whether to search for the previous occurrence instead of the next.
+     */
+    private void searchWord(String findTextId, String replaceTextId, String matchWholeWordId, String caseSensitiveId, String regexId, boolean searchAndReplaceAll, boolean searchAndReplace, boolean searchBackwards) {
+        Stage findStage = getFindStage();
+        if (findStage == null) return;
+
+        LargeFilePane largeFilePane = getLargeFilePane(getCurrentSelectTab());
+        if (largeFilePane != null) {
+            searchLargeFile(findStage, largeFilePane, findTextId, matchWholeWordId, caseSensitiveId, regexId,
+                    searchAndReplace, searchBackwards);
+            return;
+        }
+
+        DocumentArea documentArea = getCurrentDocumentArea();
+        TextDocument document = getCurrentDocument();
+        if (documentArea == null || document == null) return;
+
+        int caretPosition = documentArea.getCaretPosition();
+
+        String replaceText = "";
+        if (searchAndReplace) replaceText = getReplaceText(findStage, replaceTextId);
+
+        Label label = getFindLabel(findStage);
+        SearchEngine engine = createSearchEngine(findStage, label, findTextId, matchWholeWordId, caseSensitiveId, regexId);
+        if (engine == null) return;
+
+        if (searchBackwards)
+            performBackwardSearch(documentArea, label, getMatchIndex(document, engine),
+                    documentArea.getSelection().getStart());
+        else if (!searchAndReplaceAll)
+            performSearch(documentArea, label, getMatchIndex(document, engine), replaceText, caretPosition);
+        else
+            performReplaceAll(documentArea, document, label, engine, replaceText);
+    }
+
+    /**
+     * Searches the next or the previous matching line of a large file, in the background, from the
+     * line holding the focus. A search still running is cancelled first. Large files are read-only,
+     * so nothing is replaced.
+     *
+     * @param findStage        The stage of the find pane.
+     * @param largeFilePane    The pane of the large file to search.
+     * @param findTextId       The ID of the text to find.
+     * @param matchWholeWordId The ID of the checkbox indicating whether to match whole words.
+     * @param caseSensitiveId  The ID of the checkbox indicating whether the search is case-sensitive.
+     * @param regexId          The ID of the checkbox indicating whether the text is a regular expression.
+     * @param searchAndReplace Indicates whether a replacement was requested.
+     * @param searchBackwards  Indicates whether to search for the previous match instead of the next.
+     */
+    private void searchLargeFile(Stage findStage, LargeFilePane largeFilePane, String findTextId,
+                                 String matchWholeWordId, String caseSensitiveId, String regexId,
+                                 boolean searchAndReplace, boolean searchBackwards) {
+        Label label = getFindLabel(findStage);
+
+        if (searchAndReplace) {
+            label.setText("Arquivo somente leitura.");
+            return;
+        }
+
+        SearchEngine engine = createSearchEngine(findStage, label, findTextId, matchWholeWordId, caseSensitiveId, regexId);
+        if (engine == null) return;
+
+        if (largeFileSearchTask != null) largeFileSearchTask.cancel();
+
+        LargeFileSearchTask task = new LargeFileSearchTask(largeFilePane.getFile(), engine,
+                largeFilePane.getCurrentLine(), searchBackwards);
+        largeFileSearchTask = task;
+
+        task.setOnSucceeded(event -> {
+            int line = task.getValue();
+
+            if (line < 0) {
+                label.setText("Nenhuma correspondência no arquivo.");
+                return;
+            }
+
+            largeFilePane.goToLine(line);
+            label.setText("Linha " + (line + 1) + ".");
+        });
+        task.setOnFailed(event -> label.setText("Não foi possível ler o arquivo: " + task.getException().getMessage()));
+
+        label.setText("Pesquisando...");
+        fileController.runInBackground(task);
+    }
+
+    /**
+     * Handles the event when the user wants to go to a line of the current tab, asking for its number.
+     */
+    public void onGoToLineEvent() {
+        Tab selectedTab = getCurrentSelectTab();
+        if (selectedTab == null) return;
+
+        TextInputDialog dialog = new TextInputDialog();
+        dialog.setTitle("Ir para a linha");
+        dialog.setHeaderText(null);
+        dialog.setContentText("Número da linha:");
+
+        Optional<String> answer = dialog.showAndWait();
+        if (answer.isEmpty()) return;
+
+        int line;
+        try {
+            line = Integer.parseInt(answer.get().trim()) - 1;
+        } catch (NumberFormatException e) {
+            showErrorAlert("Número de linha inválido", answer.get());
+            return;
+        }
+
+        LargeFilePane largeFilePane = getLargeFilePane(selectedTab);
+        if (largeFilePane != null) {
+            largeFilePane.goToLine(line);
+            return;
+        }
+
+        DocumentArea documentArea = getCurrentDocumentArea();
+        LineIndex lineIndex = tabController.getLineIndex(selectedTab);
+        if (documentArea == null || lineIndex == null) return;
+
+        int target = Math.max(0, Math.min(line, lineIndex.lineCount() - 1));
+
+        documentArea.positionCaret(lineIndex.lineStart(target));
+        documentArea.requestFocus();
+    }
+
+    /**
+     * Triggered when the text or the options of the find pane change. The matches are searched and
+     * highlighted in the background once the user stops typing for a moment, so a burst of
+     * keystrokes starts a single search.
+     *
+     * @param findTextId       The ID of the text to find.
+     * @param matchWholeWordId The ID of the checkbox indicating whether to match whole words.
+     * @param caseSensitiveId  The ID of the checkbox indicating whether the search is case-sensitive.
+     * @param regexId          The ID of the checkbox indicating whether the text is a regular expression.
+     */
+    public void onFindTextChangedEvent(String findTextId, String matchWholeWordId, String caseSensitiveId, String regexId) {
+        findAsYouTypeDelay.setOnFinished(event -> highlightAll(findTextId, matchWholeWordId, caseSensitiveId, regexId));
+        findAsYouTypeDelay.playFromStart();
+    }
+
+    /**
+     * Highlights every match of the find pane search in the current tab. The search of an older
+     * query is cancelled first, and the new one runs on a snapshot of the document, off the
+     * JavaFX Application Thread; its matches are highlighted batch by batch as they are found,
+     * until the document is edited.
+     *
+     * @param findTextId       The ID of the text to find.
+     * @param matchWholeWordId The ID of the checkbox indicating whether to match whole words.
+     * @param caseSensitiveId  The ID of the checkbox indicating whether the search is case-sensitive.
+     * @param regexId          The ID of the checkbox indicating whether the text is a regular expression.
+     */
+    private void highlightAll(String findTextId, String matchWholeWordId, String caseSensitiveId, String regexId) {
+        cancelHighlightAll();
+
+        Stage findStage = getFindStage();
+        if (findStage == null) return;
+
+        Label label = getFindLabel(findStage);
+        TextDocument document = getCurrentDocument();
+        HighlightPane highlightPane = getCurrentHighlightPane();
+        if (document == null || highlightPane == null) return;
+
+        SearchEngine engine = createSearchEngine(findStage, label, findTextId, matchWholeWordId, caseSensitiveId, regexId);
+        if (engine == null) return;
+
+        long version = document.version();
+        FindAllTask task = new FindAllTask(new ChunkedText(document.chunks()), engine);
+        task.setOnBatch(batch -> {
+            if (document.version() == version) highlightPane.addMatches(batch);
+        });
+        task.setOnSucceeded(event ->
+                label.setText("Total: " + task.getValue() + " correspondência no arquivo."));
+
+        findAllTask = task;
+        highlightedPane = highlightPane;
+        fileController.runInBackground(task);
+    }
+
+    /**
+     * Cancels the running find-as-you-type search, if any, and removes its highlights.
+     */
+    private void cancelHighlightAll() {
+        if (findAllTask != null) {
+            findAllTask.cancel();
+            findAllTask = null;
+        }
+
+        if (highlightedPane != null) {
+            highlightedPane.clear();
+            highlightedPane = null;
+        }
+    }
+
+    /**
+     * Handles the event when the "All tabs" button is clicked to search every open tab. Each tab is
+     * searched on its own background thread, from a snapshot of its document, and its matches are
+     * listed in the search results pane as soon as it is done. A search still running from a
+     * previous click is cancelled.
+     *
+     * @param findTextId       The ID of the text to find.
+     * @param matchWholeWordId The ID of the checkbox indicating whether to match whole words.
+     * @param caseSensitiveId  The ID of the checkbox indicating whether the search is case-sensitive.
+     * @param regexId          The ID of the checkbox indicating whether the text is a regular expression.
+     */
+    public void onFindInAllTabsEvent(String findTextId, String matchWholeWordId, String caseSensitiveId, String regexId) {
+        Stage findStage = getFindStage();
+        if (findStage == null) return;
+
+        Label label = getFindLabel(findStage);
+        SearchEngine engine = createSearchEngine(findStage, label, findTextId, matchWholeWordId, caseSensitiveId, regexId);
+        if (engine == null) return;
+
+        tabSearchTasks.forEach(LineSearchTask::cancel);
+        tabSearchTasks.clear();
+
+        SearchResultsPane resultsPane = Main.showSearchResultsPane();
+        resultsPane.clear();
+
+        int[] finished = {0};
+
+        for (Tab tab : tabController.lookupTabPane().getTabs()) {
+            TextFile textFile = textFileController.requestTextFile(tab.getId());
+            if (textFile == null) continue;
+
+            LineSearchTask task = new LineSearchTask(new ChunkedText(textFile.document().chunks()), engine);
+
+            task.setOnSucceeded(event -> {
+                if (!tabSearchTasks.contains(task)) return;
+
+                List<LineHit> hits = task.getValue();
+                if (!hits.isEmpty()) resultsPane.addResults(tab.getText(), hits, hit -> openHit(tab, hit));
+
+                resultsPane.setInfo(++finished[0] + " de " + tabSearchTasks.size() + " guias pesquisadas.");
+            });
+
+            tabSearchTasks.add(task);
+        }
+
+        tabSearchTasks.forEach(fileController::runInBackground);
+    }
+
+    /**
+     * Selects the tab of a match listed in the search results and selects the match in its text area.
+     * The tab may have been edited since it was searched, so the range is kept inside its text.
+     *
+     * @param tab The tab that was searched.
+     * @param hit The match to open.
+     */
+    private void openHit(Tab tab, LineHit hit) {
+        TabPane tabPane = tabController.lookupTabPane();
+        if (!tabPane.getTabs().contains(tab)) return;
+
+        tabController.selectedAndFocusTab(tab, tabPane);
+
+        LargeFilePane largeFilePane = getLargeFilePane(tab);
+        if (largeFilePane != null) {
+            largeFilePane.goToLine((int) Math.min(hit.line() - 1, Integer.MAX_VALUE));
+            return;
+        }
+
+        DocumentArea documentArea = (DocumentArea) ((BorderPane) tab.getContent()).getCenter();
+        int length = documentArea.getLength();
+
+        documentArea.selectRange((int) Math.min(hit.start(), length), (int) Math.min(hit.end(), length));
+        documentArea.requestFocus();
+    }
+
+    /**
+     * Handles the event when the "Choose directory" button is clicked, filling the directory text
+     * field with the directory chosen by the user.
+     *
+     * @param directoryId The ID of the text field of the directory to search.
+     */
+    public void onChooseSearchDirectoryEvent(String directoryId) {
+        Stage findStage = getFindStage();
+        if (findStage == null) return;
+
+        File directory = fileController.createDirectoryChooserAndGetDirectory("Selecionar pasta");
+        if (directory == null) return;
+
+        TextField textField = (TextField) findStage.getScene().lookup("#" + directoryId);
+        textField.setText(directory.getPath());
+    }
+
+    /**
+     * Handles the event when the "Find all" button of the find-in-files tab is clicked. The files
+     * of the directory are searched in the background, and the matches of each file are listed
+     * in the search results pane as soon as the file is done. A search still running from a
+     * previous click is cancelled.
+     *
+     * @param findTextId       The ID of the text to find.
+     * @param directoryId      The ID of the text field of the directory to search.
+     * @param includeId        The ID of the text field of the globs of the files to search.
+     * @param excludeId        The ID of the text field of the globs of the files and directories to skip.
+     * @param matchWholeWordId The ID of the checkbox indicating whether to match whole words.
+     * @param caseSensitiveId  The ID of the checkbox indicating whether the search is case-sensitive.
+     * @param regexId          The ID of the checkbox indicating whether the text is a regular expression.
+     * @param useIndexId       The ID of the checkbox indicating whether to narrow the search with the trigram index.
+     */
+    public void onFindInFilesButtonEvent(String findTextId, String directoryId, String includeId, String excludeId,
+                                         String matchWholeWordId, String caseSensitiveId, String regexId,
+                                         String useIndexId) {
+        Stage findStage = getFindStage();
+        if (findStage == null) return;
+
+        Label label = getFindLabel(findStage);
+        SearchEngine engine = createSearchEngine(findStage, label, findTextId, matchWholeWordId, caseSensitiveId, regexId);
+        if (engine == null) return;
+
+        Path directory = getSearchDirectory(findStage, directoryId);
+        if (directory == null) {
+            label.setText("Pasta não encontrada: " + getFindText(findStage, directoryId));
+            return;
+        }
+
+        GlobFilter filter;
+        try {
+            filter = new GlobFilter(getFindText(findStage, includeId), getFindText(findStage, excludeId));
+        } catch (IllegalArgumentException e) {
+            label.setText("Padrão de arquivos inválido: " + e.getMessage());
+            return;
+        }
+
+        onCancelFindInFilesEvent();
+
+        SearchResultsPane resultsPane = Main.showSearchResultsPane();
+        resultsPane.clear();
+
+        FindInFilesTask task = new FindInFilesTask(directory, engine, filter);
+        task.setOnFileHits(fileHits -> resultsPane.addResults(directory.relativize(fileHits.path()).toString(),
+                fileHits.hits(), hit -> openFileHit(fileHits.path(), hit)));
+        task.messageProperty().addListener((observable, oldMessage, message) -> {
+            if (findInFilesTask == task) resultsPane.setInfo(message);
+        });
+        task.setOnCancelled(event -> resultsPane.setInfo("Pesquisa cancelada."));
+        task.setOnFailed(event -> resultsPane.setInfo("Não foi possível atualizar o índice: "
+                + task.getException().getMessage()));
+
+        if (isIndexSearchRequested(findStage, useIndexId)) {
+            task.setIndex(getTrigramIndex(directory), createSearchQuery(findStage, findTextId, matchWholeWordId,
+                    caseSensitiveId, regexId));
+        }
+
+        findInFilesTask = task;
+        fileController.runInBackground(task);
+    }
+
+    /**
+     * Returns the trigram index of a directory, kept for the session so that later searches only
+     * re-index the files changed since.
+     *
+     * @param directory The directory.
+     * @return The index of the directory.
+     */
+    private TrigramIndex getTrigramIndex(Path directory) {
+        return trigramIndexes.computeIfAbsent(directory.toAbsolutePath().normalize(),
+                workspace -> new TrigramIndex(workspace, TrigramIndex.defaultDirectory()));
+    }
+
+    /**
+     * Returns the directory typed in the find-in-files tab.
+     *
+     * @param stage       The stage containing the find pane.
+     * @param directoryId The ID of the text field of the directory.
+     * @return The directory, or null if the text is not the path of an existing directory.
+     */
+    private Path getSearchDirectory(Stage stage, String directoryId) {
+        String text = getFindText(stage, directoryId).strip();
+        if (text.isEmpty()) return null;
+
+        try {
+            Path directory = Path.of(text);
+            return Files.isDirectory(directory) ? directory : null;
+
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Handles the event when the "Cancel" button of the find-in-files tab is clicked, stopping the running search.
+     */
+    public void onCancelFindInFilesEvent() {
+        if (findInFilesTask == null) return;
+
+        findInFilesTask.cancel();
+        findInFilesTask = null;
+    }
+
+    /**
+     * Opens a match listed by Find in Files: the tab of the file is selected if the file is open,
+     * or the file is opened in a new tab, then the match is selected.
+     *
+     * @param path The file of the match.
+     * @param hit  The match.
+     */
+    private void openFileHit(Path path, LineHit hit) {
+        for (Tab tab : tabController.lookupTabPane().getTabs()) {
+            TextFile textFile = textFileController.requestTextFile(tab.getId());
+
+            if (textFile != null && textFile.filePath() != null && Path.of(textFile.filePath()).equals(path)) {
+                openHit(tab, hit);
+                return;
+            }
+
+            LargeFilePane largeFilePane = getLargeFilePane(tab);
+            if (largeFilePane != null && largeFilePane.getFile().getPath().equals(path)) {
+                openHit(tab, hit);
+                return;
+            }
+        }
+
+        openFile(path.toFile(), tab -> openHit(tab, hit));
+    }
+
+    /**
+     * Handles the event when the "Count" button is clicked to count occurrences of a word.
+     *
+     * @param findTextId       The ID of the text to find.
+     * @param matchWholeWordId The ID of the checkbox indicating whether to match whole words.
+     * @param caseSensitiveId  The ID of the checkbox indicating whether the search is case-sensitive.
+     * @param regexId          The ID of the checkbox indicating whether the text is a regular expression.
+     */
+    public void onCountEvent(String findTextId, String matchWholeWordId, String caseSensitiveId, String regexId) {
+        Stage findStage = getFindStage();
+        if (findStage == null) return;
+
+        Label label = getFindLabel(findStage);
+        TextDocument document = getCurrentDocument();
+        if (document == null) return;
+
+        SearchEngine engine = createSearchEngine(findStage, label, findTextId, matchWholeWordId, caseSensitiveId, regexId);
+        if (engine == null) return;
+
+        int count = getMatchIndex(document, engine).count();
+
+        label.setText("Total: " + count + " correspondência no arquivo.");
+    }
+
+    /**
+     * Replaces every occurrence of the searched text in the current document as one undoable edit.
+     * The document is scanned once, from a snapshot of its chunks on a background thread, and only
+     * the matched text changes. The replacement is applied on the JavaFX Application Thread if the
+     * document was not edited during the scan. The number of replacements and the time they took
+     * are shown in the find information label. A Replace All still running is cancelled first.
+     *
+     * @param documentArea The text area showing the document.
+     * @param document     The document of the text area.
+     * @param label        The find information label.
+     * @param engine       The compiled search.
+     * @param replaceText  The text replacing each occurrence.
+     */
+    private void performReplaceAll(DocumentArea documentArea, TextDocument document, Label label, SearchEngine engine,
+                                   String replaceText) {
+        if (!documentArea.isEditable()) return;
+
+        if (replaceAllTask != null) replaceAllTask.cancel();
+
+        long startTime = System.nanoTime();
+        long version = document.version();
+
+        ReplaceAllTask task = new ReplaceAllTask(replaceAllEngine, new ChunkedText(document.chunks()), engine,
+                replaceText);
+        task.setOnSucceeded(event -> {
+            replaceAllTask = null;
+            Replacement replacement = task.getValue();
+
+            if (replacement == null) {
+                label.setText("Nenhuma correspondência no arquivo.");
+                return;
+            }
+
+            if (document.version() != version || !documentArea.isEditable()) {
+                label.setText("O arquivo foi alterado durante a substituição; nada foi substituído.");
+                return;
+            }
+
+            documentArea.replaceText(replacement.start(), replacement.end(), replacement.text());
+
+            long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+            label.setText("Total: " + replacement.count() + " substituições em " + elapsedMillis + " ms.");
+        });
+        task.setOnFailed(event -> {
+            replaceAllTask = null;
+            label.setText("Não foi possível substituir: " + task.getException().getMessage());
+        });
+
+        replaceAllTask = task;
+        label.setText("Substituindo...");
+        fileController.runInBackground(task);
+    }
+
+    /**
+     * Performs a search for the specified word in the text area, starting at the caret, and optionally replaces it.
+     * The matches come from the index of the document, so no part of the document is scanned or copied.
+     *
+     * @param documentArea  The text area in which to perform the search and replacement.
+     * @param label         The find information label, showing the position of the match.
+     * @param index         The index of the matches in the document of the text area.
+     * @param replaceText   The text to replace if a match is found.
+     * @param caretPosition The position of the caret in the text area.
+     */
+    private void performSearch(DocumentArea documentArea, Label label, MatchIndex index, String replaceText,
+                               int caretPosition) {
+        int match = index.indexAtOrAfter(caretPosition);
+
+        if (match < 0) {
+            Platform.runLater(() -> documentArea.positionCaret(0));
+            return;
+        }
+
+        int start = index.start(match);
+        int end = index.end(match);
+
+        if (replaceText.isEmpty()) {
+            documentArea.selectRange(start, end);
+            showMatchPosition(label, index, start);
+            return;
+        }
+
+        documentArea.replaceText(start, end, replaceText);
+        documentArea.selectRange(start, start + replaceText.length());
+        label.setText("Total: " + index.count() + " correspondência no arquivo.");
+    }
+
+    /**
+     * Performs a search for the previous occurrence of the specified word, ending before the start of the selection.
+     * When there is none, the caret wraps to the end of the text so the next search starts over from there.
+     *
+     * @param documentArea The text area in which to perform the search.
+     * @param label        The find information label, showing the position of the match.
+     * @param index        The index of the matches in the document of the text area.
+     * @param before       The offset the occurrence must end at or before.
+     */
+    private void performBackwardSearch(DocumentArea documentArea, Label label, MatchIndex index, int before) {
+        int match = index.indexBefore(before);
+
+        if (match < 0) {
+            Platform.runLater(documentArea::end);
+            return;
+        }
+
+        documentArea.selectRange(index.start(match), index.end(match));
+        showMatchPosition(label, index, index.start(match));
+    }
+
+    /**
+     * Shows which of the matches of the document is selected, as "match i of N".
+     *
+     * @param label The find information label.
+     * @param index The index of the matches.
+     * @param start The start offset of the selected match.
+     */
+    private void showMatchPosition(Label label, MatchIndex index, int start) {
+        int match = index.indexAtOrAfter(start);
+        if (match < 0) return;
+
+        label.setText("Correspondência " + (match + 1) + " de " + index.count() + ".");
+    }
+
+    /**
+     * Returns the index of the matches of the search in the document. The index of the previous
+     * search is kept, and follows the edits of its document, as long as the same search is made
+     * in the same document; otherwise it is replaced.
+     *
+     * @param document The document to search.
+     * @param engine   The compiled search.
+     * @return The index of the matches.
+     */
+    private MatchIndex getMatchIndex(TextDocument document, SearchEngine engine) {
+        if (matchIndex != null && matchIndex.isFor(document, engine)) return matchIndex;
+
+        closeMatchIndex();
+        matchIndex = new MatchIndex(document, engine);
+        return matchIndex;
+    }
+
+    /**
+     * Releases the index of the previous search, which stops following the edits of its document.
+     */
+    private void closeMatchIndex() {
+        if (matchIndex == null) return;
+
+        matchIndex.close();
+        matchIndex = null;
+    }
+
+    /**
+     * Retrieves the find information label from the specified stage.
      *
      * @param stage The stage containing the find information label.
      * @return The find information label.
@@ -738,24 +1835,87 @@ public class EventController {
     }
 
     /**
-     * Creates a regular expression pattern for the specified find text, case sensitivity, and whole word matching.
+     * Determines whether the "Regular Expression" checkbox is selected in the specified stage.
+     *
+     * @param stage The stage containing the checkbox.
+     * @param id    The ID of the checkbox.
+     * @return True if the checkbox is selected, false otherwise.
+     */
+    private boolean isRegexSearchRequested(Stage stage, String id) {
+        CheckBox checkBox = (CheckBox) stage.getScene().lookup("#" + id);
+        return checkBox.isSelected();
+    }
+
+    /**
+     * Determines whether the "Use Index" checkbox is selected in the specified stage.
+     *
+     * @param stage The stage containing the checkbox.
+     * @param id    The ID of the checkbox.
+     * @return True if the checkbox is selected, false otherwise.
+     */
+    private boolean isIndexSearchRequested(Stage stage, String id) {
+        CheckBox checkBox = (CheckBox) stage.getScene().lookup("#" + id);
+        return checkBox.isSelected();
+    }
+
+    /**
+     * Compiles the search described by the find pane, or takes it from the cache when the same
+     * search was made recently. Plain text is searched with the literal engine; only a regular
+     * expression is compiled to a pattern. An empty text or an invalid
+     * expression is reported in the find information label.
+     *
+     * @param stage            The stage containing the find pane.
+     * @param label            The find information label.
+     * @param findTextId       The ID of the text to find.
+     * @param matchWholeWordId The ID of the checkbox indicating whether to match whole words.
+     * @param caseSensitiveId  The ID of the checkbox indicating whether the search is case-sensitive.
+     * @param regexId          The ID of the checkbox indicating whether the text is a regular expression.
+     * @return The compiled search, or null if there is nothing valid to search for.
+     */
+    private SearchEngine createSearchEngine(Stage stage, Label label, String findTextId, String matchWholeWordId,
+                                            String caseSensitiveId, String regexId) {
+        String findText = getFindText(stage, findTextId);
+
+        if (findText == null || findText.isEmpty()) {
+            label.setText("");
+            return null;
+        }
+
+        SearchQuery query = createSearchQuery(stage, findTextId, matchWholeWordId, caseSensitiveId, regexId);
+
+        try {
+            return searchEngineCache.get(query);
+
+        } catch (PatternSyntaxException e) {
+            label.setText("Expressão regular inválida: " + e.getDescription());
+            return null;
+        }
+    }
+
+    /**
+     * Describes the search set in the find pane.
      *
-     * @param findText       The text to find.
-     * @param caseSensitive  Indicates whether the search is case-sensitive.
-     * @param matchWholeWord Indicates whether to match whole words only.
-     * @return The regular expression pattern.
+     * @param stage            The stage containing the find pane.
+     * @param findTextId       The ID of the text to find.
+     * @param matchWholeWordId The ID of the checkbox indicating whether to match whole words.
+     * @param caseSensitiveId  The ID of the checkbox indicating whether the search is case-sensitive.
+     * @param regexId          The ID of the checkbox indicating whether the text is a regular expression.
+     * @return The query.
      */
-    private Pattern createRegexPattern(String findText, boolean caseSensitive, boolean matchWholeWord) {
-        String regexString = Pattern.quote(findText);
-        if (matchWholeWord) regexString = "\\b" + regexString + "\\b";
-        if (!caseSensitive) regexString = "(?i)" + regexString;
-        return Pattern.compile(regexString);
+    private SearchQuery createSearchQuery(Stage stage, String findTextId, String matchWholeWordId,
+                                          String caseSensitiveId, String regexId) {
+        return new SearchQuery(getFindText(stage, findTextId), isCaseSensitiveSearchRequested(stage, caseSensitiveId),
+                isMatchWholeWord(stage, matchWholeWordId), isRegexSearchRequested(stage, regexId));
     }
 
     /**
      * Closes the find stage if it is open.
      */
     public void onCloseFindPaneEvent() {
+        closeMatchIndex();
+        findAsYouTypeDelay.stop();
+        cancelHighlightAll();
+
         Stage findStage = getFindStage();
         if (findStage == null) return;
         findStage.close();
@@ -773,7 +1933,8 @@ public class EventController {
             String title = ((Stage) window).getTitle();
 
             if (title.equalsIgnoreCase("Localizar") ||
-                    title.equalsIgnoreCase("Substituir")) {
+                    title.equalsIgnoreCase("Substituir") ||
+                    title.equalsIgnoreCase("Localizar nos arquivos")) {
                 stage = (Stage) window;
                 break;
             }
@@ -785,14 +1946,36 @@ public class EventController {
     /**
      * Retrieves the text area from the currently selected tab.
      *
-     * @return The text area from the currently selected tab, or null if no tab is selected.
+     * @return The text area from the currently selected tab, or null if no tab is selected or the
+     *         tab shows a large file.
      */
-    private TextArea getCurrentTextArea() {
-        TabPane tabPane = tabController.lookupTabPane();
+    private DocumentArea getCurrentDocumentArea() {
+        BorderPane borderPane = getCurrentBorderPane();
 
-        Tab selectedTab = tabPane.getSelectionModel().getSelectedItem();
+        return borderPane != null && borderPane.getCenter() instanceof DocumentArea documentArea
+                ? documentArea : null;
+    }
+
+    /**
+     * Retrieves the DocumentArea of a tab.
+     *
+     * @param tab The tab.
+     * @return The DocumentArea of the tab, or null if it does not show a document.
+     */
+    private DocumentArea getDocumentArea(Tab tab) {
+        return tab.getContent() instanceof BorderPane borderPane
+                && borderPane.getCenter() instanceof DocumentArea documentArea ? documentArea : null;
+    }
 
-        return selectedTab != null ? ((TextArea) ((BorderPane) selectedTab.getContent()).getCenter()) : null;
+    /**
+     * Retrieves the pane of a tab showing a large file.
+     *
+     * @param tab The tab.
+     * @return The LargeFilePane of the tab, or null if the tab does not show a large file.
+     */
+    private LargeFilePane getLargeFilePane(Tab tab) {
+        return tab != null && tab.getContent() instanceof BorderPane borderPane
+                && borderPane.getCenter() instanceof LargeFilePane largeFilePane ? largeFilePane : null;
     }
 
     /**
@@ -806,4 +1989,24 @@ public class EventController {
 
         return selectedTab != null ? (BorderPane) selectedTab.getContent() : null;
     }
+
+    /**
+     * Retrieves the HighlightPane laid over the text area of the currently selected tab.
+     *
+     * @return The HighlightPane of the selected tab, or null if no tab is selected.
+     */
+    private HighlightPane getCurrentHighlightPane() {
+        BorderPane borderPane = getCurrentBorderPane();
+
+        return borderPane != null ? (HighlightPane) borderPane.lookup("#highlight-pane") : null;
+    }
+
+    /**
+     * The file watched for a tab.
+     *
+     * @param path    The path of the file.
+     * @param unwatch The action that stops watching the file.
+     */
+    private record FileWatch(Path path, Runnable unwatch) {
+    }
 }
@@ -1,70 +1,146 @@
 package org.texteditor.controllers;
 
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import org.texteditor.io.FileWatcher;
+import org.texteditor.io.SaveFileTask;
+import org.texteditor.model.document.TextDocument;
+
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Paths;
-import java.util.Scanner;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
 /**
  * Controller class for managing file operations in the text editor.
  */
 public class FileController {
 
+    /**
+     * The maximum number of files written at the same time, set with the
+     * "texteditor.save.concurrency" system property.
+     */
+    private static final int SAVE_CONCURRENCY = Math.max(1, Integer.getInteger("texteditor.save.concurrency", 8));
+
+    /**
+     * The size in bytes from which a file is opened read-only in a paged view instead of being
+     * loaded into a document, set with the "texteditor.largeFile.threshold" system property.
+     */
+    private static final long LARGE_FILE_THRESHOLD = Long.getLong("texteditor.largeFile.threshold", 256L << 20);
+
     private final FileChooser.ExtensionFilter FILES_EXTENSION =
             new FileChooser.ExtensionFilter("Text Files", "*.txt");
 
     private final Stage stage;
+    private final ExecutorService backgroundExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Path, CompletableFuture<Void>> pendingSaves = new ConcurrentHashMap<>();
+    private final Semaphore saveSlots = new Semaphore(SAVE_CONCURRENCY, true);
+
+    private FileWatcher fileWatcher;
 
     public FileController(Stage stage) {
         this.stage = stage;
     }
 
     /**
-     * Writes the given text to a file specified by the filePath.
+     * Starts writing the given document to a file specified by the filePath, in the background.
+     * The document is captured as it is now and streamed chunk by chunk, so it can keep being
+     * edited during the save. Saves of the same file run one after the other, in the order
+     * they were started, so the file always ends up with the latest content. Saves of different
+     * files run in parallel, at most {@link #SAVE_CONCURRENCY} at a time.
      *
-     * @param filePath The path of the file to write.
-     * @param fileText The text to be written to the file.
+     * @param filePath      The path of the file to write.
+     * @param document      The document to be written to the file.
+     * @param charset       The charset used to encode the document.
+     * @param onlyIfMissing Whether to write the file only if it does not exist, checked in the background.
+     * @return The task writing the file, to follow its progress and outcome.
      */
-    public void writeFile(String filePath, String fileText) {
-        File file = new File(filePath);
+    public SaveFileTask writeFile(String filePath, TextDocument document, Charset charset, boolean onlyIfMissing) {
+        SaveFileTask task = new SaveFileTask(Path.of(filePath), document.chunks(), document.length(), charset,
+                onlyIfMissing);
+        Path target = task.getTarget();
 
-        try (FileWriter fileWriter = new FileWriter(file, false)) {
-            fileWriter.write(fileText);
+        CompletableFuture<Void> previous = pendingSaves.getOrDefault(target, CompletableFuture.completedFuture(null));
+        CompletableFuture<Void> save = previous.thenRunAsync(() -> runWithSaveSlot(task), backgroundExecutor);
 
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        pendingSaves.put(target, save);
+        save.whenComplete((result, exception) -> pendingSaves.remove(target, save));
+
+        return task;
     }
 
     /**
-     * Reads the contents of a file and returns them as a string.
+     * Tells whether a file is large enough to be opened in the read-only paged view.
      *
-     * @param file The file to read.
-     * @return The contents of the file as a string.
+     * @param file The file to open.
+     * @return true if the file is at least {@link #LARGE_FILE_THRESHOLD} bytes long.
      */
-    public String readFile(File file) {
-        try {
-            StringBuilder stringBuilder = new StringBuilder();
-            Scanner scanner = new Scanner(Paths.get(file.getPath()));
+    public boolean isLargeFile(File file) {
+        return file.length() >= LARGE_FILE_THRESHOLD;
+    }
 
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                stringBuilder.append(line)
-                        .append(System.lineSeparator());
-            }
+    /**
+     * Blocks until every save started so far has finished, so the application can exit
+     * without cutting a save short.
+     */
+    public void awaitPendingSaves() {
+        CompletableFuture.allOf(pendingSaves.values().toArray(new CompletableFuture<?>[0])).join();
+    }
 
-            scanner.close();
-            return stringBuilder.toString();
+    /**
+     * Runs a save once a save slot is free, so that no more than the configured number of
+     * files are written at once.
+     *
+     * @param task The save to run.
+     */
+    private void runWithSaveSlot(SaveFileTask task) {
+        try {
+            saveSlots.acquire();
+        } catch (InterruptedException e) {
+            task.cancel();
+            return;
+        }
 
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        try {
+            task.run();
+        } finally {
+            saveSlots.release();
         }
     }
 
+    /**
+     * Runs a file operation on its own virtual thread, away from the JavaFX Application Thread.
+     *
+     * @param task The operation to run.
+     */
+    public void runInBackground(Runnable task) {
+        backgroundExecutor.execute(task);
+    }
+
+    /**
+     * Calls a listener whenever a file may have changed. Every watched file shares the same
+     * {@link FileWatcher}, created the first time a file is watched.
+     *
+     * @param file     The file to watch.
+     * @param listener The listener, called on the watcher thread.
+     * @param poll     Whether the listener is also called at every poll interval of the watcher.
+     * @return The action that stops watching the file.
+     * @throws IOException If the file cannot be watched.
+     */
+    public synchronized Runnable watchFile(Path file, Runnable listener, boolean poll) throws IOException {
+        if (fileWatcher == null) fileWatcher = new FileWatcher();
+
+        return fileWatcher.watch(file, listener, poll);
+    }
+
     /**
      * Creates a file chooser dialog for opening files and returns the selected file.
      *
@@ -79,6 +155,19 @@ public class FileController {
         return fileChooser.showOpenDialog(stage);
     }
 
+    /**
+     * Creates a directory chooser dialog and returns the selected directory.
+     *
+     * @param content The title/content of the directory chooser dialog.
+     * @return The selected directory or null if no directory is chosen.
+     */
+    public File createDirectoryChooserAndGetDirectory(String content) {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle(content);
+
+        return directoryChooser.showDialog(stage);
+    }
+
     /**
      * Creates a file chooser dialog for saving files and returns the selected file.
      *
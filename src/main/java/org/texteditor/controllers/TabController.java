@@ -1,156 +1,360 @@
 package org.texteditor.controllers;
 
-import javafx.application.Platform;
-import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
+import javafx.concurrent.WorkerStateEvent;
 import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
-import javafx.scene.control.TextArea;
-import javafx.scene.input.Clipboard;
-import javafx.scene.input.DataFormat;
-import javafx.scene.input.KeyCode;
-import javafx.scene.input.KeyEvent;
+import javafx.scene.control.Tooltip;
 import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
 import javafx.stage.Stage;
 import org.texteditor.Main;
+import org.texteditor.io.FollowFileTask;
+import org.texteditor.io.FollowLargeFileTask;
+import org.texteditor.io.FollowTask;
+import org.texteditor.io.LargeFileIndexTask;
+import org.texteditor.io.LargeTextFile;
+import org.texteditor.io.OpenFileTask;
 import org.texteditor.model.TextFile;
+import org.texteditor.model.document.LineIndex;
+import org.texteditor.model.document.TextDocument;
+import org.texteditor.model.document.TextStatistics;
+import org.texteditor.viewers.control.DocumentArea;
+import org.texteditor.viewers.pane.HighlightPane;
+import org.texteditor.viewers.pane.LargeFilePane;
+import org.texteditor.viewers.pane.LineNumberPane;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Controller class for managing tabs in the text editor.
  */
 public class TabController {
 
-    private final Stage stage;
+    private static final System.Logger LOGGER = System.getLogger(TabController.class.getName());
 
-    private VBox vBox;
+    private final Stage stage;
+    private final Map<Tab, DocumentArea> documentAreas = new HashMap<>();
 
     public TabController(Stage stage) {
         this.stage = stage;
     }
 
     /**
-     * Creates a new tab with the specified name, ID, and content.
+     * Creates a new tab with the specified name and ID, showing the document of the TextFile.
      *
      * @param textFile The associated TextFile.
      * @param tabName  The name of the tab.
      * @param id       The ID of the tab.
-     * @param content  The initial content of the tab.
      * @return The created tab.
      */
-    public Tab createNewTab(TextFile textFile, String tabName, String id, String content) {
+    public Tab createNewTab(TextFile textFile, String tabName, String id) {
+        return createTab(textFile, tabName, id, null);
+    }
+
+    /**
+     * Creates a new tab whose content is streamed in by the given task.
+     * The tab shows the progress of the task and is read-only until the file is loaded;
+     * closing it cancels the task.
+     *
+     * @param textFile The associated TextFile, with an empty document.
+     * @param tabName  The name of the tab.
+     * @param id       The ID of the tab.
+     * @param task     The task decoding the file, not started yet.
+     * @return The created tab.
+     */
+    public Tab createLoadingTab(TextFile textFile, String tabName, String id, OpenFileTask task) {
+        return createTab(textFile, tabName, id, task);
+    }
+
+    /**
+     * Creates a read-only tab showing a large file, line by line, while the given task indexes it.
+     * The rows of the lines are added as the task progresses, and closing the tab cancels the task
+     * and closes the file.
+     *
+     * @param tabName The name of the tab.
+     * @param id      The ID of the tab.
+     * @param task    The task indexing the file, not started yet.
+     * @return The created tab.
+     */
+    public Tab createLargeFileTab(String tabName, String id, LargeFileIndexTask task) {
         Tab tab = new Tab(tabName);
         tab.setId(id);
 
-        TextArea textArea = initializeTextArea(content);
-        VBox vBox = createLineNumberVBox(textArea);
+        LargeTextFile file = task.getFile();
+        LargeFilePane largeFilePane = new LargeFilePane(file);
+        largeFilePane.configure();
+
+        BorderPane borderPane = new BorderPane();
+        borderPane.setCenter(largeFilePane);
+        tab.setContent(borderPane);
+
+        trackTask(tab, task);
+        task.progressProperty().addListener(observable -> largeFilePane.refresh());
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_SUCCEEDED, event -> largeFilePane.refresh());
 
-        BorderPane borderPane = createBorderPane(textArea, vBox);
+        tab.setOnClosed(event -> {
+            task.cancel();
+            try {
+                file.close();
+            } catch (IOException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Cannot close " + file.getPath(), e);
+            }
+        });
 
-        defineScrollEvent(borderPane, textArea, vBox);
+        return tab;
+    }
+
+    /**
+     * Creates a tab editing the document of the given TextFile.
+     *
+     * @param textFile The associated TextFile.
+     * @param tabName  The name of the tab.
+     * @param id       The ID of the tab.
+     * @param task     The task streaming the content of the tab, or null if the content is complete.
+     * @return The created tab.
+     */
+    private Tab createTab(TextFile textFile, String tabName, String id, OpenFileTask task) {
+        Tab tab = new Tab(tabName);
+        tab.setId(id);
+
+        TextDocument document = textFile.document();
+        LineIndex lineIndex = new LineIndex(document);
+        document.addDocumentListener(lineIndex);
+
+        TextStatistics statistics = new TextStatistics(document);
+        document.addDocumentListener(statistics);
+
+        DocumentArea documentArea = new DocumentArea(document, lineIndex);
+
+        documentAreas.put(tab, documentArea);
+        tab.tabPaneProperty().addListener((observable, oldTabPane, tabPane) -> {
+            if (tabPane == null) documentAreas.remove(tab);
+        });
+
+        LineNumberPane lineNumberPane = createLineNumberPane(documentArea, lineIndex);
+
+        HighlightPane highlightPane = createHighlightPane(documentArea, document, lineIndex);
+        BorderPane borderPane = createBorderPane(documentArea, lineNumberPane, highlightPane);
+
+        defineScrollEvent(borderPane, documentArea, lineNumberPane);
 
         tab.setContent(borderPane);
 
         defineTabCloseEvent(tab, textFile);
 
-        textArea.textProperty().addListener((obs, oldText, newText) ->
-                updateLineNumber(textArea, vBox));
+        defineTextChangeEvent(document, lineNumberPane, statistics);
 
-        this.vBox = vBox;
+        if (task != null)
+            defineLoadingEvents(tab, documentArea, task);
 
         return tab;
     }
 
     /**
-     * Initializes a new TextArea with the given content.
+     * Streams the chunks decoded by the task into the tab's document, where they are kept as loaded
+     * text rather than as edits. The caret and the scroll position stay where they are, and the
+     * appended text cannot be undone. The tab shows the progress of the task and is read-only until
+     * the task stops.
      *
-     * @param content The initial content of the TextArea.
-     * @return The initialized TextArea.
+     * @param tab          The tab being loaded.
+     * @param documentArea The DocumentArea of the tab.
+     * @param task         The task decoding the file.
      */
-    private TextArea initializeTextArea(String content) {
-        TextArea textArea = new TextArea(content);
-        defineKeyTypeEvent(textArea);
+    private void defineLoadingEvents(Tab tab, DocumentArea documentArea, OpenFileTask task) {
+        TextDocument document = documentArea.getDocument();
+        documentArea.setEditable(false);
 
-        return textArea;
+        trackTask(tab, task);
+
+        task.setOnChunk(document::appendLoaded);
+        task.setOnRestart(() -> document.delete(0, document.length()));
+
+        task.runningProperty().addListener((observable, wasRunning, running) -> {
+            if (!running) documentArea.setEditable(true);
+        });
+
+        tab.setOnClosed(event -> task.cancel());
     }
 
     /**
-     * Creates a VBox to display line numbers for the given TextArea.
+     * Returns the line index of the document shown in a tab.
      *
-     * @param textArea The TextArea for which line numbers are displayed.
-     * @return The created VBox with line numbers.
+     * @param tab The tab.
+     * @return The line index, or null if the tab does not show a document.
      */
-    private VBox createLineNumberVBox(TextArea textArea) {
-        VBox vBox = new VBox();
-        vBox.setPrefWidth(40.0);
-        vBox.setId("line-box");
-        updateLineNumber(textArea, vBox);
-        return vBox;
+    public LineIndex getLineIndex(Tab tab) {
+        DocumentArea documentArea = documentAreas.get(tab);
+        return documentArea == null ? null : documentArea.getLineIndex();
     }
 
     /**
-     * Creates a BorderPane with the given TextArea and VBox.
+     * Loads the file of a tab again, replacing the content of its document with the chunks the
+     * task decodes, as when the tab was opened.
      *
-     * @param textArea The TextArea to be placed in the center.
-     * @param vBox     The VBox to be placed on the left.
-     * @return The created BorderPane.
+     * @param tab  The tab of the reloaded file.
+     * @param task The task decoding the file, not started yet.
+     * @return True if the tab can be reloaded, false if it does not show a document.
      */
-    private BorderPane createBorderPane(TextArea textArea, VBox vBox) {
-        BorderPane borderPane = new BorderPane();
-        borderPane.setCenter(textArea);
-        borderPane.setLeft(vBox);
-        return borderPane;
+    public boolean reloadTab(Tab tab, OpenFileTask task) {
+        DocumentArea documentArea = documentAreas.get(tab);
+        if (documentArea == null) return false;
+
+        TextDocument document = documentArea.getDocument();
+        document.delete(0, document.length());
+        defineLoadingEvents(tab, documentArea, task);
+        return true;
     }
 
     /**
-     * Handles the paste event, updating line numbers and label after pasting.
+     * Appends what the task reads from the file of a tab to its document, as loaded text that
+     * cannot be undone. The DocumentArea stays read-only while the file is followed. The caret is
+     * moved to the end, and the view scrolls along with the appended text as long as the caret
+     * stays there; moving the caret away keeps the view where it is.
      *
-     * @param textArea The TextArea for which the paste event is handled.
+     * @param tab  The tab of the followed file.
+     * @param task The task following the file, not started yet.
      */
-    private void handlePaste(TextArea textArea) {
-        Platform.runLater(() -> {
-            Clipboard clipboard = Clipboard.getSystemClipboard();
-            if (clipboard.hasContent(DataFormat.PLAIN_TEXT)) {
-                updateLineNumber(textArea, this.vBox);
-                ObservableList<CharSequence> list = textArea.getParagraphs();
-                int par = list.size();
-                String[] words = textArea.getText().split("\\s+");
-                updateLabel(par, words.length, textArea.getLength());
-            }
+    public void followFile(Tab tab, FollowFileTask task) {
+        DocumentArea documentArea = documentAreas.get(tab);
+        if (documentArea == null) return;
+
+        TextDocument document = documentArea.getDocument();
+        documentArea.setEditable(false);
+        documentArea.end();
+
+        showFollowing(tab, task);
+
+        task.setOnChunk(chunk -> {
+            int caretPosition = documentArea.getCaretPosition();
+            boolean atEnd = documentArea.getAnchor() == caretPosition && caretPosition == document.length();
+
+            document.appendLoaded(chunk);
+
+            if (atEnd) documentArea.end();
+        });
+        task.setOnRestart(() -> document.delete(0, document.length()));
+
+        task.runningProperty().addListener((observable, wasRunning, running) -> {
+            if (!running) documentArea.setEditable(true);
+        });
+    }
+
+    /**
+     * Shows the lines the task indexes in a large file tab as the file grows. The last line takes
+     * the focus, and the view follows the new lines as long as it keeps it.
+     *
+     * @param tab  The tab of the followed file.
+     * @param task The task following the file, not started yet.
+     */
+    public void followLargeFile(Tab tab, FollowLargeFileTask task) {
+        LargeFilePane largeFilePane = (LargeFilePane) ((BorderPane) tab.getContent()).getCenter();
+        largeFilePane.goToLine(Integer.MAX_VALUE);
+
+        showFollowing(tab, task);
+
+        task.setOnGrow(largeFilePane::grow);
+    }
+
+    /**
+     * Marks a tab as followed until the task following its file stops.
+     *
+     * @param tab  The tab of the followed file.
+     * @param task The task following the file.
+     */
+    private void showFollowing(Tab tab, FollowTask task) {
+        Label marker = new Label("⇣");
+        marker.setTooltip(new Tooltip("Acompanhando o arquivo"));
+        tab.setGraphic(marker);
+
+        task.runningProperty().addListener((observable, wasRunning, running) -> {
+            if (!running && tab.getGraphic() == marker) tab.setGraphic(null);
         });
     }
 
     /**
-     * Updates the line numbers displayed in the VBox based on the TextArea content.
+     * Shows the progress of a background task on a tab until the task is finished.
      *
-     * @param textArea   The TextArea for which line numbers are displayed.
-     * @param lineNumber The VBox containing line numbers.
+     * @param tab  The tab the task works for.
+     * @param task The task to follow.
      */
-    private void updateLineNumber(TextArea textArea, VBox lineNumber) {
-        lineNumber.getChildren().clear();
+    public void trackTask(Tab tab, Task<?> task) {
+        ProgressIndicator progressIndicator = new ProgressIndicator();
+        progressIndicator.progressProperty().bind(task.progressProperty());
+        progressIndicator.setPrefSize(16, 16);
+        tab.setGraphic(progressIndicator);
+
+        task.stateProperty().addListener((observable, oldState, state) -> {
+            boolean finished = state == Worker.State.SUCCEEDED || state == Worker.State.FAILED
+                    || state == Worker.State.CANCELLED;
+
+            if (finished && tab.getGraphic() == progressIndicator) tab.setGraphic(null);
+        });
+    }
 
-        int totalLines = textArea.getText().split("\n").length;
+    /**
+     * Creates a LineNumberPane to display the line numbers of the given DocumentArea.
+     *
+     * @param documentArea The DocumentArea for which line numbers are displayed.
+     * @param lineIndex    The line index of the document edited by the DocumentArea.
+     * @return The created LineNumberPane.
+     */
+    private LineNumberPane createLineNumberPane(DocumentArea documentArea, LineIndex lineIndex) {
+        LineNumberPane lineNumberPane = new LineNumberPane(documentArea, lineIndex);
+        lineNumberPane.configure();
+        return lineNumberPane;
+    }
 
-        for (int i = 1; i <= totalLines; i++) {
-            lineNumber.getChildren().add(new Label("    " + i));
-        }
+    /**
+     * Creates a HighlightPane to display the search matches over the given DocumentArea.
+     *
+     * @param documentArea The DocumentArea whose matches are highlighted.
+     * @param document     The document edited by the DocumentArea.
+     * @param lineIndex    The line index of the document edited by the DocumentArea.
+     * @return The created HighlightPane.
+     */
+    private HighlightPane createHighlightPane(DocumentArea documentArea, TextDocument document, LineIndex lineIndex) {
+        HighlightPane highlightPane = new HighlightPane(documentArea, document, lineIndex);
+        highlightPane.configure();
+        return highlightPane;
+    }
+
+    /**
+     * Creates a BorderPane with the given DocumentArea and LineNumberPane, and the HighlightPane on top
+     * of the DocumentArea.
+     *
+     * @param documentArea   The DocumentArea to be placed in the center.
+     * @param lineNumberPane The LineNumberPane to be placed on the left.
+     * @param highlightPane  The HighlightPane laid over the DocumentArea.
+     * @return The created BorderPane.
+     */
+    private BorderPane createBorderPane(DocumentArea documentArea, LineNumberPane lineNumberPane,
+                                        HighlightPane highlightPane) {
+        BorderPane borderPane = new BorderPane();
+        borderPane.setCenter(documentArea);
+        borderPane.setLeft(lineNumberPane);
+        borderPane.getChildren().add(highlightPane);
+        return borderPane;
     }
 
     /**
      * Updates the information label with paragraph count, word count, and character count.
+     * The counts are maintained incrementally by the statistics, so this does not scan the text.
      *
-     * @param paragraphCount The number of paragraphs.
-     * @param wordCount      The number of words.
-     * @param charCount      The number of characters.
+     * @param statistics The statistics of the document shown in the tab.
      */
-    private void updateLabel(int paragraphCount, int wordCount, int charCount) {
+    private void updateLabel(TextStatistics statistics) {
         Label infoLabel = lookupLabel();
         if (infoLabel == null) return;
-        infoLabel.setText("Paragraph: " + paragraphCount + "   |   Words: " + wordCount
-                + "   |   Characters: " + charCount);
+        infoLabel.setText("Paragraph: " + statistics.getParagraphCount() + "   |   Words: "
+                + statistics.getWordCount() + "   |   Characters: " + statistics.getCharacterCount());
     }
 
     /**
@@ -194,64 +398,60 @@ public class TabController {
     public void selectedAndFocusTab(Tab tab, TabPane tabPane) {
         tabPane.getSelectionModel().select(tab);
         Node contentNode = tab.getContent();
-        if (contentNode instanceof TextArea) contentNode.requestFocus();
+        if (contentNode instanceof BorderPane borderPane && borderPane.getCenter() instanceof DocumentArea documentArea)
+            documentArea.requestFocus();
     }
 
     /**
-     * Defines the key type event for a TextArea, updating the information label.
+     * Defines the text change event for a document, refreshing the line numbers and the information label.
      *
-     * @param textArea The TextArea for which the key type event is defined.
+     * @param document       The document for which the text change event is defined.
+     * @param lineNumberPane The LineNumberPane displaying the line numbers of the document.
+     * @param statistics     The statistics of the document.
      */
-    private void defineKeyTypeEvent(TextArea textArea) {
-        textArea.setOnKeyTyped(keyEvent -> {
-            ObservableList<CharSequence> list = textArea.getParagraphs();
-            int paragraphCount = list.size();
-            String[] words = textArea.getText().split("\\s+");
-            updateLabel(paragraphCount, words.length, textArea.getLength());
-        });
-
-        textArea.addEventFilter(KeyEvent.KEY_PRESSED, keyEvent -> {
-            if ((keyEvent.isShortcutDown() && keyEvent.getCode() == KeyCode.V) ||
-                    (keyEvent.isMetaDown() && keyEvent.getCode() == KeyCode.V)) {
-                handlePaste(textArea);
-            }
+    private void defineTextChangeEvent(TextDocument document, LineNumberPane lineNumberPane,
+                                       TextStatistics statistics) {
+        document.addDocumentListener((editedDocument, start, end, inserted) -> {
+            lineNumberPane.refresh();
+            updateLabel(statistics);
         });
     }
 
     /**
-     * Defines the scroll event for the given BorderPane, TextArea, and VBox.
-     * This event adjusts the font size of the TextArea and the VBox width
+     * Defines the scroll event for the given BorderPane, DocumentArea, and LineNumberPane.
+     * This event adjusts the font size of the DocumentArea and the LineNumberPane width
      * based on the scroll direction.
      *
-     * @param borderPane The BorderPane to which the scroll event is applied.
-     * @param textArea   The TextArea whose font size will be adjusted.
-     * @param vBox       The VBox whose width will be adjusted based on font size.
+     * @param borderPane     The BorderPane to which the scroll event is applied.
+     * @param documentArea   The DocumentArea whose font size will be adjusted.
+     * @param lineNumberPane The LineNumberPane whose width will be adjusted based on font size.
      */
-    private void defineScrollEvent(BorderPane borderPane, TextArea textArea, VBox vBox) {
+    private void defineScrollEvent(BorderPane borderPane, DocumentArea documentArea, LineNumberPane lineNumberPane) {
         borderPane.setOnScroll(event -> {
             double deltaY = event.getDeltaY();
-            Font font = textArea.getFont();
+            Font font = documentArea.getFont();
             double newSize = font.getSize();
 
             if (deltaY < 0) newSize /= 1.05;
             else newSize *= 1.05;
 
-            vBox.setPrefWidth(Main.findSizeToWidth(newSize, vBox));
+            lineNumberPane.setPrefWidth(Main.findSizeToWidth(newSize, lineNumberPane));
 
-            textArea.setStyle("-fx-font-size: " + newSize + "px;");
-            vBox.setStyle("-fx-font-size: " + newSize + "px;");
+            documentArea.setStyle("-fx-font-size: " + newSize + "px;");
+            lineNumberPane.setStyle("-fx-font-size: " + newSize + "px;");
         });
     }
 
     /**
-     * Defines the close event for a tab, prompting the user if the text file is not saved.
+     * Defines the close event for a tab, prompting the user only if the document was modified
+     * since it was last saved or loaded.
      *
      * @param tab      The tab for which the close event is defined.
      * @param textFile The associated TextFile.
      */
     private void defineTabCloseEvent(Tab tab, TextFile textFile) {
         tab.setOnCloseRequest(event -> {
-            if (!textFile.saved()) {
+            if (textFile.modified()) {
                 event.consume();
                 Main.showAlertPane();
             }
@@ -1,25 +1,75 @@
 package org.texteditor.controllers;
 
+import org.texteditor.io.EditJournal;
+import org.texteditor.io.FileSnapshot;
+import org.texteditor.io.JournalStore;
+import org.texteditor.io.RecoveredDocument;
 import org.texteditor.model.TextFile;
 
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Controller class for managing text file operations in the text editor.
+ * The edits of every text file not bound to a file on disk are recorded in an edit journal,
+ * so the file can be recovered after a crash.
  */
 public class TextFileController {
 
+    private static final System.Logger LOGGER = System.getLogger(TextFileController.class.getName());
+
     private final Map<String, TextFile> openedFiles = new HashMap<>();
+    private final Map<String, EditJournal> journals = new HashMap<>();
+    private final Map<String, FileSnapshot> snapshots = new HashMap<>();
+    private final Map<String, Iterable<CharBuffer>> savedContents = new HashMap<>();
+
+    private final JournalStore journalStore;
+
+    /**
+     * Constructs a TextFileController recording unsaved text files in the given journal store.
+     *
+     * @param journalStore The store of the edit journals.
+     */
+    public TextFileController(JournalStore journalStore) {
+        this.journalStore = journalStore;
+    }
 
     /**
      * Adds a text file to the collection of temporarily opened files.
+     * A text file that is not saved yet starts being journaled.
      *
      * @param textFile The text file to be added.
      */
     public void addTextFile(TextFile textFile) {
-        openedFiles.putIfAbsent(textFile.uuid().toString(),
-                textFile);
+        String id = textFile.uuid().toString();
+        if (openedFiles.putIfAbsent(id, textFile) != null || textFile.saved()) return;
+
+        try {
+            attachJournal(id, textFile, journalStore.open(textFile.uuid(), textFile.name()));
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Cannot journal " + textFile.name(), e);
+        }
+    }
+
+    /**
+     * Adds a text file rebuilt from its journal, which keeps recording its edits.
+     *
+     * @param recoveredDocument The recovered document.
+     * @return The recovered text file.
+     */
+    public TextFile addRecoveredTextFile(RecoveredDocument recoveredDocument) {
+        TextFile textFile = new TextFile(recoveredDocument.uuid(), recoveredDocument.name(), null,
+                recoveredDocument.document(), StandardCharsets.UTF_8, false);
+
+        String id = textFile.uuid().toString();
+        openedFiles.put(id, textFile);
+        attachJournal(id, textFile, recoveredDocument.journal());
+
+        return textFile;
     }
 
     /**
@@ -33,33 +83,118 @@ public class TextFileController {
     }
 
     /**
-     * Updates the content of a text file in the collection.
+     * Updates the file path of a text file in the collection and marks it as saved.
+     * The document itself is shared with the new record, so its content is not copied.
+     * Its journal is kept until the file is written, see {@link #detachJournal(String)}.
      *
-     * @param id   The ID of the text file.
-     * @param text The new content of the text file.
+     * @param id       The ID of the text file.
+     * @param filePath The new file path of the text file.
      */
-    public void updateTextFile(String id, String text) {
+    public void updateTextFile(String id, String filePath) {
         TextFile textFile = requestTextFile(id);
 
         TextFile toUpdateTextFile = new TextFile(textFile.uuid(),
-                textFile.name(), textFile.filePath(), text, textFile.saved());
+                textFile.name(), filePath, textFile.document(), textFile.charset(), true, textFile.dirtyTracker());
 
         openedFiles.replace(id, textFile, toUpdateTextFile);
     }
 
     /**
-     * Updates the content and file path of a text file in the collection.
+     * Stops journaling a text file once its document was written to the file it is bound to, deleting
+     * its journal. Until then the journal is kept, so the edits can still be recovered if the write fails.
      *
-     * @param id       The ID of the text file.
-     * @param filePath The new file path of the text file.
-     * @param text     The new content of the text file.
+     * @param id The ID of the text file.
      */
-    public void updateTextFile(String id, String filePath, String text) {
+    public void detachJournal(String id) {
+        TextFile textFile = requestTextFile(id);
+        if (textFile != null) discardJournal(id, textFile);
+    }
+
+    /**
+     * Updates the charset of a text file in the collection, once it is known.
+     *
+     * @param id      The ID of the text file.
+     * @param charset The charset the file was decoded with.
+     */
+    public void updateCharset(String id, Charset charset) {
         TextFile textFile = requestTextFile(id);
 
         TextFile toUpdateTextFile = new TextFile(textFile.uuid(),
-                textFile.name(), filePath, text, true);
+                textFile.name(), textFile.filePath(), textFile.document(), charset, textFile.saved(),
+                textFile.dirtyTracker());
 
         openedFiles.replace(id, textFile, toUpdateTextFile);
     }
+
+    /**
+     * Records the snapshot of the file of a text file, and the text it held, when its document was
+     * last read from or written to the file. The snapshot tells apart what changed in the file
+     * afterwards; the text is the base of a merge with those changes.
+     *
+     * @param id       The ID of the text file.
+     * @param snapshot The snapshot of the file.
+     * @param content  The text of the file, as chunks that stay valid while the document is edited.
+     */
+    public void updateSnapshot(String id, FileSnapshot snapshot, Iterable<CharBuffer> content) {
+        snapshots.put(id, snapshot);
+        savedContents.put(id, content);
+    }
+
+    /**
+     * Returns the snapshot of the file of a text file, when its document was last read from or written to the file.
+     *
+     * @param id The ID of the text file.
+     * @return The snapshot, or null if it is not known.
+     */
+    public FileSnapshot requestSnapshot(String id) {
+        return snapshots.get(id);
+    }
+
+    /**
+     * Returns the text of the file of a text file, when its document was last read from or written to the file.
+     *
+     * @param id The ID of the text file.
+     * @return The chunks of the text, or null if it is not known.
+     */
+    public Iterable<CharBuffer> requestSavedContent(String id) {
+        return savedContents.get(id);
+    }
+
+    /**
+     * Removes a text file from the collection once its tab is closed, deleting its journal.
+     *
+     * @param id The ID of the text file.
+     */
+    public void removeTextFile(String id) {
+        TextFile textFile = openedFiles.remove(id);
+        snapshots.remove(id);
+        savedContents.remove(id);
+        if (textFile != null) discardJournal(id, textFile);
+    }
+
+    /**
+     * Starts recording the edits of a text file in a journal.
+     *
+     * @param id       The ID of the text file.
+     * @param textFile The text file.
+     * @param journal  The journal of the text file.
+     */
+    private void attachJournal(String id, TextFile textFile, EditJournal journal) {
+        textFile.document().addDocumentListener(journal);
+        journals.put(id, journal);
+    }
+
+    /**
+     * Stops recording the edits of a text file and deletes its journal, if it has one.
+     *
+     * @param id       The ID of the text file.
+     * @param textFile The text file.
+     */
+    private void discardJournal(String id, TextFile textFile) {
+        EditJournal journal = journals.remove(id);
+        if (journal == null) return;
+
+        textFile.document().removeDocumentListener(journal);
+        journalStore.discard(textFile.uuid());
+    }
 }
@@ -0,0 +1,12 @@
+package org.texteditor.io;
+
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+
+/*
+ * A Java record holding the text decoded from a file and the charset it was decoded with.
+ * The text is a read-only view over the buffer the file was decoded into, so it is read without
+ * being copied again, as when the file is merged with the text edited in a tab.
+ */
+public record DecodedText(CharBuffer text, Charset charset) {
+}
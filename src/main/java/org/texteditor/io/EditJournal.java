@@ -0,0 +1,516 @@
+package org.texteditor.io;
+
+import org.texteditor.model.document.DocumentListener;
+import org.texteditor.model.document.Rope;
+import org.texteditor.model.document.TextDocument;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only binary journal of the edits made to one document, used to rebuild the
+ * document after a crash.
+ * <p>
+ * Each edit is encoded as a small record into an in-memory buffer on the thread that made it,
+ * which costs a few array writes. The buffer is written and forced to disk later, together
+ * with every other edit made in the meantime, by the journal writer thread of the
+ * {@link JournalStore}. When the journal grows well past the size of the document, it is
+ * rewritten as a single snapshot of the document followed by the edits made since.
+ * <p>
+ * The file starts with a magic number, followed by records made of their payload length,
+ * the CRC32C of the payload and the payload itself. A torn or corrupted record ends the
+ * journal: replay stops there and the next writes overwrite it.
+ */
+public class EditJournal implements DocumentListener {
+
+    static final String FILE_EXTENSION = ".journal";
+
+    private static final int MAGIC = 0x54584A31;
+    private static final byte HEADER = 'H';
+    private static final byte REPLACE = 'R';
+    private static final byte SNAPSHOT = 'S';
+
+    private static final int RECORD_OVERHEAD = 8;
+    private static final long MIN_COMPACTION_BYTES = 1024 * 1024;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_SNAPSHOT_LENGTH = (Integer.MAX_VALUE - 5) / 2;
+
+    private final UUID uuid;
+    private final String name;
+    private final Path path;
+
+    private final Object lock = new Object();
+    private RecordBuffer pending = new RecordBuffer();
+    private RecordBuffer spare = new RecordBuffer();
+    private Iterable<CharBuffer> pendingSnapshot;
+    private int pendingSnapshotLength;
+    private long bytesSinceSnapshot;
+    private boolean snapshotRequired;
+
+    private FileChannel channel;
+
+    /**
+     * Constructs an EditJournal writing to an open channel.
+     *
+     * @param uuid    The UUID of the journaled text file.
+     * @param name    The name of the journaled text file.
+     * @param path    The path of the journal file.
+     * @param channel The channel of the journal file, positioned at its end.
+     */
+    private EditJournal(UUID uuid, String name, Path path, FileChannel channel) {
+        this.uuid = uuid;
+        this.name = name;
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Creates a new journal file for an empty document.
+     *
+     * @param directory The directory of the journals.
+     * @param uuid      The UUID of the text file.
+     * @param name      The name of the text file, restored with it.
+     * @return The journal, ready to be added as a listener of the document.
+     * @throws IOException If the journal file cannot be created.
+     */
+    static EditJournal create(Path directory, UUID uuid, String name) throws IOException {
+        Path path = directory.resolve(uuid + FILE_EXTENSION);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        EditJournal journal = new EditJournal(uuid, name, path, channel);
+
+        RecordBuffer start = new RecordBuffer();
+        start.putInt(MAGIC);
+        writeHeader(start, name);
+
+        channel.write(ByteBuffer.wrap(start.bytes, 0, start.size));
+        channel.force(true);
+
+        return journal;
+    }
+
+    /**
+     * Replays a journal file into a new document and reopens the journal for appending,
+     * cutting off any torn record at its end.
+     *
+     * @param path The path of the journal file.
+     * @return The recovered document and its journal.
+     * @throws IOException If the file cannot be read or is not a journal.
+     */
+    static RecoveredDocument recover(Path path) throws IOException {
+        String fileName = path.getFileName().toString();
+        UUID uuid = UUID.fromString(fileName.substring(0, fileName.length() - FILE_EXTENSION.length()));
+
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (content.remaining() < 4 || content.getInt() != MAGIC)
+            throw new IOException("Not an edit journal: " + path);
+
+        String name = null;
+        Rope document = new Rope();
+        CRC32C crc = new CRC32C();
+
+        while (content.remaining() >= RECORD_OVERHEAD) {
+            int recordStart = content.position();
+            int length = content.getInt();
+            int checksum = content.getInt();
+
+            if (length < 1 || length > content.remaining()) {
+                content.position(recordStart);
+                break;
+            }
+
+            ByteBuffer payload = content.slice(content.position(), length);
+            crc.reset();
+            crc.update(payload.duplicate());
+
+            if ((int) crc.getValue() != checksum || !apply(payload, document, name == null)) {
+                content.position(recordStart);
+                break;
+            }
+
+            if (name == null) name = readChars(payload.position(1));
+            else if (payload.get(0) == SNAPSHOT) document = new Rope(readChars(payload.position(1)));
+
+            content.position(recordStart + RECORD_OVERHEAD + length);
+        }
+
+        if (name == null)
+            throw new IOException("Edit journal without header: " + path);
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        channel.truncate(content.position());
+        channel.position(content.position());
+
+        EditJournal journal = new EditJournal(uuid, name, path, channel);
+        journal.bytesSinceSnapshot = content.position();
+
+        return new RecoveredDocument(uuid, name, document, journal);
+    }
+
+    /**
+     * Checks a record and applies it to the document if it is an edit.
+     * Header and snapshot records are read by the caller.
+     *
+     * @param payload  The payload of the record.
+     * @param document The document being rebuilt.
+     * @param header   Whether the record must be the header.
+     * @return Whether the record is valid.
+     */
+    private static boolean apply(ByteBuffer payload, Rope document, boolean header) {
+        byte type = payload.get(0);
+
+        if (header) return type == HEADER && payload.limit() >= 5 && payload.getInt(1) * 2L == payload.limit() - 5;
+        if (type == SNAPSHOT) return payload.limit() >= 5 && payload.getInt(1) * 2L == payload.limit() - 5;
+        if (type != REPLACE || payload.limit() < 13) return false;
+
+        int start = payload.getInt(1);
+        int end = payload.getInt(5);
+        int length = payload.getInt(9);
+
+        if (start < 0 || start > end || end > document.length() || length * 2L != payload.limit() - 13)
+            return false;
+
+        document.replace(start, end, readChars(payload.position(9)));
+        return true;
+    }
+
+    /**
+     * Reads a character count followed by that many characters.
+     *
+     * @param buffer The buffer, positioned at the count.
+     * @return The characters read.
+     */
+    private static String readChars(ByteBuffer buffer) {
+        char[] chars = new char[buffer.getInt()];
+        buffer.asCharBuffer().get(chars);
+        return new String(chars);
+    }
+
+    /**
+     * Returns the UUID of the journaled text file.
+     *
+     * @return The UUID.
+     */
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    /**
+     * Records an edit of the document. Only the edit is encoded, into memory; it reaches the
+     * disk with the next group commit. When the journal has grown well past the document, or
+     * after a failed commit left it incomplete, a snapshot of the document replaces everything
+     * recorded so far.
+     *
+     * @param document The edited document.
+     * @param start    The start offset of the replaced range (inclusive).
+     * @param end      The end offset of the replaced range before the edit (exclusive).
+     * @param inserted The text that was inserted at the start offset.
+     */
+    @Override
+    public void replaced(TextDocument document, int start, int end, CharSequence inserted) {
+        synchronized (lock) {
+            int before = pending.size;
+
+            pending.beginRecord();
+            pending.put(REPLACE);
+            pending.putInt(start);
+            pending.putInt(end);
+            pending.putInt(inserted.length());
+            pending.putChars(inserted);
+            pending.endRecord();
+
+            bytesSinceSnapshot += pending.size - before;
+
+            if (snapshotRequired || bytesSinceSnapshot > Math.max(MIN_COMPACTION_BYTES, document.length() * 4L)) {
+                snapshotRequired = false;
+                pending.size = 0;
+                pendingSnapshot = document.chunks();
+                pendingSnapshotLength = document.length();
+                bytesSinceSnapshot = 0;
+            }
+        }
+    }
+
+    /**
+     * Writes the edits recorded since the last commit and forces them to disk.
+     * Called by the journal writer thread only.
+     *
+     * @throws IOException If the journal cannot be written; the next edit then takes a snapshot.
+     */
+    void commit() throws IOException {
+        RecordBuffer records;
+        Iterable<CharBuffer> snapshot;
+        int snapshotLength;
+
+        synchronized (lock) {
+            if (pending.size == 0 && pendingSnapshot == null) return;
+
+            records = pending;
+            pending = spare;
+            spare = records;
+
+            snapshot = pendingSnapshot;
+            snapshotLength = pendingSnapshotLength;
+            pendingSnapshot = null;
+        }
+
+        try {
+            if (snapshot != null) {
+                rewrite(snapshot, snapshotLength, records);
+            } else {
+                ByteBuffer buffer = ByteBuffer.wrap(records.bytes, 0, records.size);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            synchronized (lock) {
+                snapshotRequired = true;
+            }
+            throw e;
+        } finally {
+            records.size = 0;
+        }
+    }
+
+    /**
+     * Closes the journal file, keeping it on disk. Called by the journal writer thread only.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Closes and deletes the journal file. Called by the journal writer thread only.
+     *
+     * @throws IOException If the file cannot be deleted.
+     */
+    void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Replaces the journal file with a new one holding the header, a snapshot of the document
+     * and the records made after the snapshot was taken.
+     *
+     * @param snapshot       The chunks of the document at the time of the snapshot.
+     * @param snapshotLength The length of the document at the time of the snapshot.
+     * @param records        The records made after the snapshot.
+     * @throws IOException If the new journal cannot be written, or the document is too large for
+     *                     the length of a snapshot record.
+     */
+    private void rewrite(Iterable<CharBuffer> snapshot, int snapshotLength, RecordBuffer records) throws IOException {
+        if (snapshotLength > MAX_SNAPSHOT_LENGTH)
+            throw new IOException("Document too large to be journaled: " + snapshotLength + " characters");
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            RecordBuffer start = new RecordBuffer();
+            start.putInt(MAGIC);
+            writeHeader(start, name);
+            write(out, ByteBuffer.wrap(start.bytes, 0, start.size));
+
+            writeSnapshot(out, snapshot, snapshotLength);
+            write(out, ByteBuffer.wrap(records.bytes, 0, records.size));
+
+            out.force(true);
+        }
+
+        channel.close();
+
+        try {
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Writes a snapshot record streamed from the document chunks, computing its checksum first.
+     *
+     * @param out    The channel of the new journal.
+     * @param chunks The chunks of the document.
+     * @param length The number of characters in the chunks, at most {@link #MAX_SNAPSHOT_LENGTH}.
+     * @throws IOException If the record cannot be written.
+     */
+    private static void writeSnapshot(FileChannel out, Iterable<CharBuffer> chunks, int length) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(RECORD_OVERHEAD + 5);
+        head.putInt(0).putInt(0).put(SNAPSHOT).putInt(length);
+
+        CRC32C crc = new CRC32C();
+        crc.update(head.array(), RECORD_OVERHEAD, 5);
+
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+
+        for (CharBuffer chunk : chunks) {
+            CharBuffer characters = chunk.duplicate();
+            while (characters.hasRemaining()) {
+                fill(buffer, characters);
+                crc.update(buffer);
+            }
+        }
+
+        head.putInt(0, (int) (5 + length * 2L)).putInt(4, (int) crc.getValue()).flip();
+        write(out, head);
+
+        for (CharBuffer chunk : chunks) {
+            CharBuffer characters = chunk.duplicate();
+            while (characters.hasRemaining()) {
+                fill(buffer, characters);
+                write(out, buffer);
+            }
+        }
+    }
+
+    /**
+     * Fills the buffer with as many characters as fit, and flips it for reading.
+     *
+     * @param buffer     The byte buffer.
+     * @param characters The characters to copy.
+     */
+    private static void fill(ByteBuffer buffer, CharBuffer characters) {
+        buffer.clear();
+        while (buffer.remaining() >= 2 && characters.hasRemaining()) {
+            buffer.putChar(characters.get());
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Writes the whole buffer to the channel.
+     *
+     * @param out    The channel.
+     * @param buffer The buffer to write.
+     * @throws IOException If the channel cannot be written.
+     */
+    private static void write(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * Encodes the header record holding the name of the text file.
+     *
+     * @param buffer The buffer receiving the record.
+     * @param name   The name of the text file.
+     */
+    private static void writeHeader(RecordBuffer buffer, String name) {
+        buffer.beginRecord();
+        buffer.put(HEADER);
+        buffer.putInt(name.length());
+        buffer.putChars(name);
+        buffer.endRecord();
+    }
+
+    /**
+     * A growable byte array records are encoded into, big-endian like ByteBuffer.
+     */
+    private static final class RecordBuffer {
+
+        private byte[] bytes = new byte[4096];
+        private int size;
+        private int recordStart;
+
+        /**
+         * Reserves the length and checksum of a new record.
+         */
+        void beginRecord() {
+            recordStart = size;
+            size += RECORD_OVERHEAD;
+            ensureCapacity(0);
+        }
+
+        /**
+         * Fills in the length and checksum of the record being encoded.
+         */
+        void endRecord() {
+            int payloadStart = recordStart + RECORD_OVERHEAD;
+
+            CRC32C crc = new CRC32C();
+            crc.update(bytes, payloadStart, size - payloadStart);
+
+            putInt(recordStart, size - payloadStart);
+            putInt(recordStart + 4, (int) crc.getValue());
+        }
+
+        /**
+         * Appends one byte.
+         *
+         * @param value The byte.
+         */
+        void put(byte value) {
+            ensureCapacity(1);
+            bytes[size++] = value;
+        }
+
+        /**
+         * Appends an int.
+         *
+         * @param value The int.
+         */
+        void putInt(int value) {
+            ensureCapacity(4);
+            putInt(size, value);
+            size += 4;
+        }
+
+        /**
+         * Appends characters as UTF-16 code units.
+         *
+         * @param text The characters.
+         */
+        void putChars(CharSequence text) {
+            ensureCapacity(text.length() * 2);
+
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                bytes[size++] = (byte) (c >>> 8);
+                bytes[size++] = (byte) c;
+            }
+        }
+
+        /**
+         * Writes an int at the given index.
+         *
+         * @param index The index of the first byte.
+         * @param value The int.
+         */
+        private void putInt(int index, int value) {
+            bytes[index] = (byte) (value >>> 24);
+            bytes[index + 1] = (byte) (value >>> 16);
+            bytes[index + 2] = (byte) (value >>> 8);
+            bytes[index + 3] = (byte) value;
+        }
+
+        /**
+         * Makes room for the given number of bytes after the current size.
+         *
+         * @param count The number of bytes about to be appended.
+         */
+        private void ensureCapacity(int count) {
+            if (size + count > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + count));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.texteditor.io;
+
+import javafx.concurrent.Task;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A background task that tells whether a file changed since a snapshot was taken of it, reading
+ * the file only when its size and modification time cannot tell. Without a snapshot to compare
+ * with, the task takes a new one. The task fails if the file no longer exists.
+ */
+public class FileCheckTask extends Task<FileSnapshot> {
+
+    private final Path path;
+    private final FileSnapshot snapshot;
+
+    /**
+     * Constructs a FileCheckTask for the given file.
+     *
+     * @param path     The path of the file to check.
+     * @param snapshot The snapshot to compare the file with, or null to take a new one.
+     */
+    public FileCheckTask(Path path, FileSnapshot snapshot) {
+        this.path = path;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Compares the file with the snapshot, or takes a new snapshot of it.
+     *
+     * @return The snapshot of the unchanged file, or null if its content changed; the new
+     *         snapshot when there was none to compare with.
+     * @throws IOException If the file cannot be read, or no longer exists.
+     */
+    @Override
+    protected FileSnapshot call() throws IOException {
+        return snapshot == null ? FileSnapshot.of(path) : snapshot.verify(path);
+    }
+}
@@ -0,0 +1,77 @@
+package org.texteditor.io;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.CRC32C;
+
+/*
+ * A Java record describing a file as the editor last read or wrote it: its size in bytes, its last
+ * modification time in milliseconds, and the CRC32C checksum of its bytes, computed while they were
+ * read or written rather than in a pass of its own. The size and the time tell cheaply whether the
+ * file may have changed since; the checksum settles it when only the time differs.
+ */
+public record FileSnapshot(long size, long lastModified, long checksum) {
+
+    /**
+     * Compares the file as it is now with this snapshot. Only when the size is the same and the
+     * time is not is the file read, to compare its checksum.
+     *
+     * @param path The path of the file.
+     * @return This snapshot if the file is unchanged, a snapshot with the new modification time if
+     *         only the time changed, or null if the content changed.
+     * @throws IOException If the file cannot be read, or no longer exists.
+     */
+    public FileSnapshot verify(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long modified = attributes.lastModifiedTime().toMillis();
+
+        if (attributes.size() != size) return null;
+        if (modified == lastModified) return this;
+
+        return checksumOf(path) == checksum ? new FileSnapshot(size, modified, checksum) : null;
+    }
+
+    /**
+     * Takes a snapshot of a file, reading it whole to compute its checksum.
+     *
+     * @param path The path of the file.
+     * @return The snapshot.
+     * @throws IOException If the file cannot be read.
+     */
+    public static FileSnapshot of(Path path) throws IOException {
+        long modified = Files.getLastModifiedTime(path).toMillis();
+        long checksum = checksumOf(path);
+
+        return new FileSnapshot(Files.size(path), modified, checksum);
+    }
+
+    /**
+     * Computes the CRC32C checksum of a file, one mapped window at a time.
+     *
+     * @param path The path of the file.
+     * @return The checksum.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long checksumOf(Path path) throws IOException {
+        CRC32C crc = new CRC32C();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            for (long position = 0; position < size; ) {
+                long length = Math.min(MappedTextReader.WINDOW_SIZE, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                crc.update(window);
+                position += length;
+            }
+        }
+
+        return crc.getValue();
+    }
+}
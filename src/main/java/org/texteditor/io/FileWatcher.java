@@ -0,0 +1,193 @@
+package org.texteditor.io;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches files for changes with a single WatchService, shared by every watched file, and a
+ * single daemon thread. The directory of a file is registered once, however many of its files
+ * are watched, and is unregistered when none of them is watched anymore.
+ * <p>
+ * Some file systems report changes late, coalesce them, or do not report them at all, so a
+ * listener that must not miss a change can also be polled: it is then called every
+ * {@link #POLL_INTERVAL_MILLIS} milliseconds as well. Listeners must check for themselves whether
+ * their file actually changed. They run on the watcher thread and must return quickly, handing
+ * any real work to another thread.
+ */
+public class FileWatcher implements AutoCloseable {
+
+    public static final long POLL_INTERVAL_MILLIS = 1000;
+
+    private static final System.Logger LOGGER = System.getLogger(FileWatcher.class.getName());
+
+    private final WatchService watchService;
+    private final Map<Path, WatchKey> directories = new HashMap<>();
+    private final Map<Path, List<Runnable>> listeners = new HashMap<>();
+    private final List<Runnable> polledListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs a FileWatcher and starts its thread.
+     *
+     * @throws IOException If the WatchService cannot be created.
+     */
+    public FileWatcher() throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        Thread thread = new Thread(this::run, "file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts watching a file. The listener is called when the file is created, modified or
+     * deleted.
+     *
+     * @param file     The file to watch.
+     * @param listener The listener, called on the watcher thread.
+     * @return The action that stops watching the file.
+     * @throws IOException If the directory of the file cannot be watched.
+     */
+    public Runnable watch(Path file, Runnable listener) throws IOException {
+        return watch(file, listener, false);
+    }
+
+    /**
+     * Starts watching a file. The listener is called when the file is created, modified or
+     * deleted, and at every poll interval if it is polled.
+     *
+     * @param file     The file to watch.
+     * @param listener The listener, called on the watcher thread.
+     * @param poll     Whether the listener is also called at every poll interval.
+     * @return The action that stops watching the file.
+     * @throws IOException If the directory of the file cannot be watched.
+     */
+    public synchronized Runnable watch(Path file, Runnable listener, boolean poll) throws IOException {
+        Path path = file.toAbsolutePath().normalize();
+        Path directory = path.getParent();
+
+        if (!directories.containsKey(directory))
+            directories.put(directory, directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+
+        listeners.computeIfAbsent(path, key -> new ArrayList<>()).add(listener);
+        if (poll) polledListeners.add(listener);
+
+        return () -> unwatch(path, listener);
+    }
+
+    /**
+     * Stops calling a listener, and unregisters the directory of its file if no other file of the
+     * directory is watched.
+     *
+     * @param path     The absolute path of the file.
+     * @param listener The listener.
+     */
+    private synchronized void unwatch(Path path, Runnable listener) {
+        List<Runnable> fileListeners = listeners.get(path);
+        if (fileListeners == null || !fileListeners.remove(listener)) return;
+
+        polledListeners.remove(listener);
+        if (!fileListeners.isEmpty()) return;
+
+        listeners.remove(path);
+
+        Path directory = path.getParent();
+        boolean directoryWatched = listeners.keySet().stream().anyMatch(other -> directory.equals(other.getParent()));
+
+        if (!directoryWatched) {
+            WatchKey key = directories.remove(directory);
+            if (key != null) key.cancel();
+        }
+    }
+
+    /**
+     * Returns the listeners of a file, or of every file of a directory.
+     *
+     * @param directory The directory.
+     * @param name      The name of the file in the directory, or null for every file.
+     * @return A copy of the listeners.
+     */
+    private synchronized List<Runnable> listenersOf(Path directory, Path name) {
+        List<Runnable> found = new ArrayList<>();
+
+        if (name != null) {
+            found.addAll(listeners.getOrDefault(directory.resolve(name), List.of()));
+            return found;
+        }
+
+        listeners.forEach((path, fileListeners) -> {
+            if (directory.equals(path.getParent())) found.addAll(fileListeners);
+        });
+
+        return found;
+    }
+
+    /**
+     * Waits for the changes reported by the WatchService and calls the listeners of the changed
+     * files, and calls every polled listener once per poll interval, even while changes keep coming.
+     */
+    private void run() {
+        long pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(POLL_INTERVAL_MILLIS);
+        long nextPoll = System.nanoTime() + pollIntervalNanos;
+
+        try {
+            while (true) {
+                long wait = nextPoll - System.nanoTime();
+                WatchKey key = wait > 0 ? watchService.poll(wait, TimeUnit.NANOSECONDS) : null;
+
+                if (key != null) {
+                    Path directory = (Path) key.watchable();
+
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        Path name = event.kind() == StandardWatchEventKinds.OVERFLOW ? null : (Path) event.context();
+                        listenersOf(directory, name).forEach(this::callListener);
+                    }
+
+                    key.reset();
+                }
+
+                if (System.nanoTime() - nextPoll >= 0) {
+                    polledListeners.forEach(this::callListener);
+                    nextPoll = System.nanoTime() + pollIntervalNanos;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            LOGGER.log(System.Logger.Level.DEBUG, "File watcher stopped");
+        }
+    }
+
+    /**
+     * Calls a listener, logging what it throws so the other listeners are still called.
+     *
+     * @param listener The listener.
+     */
+    private void callListener(Runnable listener) {
+        try {
+            listener.run();
+        } catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "File listener failed", e);
+        }
+    }
+
+    /**
+     * Closes the WatchService, which stops the watcher thread.
+     *
+     * @throws IOException If the WatchService cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,232 @@
+package org.texteditor.io;
+
+import javafx.application.Platform;
+import org.texteditor.model.document.ContentHash;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Follows a file shown in a tab: only the bytes appended since the last read position are read,
+ * decoded and normalized as {@link MappedTextReader} does, and streamed to the JavaFX Application
+ * Thread in chunks of at most {@link #READ_SIZE} bytes. As with {@link OpenFileTask}, at most a few
+ * chunks wait on the application thread; while the UI catches up, the appended bytes pile up in
+ * the file and are read in one larger batch.
+ * <p>
+ * The decoder is kept between reads, so a character cut by the end of a read is completed by the
+ * next one. A file that becomes smaller than the read position was truncated or replaced: it is
+ * followed again from its start, after the tab is told to restart. A file that is missing, while
+ * it is being rotated, is waited for.
+ */
+public class FollowFileTask extends FollowTask {
+
+    public static final int READ_SIZE = 4 * 1024 * 1024;
+
+    private static final int MAX_PENDING_CHUNKS = 4;
+
+    private final Path path;
+    private final Charset charset;
+    private final Semaphore pendingChunks = new Semaphore(MAX_PENDING_CHUNKS);
+    private final ByteBuffer bytes = ByteBuffer.allocate(READ_SIZE);
+    private final TextNormalizer normalizer = new TextNormalizer();
+
+    private long position;
+    private CharsetDecoder decoder;
+    private CharBuffer chars;
+
+    private ContentHash contentHash = new ContentHash();
+    private Consumer<String> onChunk = chunk -> {};
+    private Runnable onRestart = () -> {};
+
+    /**
+     * Constructs a FollowFileTask for the given file.
+     *
+     * @param path     The path of the file to follow.
+     * @param charset  The charset the file was decoded with.
+     * @param position The offset of the first byte not read yet.
+     */
+    public FollowFileTask(Path path, Charset charset, long position) {
+        this.path = path;
+        this.charset = charset;
+        this.position = position;
+    }
+
+    /**
+     * Sets the handler receiving each appended chunk on the JavaFX Application Thread.
+     *
+     * @param onChunk The chunk handler.
+     */
+    public void setOnChunk(Consumer<String> onChunk) {
+        this.onChunk = onChunk;
+    }
+
+    /**
+     * Sets the handler called on the JavaFX Application Thread when the file was truncated, and
+     * the chunks received so far must be discarded.
+     *
+     * @param onRestart The restart handler.
+     */
+    public void setOnRestart(Runnable onRestart) {
+        this.onRestart = onRestart;
+    }
+
+    /**
+     * Sets the hash of the text already in the tab, extended on the JavaFX Application Thread with
+     * each chunk the tab receives. The hash starts over when the tab is told to restart.
+     *
+     * @param contentHash The hash of the text of the tab, owned by the task from now on.
+     */
+    public void setContentHash(ContentHash contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Returns the hash of the text of the tab, once the task has stopped.
+     *
+     * @return The hash of the followed text.
+     */
+    public ContentHash getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Reads, decodes and publishes the bytes appended to the file, up to {@link #READ_SIZE} of them.
+     *
+     * @return True if bytes were read, or the file was truncated; false if it has not grown.
+     * @throws IOException If the file cannot be read, or the task was interrupted.
+     */
+    @Override
+    protected boolean readAppended() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (decoder == null) startDecoding(channel);
+
+            long size = channel.size();
+            if (size < position) {
+                restart(channel);
+                return true;
+            }
+
+            int read = bytes.remaining() == 0 ? 0 : channel.read(bytes, position);
+            if (read <= 0) return false;
+
+            position += read;
+
+            publish(decode());
+            return true;
+
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Decodes the bytes read, keeping an incomplete character at their end for the next read.
+     *
+     * @return The decoded and normalized text.
+     */
+    private String decode() {
+        bytes.flip();
+        chars.clear();
+
+        decoder.decode(bytes, chars, false);
+        normalizer.normalize(chars, 0);
+
+        bytes.compact();
+        return chars.flip().toString();
+    }
+
+    /**
+     * Creates the decoder of the file. A UTF-16 file is decoded with the byte order of its byte
+     * order mark, since reads start in the middle of the file.
+     *
+     * @param channel The channel of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    private void startDecoding(FileChannel channel) throws IOException {
+        Charset decoded = charset;
+
+        if (charset.equals(StandardCharsets.UTF_16)) {
+            ByteBuffer head = ByteBuffer.allocate(2);
+            channel.read(head, 0);
+            decoded = head.get(0) == (byte) 0xFF && head.get(1) == (byte) 0xFE
+                    ? StandardCharsets.UTF_16LE : StandardCharsets.UTF_16BE;
+        }
+
+        decoder = decoded.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        chars = CharBuffer.allocate((int) (READ_SIZE * decoder.maxCharsPerByte()) + 16);
+    }
+
+    /**
+     * Follows the file again from its start, past any byte order mark, once the chunks already
+     * published are handled.
+     *
+     * @param channel The channel of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    private void restart(FileChannel channel) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(3);
+        channel.read(head, 0);
+
+        int b0 = head.position() > 0 ? head.get(0) & 0xFF : -1;
+        int b1 = head.position() > 1 ? head.get(1) & 0xFF : -1;
+        int b2 = head.position() > 2 ? head.get(2) & 0xFF : -1;
+
+        if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) position = 3;
+        else if ((b0 == 0xFE && b1 == 0xFF) || (b0 == 0xFF && b1 == 0xFE)) position = 2;
+        else position = 0;
+
+        bytes.clear();
+        decoder.reset();
+        normalizer.reset();
+
+        Platform.runLater(() -> {
+            if (isCancelled()) return;
+
+            contentHash.reset();
+            onRestart.run();
+        });
+    }
+
+    /**
+     * Hands a chunk to the JavaFX Application Thread, waiting while too many chunks are pending.
+     * The hash is extended there, once the chunk is appended, so a chunk dropped because the task
+     * was cancelled is left out of the hash as it is left out of the tab.
+     *
+     * @param text The text of the chunk.
+     * @throws InterruptedIOException If the task is interrupted while waiting.
+     */
+    private void publish(String text) throws InterruptedIOException {
+        if (text.isEmpty()) return;
+
+        try {
+            pendingChunks.acquire();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Following " + path + " was interrupted");
+        }
+
+        Platform.runLater(() -> {
+            try {
+                if (!isCancelled()) {
+                    onChunk.accept(text);
+                    contentHash.update(text);
+                }
+            } finally {
+                pendingChunks.release();
+            }
+        });
+    }
+}
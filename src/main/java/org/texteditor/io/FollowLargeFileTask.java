@@ -0,0 +1,64 @@
+package org.texteditor.io;
+
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Follows a large file shown read-only: the bytes appended to the file are only scanned for line
+ * separators, extending its line index, and the view is told to show the new lines. Nothing is
+ * decoded until it is displayed, so the task keeps up with a file growing as fast as the disk can
+ * write it. The view is told at most once per frame, however many times the file grows.
+ * <p>
+ * The file must be fully indexed before it is followed. A file that becomes smaller than it was
+ * cannot be followed further, and the task fails.
+ */
+public class FollowLargeFileTask extends FollowTask {
+
+    private final LargeTextFile file;
+    private final AtomicBoolean growPending = new AtomicBoolean();
+
+    private Runnable onGrow = () -> {};
+
+    /**
+     * Constructs a FollowLargeFileTask for the given file.
+     *
+     * @param file The file to follow, fully indexed.
+     */
+    public FollowLargeFileTask(LargeTextFile file) {
+        this.file = file;
+    }
+
+    /**
+     * Sets the handler called on the JavaFX Application Thread when the file has grown.
+     *
+     * @param onGrow The growth handler.
+     */
+    public void setOnGrow(Runnable onGrow) {
+        this.onGrow = onGrow;
+    }
+
+    /**
+     * Indexes the bytes appended to the file, then tells the view.
+     *
+     * @return True if the file has grown, false otherwise.
+     * @throws IOException If the file cannot be read, or it was truncated.
+     */
+    @Override
+    protected boolean readAppended() throws IOException {
+        long appended = file.grow(this::isCancelled);
+
+        if (appended < 0) throw new IOException(file.getPath() + " was truncated");
+        if (appended == 0) return false;
+
+        if (growPending.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                growPending.set(false);
+                if (!isCancelled()) onGrow.run();
+            });
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,56 @@
+package org.texteditor.io;
+
+import javafx.concurrent.Task;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A background task that follows a growing file, like "tail -f": it reads what is appended to
+ * the file each time it is told the file may have changed, and runs until it is cancelled.
+ * It is meant to be told by a {@link FileWatcher}, through {@link #signal()}; signals that arrive
+ * while it is reading are merged, so a file growing fast is read in large batches.
+ */
+public abstract class FollowTask extends Task<Void> {
+
+    private final Semaphore changes = new Semaphore(0);
+
+    /**
+     * Tells the task that its file may have changed. Safe to call from any thread.
+     */
+    public void signal() {
+        if (changes.availablePermits() == 0) changes.release();
+    }
+
+    /**
+     * Reads the appended data, then waits for a signal, until the task is cancelled.
+     *
+     * @return Nothing.
+     * @throws IOException If the file cannot be read.
+     */
+    @Override
+    protected Void call() throws IOException {
+        while (!isCancelled()) {
+            if (readAppended()) continue;
+
+            try {
+                changes.acquire();
+                changes.drainPermits();
+            } catch (InterruptedException e) {
+                if (isCancelled()) break;
+                Thread.currentThread().interrupt();
+                throw new IOException("Following the file was interrupted", e);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads part of what was appended to the file since the last call.
+     *
+     * @return True if something was read and more may be left, false if the file has not grown.
+     * @throws IOException If the file cannot be read.
+     */
+    protected abstract boolean readAppended() throws IOException;
+}
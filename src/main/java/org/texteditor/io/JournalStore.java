@@ -0,0 +1,161 @@
+package org.texteditor.io;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the edit journals of the open documents and the single background thread that writes
+ * them. Every {@link #COMMIT_INTERVAL_MILLIS} milliseconds the writer thread group-commits each
+ * journal: all edits recorded since the previous commit are written at once and forced to disk
+ * with one sync, however many keystrokes they represent.
+ */
+public class JournalStore {
+
+    private static final long COMMIT_INTERVAL_MILLIS = 200;
+    private static final System.Logger LOGGER = System.getLogger(JournalStore.class.getName());
+
+    private final Path directory;
+    private final Map<UUID, EditJournal> journals = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "edit-journal-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructs a JournalStore keeping its journals in the given directory, and starts the
+     * periodic group commit.
+     *
+     * @param directory The directory of the journals, created when the first journal is.
+     */
+    public JournalStore(Path directory) {
+        this.directory = directory;
+        writer.scheduleWithFixedDelay(this::commitAll, COMMIT_INTERVAL_MILLIS, COMMIT_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the default journal directory, in the user's home directory.
+     *
+     * @return The path of the default journal directory.
+     */
+    public static Path defaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".texteditor", "journal");
+    }
+
+    /**
+     * Starts a journal for a new, empty document.
+     *
+     * @param uuid The UUID of the text file.
+     * @param name The name of the text file.
+     * @return The journal, to be added as a listener of the document.
+     * @throws IOException If the journal file cannot be created.
+     */
+    public EditJournal open(UUID uuid, String name) throws IOException {
+        Files.createDirectories(directory);
+
+        EditJournal journal = EditJournal.create(directory, uuid, name);
+        journals.put(uuid, journal);
+        return journal;
+    }
+
+    /**
+     * Rebuilds the documents whose journals were left behind, by a crash or by closing the
+     * application with unsaved tabs. Their journals are reopened and keep recording their edits.
+     * A journal that cannot be read is left on disk untouched.
+     *
+     * @return The recovered documents.
+     */
+    public List<RecoveredDocument> recover() {
+        List<RecoveredDocument> recovered = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return recovered;
+
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + EditJournal.FILE_EXTENSION)) {
+            for (Path path : paths) {
+                try {
+                    RecoveredDocument document = EditJournal.recover(path);
+                    journals.put(document.uuid(), document.journal());
+                    recovered.add(document);
+
+                } catch (IOException | IllegalArgumentException e) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Cannot recover journal " + path, e);
+                }
+            }
+
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Cannot list journals in " + directory, e);
+        }
+
+        return recovered;
+    }
+
+    /**
+     * Stops journaling a document and deletes its journal, once the document is saved or
+     * closed without saving.
+     *
+     * @param uuid The UUID of the text file.
+     */
+    public void discard(UUID uuid) {
+        EditJournal journal = journals.remove(uuid);
+        if (journal == null) return;
+
+        writer.execute(() -> {
+            try {
+                journal.delete();
+            } catch (IOException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Cannot delete journal of " + uuid, e);
+            }
+        });
+    }
+
+    /**
+     * Commits every journal one last time and closes them, keeping them on disk so their
+     * documents are recovered on the next start.
+     */
+    public void close() {
+        try {
+            writer.submit(() -> {
+                commitAll();
+
+                for (EditJournal journal : journals.values()) {
+                    try {
+                        journal.close();
+                    } catch (IOException e) {
+                        LOGGER.log(System.Logger.Level.WARNING, "Cannot close journal of " + journal.getUuid(), e);
+                    }
+                }
+            }).get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Cannot close journals", e.getCause());
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    /**
+     * Group-commits the edits recorded in every journal since the previous commit.
+     */
+    private void commitAll() {
+        for (EditJournal journal : journals.values()) {
+            try {
+                journal.commit();
+            } catch (IOException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Cannot write journal of " + journal.getUuid(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.texteditor.io;
+
+import javafx.concurrent.Task;
+
+import java.io.IOException;
+
+/**
+ * A background task that builds the line index of a large file. The task reports its progress in
+ * bytes, so the view can grow as lines become readable, and stops as soon as it is cancelled.
+ * Its value is the number of lines of the file.
+ */
+public class LargeFileIndexTask extends Task<Integer> {
+
+    private final LargeTextFile file;
+
+    /**
+     * Constructs a LargeFileIndexTask for the given file.
+     *
+     * @param file The file to index.
+     */
+    public LargeFileIndexTask(LargeTextFile file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the file indexed by the task.
+     *
+     * @return The file.
+     */
+    public LargeTextFile getFile() {
+        return file;
+    }
+
+    /**
+     * Indexes the file.
+     *
+     * @return The number of lines of the file.
+     * @throws IOException If the file cannot be read, or the task was cancelled.
+     */
+    @Override
+    protected Integer call() throws IOException {
+        file.buildIndex(this::isCancelled, bytesRead -> updateProgress(bytesRead, file.size()));
+        return file.lineCount();
+    }
+}
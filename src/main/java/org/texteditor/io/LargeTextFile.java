@@ -0,0 +1,661 @@
+package org.texteditor.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+/**
+ * A read-only view of a text file too large to be decoded into memory. The file is never held as
+ * a String: its bytes are read through memory-mapped windows, and only the lines being shown, or
+ * the segment being searched, are decoded.
+ * <p>
+ * Lines are found through a sparse index holding the byte offset of one line out of
+ * {@link #LINES_PER_CHECKPOINT}, built in the background by {@link #buildIndex}. Lines are readable
+ * as soon as they are indexed. They are decoded a page at a time, from the checkpoint starting the
+ * page, and the most recently shown pages are cached. A line is cut to {@link #MAX_LINE_LENGTH}
+ * characters for display.
+ * <p>
+ * The charset comes from the byte order mark when the file has one, and is UTF-8 otherwise;
+ * malformed input is replaced rather than reported, since the file is not validated up front.
+ * The index may be built on one thread while lines are read on another. A file that grows while
+ * it is open, such as a log, can be indexed further with {@link #grow}.
+ */
+public class LargeTextFile implements Closeable {
+
+    public static final int LINES_PER_CHECKPOINT = 256;
+    public static final int MAX_LINE_LENGTH = 4096;
+
+    private static final int CACHED_PAGES = 64;
+    private static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+    private static final long WINDOW_SIZE = MappedTextReader.WINDOW_SIZE;
+
+    private final Path path;
+    private final FileChannel channel;
+    private volatile long size;
+    private final long dataStart;
+    private final Charset charset;
+    private final int unitSize;
+    private final boolean bigEndian;
+
+    private final Object indexLock = new Object();
+    private long[] checkpoints = new long[1024];
+    private int checkpointCount;
+    private volatile int lineCount = 1;
+    private volatile boolean indexed;
+    private long indexedPosition;
+
+    private final Map<Integer, String[]> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+    private final CharsetDecoder lineDecoder;
+    private MappedByteBuffer readWindow;
+    private long readWindowStart = -1;
+
+    /**
+     * Constructs a LargeTextFile over an open channel.
+     *
+     * @param path      The path of the file.
+     * @param channel   The channel of the file.
+     * @param size      The size of the file in bytes.
+     * @param dataStart The offset of the first byte of text, past any byte order mark.
+     * @param charset   The charset of the file.
+     */
+    private LargeTextFile(Path path, FileChannel channel, long size, long dataStart, Charset charset) {
+        this.path = path;
+        this.channel = channel;
+        this.size = size;
+        this.dataStart = dataStart;
+        this.charset = charset;
+        this.unitSize = charset.equals(StandardCharsets.UTF_16BE) || charset.equals(StandardCharsets.UTF_16LE) ? 2 : 1;
+        this.bigEndian = charset.equals(StandardCharsets.UTF_16BE);
+        this.lineDecoder = newDecoder();
+
+        checkpoints[checkpointCount++] = dataStart;
+        indexedPosition = dataStart;
+    }
+
+    /**
+     * Opens a file and detects its charset. Its lines can be read once {@link #buildIndex} has indexed them.
+     *
+     * @param path The path of the file.
+     * @return The opened file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static LargeTextFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            ByteBuffer head = ByteBuffer.allocate(3);
+            while (head.hasRemaining()) {
+                if (channel.read(head, head.position()) < 0) break;
+            }
+
+            int count = head.position();
+            int b0 = count > 0 ? head.get(0) & 0xFF : -1;
+            int b1 = count > 1 ? head.get(1) & 0xFF : -1;
+            int b2 = count > 2 ? head.get(2) & 0xFF : -1;
+            long size = channel.size();
+
+            if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF)
+                return new LargeTextFile(path, channel, size, 3, StandardCharsets.UTF_8);
+            if (b0 == 0xFE && b1 == 0xFF)
+                return new LargeTextFile(path, channel, size, 2, StandardCharsets.UTF_16BE);
+            if (b0 == 0xFF && b1 == 0xFE)
+                return new LargeTextFile(path, channel, size, 2, StandardCharsets.UTF_16LE);
+
+            return new LargeTextFile(path, channel, size, 0, StandardCharsets.UTF_8);
+
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the path of the file.
+     *
+     * @return The path.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the charset the file is decoded with.
+     *
+     * @return The charset.
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Returns the size of the file, as far as it is indexed.
+     *
+     * @return The size in bytes.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the offset of the first byte of text, past any byte order mark.
+     *
+     * @return The offset.
+     */
+    public long dataStart() {
+        return dataStart;
+    }
+
+    /**
+     * Returns the number of lines indexed so far. While the index is being built, the last of them
+     * may not be complete yet.
+     *
+     * @return The number of lines, at least one.
+     */
+    public int lineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns whether the whole file is indexed.
+     *
+     * @return True once {@link #buildIndex} has finished.
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * Indexes the file, as large as it was when it was opened. The indexed lines become readable
+     * as the index is built, and the file is marked indexed once it is done.
+     *
+     * @param cancelled Tells whether the indexing was cancelled, checked after each window.
+     * @param progress  Receives the number of bytes scanned after each window.
+     * @throws IOException If the file cannot be mapped, or the indexing was cancelled.
+     */
+    public void buildIndex(BooleanSupplier cancelled, LongConsumer progress) throws IOException {
+        indexUpTo(size, cancelled, progress);
+        indexed = true;
+    }
+
+    /**
+     * Indexes the bytes appended to the file since it was indexed, which makes its new lines
+     * readable. The last line read before may have grown as well.
+     *
+     * @param cancelled Tells whether the indexing was cancelled, checked after each window.
+     * @return The number of bytes appended, or -1 if the file is now smaller than it was.
+     * @throws IOException If the file cannot be read, or the indexing was cancelled.
+     */
+    public long grow(BooleanSupplier cancelled) throws IOException {
+        long newSize = channel.size();
+        long oldSize = size;
+
+        if (newSize < oldSize) return -1;
+        if (newSize == oldSize) return 0;
+
+        synchronized (this) {
+            size = newSize;
+            readWindowStart = -1;
+        }
+
+        indexUpTo(newSize, cancelled, position -> {});
+        return newSize - oldSize;
+    }
+
+    /**
+     * Scans the file from where the last scan stopped, window by window, recording the offset of
+     * every {@link #LINES_PER_CHECKPOINT}-th line. The indexed lines become readable after each
+     * window. A file with more lines than an int can count is indexed up to that limit.
+     *
+     * @param end       The offset to stop at.
+     * @param cancelled Tells whether the indexing was cancelled, checked after each window.
+     * @param progress  Receives the number of bytes scanned after each window.
+     * @throws IOException If the file cannot be mapped, or the indexing was cancelled.
+     */
+    private void indexUpTo(long end, BooleanSupplier cancelled, LongConsumer progress) throws IOException {
+        long position = indexedPosition;
+        int lines = lineCount;
+
+        while (end - position >= unitSize && lines < Integer.MAX_VALUE) {
+            if (cancelled.getAsBoolean()) throw new InterruptedIOException("Indexing " + path + " was cancelled");
+
+            long length = alignedLength(Math.min(WINDOW_SIZE, end - position));
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+            for (int i = 0; i < length; i += unitSize) {
+                if (!isNewline(window, i, position)) continue;
+                if (lines == Integer.MAX_VALUE) break;
+
+                if (lines % LINES_PER_CHECKPOINT == 0) addCheckpoint(position + i + unitSize);
+                lines++;
+            }
+
+            position += length;
+            indexedPosition = position;
+            lineCount = lines;
+            progress.accept(position);
+        }
+    }
+
+    /**
+     * Records the offset of the line starting the next page.
+     *
+     * @param offset The byte offset of the line.
+     */
+    private void addCheckpoint(long offset) {
+        synchronized (indexLock) {
+            if (checkpointCount == checkpoints.length)
+                checkpoints = Arrays.copyOf(checkpoints, checkpointCount * 2);
+
+            checkpoints[checkpointCount++] = offset;
+        }
+    }
+
+    /**
+     * Returns the byte offset of the checkpoint starting a page.
+     *
+     * @param page The page.
+     * @return The offset of the first line of the page.
+     */
+    private long checkpoint(int page) {
+        synchronized (indexLock) {
+            return checkpoints[page];
+        }
+    }
+
+    /**
+     * Returns a line, cut to {@link #MAX_LINE_LENGTH} characters, without its line separator.
+     *
+     * @param line The zero-based line, below {@link #lineCount()}.
+     * @return The text of the line.
+     * @throws IndexOutOfBoundsException If the line is not indexed.
+     */
+    public synchronized String line(int line) {
+        int count = lineCount;
+        if (line < 0 || line >= count)
+            throw new IndexOutOfBoundsException("line " + line + ", line count " + count);
+
+        int page = line / LINES_PER_CHECKPOINT;
+        String[] lines = pages.get(page);
+
+        if (lines == null) {
+            lines = readPage(page, count);
+
+            int lastLineOfPage = page * LINES_PER_CHECKPOINT + lines.length - 1;
+            if (lastLineOfPage < count - 1) pages.put(page, lines);
+        }
+
+        return lines[line % LINES_PER_CHECKPOINT];
+    }
+
+    /**
+     * Returns the byte offset at which a line starts.
+     *
+     * @param line The zero-based line, below {@link #lineCount()}.
+     * @return The offset of the first byte of the line.
+     * @throws IndexOutOfBoundsException If the line is not indexed.
+     */
+    public synchronized long lineOffset(int line) {
+        if (line < 0 || line >= lineCount)
+            throw new IndexOutOfBoundsException("line " + line + ", line count " + lineCount);
+
+        long offset = checkpoint(line / LINES_PER_CHECKPOINT);
+
+        for (int skipped = 0; skipped < line % LINES_PER_CHECKPOINT; skipped++) {
+            offset = lineEnd(offset) + unitSize;
+        }
+
+        return offset;
+    }
+
+    /**
+     * Decodes the lines of a page that are indexed. Only a page followed by another line is
+     * complete, and can be cached: the last line of the file may still grow.
+     *
+     * @param page      The page.
+     * @param lineCount The number of lines indexed.
+     * @return The lines, at most {@link #LINES_PER_CHECKPOINT}.
+     */
+    private String[] readPage(int page, int lineCount) {
+        int firstLine = page * LINES_PER_CHECKPOINT;
+        int count = Math.min(LINES_PER_CHECKPOINT, lineCount - firstLine);
+        String[] lines = new String[count];
+
+        long offset = checkpoint(page);
+
+        for (int i = 0; i < count; i++) {
+            long end = lineEnd(offset);
+            lines[i] = decodeLine(offset, end);
+            offset = end + unitSize;
+        }
+
+        return lines;
+    }
+
+    /**
+     * Returns the offset of the line separator ending the line starting at an offset.
+     *
+     * @param offset The offset of the start of the line.
+     * @return The offset of its line separator, or the size of the file for the last line.
+     */
+    private long lineEnd(long offset) {
+        long position = offset;
+
+        while (position + unitSize <= size) {
+            MappedByteBuffer window = windowAt(position);
+            int from = (int) (position - readWindowStart);
+            int limit = window.limit() - unitSize + 1;
+
+            for (int i = from; i < limit; i += unitSize) {
+                if (isNewline(window, i, readWindowStart)) return readWindowStart + i;
+            }
+
+            position = readWindowStart + window.limit();
+        }
+
+        return size;
+    }
+
+    /**
+     * Decodes a line for display, without its carriage return, cut to {@link #MAX_LINE_LENGTH} characters.
+     *
+     * @param start The offset of the first byte of the line.
+     * @param end   The offset of its line separator.
+     * @return The text of the line.
+     */
+    private String decodeLine(long start, long end) {
+        long maxBytes = (long) MAX_LINE_LENGTH * Math.max(unitSize, 4);
+        int length = (int) Math.min(end - start, maxBytes);
+        if (length <= 0) return "";
+
+        byte[] bytes = new byte[length];
+        for (int copied = 0; copied < length; ) {
+            MappedByteBuffer window = windowAt(start + copied);
+            int from = (int) (start + copied - readWindowStart);
+            int chunk = Math.min(length - copied, window.limit() - from);
+
+            window.get(from, bytes, copied, chunk);
+            copied += chunk;
+        }
+
+        String text;
+        try {
+            text = lineDecoder.decode(ByteBuffer.wrap(bytes)).toString();
+        } catch (CharacterCodingException e) {
+            text = "";
+        }
+
+        if (text.length() > MAX_LINE_LENGTH) return text.substring(0, MAX_LINE_LENGTH) + "…";
+        if (end - start > length) return text + "…";
+        if (text.endsWith("\r")) return text.substring(0, text.length() - 1);
+
+        return text;
+    }
+
+    /**
+     * Returns the window of the file containing an offset, mapping it if it is not the current one.
+     * Windows are aligned on multiples of the window size from the start of the text.
+     *
+     * @param offset The offset.
+     * @return The window, whose first byte is at {@link #readWindowStart}.
+     */
+    private MappedByteBuffer windowAt(long offset) {
+        long start = dataStart + (offset - dataStart) / WINDOW_SIZE * WINDOW_SIZE;
+
+        if (start != readWindowStart) {
+            try {
+                readWindow = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+                readWindowStart = start;
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot map " + path + " at " + start, e);
+            }
+        }
+
+        return readWindow;
+    }
+
+    /**
+     * Decodes the segment of the file following an offset, ending after the last line separator
+     * that fits in a segment. A line longer than a segment is cut on a character boundary, see
+     * {@link #endOnCharacter}, and its rest is read with the next segment.
+     *
+     * @param start The offset of the segment, at the start of a line.
+     * @param limit The offset past which nothing is read.
+     * @return The decoded segment.
+     * @throws IOException If the file cannot be mapped.
+     */
+    public TextSegment readForward(long start, long limit) throws IOException {
+        long end = Math.min(limit, start + SEGMENT_SIZE);
+        ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+
+        if (end < limit) {
+            int cut = alignedLength(bytes.limit());
+
+            int lineEnd = -1;
+            for (int i = cut - unitSize; i >= 0 && lineEnd < 0; i -= unitSize) {
+                if (isNewline(bytes, i, start)) lineEnd = i + unitSize;
+            }
+
+            cut = lineEnd >= 0 ? lineEnd : endOnCharacter(bytes, cut);
+            bytes.limit(cut);
+            end = start + cut;
+        }
+
+        return new TextSegment(start, end, decode(bytes));
+    }
+
+    /**
+     * Decodes the segment of the file preceding an offset, starting after the first line separator
+     * of a segment, other than the one ending the segment. A line longer than a segment is cut on a
+     * character boundary, see {@link #startOnCharacter}, and its start is read with the next segment.
+     *
+     * @param end   The end of the segment, at the start of a line.
+     * @param floor The offset before which nothing is read.
+     * @return The decoded segment.
+     * @throws IOException If the file cannot be mapped.
+     */
+    public TextSegment readBackward(long end, long floor) throws IOException {
+        long start = Math.max(floor, end - SEGMENT_SIZE);
+        start = end - alignedLength(end - start);
+        ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+
+        if (start > floor) {
+            int lineStart = -1;
+            for (int i = 0; i + unitSize < bytes.limit() && lineStart < 0; i += unitSize) {
+                if (isNewline(bytes, i, start)) lineStart = i + unitSize;
+            }
+
+            bytes.position(lineStart >= 0 ? lineStart : startOnCharacter(bytes));
+            start += bytes.position();
+        }
+
+        return new TextSegment(start, end, decode(bytes));
+    }
+
+    /**
+     * Moves the end of a segment cut inside a line back to a character boundary, so that neither a
+     * UTF-8 sequence nor a UTF-16 surrogate pair is split, nor the "\r\n" ending a line.
+     *
+     * @param bytes The bytes of the segment.
+     * @param cut   The length of the segment, a whole number of code units.
+     * @return The length of the segment ending on a character boundary, or the given one if the
+     *         segment holds no boundary, which only malformed text can cause.
+     */
+    private int endOnCharacter(ByteBuffer bytes, int cut) {
+        int end = cut;
+
+        if (unitSize == 1) {
+            int lead = end - 1;
+            while (lead > 0 && lead > end - 4 && isContinuation(bytes.get(lead))) lead--;
+            if (lead >= 0 && lead + sequenceLength(bytes.get(lead)) > end) end = lead;
+        } else if (end >= unitSize && Character.isHighSurrogate((char) unitAt(bytes, end - unitSize))) {
+            end -= unitSize;
+        }
+
+        if (end >= unitSize && unitAt(bytes, end - unitSize) == '\r') end -= unitSize;
+
+        return end > 0 ? end : cut;
+    }
+
+    /**
+     * Moves the start of a segment cut inside a line forward to a character boundary, so that
+     * neither a UTF-8 sequence nor a UTF-16 surrogate pair is split.
+     *
+     * @param bytes The bytes of the segment.
+     * @return The offset of the first character boundary of the segment, or 0 if it holds none,
+     *         which only malformed text can cause.
+     */
+    private int startOnCharacter(ByteBuffer bytes) {
+        int start = 0;
+
+        if (unitSize == 1) {
+            while (start < 3 && start < bytes.limit() && isContinuation(bytes.get(start))) start++;
+        } else if (bytes.limit() >= unitSize && Character.isLowSurrogate((char) unitAt(bytes, 0))) {
+            start = unitSize;
+        }
+
+        return start < bytes.limit() ? start : 0;
+    }
+
+    /**
+     * Determines whether a byte continues a UTF-8 sequence.
+     *
+     * @param b The byte.
+     * @return True for a byte of the form 10xxxxxx.
+     */
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    /**
+     * Returns the length of the UTF-8 sequence a byte starts.
+     *
+     * @param b The first byte of the sequence.
+     * @return The number of bytes of the sequence, or 1 for a byte that starts none.
+     */
+    private static int sequenceLength(byte b) {
+        if ((b & 0xE0) == 0xC0) return 2;
+        if ((b & 0xF0) == 0xE0) return 3;
+        if ((b & 0xF8) == 0xF0) return 4;
+        return 1;
+    }
+
+    /**
+     * Decodes bytes of the file with a decoder of its own, so that segments can be read while lines are shown.
+     *
+     * @param bytes The bytes.
+     * @return The decoded text.
+     * @throws CharacterCodingException Never, as malformed input is replaced.
+     */
+    private CharBuffer decode(ByteBuffer bytes) throws CharacterCodingException {
+        return newDecoder().decode(bytes);
+    }
+
+    /**
+     * Returns a decoder for the charset of the file, replacing malformed input.
+     *
+     * @return The decoder.
+     */
+    private CharsetDecoder newDecoder() {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Rounds a length down to a whole number of code units.
+     *
+     * @param length The length in bytes.
+     * @return The rounded length.
+     */
+    private int alignedLength(long length) {
+        return (int) (length - length % unitSize);
+    }
+
+    /**
+     * Determines whether the code unit at an index of a buffer ends a line: a line feed, or a
+     * carriage return not followed by one, so that lines are split as {@link TextNormalizer} splits
+     * them. A "\r\n" line ends at its line feed, and its carriage return is dropped when the line
+     * is decoded. A carriage return ending the buffer is followed in the file.
+     *
+     * @param bytes  The buffer.
+     * @param index  The index of the first byte of the code unit.
+     * @param offset The offset of the buffer in the file.
+     * @return True for a line separator.
+     */
+    private boolean isNewline(ByteBuffer bytes, int index, long offset) {
+        int unit = unitAt(bytes, index);
+        if (unit != '\r') return unit == '\n';
+
+        int next = index + unitSize;
+        if (next + unitSize <= bytes.limit()) return unitAt(bytes, next) != '\n';
+
+        return unitAfter(offset + next) != '\n';
+    }
+
+    /**
+     * Returns the code unit at an index of a buffer.
+     *
+     * @param bytes The buffer.
+     * @param index The index of the first byte of the code unit.
+     * @return The code unit.
+     */
+    private int unitAt(ByteBuffer bytes, int index) {
+        if (unitSize == 1) return bytes.get(index) & 0xFF;
+
+        int high = bytes.get(bigEndian ? index : index + 1) & 0xFF;
+        int low = bytes.get(bigEndian ? index + 1 : index) & 0xFF;
+        return high << 8 | low;
+    }
+
+    /**
+     * Reads the code unit at an offset of the file, without mapping it.
+     *
+     * @param offset The offset.
+     * @return The code unit, or -1 past the end of the file.
+     */
+    private int unitAfter(long offset) {
+        if (offset + unitSize > size) return -1;
+
+        ByteBuffer unit = ByteBuffer.allocate(unitSize);
+        try {
+            while (unit.hasRemaining()) {
+                if (channel.read(unit, offset + unit.position()) < 0) return -1;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + path + " at " + offset, e);
+        }
+
+        return unitAt(unit, 0);
+    }
+
+    /**
+     * Closes the channel of the file. The mapped windows are released once they are no longer used.
+     *
+     * @throws IOException If the channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
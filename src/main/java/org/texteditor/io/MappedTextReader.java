@@ -0,0 +1,368 @@
+package org.texteditor.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads text files through memory-mapped windows of their FileChannel. Each window is copied,
+ * one bounce buffer at a time, into a reusable heap byte buffer and decoded from there by a
+ * reusable CharsetDecoder straight into the destination char buffer. The decoders only take
+ * their fast, array-to-array path between heap buffers, and decode a mapped buffer byte by byte,
+ * so the extra copy, which stays in the CPU cache, is what lets decoding run close to the speed
+ * of the disk. No intermediate line or String is created.
+ * <p>
+ * The charset comes from the byte order mark when the file has one. Otherwise the file is
+ * decoded as UTF-8 and, if it is not valid UTF-8, decoded again as windows-1252. Line
+ * separators are normalized to '\n' and the control characters a document does not hold are
+ * dropped while decoding, so the result matches what the editor displays.
+ * <p>
+ * The text is either decoded into one buffer, or handed out in chunks as it is decoded.
+ * The CRC32C checksum of the bytes is computed on each window as it is decoded, so telling
+ * later whether the file has changed does not need a pass of its own. A reader keeps its
+ * decoders and its bounce buffer between files and must only be used by one thread at a time.
+ */
+public class MappedTextReader {
+
+    public static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    public static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final int BOUNCE_SIZE = 256 * 1024;
+
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+    private static final Charset FALLBACK_CHARSET = Charset.forName("windows-1252");
+
+    private final Map<Charset, CharsetDecoder> decoders = new HashMap<>();
+
+    private final ByteBuffer bounce = ByteBuffer.allocate(BOUNCE_SIZE);
+    private final TextNormalizer normalizer = new TextNormalizer();
+    private final CRC32C checksum = new CRC32C();
+
+    /**
+     * Returns the CRC32C checksum of the bytes of the last file read, byte order mark included.
+     *
+     * @return The checksum.
+     */
+    public long getChecksum() {
+        return checksum.getValue();
+    }
+
+    /**
+     * Reads and decodes the whole file.
+     *
+     * @param path The path of the file to read.
+     * @return The decoded text and the charset it was decoded with.
+     * @throws IOException If the file cannot be read or does not fit in a char array.
+     */
+    public DecodedText read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteOrderMark byteOrderMark = ByteOrderMark.detect(channel);
+
+            if (byteOrderMark != null)
+                return readFully(channel, size, byteOrderMark.length(), byteOrderMark.charset(),
+                        CodingErrorAction.REPLACE);
+
+            try {
+                return readFully(channel, size, 0, StandardCharsets.UTF_8, CodingErrorAction.REPORT);
+            } catch (CharacterCodingException e) {
+                return readFully(channel, size, 0, FALLBACK_CHARSET, CodingErrorAction.REPLACE);
+            }
+        }
+    }
+
+    /**
+     * Reads and decodes the file, handing the text to the handler in chunks of {@value #CHUNK_SIZE}
+     * characters as it is decoded, the last one shorter. The chunk buffer is reused, unless the
+     * handler {@linkplain TextChunkHandler#keepsChunks() keeps the chunks}, in which case every
+     * chunk gets an array of its own. If the file turns out not to be valid UTF-8, the handler is
+     * told to restart and the file is decoded again with the fallback charset.
+     *
+     * @param path    The path of the file to read.
+     * @param handler The handler receiving the decoded chunks.
+     * @return The charset the file was decoded with.
+     * @throws IOException If the file cannot be read, or if the handler fails.
+     */
+    public Charset read(Path path, TextChunkHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteOrderMark byteOrderMark = ByteOrderMark.detect(channel);
+            CharBuffer chunk = CharBuffer.allocate(CHUNK_SIZE);
+
+            if (byteOrderMark != null) {
+                readInChunks(channel, size, byteOrderMark.length(), byteOrderMark.charset(),
+                        CodingErrorAction.REPLACE, chunk, handler);
+                return byteOrderMark.charset();
+            }
+
+            try {
+                readInChunks(channel, size, 0, StandardCharsets.UTF_8, CodingErrorAction.REPORT, chunk, handler);
+                return StandardCharsets.UTF_8;
+            } catch (CharacterCodingException e) {
+                handler.restart(FALLBACK_CHARSET);
+                chunk.clear();
+
+                readInChunks(channel, size, 0, FALLBACK_CHARSET, CodingErrorAction.REPLACE, chunk, handler);
+                return FALLBACK_CHARSET;
+            }
+        }
+    }
+
+    /**
+     * Decodes the file into a single buffer, grown whenever the estimate falls short.
+     *
+     * @param channel     The channel of the file.
+     * @param size        The size of the file in bytes.
+     * @param offset      The offset of the first byte to decode, past any byte order mark.
+     * @param charset     The charset to decode with.
+     * @param errorAction The action for malformed or unmappable input.
+     * @return The decoded text.
+     * @throws IOException If the file cannot be mapped, or on malformed input when reporting errors.
+     */
+    private DecodedText readFully(FileChannel channel, long size, long offset, Charset charset,
+                                  CodingErrorAction errorAction) throws IOException {
+        CharsetDecoder decoder = decoder(charset, errorAction);
+        CharBuffer out = CharBuffer.allocate(capacityFor(size - offset, decoder));
+
+        out = decode(channel, size, offset, decoder, out,
+                (full, remainingBytes) -> grow(full, remainingBytes, decoder));
+
+        out.flip();
+        return new DecodedText(out.asReadOnlyBuffer(), charset);
+    }
+
+    /**
+     * Decodes the file through the given chunk buffer, handing it to the handler each time it fills up.
+     * A handler keeping the chunks receives a new buffer after each one.
+     *
+     * @param channel     The channel of the file.
+     * @param size        The size of the file in bytes.
+     * @param offset      The offset of the first byte to decode, past any byte order mark.
+     * @param charset     The charset to decode with.
+     * @param errorAction The action for malformed or unmappable input.
+     * @param chunk       The reusable chunk buffer.
+     * @param handler     The handler receiving the chunks.
+     * @throws IOException If the file cannot be mapped, on malformed input when reporting errors,
+     *                     or if the handler fails.
+     */
+    private void readInChunks(FileChannel channel, long size, long offset, Charset charset,
+                              CodingErrorAction errorAction, CharBuffer chunk,
+                              TextChunkHandler handler) throws IOException {
+        CharsetDecoder decoder = decoder(charset, errorAction);
+
+        chunk = decode(channel, size, offset, decoder, chunk, (full, remainingBytes) -> {
+            full.flip();
+            handler.accept(full, size - remainingBytes, size);
+            return handler.keepsChunks() ? CharBuffer.allocate(CHUNK_SIZE) : full.clear();
+        });
+
+        chunk.flip();
+        handler.accept(chunk, size, size);
+    }
+
+    /**
+     * Decodes the file from the given offset, one mapped window at a time, and computes the
+     * checksum of its bytes. Each window is decoded through the bounce buffer, and the bytes of a
+     * multi-byte sequence cut by the end of the bounce buffer or of a window are kept in the bounce
+     * buffer until the next bytes are copied after them. The overflow handler is only called once
+     * the destination is full, after normalization made room again where it could.
+     *
+     * @param channel  The channel of the file.
+     * @param size     The size of the file in bytes.
+     * @param offset   The offset of the first byte to decode.
+     * @param decoder  The decoder, already reset.
+     * @param out      The array-backed buffer to decode into.
+     * @param overflow Called when the buffer is full, returns the buffer to continue with.
+     * @return The buffer holding the last decoded characters.
+     * @throws IOException If the file cannot be mapped, or on malformed input when reporting errors.
+     */
+    private CharBuffer decode(FileChannel channel, long size, long offset, CharsetDecoder decoder,
+                              CharBuffer out, Overflow overflow) throws IOException {
+        normalizer.reset();
+        checksum.reset();
+        bounce.clear();
+
+        if (offset > 0) checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, offset));
+
+        long position = offset;
+        boolean endOfInput = false;
+
+        while (!endOfInput) {
+            long windowSize = Math.min(WINDOW_SIZE, size - position);
+            endOfInput = position + windowSize == size;
+
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+
+            do {
+                int count = Math.min(bounce.remaining(), window.remaining());
+                bounce.put(window.slice(window.position(), count));
+                checksum.update(bounce.array(), bounce.position() - count, count);
+                window.position(window.position() + count);
+                bounce.flip();
+
+                long remainingBytes = size - position - window.position() + bounce.remaining();
+                out = decodeBounce(decoder, out, endOfInput && !window.hasRemaining(), remainingBytes, overflow);
+                bounce.compact();
+            } while (window.hasRemaining());
+
+            position += windowSize;
+        }
+
+        CoderResult result;
+        do {
+            int from = out.position();
+            result = decoder.flush(out);
+            normalizer.normalize(out, from);
+
+            if (result.isOverflow() && !out.hasRemaining()) out = overflow.handle(out, 0);
+        } while (result.isOverflow());
+
+        return out;
+    }
+
+    /**
+     * Decodes the bytes of the bounce buffer, leaving in it the start of a multi-byte sequence
+     * whose end has not been copied yet.
+     *
+     * @param decoder        The decoder.
+     * @param out            The buffer to decode into.
+     * @param endOfInput     Whether the bounce buffer holds the last bytes of the file.
+     * @param remainingBytes The number of bytes not decoded yet, those of the bounce buffer included.
+     * @param overflow       Called when the buffer is full, returns the buffer to continue with.
+     * @return The buffer holding the last decoded characters.
+     * @throws IOException On malformed input when reporting errors, or if the overflow handler fails.
+     */
+    private CharBuffer decodeBounce(CharsetDecoder decoder, CharBuffer out, boolean endOfInput,
+                                    long remainingBytes, Overflow overflow) throws IOException {
+        CoderResult result;
+        do {
+            int from = out.position();
+            result = decoder.decode(bounce, out, endOfInput);
+            normalizer.normalize(out, from);
+
+            if (result.isOverflow() && !out.hasRemaining())
+                out = overflow.handle(out, remainingBytes - bounce.position());
+            else if (result.isError()) result.throwException();
+        } while (result.isOverflow());
+
+        return out;
+    }
+
+    /**
+     * Returns the reusable decoder of a charset, reset and configured with the given error action.
+     *
+     * @param charset     The charset to decode.
+     * @param errorAction The action for malformed or unmappable input.
+     * @return The decoder.
+     */
+    private CharsetDecoder decoder(Charset charset, CodingErrorAction errorAction) {
+        return decoders.computeIfAbsent(charset, Charset::newDecoder)
+                .reset()
+                .onMalformedInput(errorAction)
+                .onUnmappableCharacter(errorAction);
+    }
+
+    /**
+     * Returns the initial buffer capacity for decoding the given number of bytes.
+     *
+     * @param bytes   The number of bytes to decode.
+     * @param decoder The decoder that will be used.
+     * @return The estimated number of characters.
+     * @throws IOException If the text cannot fit in a char array.
+     */
+    private static int capacityFor(long bytes, CharsetDecoder decoder) throws IOException {
+        long estimate = (long) Math.ceil(bytes * (double) decoder.averageCharsPerByte());
+
+        if (estimate > MAX_ARRAY_LENGTH - 16)
+            throw new IOException("File too large to be loaded in memory: " + bytes + " bytes");
+
+        return (int) estimate + 16;
+    }
+
+    /**
+     * Copies a full buffer into a larger one, sized for the bytes that remain to be decoded.
+     *
+     * @param out            The full buffer.
+     * @param remainingBytes The number of bytes not decoded yet.
+     * @param decoder        The decoder in use.
+     * @return The larger buffer, positioned after the copied characters.
+     * @throws IOException If the text cannot fit in a char array.
+     */
+    private static CharBuffer grow(CharBuffer out, long remainingBytes, CharsetDecoder decoder) throws IOException {
+        long needed = out.capacity() + Math.max(out.capacity() / 2,
+                (long) Math.ceil(remainingBytes * (double) decoder.maxCharsPerByte()) + 16);
+
+        if (out.capacity() >= MAX_ARRAY_LENGTH)
+            throw new IOException("File too large to be loaded in memory");
+
+        CharBuffer grown = CharBuffer.allocate((int) Math.min(needed, MAX_ARRAY_LENGTH));
+        out.flip();
+        grown.put(out);
+        return grown;
+    }
+
+    /**
+     * Makes room when the decoding buffer is full.
+     */
+    private interface Overflow {
+
+        /**
+         * Handles a full buffer.
+         *
+         * @param full           The full buffer.
+         * @param remainingBytes The number of bytes not decoded yet.
+         * @return The buffer to continue decoding into.
+         * @throws IOException If the buffer cannot be handled.
+         */
+        CharBuffer handle(CharBuffer full, long remainingBytes) throws IOException;
+    }
+
+    /**
+     * A byte order mark and the charset it identifies. A UTF-16 mark is left to the UTF-16
+     * decoder, which reads the byte order from it, so its length is zero; the UTF-16 encoder
+     * writes a mark back when the file is saved.
+     *
+     * @param charset The charset of the file.
+     * @param length  The number of bytes to skip before decoding.
+     */
+    private record ByteOrderMark(Charset charset, int length) {
+
+        /**
+         * Reads the first bytes of a file and returns its byte order mark.
+         *
+         * @param channel The channel of the file.
+         * @return The byte order mark, or null if the file has none.
+         * @throws IOException If the file cannot be read.
+         */
+        static ByteOrderMark detect(FileChannel channel) throws IOException {
+            ByteBuffer head = ByteBuffer.allocate(3);
+            while (head.hasRemaining()) {
+                if (channel.read(head, head.position()) < 0) break;
+            }
+
+            int count = head.position();
+            int b0 = count > 0 ? head.get(0) & 0xFF : -1;
+            int b1 = count > 1 ? head.get(1) & 0xFF : -1;
+            int b2 = count > 2 ? head.get(2) & 0xFF : -1;
+
+            if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) return new ByteOrderMark(StandardCharsets.UTF_8, 3);
+            if ((b0 == 0xFE && b1 == 0xFF) || (b0 == 0xFF && b1 == 0xFE))
+                return new ByteOrderMark(StandardCharsets.UTF_16, 0);
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.texteditor.io;
+
+import javafx.concurrent.Task;
+import org.texteditor.model.document.ContentHash;
+import org.texteditor.model.document.LineMerge;
+import org.texteditor.model.document.MergeResult;
+import org.texteditor.search.ChunkedText;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A background task that reads a file changed outside the editor and merges its changes into the
+ * text edited in a tab, from the text the file held when the tab last read or wrote it. The file
+ * is decoded as {@link MappedTextReader} does, and its snapshot is taken during the same read.
+ * The value of the task is the edit to apply to the edited text, or null if the file brings no
+ * change.
+ */
+public class MergeFileTask extends Task<MergeResult> {
+
+    private final Path path;
+    private final Iterable<CharBuffer> base;
+    private final Iterable<CharBuffer> local;
+
+    private volatile CharBuffer text;
+    private volatile FileSnapshot snapshot;
+    private volatile ContentHash contentHash;
+
+    /**
+     * Constructs a MergeFileTask. The chunks must stay valid while the task runs, as the chunks
+     * of a TextDocument do.
+     *
+     * @param path  The path of the changed file.
+     * @param base  The text of the file when the tab last read or wrote it.
+     * @param local The text edited in the tab.
+     */
+    public MergeFileTask(Path path, Iterable<CharBuffer> base, Iterable<CharBuffer> local) {
+        this.path = path;
+        this.base = base;
+        this.local = local;
+    }
+
+    /**
+     * Returns the text of the file as it was read, known once the task has succeeded.
+     *
+     * @return The decoded text of the file.
+     */
+    public CharBuffer getText() {
+        return text;
+    }
+
+    /**
+     * Returns the snapshot of the file as it was read, known once the task has succeeded.
+     *
+     * @return The snapshot of the file.
+     */
+    public FileSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the hash of the text of the file, known once the task has succeeded.
+     *
+     * @return The hash of the decoded text.
+     */
+    public ContentHash getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Reads the file and merges its changes into the edited text.
+     *
+     * @return The edit applying the merge, or null if the file brings no change.
+     * @throws IOException If the file cannot be read.
+     */
+    @Override
+    protected MergeResult call() throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        MappedTextReader reader = new MappedTextReader();
+
+        text = reader.read(path).text();
+        snapshot = new FileSnapshot(attributes.size(), attributes.lastModifiedTime().toMillis(), reader.getChecksum());
+        contentHash = new ContentHash().update(text);
+
+        return new LineMerge().merge(new ChunkedText(base), new ChunkedText(local), text);
+    }
+}
@@ -0,0 +1,151 @@
+package org.texteditor.io;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import org.texteditor.model.document.ContentHash;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * A background task that decodes a file and streams its text to the JavaFX Application Thread
+ * in chunks, so the beginning of the file can be shown while the rest is still being read.
+ * At most a few chunks wait on the application thread at any time: the task blocks until the
+ * UI has caught up, so a fast disk never floods the event queue. The task reports its progress
+ * in bytes and stops as soon as it is cancelled. Its value is the charset of the file.
+ */
+public class OpenFileTask extends Task<Charset> {
+
+    private static final int MAX_PENDING_CHUNKS = 4;
+
+    private final Path path;
+    private final Semaphore pendingChunks = new Semaphore(MAX_PENDING_CHUNKS);
+
+    private final ContentHash contentHash = new ContentHash();
+
+    private volatile FileSnapshot snapshot;
+
+    private Consumer<CharBuffer> onChunk = chunk -> {};
+    private Runnable onRestart = () -> {};
+
+    /**
+     * Constructs an OpenFileTask for the given file.
+     *
+     * @param path The path of the file to open.
+     */
+    public OpenFileTask(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Sets the handler receiving each decoded chunk on the JavaFX Application Thread. The chunk
+     * is a buffer of its own, which the handler may keep instead of copying it.
+     *
+     * @param onChunk The chunk handler.
+     */
+    public void setOnChunk(Consumer<CharBuffer> onChunk) {
+        this.onChunk = onChunk;
+    }
+
+    /**
+     * Sets the handler called on the JavaFX Application Thread when the chunks received so far
+     * must be discarded, because the file is decoded again with another charset.
+     *
+     * @param onRestart The restart handler.
+     */
+    public void setOnRestart(Runnable onRestart) {
+        this.onRestart = onRestart;
+    }
+
+    /**
+     * Returns the snapshot of the file as it was read, known once the task has succeeded. A file
+     * that grows while it is opened is read as large as it was when the task started, and its
+     * modification time is the one it had then.
+     *
+     * @return The snapshot of the file.
+     */
+    public FileSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the hash of the text decoded from the file, known once the task has succeeded.
+     *
+     * @return The hash of the published chunks.
+     */
+    public ContentHash getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Decodes the file, publishing its chunks as they are decoded.
+     *
+     * @return The charset the file was decoded with.
+     * @throws IOException If the file cannot be read, or the task was interrupted.
+     */
+    @Override
+    protected Charset call() throws IOException {
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        long[] length = new long[1];
+        MappedTextReader reader = new MappedTextReader();
+
+        Charset decoded = reader.read(path, new TextChunkHandler() {
+
+            @Override
+            public void accept(CharBuffer chunk, long bytesRead, long totalBytes) throws IOException {
+                if (isCancelled()) throw new InterruptedIOException("Opening " + path + " was cancelled");
+
+                contentHash.update(chunk);
+                publish(chunk);
+                updateProgress(bytesRead, totalBytes);
+                length[0] = totalBytes;
+            }
+
+            @Override
+            public boolean keepsChunks() {
+                return true;
+            }
+
+            @Override
+            public void restart(Charset charset) {
+                contentHash.reset();
+                Platform.runLater(() -> {
+                    if (!isCancelled()) onRestart.run();
+                });
+            }
+        });
+
+        snapshot = new FileSnapshot(length[0], lastModified, reader.getChecksum());
+        return decoded;
+    }
+
+    /**
+     * Hands a chunk to the JavaFX Application Thread, waiting while too many chunks are pending.
+     *
+     * @param chunk The chunk, which the task no longer touches.
+     * @throws InterruptedIOException If the task is interrupted while waiting.
+     */
+    private void publish(CharBuffer chunk) throws InterruptedIOException {
+        if (!chunk.hasRemaining()) return;
+
+        try {
+            pendingChunks.acquire();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Opening " + path + " was interrupted");
+        }
+
+        Platform.runLater(() -> {
+            try {
+                if (!isCancelled()) onChunk.accept(chunk);
+            } finally {
+                pendingChunks.release();
+            }
+        });
+    }
+}
@@ -0,0 +1,12 @@
+package org.texteditor.io;
+
+import org.texteditor.model.document.TextDocument;
+
+import java.util.UUID;
+
+/*
+ * A Java record holding a document rebuilt from its edit journal after a crash, with the UUID and
+ * name of its text file and the journal, reopened to keep recording the document's edits.
+ */
+public record RecoveredDocument(UUID uuid, String name, TextDocument document, EditJournal journal) {
+}
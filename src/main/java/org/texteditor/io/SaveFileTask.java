@@ -0,0 +1,284 @@
+package org.texteditor.io;
+
+import javafx.concurrent.Task;
+import org.texteditor.model.document.ContentHash;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * A background task that writes text to a file without ever leaving it half written.
+ * The text is encoded into a large direct buffer and written through a FileChannel to a
+ * temporary file next to the target. The temporary file is forced to disk and then moved
+ * over the target in one atomic step, so a crash during the save leaves the previous
+ * version of the file intact. The task reports its progress in characters.
+ * <p>
+ * The CRC32C checksum of the encoded bytes is computed as they are written, giving a snapshot
+ * of the saved file without reading it back, and so is the hash of the written text.
+ * <p>
+ * A task may be told to write the file only if it is missing, for a text already saved in it:
+ * the check runs on the background thread, and a task finding the file in place succeeds
+ * without writing anything.
+ */
+public class SaveFileTask extends Task<Void> {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final Path target;
+    private final Iterable<CharBuffer> chunks;
+    private final long totalCharacters;
+    private final Charset charset;
+    private final boolean onlyIfMissing;
+    private final CRC32C checksum = new CRC32C();
+    private final ContentHash contentHash = new ContentHash();
+
+    private long size;
+    private volatile FileSnapshot snapshot;
+    private volatile boolean skipped;
+
+    /**
+     * Constructs a SaveFileTask. The chunks must stay valid while the task runs, as the
+     * chunks of a TextDocument do. They are read through duplicates, so they can be read again.
+     *
+     * @param target          The file to write.
+     * @param chunks          The text to write.
+     * @param totalCharacters The number of characters in the chunks, used for progress.
+     * @param charset         The charset used to encode the text.
+     * @param onlyIfMissing   Whether to write the file only if it does not exist.
+     */
+    public SaveFileTask(Path target, Iterable<CharBuffer> chunks, long totalCharacters, Charset charset,
+                        boolean onlyIfMissing) {
+        this.target = target.toAbsolutePath();
+        this.chunks = chunks;
+        this.totalCharacters = totalCharacters;
+        this.charset = charset;
+        this.onlyIfMissing = onlyIfMissing;
+    }
+
+    /**
+     * Returns the file written by the task.
+     *
+     * @return The absolute path of the target file.
+     */
+    public Path getTarget() {
+        return target;
+    }
+
+    /**
+     * Returns the text written by the task.
+     *
+     * @return The chunks of the text.
+     */
+    public Iterable<CharBuffer> getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Returns the snapshot of the file as it was written, known once the task has succeeded.
+     *
+     * @return The snapshot of the target file.
+     */
+    public FileSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Tells whether the task found the file in place and wrote nothing, once it has succeeded.
+     *
+     * @return True if the file was left untouched.
+     */
+    public boolean isSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Returns the hash of the text written by the task, known once the task has succeeded.
+     *
+     * @return The hash of the chunks.
+     */
+    public ContentHash getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Writes the text to a temporary file and moves it over the target, unless the task writes
+     * only a missing file and the target exists.
+     *
+     * @return Nothing.
+     * @throws IOException If the file cannot be written; the target is left untouched.
+     */
+    @Override
+    protected Void call() throws IOException {
+        if (onlyIfMissing && Files.exists(target)) {
+            skipped = true;
+            return null;
+        }
+
+        Path directory = target.getParent();
+        Path temporary = Files.createTempFile(directory, "." + target.getFileName() + ".", ".tmp");
+
+        try {
+            copyPermissions(temporary);
+            writeTemporary(temporary);
+            moveOverTarget(temporary);
+            forceDirectory(directory);
+
+            snapshot = new FileSnapshot(size, Files.getLastModifiedTime(target).toMillis(), checksum.getValue());
+
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        return null;
+    }
+
+    /**
+     * Encodes the chunks into the temporary file and forces it to disk.
+     * A surrogate pair split between two chunks is carried over to the next one.
+     *
+     * @param temporary The temporary file.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeTemporary(Path temporary) throws IOException {
+        CharsetEncoder encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        CharBuffer carry = CharBuffer.allocate(2);
+        long written = 0;
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            for (CharBuffer source : chunks) {
+                if (isCancelled()) throw new IOException("Saving " + target + " was cancelled");
+
+                CharBuffer chunk = source.duplicate();
+                contentHash.update(chunk);
+
+                written += chunk.remaining();
+
+                while (carry.position() > 0 && chunk.hasRemaining()) {
+                    carry.put(chunk.get()).flip();
+                    encode(encoder, carry, out, channel, false);
+                    carry.compact();
+                }
+
+                encode(encoder, chunk, out, channel, false);
+                carry.put(chunk);
+
+                updateProgress(written, totalCharacters);
+            }
+
+            carry.flip();
+            encode(encoder, carry, out, channel, true);
+
+            while (encoder.flush(out).isOverflow()) {
+                drain(out, channel);
+            }
+            drain(out, channel);
+
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Encodes the input into the output buffer, draining it to the channel whenever it is full.
+     * Without end of input, an unpaired high surrogate is left in the input.
+     *
+     * @param encoder    The encoder.
+     * @param in         The characters to encode.
+     * @param out        The direct output buffer.
+     * @param channel    The channel of the temporary file.
+     * @param endOfInput Whether no more characters follow.
+     * @throws IOException If the channel cannot be written.
+     */
+    private void encode(CharsetEncoder encoder, CharBuffer in, ByteBuffer out, FileChannel channel,
+                               boolean endOfInput) throws IOException {
+        CoderResult result;
+
+        while ((result = encoder.encode(in, out, endOfInput)).isOverflow()) {
+            drain(out, channel);
+        }
+
+        if (result.isError()) result.throwException();
+    }
+
+    /**
+     * Writes the content of the output buffer to the channel, adding it to the checksum, and
+     * clears the buffer.
+     *
+     * @param out     The output buffer.
+     * @param channel The channel of the temporary file.
+     * @throws IOException If the channel cannot be written.
+     */
+    private void drain(ByteBuffer out, FileChannel channel) throws IOException {
+        out.flip();
+        size += out.remaining();
+        checksum.update(out.duplicate());
+
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Gives the temporary file the permissions of the target, when the target exists and the
+     * file system supports POSIX permissions. Temporary files are otherwise private to the user.
+     *
+     * @param temporary The temporary file.
+     * @throws IOException If the permissions cannot be read or set.
+     */
+    private void copyPermissions(Path temporary) throws IOException {
+        if (!Files.exists(target)) return;
+
+        try {
+            Files.setPosixFilePermissions(temporary, Files.getPosixFilePermissions(target));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system, the default permissions apply.
+        }
+    }
+
+    /**
+     * Replaces the target with the temporary file, atomically when the file system allows it.
+     *
+     * @param temporary The temporary file.
+     * @throws IOException If the file cannot be moved.
+     */
+    private void moveOverTarget(Path temporary) throws IOException {
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Forces the directory entry of the renamed file to disk. Not every platform can open
+     * a directory as a channel, in which case the rename is left to the file system.
+     *
+     * @param directory The directory containing the target.
+     */
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // The directory cannot be synced on this platform.
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.texteditor.io;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Receives the text of a file in chunks while it is being decoded.
+ */
+public interface TextChunkHandler {
+
+    /**
+     * Handles the next decoded chunk. Unless the handler keeps the chunks, the buffer is reused
+     * for the following chunk, so its content must be copied if it is kept.
+     *
+     * @param chunk      The decoded characters, from the buffer's position to its limit.
+     * @param bytesRead  The number of bytes of the file decoded so far.
+     * @param totalBytes The size of the file in bytes.
+     * @throws IOException If the chunk cannot be handled; decoding stops.
+     */
+    void accept(CharBuffer chunk, long bytesRead, long totalBytes) throws IOException;
+
+    /**
+     * Determines whether the handler keeps the chunk buffers it receives. A handler keeping them
+     * owns each buffer once it has received it: the reader decodes the next chunk into a new one.
+     *
+     * @return True if every chunk must get a buffer of its own, false if the buffer can be reused.
+     */
+    default boolean keepsChunks() {
+        return false;
+    }
+
+    /**
+     * Discards the chunks received so far, because the file is decoded again from the start.
+     *
+     * @param charset The charset the file is decoded with from now on.
+     */
+    void restart(Charset charset);
+}
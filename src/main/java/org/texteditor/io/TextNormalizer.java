@@ -0,0 +1,65 @@
+package org.texteditor.io;
+
+import java.nio.CharBuffer;
+
+/**
+ * Normalizes decoded text the way a document holds it: "\r\n" and lone '\r' become '\n' and
+ * control characters other than '\n' and '\t' are removed. Text decoded in runs is normalized
+ * run by run: a '\r' ending one run is remembered so that a '\n' starting the next is dropped.
+ */
+public class TextNormalizer {
+
+    private boolean afterCarriageReturn;
+
+    /**
+     * Forgets the last run, before normalizing another text.
+     */
+    public void reset() {
+        afterCarriageReturn = false;
+    }
+
+    /**
+     * Normalizes the characters decoded since the given position in place. The characters kept
+     * as they are, which is most of them, are skipped first without being written back.
+     *
+     * @param out  The array-backed destination buffer.
+     * @param from The position of the first character to normalize.
+     */
+    public void normalize(CharBuffer out, int from) {
+        char[] chars = out.array();
+        int end = out.position();
+
+        int read = from;
+        if (!afterCarriageReturn) {
+            while (read < end && isKept(chars[read])) read++;
+        }
+
+        int write = read;
+
+        for (; read < end; read++) {
+            char c = chars[read];
+
+            if (c == '\n' && afterCarriageReturn) {
+                afterCarriageReturn = false;
+                continue;
+            }
+
+            afterCarriageReturn = c == '\r';
+
+            if (c == '\r') chars[write++] = '\n';
+            else if (isKept(c)) chars[write++] = c;
+        }
+
+        out.position(write);
+    }
+
+    /**
+     * Determines whether a character is kept as it is.
+     *
+     * @param c The character.
+     * @return True for characters other than controls, and for new lines and tabs.
+     */
+    private static boolean isKept(char c) {
+        return (c >= 0x20 && c != 0x7F) || c == '\n' || c == '\t';
+    }
+}
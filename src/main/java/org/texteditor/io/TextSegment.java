@@ -0,0 +1,12 @@
+package org.texteditor.io;
+
+import java.nio.CharBuffer;
+
+/*
+ * A Java record representing a part of a large file decoded for a search: the byte offsets it was
+ * read from, start inclusive and end exclusive, and its decoded text. Both offsets fall on line
+ * boundaries, unless a single line is longer than a whole segment: the segment then ends, or starts,
+ * inside the line, on a character boundary, and holds no line separator.
+ */
+public record TextSegment(long start, long end, CharBuffer text) {
+}
@@ -1,12 +1,44 @@
 package org.texteditor.model;
 
+import org.texteditor.model.document.DirtyTracker;
+import org.texteditor.model.document.TextDocument;
+
+import java.nio.charset.Charset;
 import java.util.UUID;
 
 /*
- * A Java record representing a text file with properties such as UUID, name, file path, content, and saved status.
+ * A Java record representing a text file with properties such as UUID, name, file path, document, charset and saved status.
+ * The document is the live, mutable content of the file, so updating the other properties never copies the text.
+ * The charset is the one the file was decoded with, and is used again when the file is written.
+ * The saved status only tells whether the text file is bound to a file; whether its content changed since it was
+ * last saved or loaded is told by its DirtyTracker, which is shared, like the document, by every updated record.
  * Records are a feature introduced in Java 16 for concise and immutable data classes.
  */
-public record TextFile(UUID uuid, String name, String filePath, String text, boolean saved) {
+public record TextFile(UUID uuid, String name, String filePath, TextDocument document, Charset charset,
+                       boolean saved, DirtyTracker dirtyTracker) {
+
+    /**
+     * Constructs a TextFile with a new DirtyTracker, counting the document as saved only while it is empty.
+     *
+     * @param uuid     The UUID of the text file.
+     * @param name     The name of the text file.
+     * @param filePath The path of the file, or null if the text file is not bound to a file.
+     * @param document The content of the text file.
+     * @param charset  The charset of the file.
+     * @param saved    Whether the text file is bound to a file.
+     */
+    public TextFile(UUID uuid, String name, String filePath, TextDocument document, Charset charset, boolean saved) {
+        this(uuid, name, filePath, document, charset, saved, new DirtyTracker(document));
+    }
+
+    /**
+     * Tells whether the document differs from what was last saved of it, or loaded from its file.
+     *
+     * @return True if the document was modified.
+     */
+    public boolean modified() {
+        return dirtyTracker.isModified();
+    }
 }
 // The properties of the record are automatically generated based on the provided components.
 
@@ -0,0 +1,112 @@
+package org.texteditor.model.document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base class for TextDocument implementations. Every edit goes through
+ * {@link #replace(int, int, CharSequence)}, which notifies the registered listeners
+ * around the storage-specific insert and delete operations.
+ */
+public abstract class AbstractTextDocument implements TextDocument {
+
+    private final List<DocumentListener> listeners = new ArrayList<>();
+
+    private long version;
+
+    /**
+     * Inserts the given text at the specified offset.
+     *
+     * @param offset The offset at which the text is inserted.
+     * @param text   The text to be inserted.
+     */
+    @Override
+    public void insert(int offset, CharSequence text) {
+        replace(offset, offset, text);
+    }
+
+    /**
+     * Deletes a range of characters from the document.
+     *
+     * @param offset The offset of the first character to delete.
+     * @param length The number of characters to delete.
+     */
+    @Override
+    public void delete(int offset, int length) {
+        replace(offset, offset + length, "");
+    }
+
+    /**
+     * Replaces the characters between start and end with the given text and notifies the listeners.
+     *
+     * @param start The start offset of the range to replace (inclusive).
+     * @param end   The end offset of the range to replace (exclusive).
+     * @param text  The replacement text.
+     */
+    @Override
+    public void replace(int start, int end, CharSequence text) {
+        if (start < 0 || end > length() || start > end)
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+
+        if (start == end && text.isEmpty()) return;
+
+        for (DocumentListener listener : listeners) {
+            listener.beforeReplace(this, start, end);
+        }
+
+        if (end > start) deleteText(start, end - start);
+        if (!text.isEmpty()) insertText(start, text);
+
+        version++;
+
+        for (DocumentListener listener : listeners) {
+            listener.replaced(this, start, end, text);
+        }
+    }
+
+    /**
+     * Returns the version of the document, which changes with every edit.
+     *
+     * @return The number of edits applied to the document.
+     */
+    @Override
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Registers a listener notified of every edit of the document.
+     *
+     * @param listener The listener to add.
+     */
+    @Override
+    public void addDocumentListener(DocumentListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener previously added to the document.
+     *
+     * @param listener The listener to remove.
+     */
+    @Override
+    public void removeDocumentListener(DocumentListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Inserts text into the underlying storage without notifying listeners.
+     *
+     * @param offset The offset at which the text is inserted.
+     * @param text   The non-empty text to be inserted.
+     */
+    protected abstract void insertText(int offset, CharSequence text);
+
+    /**
+     * Deletes characters from the underlying storage without notifying listeners.
+     *
+     * @param offset The offset of the first character to delete.
+     * @param length The positive number of characters to delete.
+     */
+    protected abstract void deleteText(int offset, int length);
+}
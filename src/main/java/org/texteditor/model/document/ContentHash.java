@@ -0,0 +1,110 @@
+package org.texteditor.model.document;
+
+import java.nio.CharBuffer;
+
+/**
+ * A polynomial rolling hash of a text, along with its length. The hash of a text is extended with
+ * each piece appended to it, so it can be computed chunk by chunk while the text streams from or
+ * to a file, and extended again when more text is appended, without going over the text again.
+ * Arithmetic wraps around 64 bits, which is enough to tell whether a text was edited, not to
+ * resist a crafted collision.
+ */
+public class ContentHash {
+
+    private static final long MULTIPLIER = 0x100000001B3L;
+
+    private long value;
+    private long length;
+
+    /**
+     * Constructs the hash of an empty text.
+     */
+    public ContentHash() {
+    }
+
+    /**
+     * Constructs a copy of another hash, to be extended separately.
+     *
+     * @param hash The hash to copy.
+     */
+    public ContentHash(ContentHash hash) {
+        this.value = hash.value;
+        this.length = hash.length;
+    }
+
+    /**
+     * Returns the hash of the given chunks of text.
+     *
+     * @param chunks The chunks of the text, in order.
+     * @return The hash of the text.
+     */
+    public static ContentHash of(Iterable<CharBuffer> chunks) {
+        ContentHash hash = new ContentHash();
+        chunks.forEach(hash::update);
+        return hash;
+    }
+
+    /**
+     * Extends the hash with the remaining characters of a buffer, without moving its position.
+     *
+     * @param text The appended text.
+     * @return This hash.
+     */
+    public ContentHash update(CharBuffer text) {
+        long hash = value;
+        int end = text.limit();
+
+        for (int i = text.position(); i < end; i++) {
+            hash = hash * MULTIPLIER + text.get(i);
+        }
+
+        value = hash;
+        length += end - text.position();
+        return this;
+    }
+
+    /**
+     * Extends the hash with a piece of text.
+     *
+     * @param text The appended text.
+     * @return This hash.
+     */
+    public ContentHash update(CharSequence text) {
+        long hash = value;
+
+        for (int i = 0; i < text.length(); i++) {
+            hash = hash * MULTIPLIER + text.charAt(i);
+        }
+
+        value = hash;
+        length += text.length();
+        return this;
+    }
+
+    /**
+     * Returns the hash to the hash of an empty text.
+     */
+    public void reset() {
+        value = 0;
+        length = 0;
+    }
+
+    /**
+     * Returns the length of the hashed text.
+     *
+     * @return The number of characters hashed.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Tells whether two hashes are of texts of the same length and hash value.
+     *
+     * @param other The other hash.
+     * @return True if both texts are, almost certainly, equal.
+     */
+    public boolean matches(ContentHash other) {
+        return other != null && length == other.length && value == other.value;
+    }
+}
@@ -0,0 +1,88 @@
+package org.texteditor.model.document;
+
+/**
+ * Tells whether a document differs from what was last saved of it, or loaded from its file. The
+ * version of the document at that time is kept, along with the {@link ContentHash} of the saved
+ * text, which the file tasks compute while the text streams. As long as the document is at the
+ * saved version, it is unmodified without looking at its content. Otherwise a document of another
+ * length is modified, and a document of the same length, for example one edited and then undone
+ * back to the saved text, is hashed once per version and compared.
+ * <p>
+ * A new tracker counts an empty document as saved. While the document is loaded from its file,
+ * or follows it, it never counts as modified.
+ */
+public class DirtyTracker {
+
+    private static final long NO_VERSION = -1;
+
+    private final TextDocument document;
+
+    private long savedVersion;
+    private ContentHash savedHash = new ContentHash();
+    private boolean loading;
+
+    private long hashedVersion = NO_VERSION;
+    private ContentHash hash;
+
+    /**
+     * Constructs a DirtyTracker for the given document.
+     *
+     * @param document The tracked document.
+     */
+    public DirtyTracker(TextDocument document) {
+        this.document = document;
+        this.savedVersion = document.version();
+    }
+
+    /**
+     * Records what was saved of the document, or loaded from its file.
+     *
+     * @param version The version of the document holding the saved text, or a negative value if
+     *                the document may not hold it.
+     * @param hash    The hash of the saved text.
+     */
+    public void markSaved(long version, ContentHash hash) {
+        savedVersion = version < 0 ? NO_VERSION : version;
+        savedHash = new ContentHash(hash);
+        loading = false;
+    }
+
+    /**
+     * Sets whether the document is being loaded from its file, or follows it. Once loading
+     * stops without the loaded text being marked as saved, the document is compared with what
+     * was saved before.
+     *
+     * @param loading Whether the document is being loaded.
+     */
+    public void setLoading(boolean loading) {
+        this.loading = loading;
+    }
+
+    /**
+     * Returns the hash of the saved text.
+     *
+     * @return A copy of the hash, which can be extended separately.
+     */
+    public ContentHash getSavedHash() {
+        return new ContentHash(savedHash);
+    }
+
+    /**
+     * Tells whether the document differs from the saved text.
+     *
+     * @return True if the document was modified since it was saved or loaded.
+     */
+    public boolean isModified() {
+        long version = document.version();
+
+        if (loading || version == savedVersion) return false;
+        if (document.length() != savedHash.getLength()) return true;
+
+        if (version != hashedVersion) {
+            hash = ContentHash.of(document.chunks());
+            hashedVersion = version;
+        }
+
+        return !hash.matches(savedHash);
+    }
+}
@@ -0,0 +1,28 @@
+package org.texteditor.model.document;
+
+/**
+ * Receives the edits applied to a TextDocument, so derived data such as indexes and
+ * statistics can be updated from the edited range instead of being recomputed.
+ */
+public interface DocumentListener {
+
+    /**
+     * Called before a range of the document is replaced, while it still holds the old text.
+     *
+     * @param document The edited document.
+     * @param start    The start offset of the replaced range (inclusive).
+     * @param end      The end offset of the replaced range (exclusive).
+     */
+    default void beforeReplace(TextDocument document, int start, int end) {
+    }
+
+    /**
+     * Called after a range of the document was replaced.
+     *
+     * @param document The edited document.
+     * @param start    The start offset of the replaced range (inclusive).
+     * @param end      The end offset of the replaced range before the edit (exclusive).
+     * @param inserted The text that was inserted at the start offset.
+     */
+    void replaced(TextDocument document, int start, int end, CharSequence inserted);
+}
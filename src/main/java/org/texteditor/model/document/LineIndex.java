@@ -0,0 +1,156 @@
+package org.texteditor.model.document;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the start offset of every line of a document in a primitive int array.
+ * The array is a gap buffer: entries before the gap hold absolute offsets, entries after it
+ * hold their distance from the end of the document. An edit moves the gap to the edited
+ * line, so the offsets of the following lines stay valid without being rewritten, and the
+ * index is updated from the edit alone. Line count and line start lookups are O(1),
+ * offset-to-line lookups are a binary search.
+ */
+public class LineIndex implements DocumentListener {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] starts;
+    private int gapStart;
+    private int gapEnd;
+    private int documentLength;
+
+    /**
+     * Constructs a LineIndex for the given text by scanning it once.
+     *
+     * @param text The text to index.
+     */
+    public LineIndex(CharSequence text) {
+        int length = text.length();
+
+        starts = new int[INITIAL_CAPACITY];
+        gapStart = 0;
+        gapEnd = starts.length;
+        documentLength = length;
+
+        insertStart(0);
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) == '\n') insertStart(i + 1);
+        }
+    }
+
+    /**
+     * Updates the line starts after a range of the document was replaced.
+     *
+     * @param document The edited document.
+     * @param start    The start offset of the replaced range (inclusive).
+     * @param end      The end offset of the replaced range before the edit (exclusive).
+     * @param inserted The text that was inserted at the start offset.
+     */
+    @Override
+    public void replaced(TextDocument document, int start, int end, CharSequence inserted) {
+        int firstRemoved = lineOfOffset(start) + 1;
+        int lastRemoved = end == start ? firstRemoved : lineOfOffset(end) + 1;
+
+        moveGap(firstRemoved);
+        gapEnd += lastRemoved - firstRemoved;
+
+        documentLength += inserted.length() - (end - start);
+
+        for (int i = 0; i < inserted.length(); i++) {
+            if (inserted.charAt(i) == '\n') insertStart(start + i + 1);
+        }
+    }
+
+    /**
+     * Returns the number of lines in the document. An empty document has one line.
+     *
+     * @return The number of lines.
+     */
+    public int lineCount() {
+        return starts.length - (gapEnd - gapStart);
+    }
+
+    /**
+     * Returns the offset of the first character of a line.
+     *
+     * @param line The zero-based line number.
+     * @return The start offset of the line.
+     */
+    public int lineStart(int line) {
+        if (line < 0 || line >= lineCount())
+            throw new IndexOutOfBoundsException("line " + line + ", line count " + lineCount());
+
+        return line < gapStart ? starts[line] : documentLength - starts[line + gapEnd - gapStart];
+    }
+
+    /**
+     * Returns the offset just past the last character of a line, excluding its new line.
+     *
+     * @param line The zero-based line number.
+     * @return The end offset of the line.
+     */
+    public int lineEnd(int line) {
+        return line + 1 < lineCount() ? lineStart(line + 1) - 1 : documentLength;
+    }
+
+    /**
+     * Returns the line containing the given offset.
+     *
+     * @param offset An offset between zero and the document length, inclusive.
+     * @return The zero-based line number.
+     */
+    public int lineOfOffset(int offset) {
+        if (offset < 0 || offset > documentLength)
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + documentLength);
+
+        int low = 0;
+        int high = lineCount() - 1;
+
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+
+            if (lineStart(middle) <= offset) low = middle;
+            else high = middle - 1;
+        }
+
+        return low;
+    }
+
+    /**
+     * Moves the gap so that it starts at the given line, converting the entries it passes over.
+     *
+     * @param line The line at which the gap must start.
+     */
+    private void moveGap(int line) {
+        while (gapStart > line) {
+            gapStart--;
+            gapEnd--;
+            starts[gapEnd] = documentLength - starts[gapStart];
+        }
+
+        while (gapStart < line) {
+            starts[gapStart] = documentLength - starts[gapEnd];
+            gapStart++;
+            gapEnd++;
+        }
+    }
+
+    /**
+     * Inserts a line start at the gap, growing the array when the gap is empty.
+     *
+     * @param offset The absolute offset of the new line start.
+     */
+    private void insertStart(int offset) {
+        if (gapStart == gapEnd) {
+            int tailLength = starts.length - gapEnd;
+            int[] grown = Arrays.copyOf(starts, starts.length * 2);
+
+            System.arraycopy(starts, gapEnd, grown, grown.length - tailLength, tailLength);
+
+            gapEnd = grown.length - tailLength;
+            starts = grown;
+        }
+
+        starts[gapStart++] = offset;
+    }
+}
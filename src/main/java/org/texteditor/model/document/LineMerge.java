@@ -0,0 +1,333 @@
+package org.texteditor.model.document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges the changes made to a text on disk into the changes made to it in the editor, line by
+ * line, from the version both started from. Each text is diffed against that base with the Myers
+ * algorithm, on line numbers rather than strings; changes made on one side only are taken as they
+ * are, and changes made on both sides to the same or neighbouring lines are kept with conflict
+ * markers, unless both sides made the same change.
+ * <p>
+ * The common head and tail of the texts are skipped before diffing. A diff needing more than
+ * {@link #MAX_EDIT_DISTANCE} line edits is not refined further: everything between the common head
+ * and tail counts as one change.
+ */
+public class LineMerge {
+
+    public static final int MAX_EDIT_DISTANCE = 2000;
+
+    private static final String LOCAL_MARKER = "<<<<<<< Editor\n";
+    private static final String SEPARATOR_MARKER = "=======\n";
+    private static final String DISK_MARKER = ">>>>>>> Disco\n";
+
+    private final Map<String, Integer> lineIds = new HashMap<>();
+
+    /**
+     * Merges the changes made on disk into the local text.
+     *
+     * @param base  The text both sides started from.
+     * @param local The text as edited in the editor.
+     * @param disk  The text as changed on disk.
+     * @return The edit applying the merge to the local text, or null if the disk brings no change.
+     */
+    public MergeResult merge(CharSequence base, CharSequence local, CharSequence disk) {
+        lineIds.clear();
+
+        List<String> baseLines = splitLines(base);
+        List<String> localLines = splitLines(local);
+        List<String> diskLines = splitLines(disk);
+
+        int[] baseIds = idsOf(baseLines);
+        List<Hunk> ours = diff(baseIds, idsOf(localLines));
+        List<Hunk> theirs = diff(baseIds, idsOf(diskLines));
+
+        int[] lineStarts = new int[localLines.size() + 1];
+        for (int i = 0; i < localLines.size(); i++) {
+            lineStarts[i + 1] = lineStarts[i] + localLines.get(i).length();
+        }
+
+        StringBuilder text = new StringBuilder();
+        int firstLine = -1;
+        int lastLine = -1;
+        int changes = 0;
+        int conflicts = 0;
+
+        int ourShift = 0;
+        int theirShift = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < ours.size() || j < theirs.size()) {
+            boolean oursFirst = j == theirs.size() || (i < ours.size() && ours.get(i).baseStart() <= theirs.get(j).baseStart());
+            Hunk first = oursFirst ? ours.get(i) : theirs.get(j);
+
+            int start = first.baseStart();
+            int end = first.baseEnd();
+            int ourGroupShift = 0;
+            int theirGroupShift = 0;
+            boolean ourChange = false;
+            boolean theirChange = false;
+
+            boolean grown = true;
+            while (grown) {
+                grown = false;
+
+                while (i < ours.size() && ours.get(i).baseStart() <= end) {
+                    Hunk hunk = ours.get(i++);
+                    end = Math.max(end, hunk.baseEnd());
+                    ourGroupShift += hunk.shift();
+                    ourChange = grown = true;
+                }
+
+                while (j < theirs.size() && theirs.get(j).baseStart() <= end) {
+                    Hunk hunk = theirs.get(j++);
+                    end = Math.max(end, hunk.baseEnd());
+                    theirGroupShift += hunk.shift();
+                    theirChange = grown = true;
+                }
+            }
+
+            int localStart = start + ourShift;
+            int localEnd = end + ourShift + ourGroupShift;
+            int diskStart = start + theirShift;
+            int diskEnd = end + theirShift + theirGroupShift;
+
+            ourShift += ourGroupShift;
+            theirShift += theirGroupShift;
+
+            if (!theirChange) continue;
+
+            List<String> localPart = localLines.subList(localStart, localEnd);
+            List<String> diskPart = diskLines.subList(diskStart, diskEnd);
+            if (ourChange && localPart.equals(diskPart)) continue;
+
+            if (firstLine < 0) firstLine = localStart;
+            else appendLines(text, localLines.subList(lastLine, localStart));
+
+            if (ourChange) {
+                text.append(LOCAL_MARKER);
+                appendLines(text, localPart);
+                endLine(text);
+                text.append(SEPARATOR_MARKER);
+                appendLines(text, diskPart);
+                endLine(text);
+                text.append(DISK_MARKER);
+                conflicts++;
+            } else {
+                appendLines(text, diskPart);
+                changes++;
+            }
+
+            lastLine = localEnd;
+        }
+
+        if (firstLine < 0) return null;
+
+        return new MergeResult(lineStarts[firstLine], lineStarts[lastLine], text.toString(), changes, conflicts);
+    }
+
+    /**
+     * Splits a text into its lines, each with its line feed, but for a last line without one.
+     *
+     * @param text The text.
+     * @return The lines of the text.
+     */
+    private static List<String> splitLines(CharSequence text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines.add(text.subSequence(start, i + 1).toString());
+                start = i + 1;
+            }
+        }
+
+        if (start < text.length()) lines.add(text.subSequence(start, text.length()).toString());
+        return lines;
+    }
+
+    /**
+     * Appends lines to a merged text.
+     *
+     * @param text  The merged text.
+     * @param lines The lines to append.
+     */
+    private static void appendLines(StringBuilder text, List<String> lines) {
+        lines.forEach(text::append);
+    }
+
+    /**
+     * Ends the last line of a merged text with a line feed if it has none, so that a conflict
+     * marker starts a line. Only the last line of a text can lack one.
+     *
+     * @param text The merged text.
+     */
+    private static void endLine(StringBuilder text) {
+        if (!text.isEmpty() && text.charAt(text.length() - 1) != '\n') text.append('\n');
+    }
+
+    /**
+     * Numbers lines so that equal lines, in any of the merged texts, get the same number.
+     *
+     * @param lines The lines.
+     * @return The number of each line.
+     */
+    private int[] idsOf(List<String> lines) {
+        int[] ids = new int[lines.size()];
+
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = lineIds.computeIfAbsent(lines.get(i), line -> lineIds.size());
+        }
+
+        return ids;
+    }
+
+    /**
+     * Finds the ranges of lines changed between two texts.
+     *
+     * @param a The lines of the base text.
+     * @param b The lines of the changed text.
+     * @return The changed ranges, in order.
+     */
+    private static List<Hunk> diff(int[] a, int[] b) {
+        int head = 0;
+        while (head < a.length && head < b.length && a[head] == b[head]) head++;
+
+        int tail = 0;
+        while (tail < a.length - head && tail < b.length - head
+                && a[a.length - 1 - tail] == b[b.length - 1 - tail]) tail++;
+
+        int n = a.length - head - tail;
+        int m = b.length - head - tail;
+
+        List<Hunk> hunks = new ArrayList<>();
+        if (n == 0 && m == 0) return hunks;
+
+        int[] matches = n == 0 || m == 0 ? new int[0] : matches(a, b, head, n, m);
+        if (matches == null) {
+            hunks.add(new Hunk(head, head + n, head, head + m));
+            return hunks;
+        }
+
+        int x = 0;
+        int y = 0;
+
+        for (int i = 0; i <= matches.length; i += 2) {
+            int matchX = i < matches.length ? matches[i] : n;
+            int matchY = i < matches.length ? matches[i + 1] : m;
+
+            if (matchX > x || matchY > y) hunks.add(new Hunk(head + x, head + matchX, head + y, head + matchY));
+
+            x = matchX + 1;
+            y = matchY + 1;
+        }
+
+        return hunks;
+    }
+
+    /**
+     * Finds the longest common subsequence of two ranges of lines with the Myers algorithm.
+     *
+     * @param a      The lines of the base text.
+     * @param b      The lines of the changed text.
+     * @param offset The index of the first line of both ranges.
+     * @param n      The number of lines of the range of the base text.
+     * @param m      The number of lines of the range of the changed text.
+     * @return The pairs of matching lines, relative to the ranges and in order, or null if the
+     *         ranges differ by more than {@link #MAX_EDIT_DISTANCE} line edits.
+     */
+    private static int[] matches(int[] a, int[] b, int offset, int n, int m) {
+        int limit = Math.min(n + m, MAX_EDIT_DISTANCE);
+        int center = limit + 1;
+        int[] v = new int[2 * limit + 3];
+        List<int[]> trace = new ArrayList<>();
+
+        for (int d = 0; d <= limit; d++) {
+            trace.add(Arrays.copyOfRange(v, center - d - 1, center + d + 2));
+
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[center + k - 1] < v[center + k + 1])
+                        ? v[center + k + 1] : v[center + k - 1] + 1;
+                int y = x - k;
+
+                while (x < n && y < m && a[offset + x] == b[offset + y]) {
+                    x++;
+                    y++;
+                }
+
+                v[center + k] = x;
+
+                if (x >= n && y >= m) return backtrack(trace, n, m);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Follows the edit path found by the Myers algorithm back from its end, collecting the
+     * matching lines along the way.
+     *
+     * @param trace The furthest points reached before each edit distance.
+     * @param n     The number of lines of the range of the base text.
+     * @param m     The number of lines of the range of the changed text.
+     * @return The pairs of matching lines, in order.
+     */
+    private static int[] backtrack(List<int[]> trace, int n, int m) {
+        List<Integer> reversed = new ArrayList<>();
+        int x = n;
+        int y = m;
+
+        for (int d = trace.size() - 1; d >= 0; d--) {
+            int[] v = trace.get(d);
+            int k = x - y;
+
+            int previousK = k == -d || (k != d && v[k - 1 + d + 1] < v[k + 1 + d + 1]) ? k + 1 : k - 1;
+            int previousX = v[previousK + d + 1];
+            int previousY = previousX - previousK;
+
+            while (x > previousX && y > previousY) {
+                x--;
+                y--;
+                reversed.add(y);
+                reversed.add(x);
+            }
+
+            x = previousX;
+            y = previousY;
+        }
+
+        int[] matches = new int[reversed.size()];
+        for (int i = 0; i < matches.length; i++) {
+            matches[i] = reversed.get(matches.length - 1 - i);
+        }
+
+        return matches;
+    }
+
+    /**
+     * A range of lines of the base text replaced by a range of lines of a changed text.
+     *
+     * @param baseStart    The first replaced line of the base text.
+     * @param baseEnd      The line after the last replaced line of the base text.
+     * @param changedStart The first replacing line of the changed text.
+     * @param changedEnd   The line after the last replacing line of the changed text.
+     */
+    private record Hunk(int baseStart, int baseEnd, int changedStart, int changedEnd) {
+
+        /**
+         * Returns how many lines the change adds, or removes if negative.
+         *
+         * @return The difference in line count.
+         */
+        int shift() {
+            return (changedEnd - changedStart) - (baseEnd - baseStart);
+        }
+    }
+}
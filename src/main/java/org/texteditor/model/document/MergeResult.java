@@ -0,0 +1,9 @@
+package org.texteditor.model.document;
+
+/*
+ * A Java record describing the outcome of a three-way merge as one ranged edit of the local text: the
+ * range from the first to the last changed line, the text replacing that range, the number of changes
+ * taken from the other text, and the number of conflicts, written with conflict markers.
+ */
+public record MergeResult(int start, int end, String text, int changes, int conflicts) {
+}
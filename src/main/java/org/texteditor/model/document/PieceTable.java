@@ -0,0 +1,481 @@
+package org.texteditor.model.document;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A text document backed by a piece table. The text loaded from disk is kept untouched in
+ * the original buffer, inserted text is appended to an add buffer, and the document is
+ * described by a list of pieces pointing into either buffer. Edits only split and remove
+ * pieces, so their cost depends on the number of pieces and not on the document size.
+ * Neither buffer ever changes a character once written: both grow in fixed-size blocks that
+ * are never reallocated, so views over the document stay valid after later edits.
+ * <p>
+ * A file streamed in with {@link #appendLoaded(CharSequence)} lands in the original buffer,
+ * which is its only copy in memory: a chunk decoded into an array the size of a block, handed
+ * over by its reader, becomes a block as it is, without being copied. Once the document is
+ * emptied, as when its file is loaded again, both buffers are dropped and the next load starts
+ * a new original buffer.
+ */
+public class PieceTable extends AbstractTextDocument {
+
+    private CharSequence original;
+    private CharBlocks added = new CharBlocks();
+    private final List<Piece> pieces = new ArrayList<>();
+
+    private int length;
+
+    private int cursorPiece;
+    private int cursorStart;
+
+    private boolean appendingLoaded;
+
+    /**
+     * Constructs an empty PieceTable, whose original buffer is filled as its file is loaded.
+     */
+    public PieceTable() {
+        this(new CharBlocks());
+    }
+
+    /**
+     * Constructs a PieceTable whose original buffer is the given text.
+     * The text is referenced, not copied, and must not be modified afterwards.
+     *
+     * @param original The initial content of the document.
+     */
+    public PieceTable(CharSequence original) {
+        this.original = original;
+        this.length = original.length();
+
+        if (length > 0)
+            pieces.add(new Piece(false, 0, length));
+    }
+
+    /**
+     * Appends text read from the file of the document to the original buffer, unless the original
+     * buffer was given at construction, in which case the text goes to the add buffer.
+     *
+     * @param text The text to append.
+     */
+    @Override
+    public void appendLoaded(CharSequence text) {
+        if (!(original instanceof CharBlocks)) {
+            insert(length, text);
+            return;
+        }
+
+        appendingLoaded = true;
+        try {
+            insert(length, text);
+        } finally {
+            appendingLoaded = false;
+        }
+    }
+
+    /**
+     * Inserts the given text at the specified offset, storing it in the add buffer, or in the
+     * original buffer while loaded text is appended.
+     *
+     * @param offset The offset at which the text is inserted.
+     * @param text   The text to be inserted.
+     */
+    @Override
+    protected void insertText(int offset, CharSequence text) {
+        boolean toAdded = !appendingLoaded;
+        CharBlocks buffer = toAdded ? added : (CharBlocks) original;
+
+        int bufferStart = buffer.length();
+        buffer.append(text, !toAdded);
+
+        int index = splitAt(offset);
+
+        if (index > 0) {
+            Piece previous = pieces.get(index - 1);
+
+            if (previous.added() == toAdded && previous.start() + previous.length() == bufferStart) {
+                pieces.set(index - 1, new Piece(toAdded, previous.start(), previous.length() + text.length()));
+                length += text.length();
+                resetCursor();
+                return;
+            }
+        }
+
+        pieces.add(index, new Piece(toAdded, bufferStart, text.length()));
+        length += text.length();
+        resetCursor();
+    }
+
+    /**
+     * Deletes a range of characters from the document.
+     *
+     * @param offset The offset of the first character to delete.
+     * @param count  The number of characters to delete.
+     */
+    @Override
+    protected void deleteText(int offset, int count) {
+        int first = splitAt(offset);
+        int last = splitAt(offset + count);
+
+        pieces.subList(first, last).clear();
+        length -= count;
+        resetCursor();
+
+        if (length == 0) {
+            original = new CharBlocks();
+            added = new CharBlocks();
+        }
+    }
+
+    /**
+     * Returns the content of the document as views over the original and add buffers.
+     *
+     * @return The chunks making up the document.
+     */
+    @Override
+    public Iterable<CharBuffer> chunks() {
+        List<CharBuffer> chunks = new ArrayList<>(pieces.size());
+
+        for (Piece piece : pieces) {
+            if (buffer(piece) instanceof CharBlocks blocks)
+                blocks.addChunks(chunks, piece.start(), piece.start() + piece.length());
+            else
+                chunks.add(CharBuffer.wrap(original, piece.start(), piece.start() + piece.length()));
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Returns a range of the document as views over the original and add buffers, walking only the
+     * pieces of the range.
+     *
+     * @param start The start offset of the range (inclusive).
+     * @param end   The end offset of the range (exclusive).
+     * @return The chunks making up the range.
+     */
+    @Override
+    public Iterable<CharBuffer> chunks(int start, int end) {
+        if (start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+
+        List<CharBuffer> chunks = new ArrayList<>();
+        if (start == end) return chunks;
+
+        moveCursorTo(start);
+
+        int pieceIndex = cursorPiece;
+        int pieceStart = cursorStart;
+
+        while (pieceStart < end) {
+            Piece piece = pieces.get(pieceIndex);
+            int from = piece.start() + Math.max(start, pieceStart) - pieceStart;
+            int to = piece.start() + Math.min(end, pieceStart + piece.length()) - pieceStart;
+
+            if (buffer(piece) instanceof CharBlocks blocks)
+                blocks.addChunks(chunks, from, to);
+            else
+                chunks.add(CharBuffer.wrap(original, from, to));
+
+            pieceStart += piece.length();
+            pieceIndex++;
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Returns the number of characters in the document.
+     *
+     * @return The length of the document.
+     */
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the character at the specified index. Sequential reads reuse the last piece
+     * located, so scanning the document does not walk the piece list for every character.
+     *
+     * @param index The index of the character.
+     * @return The character at the index.
+     */
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+
+        moveCursorTo(index);
+
+        Piece piece = pieces.get(cursorPiece);
+        return buffer(piece).charAt(piece.start() + index - cursorStart);
+    }
+
+    /**
+     * Returns a copy of the characters between start and end.
+     *
+     * @param start The start index (inclusive).
+     * @param end   The end index (exclusive).
+     * @return The requested characters.
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+
+        StringBuilder stringBuilder = new StringBuilder(end - start);
+        if (start == end) return stringBuilder;
+
+        moveCursorTo(start);
+
+        int pieceIndex = cursorPiece;
+        int pieceStart = cursorStart;
+
+        while (pieceStart < end) {
+            Piece piece = pieces.get(pieceIndex);
+            int from = Math.max(start, pieceStart) - pieceStart;
+            int to = Math.min(end, pieceStart + piece.length()) - pieceStart;
+
+            if (buffer(piece) instanceof CharBlocks blocks)
+                blocks.appendTo(stringBuilder, piece.start() + from, piece.start() + to);
+            else
+                stringBuilder.append(original, piece.start() + from, piece.start() + to);
+
+            pieceStart += piece.length();
+            pieceIndex++;
+        }
+
+        return stringBuilder;
+    }
+
+    /**
+     * Returns the whole content of the document as a String.
+     *
+     * @return The content of the document.
+     */
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+
+    /**
+     * Makes sure a piece boundary exists at the given offset, splitting a piece if needed.
+     *
+     * @param offset The offset where a boundary is required.
+     * @return The index of the piece starting at the offset, or the number of pieces if the offset is the end.
+     */
+    private int splitAt(int offset) {
+        int pieceStart = 0;
+
+        for (int i = 0; i < pieces.size(); i++) {
+            Piece piece = pieces.get(i);
+
+            if (offset == pieceStart) return i;
+
+            if (offset < pieceStart + piece.length()) {
+                int headLength = offset - pieceStart;
+
+                pieces.set(i, new Piece(piece.added(), piece.start(), headLength));
+                pieces.add(i + 1, new Piece(piece.added(), piece.start() + headLength,
+                        piece.length() - headLength));
+
+                return i + 1;
+            }
+
+            pieceStart += piece.length();
+        }
+
+        return pieces.size();
+    }
+
+    /**
+     * Moves the read cursor to the piece containing the given index.
+     *
+     * @param index A valid index in the document.
+     */
+    private void moveCursorTo(int index) {
+        while (index < cursorStart) {
+            cursorPiece--;
+            cursorStart -= pieces.get(cursorPiece).length();
+        }
+
+        while (index >= cursorStart + pieces.get(cursorPiece).length()) {
+            cursorStart += pieces.get(cursorPiece).length();
+            cursorPiece++;
+        }
+    }
+
+    /**
+     * Resets the read cursor to the first piece after the piece list changed.
+     */
+    private void resetCursor() {
+        cursorPiece = 0;
+        cursorStart = 0;
+    }
+
+    /**
+     * Returns the buffer a piece points into.
+     *
+     * @param piece The piece.
+     * @return The add buffer or the original buffer.
+     */
+    private CharSequence buffer(Piece piece) {
+        return piece.added() ? added : original;
+    }
+
+    /**
+     * An append-only buffer of characters stored in fixed-size blocks, holding the inserted text,
+     * and the loaded text when the document was created empty. A block is never moved or
+     * reallocated, so characters keep their storage once written.
+     */
+    private static final class CharBlocks implements CharSequence {
+
+        private static final int BLOCK_BITS = 16;
+        private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+        private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+        private final List<char[]> blocks = new ArrayList<>();
+        private int length;
+
+        /**
+         * Appends the given text, allocating new blocks as needed. When adopting, a writable buffer
+         * spanning a whole array the size of a block, appended at a block boundary, becomes the
+         * next block without a copy; the caller hands the array over and must not write to it again.
+         *
+         * @param text  The text to append.
+         * @param adopt Whether the array of the text may become a block.
+         */
+        void append(CharSequence text, boolean adopt) {
+            if (adopt && text instanceof CharBuffer buffer && isWholeBlock(buffer) && (length & BLOCK_MASK) == 0) {
+                blocks.add(buffer.array());
+                length += BLOCK_SIZE;
+                return;
+            }
+
+            int i = 0;
+
+            while (i < text.length()) {
+                int offset = length & BLOCK_MASK;
+                if (offset == 0 && (length >>> BLOCK_BITS) == blocks.size())
+                    blocks.add(new char[BLOCK_SIZE]);
+
+                char[] block = blocks.get(length >>> BLOCK_BITS);
+                int count = Math.min(BLOCK_SIZE - offset, text.length() - i);
+
+                if (text instanceof String string) {
+                    string.getChars(i, i + count, block, offset);
+                } else if (text instanceof CharBuffer buffer) {
+                    buffer.get(buffer.position() + i, block, offset, count);
+                } else {
+                    for (int j = 0; j < count; j++) {
+                        block[offset + j] = text.charAt(i + j);
+                    }
+                }
+
+                i += count;
+                length += count;
+            }
+        }
+
+        /**
+         * Determines whether a buffer holds the whole of a block-sized array.
+         *
+         * @param buffer The buffer.
+         * @return True if the remaining characters of the buffer are all those of its array.
+         */
+        private static boolean isWholeBlock(CharBuffer buffer) {
+            return buffer.hasArray() && buffer.array().length == BLOCK_SIZE
+                    && buffer.arrayOffset() + buffer.position() == 0 && buffer.remaining() == BLOCK_SIZE;
+        }
+
+        /**
+         * Appends the characters between start and end to a StringBuilder.
+         *
+         * @param stringBuilder The destination.
+         * @param start         The start index (inclusive).
+         * @param end           The end index (exclusive).
+         */
+        void appendTo(StringBuilder stringBuilder, int start, int end) {
+            while (start < end) {
+                int offset = start & BLOCK_MASK;
+                int count = Math.min(BLOCK_SIZE - offset, end - start);
+
+                stringBuilder.append(blocks.get(start >>> BLOCK_BITS), offset, count);
+                start += count;
+            }
+        }
+
+        /**
+         * Adds read-only views over the characters between start and end, one per block.
+         *
+         * @param chunks The list receiving the views.
+         * @param start  The start index (inclusive).
+         * @param end    The end index (exclusive).
+         */
+        void addChunks(List<CharBuffer> chunks, int start, int end) {
+            while (start < end) {
+                int offset = start & BLOCK_MASK;
+                int count = Math.min(BLOCK_SIZE - offset, end - start);
+
+                chunks.add(CharBuffer.wrap(blocks.get(start >>> BLOCK_BITS), offset, count).asReadOnlyBuffer());
+                start += count;
+            }
+        }
+
+        /**
+         * Returns the number of characters appended so far.
+         *
+         * @return The length of the buffer.
+         */
+        @Override
+        public int length() {
+            return length;
+        }
+
+        /**
+         * Returns the character at the specified index.
+         *
+         * @param index The index of the character.
+         * @return The character at the index.
+         */
+        @Override
+        public char charAt(int index) {
+            return blocks.get(index >>> BLOCK_BITS)[index & BLOCK_MASK];
+        }
+
+        /**
+         * Returns a copy of the characters between start and end.
+         *
+         * @param start The start index (inclusive).
+         * @param end   The end index (exclusive).
+         * @return The requested characters.
+         */
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            StringBuilder stringBuilder = new StringBuilder(end - start);
+            appendTo(stringBuilder, start, end);
+            return stringBuilder;
+        }
+
+        /**
+         * Returns the whole buffer as a String.
+         *
+         * @return The content of the buffer.
+         */
+        @Override
+        public String toString() {
+            return subSequence(0, length).toString();
+        }
+    }
+
+    /**
+     * A span of characters in either the original or the add buffer.
+     *
+     * @param added  Whether the piece points into the add buffer.
+     * @param start  The start of the span in its buffer.
+     * @param length The number of characters in the span.
+     */
+    private record Piece(boolean added, int start, int length) {
+    }
+}
@@ -0,0 +1,447 @@
+package org.texteditor.model.document;
+
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A text document backed by a balanced rope: a height-balanced binary tree whose leaves hold
+ * short strings. Inserts, deletes, charAt and subSequence only walk one path of the tree, so
+ * they cost O(log n) plus the size of the edited text, independently of the document size.
+ * Nodes are immutable; an edit builds a new path and shares the rest of the tree.
+ */
+public class Rope extends AbstractTextDocument {
+
+    private static final int MAX_LEAF_LENGTH = 2048;
+
+    private Node root;
+
+    private Leaf cursorLeaf;
+    private int cursorStart;
+
+    /**
+     * Constructs an empty Rope.
+     */
+    public Rope() {
+        this("");
+    }
+
+    /**
+     * Constructs a Rope holding a copy of the given text, split into balanced leaves.
+     *
+     * @param text The initial content of the document.
+     */
+    public Rope(CharSequence text) {
+        this.root = build(text, 0, text.length());
+    }
+
+    /**
+     * Inserts the given text at the specified offset.
+     *
+     * @param offset The offset at which the text is inserted.
+     * @param text   The text to be inserted.
+     */
+    @Override
+    protected void insertText(int offset, CharSequence text) {
+        if (root != null && text.length() <= MAX_LEAF_LENGTH) {
+            Node inserted = insertIntoLeaf(root, offset, text);
+
+            if (inserted != null) {
+                setRoot(inserted);
+                return;
+            }
+        }
+
+        Node[] parts = split(root, offset);
+        setRoot(join(join(parts[0], build(text, 0, text.length())), parts[1]));
+    }
+
+    /**
+     * Deletes a range of characters from the document.
+     *
+     * @param offset The offset of the first character to delete.
+     * @param length The number of characters to delete.
+     */
+    @Override
+    protected void deleteText(int offset, int length) {
+        Node[] head = split(root, offset);
+        Node[] tail = split(head[1], length);
+        setRoot(join(head[0], tail[1]));
+    }
+
+    /**
+     * Returns the leaves of the rope, in order, as read-only buffers.
+     *
+     * @return The chunks making up the document.
+     */
+    @Override
+    public Iterable<CharBuffer> chunks() {
+        Node start = root;
+
+        return () -> new Iterator<>() {
+            private final Deque<Node> stack = new ArrayDeque<>();
+
+            {
+                if (start != null) stack.push(start);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public CharBuffer next() {
+                if (stack.isEmpty()) throw new NoSuchElementException();
+
+                Node node = stack.pop();
+                while (node instanceof Branch branch) {
+                    stack.push(branch.right);
+                    node = branch.left;
+                }
+
+                return CharBuffer.wrap(((Leaf) node).text);
+            }
+        };
+    }
+
+    /**
+     * Returns a range of the document as read-only views over its leaves, walking only the
+     * branches covering the range.
+     *
+     * @param start The start offset of the range (inclusive).
+     * @param end   The end offset of the range (exclusive).
+     * @return The chunks making up the range.
+     */
+    @Override
+    public Iterable<CharBuffer> chunks(int start, int end) {
+        if (start < 0 || end > length() || start > end)
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+
+        List<CharBuffer> chunks = new ArrayList<>();
+        addChunks(root, 0, start, end, chunks);
+        return chunks;
+    }
+
+    /**
+     * Returns the number of characters in the document.
+     *
+     * @return The length of the document.
+     */
+    @Override
+    public int length() {
+        return root == null ? 0 : root.length;
+    }
+
+    /**
+     * Returns the character at the specified index. The leaf found last is remembered,
+     * so sequential reads do not descend the tree for every character.
+     *
+     * @param index The index of the character.
+     * @return The character at the index.
+     */
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length())
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length());
+
+        if (cursorLeaf == null || index < cursorStart || index >= cursorStart + cursorLeaf.length)
+            locate(index);
+
+        return cursorLeaf.text.charAt(index - cursorStart);
+    }
+
+    /**
+     * Returns a copy of the characters between start and end.
+     *
+     * @param start The start index (inclusive).
+     * @param end   The end index (exclusive).
+     * @return The requested characters.
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length() || start > end)
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+
+        StringBuilder stringBuilder = new StringBuilder(end - start);
+        appendRange(root, 0, start, end, stringBuilder);
+        return stringBuilder;
+    }
+
+    /**
+     * Returns the whole content of the document as a String.
+     *
+     * @return The content of the document.
+     */
+    @Override
+    public String toString() {
+        return subSequence(0, length()).toString();
+    }
+
+    /**
+     * Replaces the root of the rope and forgets the cached leaf.
+     *
+     * @param node The new root.
+     */
+    private void setRoot(Node node) {
+        root = node;
+        cursorLeaf = null;
+    }
+
+    /**
+     * Finds the leaf containing the given index and caches it.
+     *
+     * @param index A valid index in the document.
+     */
+    private void locate(int index) {
+        Node node = root;
+        int start = 0;
+
+        while (node instanceof Branch branch) {
+            if (index < start + branch.left.length) {
+                node = branch.left;
+            } else {
+                start += branch.left.length;
+                node = branch.right;
+            }
+        }
+
+        cursorLeaf = (Leaf) node;
+        cursorStart = start;
+    }
+
+    /**
+     * Appends the characters of a subtree that fall between start and end.
+     *
+     * @param node          The subtree.
+     * @param nodeStart     The offset of the subtree in the document.
+     * @param start         The start index (inclusive).
+     * @param end           The end index (exclusive).
+     * @param stringBuilder The builder receiving the characters.
+     */
+    private static void appendRange(Node node, int nodeStart, int start, int end, StringBuilder stringBuilder) {
+        if (node == null || end <= nodeStart || start >= nodeStart + node.length) return;
+
+        if (node instanceof Leaf leaf) {
+            int from = Math.max(start, nodeStart) - nodeStart;
+            int to = Math.min(end, nodeStart + leaf.length) - nodeStart;
+            stringBuilder.append(leaf.text, from, to);
+            return;
+        }
+
+        Branch branch = (Branch) node;
+        appendRange(branch.left, nodeStart, start, end, stringBuilder);
+        appendRange(branch.right, nodeStart + branch.left.length, start, end, stringBuilder);
+    }
+
+    /**
+     * Adds views over the part of a subtree between start and end to a list of chunks.
+     *
+     * @param node      The root of the subtree.
+     * @param nodeStart The offset of the subtree in the document.
+     * @param start     The start offset of the range (inclusive).
+     * @param end       The end offset of the range (exclusive).
+     * @param chunks    The list receiving the views.
+     */
+    private static void addChunks(Node node, int nodeStart, int start, int end, List<CharBuffer> chunks) {
+        if (node == null || end <= nodeStart || start >= nodeStart + node.length) return;
+
+        if (node instanceof Leaf leaf) {
+            int from = Math.max(start, nodeStart) - nodeStart;
+            int to = Math.min(end, nodeStart + leaf.length) - nodeStart;
+            chunks.add(CharBuffer.wrap(leaf.text, from, to));
+            return;
+        }
+
+        Branch branch = (Branch) node;
+        addChunks(branch.left, nodeStart, start, end, chunks);
+        addChunks(branch.right, nodeStart + branch.left.length, start, end, chunks);
+    }
+
+    /**
+     * Inserts short text directly into the leaf that contains the offset, when it has room.
+     * Heights are unchanged, so the path is rebuilt without rebalancing.
+     *
+     * @param node   The subtree.
+     * @param offset The offset relative to the subtree.
+     * @param text   The text to be inserted.
+     * @return The new subtree, or null if the target leaf is full.
+     */
+    private static Node insertIntoLeaf(Node node, int offset, CharSequence text) {
+        if (node instanceof Leaf leaf) {
+            if (leaf.length + text.length() > MAX_LEAF_LENGTH) return null;
+
+            return new Leaf(new StringBuilder(leaf.length + text.length())
+                    .append(leaf.text, 0, offset)
+                    .append(text)
+                    .append(leaf.text, offset, leaf.length)
+                    .toString());
+        }
+
+        Branch branch = (Branch) node;
+
+        if (offset <= branch.left.length) {
+            Node left = insertIntoLeaf(branch.left, offset, text);
+            return left == null ? null : new Branch(left, branch.right);
+        }
+
+        Node right = insertIntoLeaf(branch.right, offset - branch.left.length, text);
+        return right == null ? null : new Branch(branch.left, right);
+    }
+
+    /**
+     * Splits a subtree at the given offset.
+     *
+     * @param node   The subtree to split, possibly null.
+     * @param offset The offset relative to the subtree.
+     * @return The part before the offset and the part after it; either may be null.
+     */
+    private static Node[] split(Node node, int offset) {
+        if (node == null) return new Node[]{null, null};
+        if (offset == 0) return new Node[]{null, node};
+        if (offset == node.length) return new Node[]{node, null};
+
+        if (node instanceof Leaf leaf) {
+            return new Node[]{new Leaf(leaf.text.substring(0, offset)),
+                    new Leaf(leaf.text.substring(offset))};
+        }
+
+        Branch branch = (Branch) node;
+        int leftLength = branch.left.length;
+
+        if (offset < leftLength) {
+            Node[] parts = split(branch.left, offset);
+            return new Node[]{parts[0], join(parts[1], branch.right)};
+        }
+
+        if (offset == leftLength) return new Node[]{branch.left, branch.right};
+
+        Node[] parts = split(branch.right, offset - leftLength);
+        return new Node[]{join(branch.left, parts[0]), parts[1]};
+    }
+
+    /**
+     * Concatenates two subtrees, keeping the result height-balanced.
+     * Adjacent short leaves are merged so single-character edits do not fragment the rope.
+     *
+     * @param left  The left subtree, possibly null.
+     * @param right The right subtree, possibly null.
+     * @return The concatenation of both subtrees.
+     */
+    private static Node join(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+
+        if (left instanceof Leaf leftLeaf && right instanceof Leaf rightLeaf
+                && leftLeaf.length + rightLeaf.length <= MAX_LEAF_LENGTH)
+            return new Leaf(leftLeaf.text + rightLeaf.text);
+
+        if (left.height > right.height + 1) {
+            Branch branch = (Branch) left;
+            return balance(branch.left, join(branch.right, right));
+        }
+
+        if (right.height > left.height + 1) {
+            Branch branch = (Branch) right;
+            return balance(join(left, branch.left), branch.right);
+        }
+
+        return new Branch(left, right);
+    }
+
+    /**
+     * Creates a branch from two subtrees whose heights differ by at most two,
+     * rotating once or twice when they differ by exactly two.
+     *
+     * @param left  The left subtree.
+     * @param right The right subtree.
+     * @return A balanced subtree holding both.
+     */
+    private static Node balance(Node left, Node right) {
+        if (left.height > right.height + 1) {
+            Branch branch = (Branch) left;
+
+            if (branch.left.height >= branch.right.height)
+                return new Branch(branch.left, new Branch(branch.right, right));
+
+            Branch inner = (Branch) branch.right;
+            return new Branch(new Branch(branch.left, inner.left), new Branch(inner.right, right));
+        }
+
+        if (right.height > left.height + 1) {
+            Branch branch = (Branch) right;
+
+            if (branch.right.height >= branch.left.height)
+                return new Branch(new Branch(left, branch.left), branch.right);
+
+            Branch inner = (Branch) branch.left;
+            return new Branch(new Branch(left, inner.left), new Branch(inner.right, branch.right));
+        }
+
+        return new Branch(left, right);
+    }
+
+    /**
+     * Builds a perfectly balanced subtree from a range of text.
+     *
+     * @param text  The source text.
+     * @param start The start of the range (inclusive).
+     * @param end   The end of the range (exclusive).
+     * @return The subtree, or null if the range is empty.
+     */
+    private static Node build(CharSequence text, int start, int end) {
+        if (start == end) return null;
+        if (end - start <= MAX_LEAF_LENGTH) return new Leaf(text.subSequence(start, end).toString());
+
+        int leaves = (end - start + MAX_LEAF_LENGTH - 1) / MAX_LEAF_LENGTH;
+        int middle = start + (leaves / 2) * MAX_LEAF_LENGTH;
+
+        return new Branch(build(text, start, middle), build(text, middle, end));
+    }
+
+    /**
+     * A node of the rope, caching the length and height of its subtree.
+     */
+    private abstract static class Node {
+
+        final int length;
+        final int height;
+
+        Node(int length, int height) {
+            this.length = length;
+            this.height = height;
+        }
+    }
+
+    /**
+     * A leaf holding a short run of text.
+     */
+    private static final class Leaf extends Node {
+
+        final String text;
+
+        Leaf(String text) {
+            super(text.length(), 0);
+            this.text = text;
+        }
+    }
+
+    /**
+     * An inner node concatenating two subtrees.
+     */
+    private static final class Branch extends Node {
+
+        final Node left;
+        final Node right;
+
+        Branch(Node left, Node right) {
+            super(left.length + right.length, Math.max(left.height, right.height) + 1);
+            this.left = left;
+            this.right = right;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.texteditor.model.document;
+
+import java.nio.CharBuffer;
+
+/**
+ * A mutable text document used as the source of truth for the content of an open file.
+ * Implementations expose the text as a {@link CharSequence} so it can be read without
+ * materializing the whole document as a String.
+ */
+public interface TextDocument extends CharSequence {
+
+    /**
+     * Inserts the given text at the specified offset.
+     *
+     * @param offset The offset at which the text is inserted.
+     * @param text   The text to be inserted.
+     */
+    void insert(int offset, CharSequence text);
+
+    /**
+     * Deletes a range of characters from the document.
+     *
+     * @param offset The offset of the first character to delete.
+     * @param length The number of characters to delete.
+     */
+    void delete(int offset, int length);
+
+    /**
+     * Replaces the characters between start and end with the given text.
+     *
+     * @param start The start offset of the range to replace (inclusive).
+     * @param end   The end offset of the range to replace (exclusive).
+     * @param text  The replacement text.
+     */
+    void replace(int start, int end, CharSequence text);
+
+    /**
+     * Appends text read from the file of the document, as an edit notified like any other.
+     * Implementations may store it apart from the text inserted by editing, since it is read in
+     * large chunks at the end of the document, and never needs to be undone. A buffer passed here
+     * is handed over: the caller must not write to it afterwards, so it can be kept as it is.
+     *
+     * @param text The text to append.
+     */
+    default void appendLoaded(CharSequence text) {
+        insert(length(), text);
+    }
+
+    /**
+     * Returns the version of the document, which changes with every edit. Data derived from
+     * the document can record the version it was computed for, to tell whether it is current.
+     *
+     * @return The number of edits applied to the document.
+     */
+    long version();
+
+    /**
+     * Registers a listener notified of every edit of the document.
+     *
+     * @param listener The listener to add.
+     */
+    void addDocumentListener(DocumentListener listener);
+
+    /**
+     * Unregisters a listener previously added to the document.
+     *
+     * @param listener The listener to remove.
+     */
+    void removeDocumentListener(DocumentListener listener);
+
+    /**
+     * Returns the content of the document as a sequence of read-only buffers, in order.
+     * The buffers are views over the document storage, so no characters are copied. They hold
+     * the content at the time of the call and stay valid while the document keeps being edited,
+     * so they can be handed to another thread, for example to save the document in the background.
+     *
+     * @return The chunks making up the document.
+     */
+    Iterable<CharBuffer> chunks();
+
+    /**
+     * Returns a range of the document as a sequence of read-only buffers, in order, with the same
+     * guarantees as {@link #chunks()}: no characters are copied, and the buffers keep holding the
+     * range as it was at the time of the call, however the document is edited afterwards.
+     *
+     * @param start The start offset of the range (inclusive).
+     * @param end   The end offset of the range (exclusive).
+     * @return The chunks making up the range.
+     */
+    Iterable<CharBuffer> chunks(int start, int end);
+}
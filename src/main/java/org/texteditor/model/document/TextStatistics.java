@@ -0,0 +1,123 @@
+package org.texteditor.model.document;
+
+/**
+ * Keeps the word, paragraph and character counts of a document up to date from its edits.
+ * A word is counted at each non-whitespace character that follows whitespace or starts the
+ * document, so an edit only changes the count at positions inside the edited range and at
+ * the first character after it. Only those positions are scanned, before and after the edit.
+ */
+public class TextStatistics implements DocumentListener {
+
+    private int wordCount;
+    private int newLineCount;
+    private int characterCount;
+
+    /**
+     * Constructs a TextStatistics for the given text by scanning it once.
+     *
+     * @param text The text to count.
+     */
+    public TextStatistics(CharSequence text) {
+        characterCount = text.length();
+        wordCount = countWordStarts(text, 0, characterCount);
+        newLineCount = countNewLines(text, 0, characterCount);
+    }
+
+    /**
+     * Removes the contribution of the range about to be replaced.
+     *
+     * @param document The edited document.
+     * @param start    The start offset of the replaced range (inclusive).
+     * @param end      The end offset of the replaced range (exclusive).
+     */
+    @Override
+    public void beforeReplace(TextDocument document, int start, int end) {
+        wordCount -= countWordStarts(document, start, end);
+        newLineCount -= countNewLines(document, start, end);
+    }
+
+    /**
+     * Adds the contribution of the inserted text.
+     *
+     * @param document The edited document.
+     * @param start    The start offset of the replaced range (inclusive).
+     * @param end      The end offset of the replaced range before the edit (exclusive).
+     * @param inserted The text that was inserted at the start offset.
+     */
+    @Override
+    public void replaced(TextDocument document, int start, int end, CharSequence inserted) {
+        wordCount += countWordStarts(document, start, start + inserted.length());
+        newLineCount += countNewLines(inserted, 0, inserted.length());
+        characterCount = document.length();
+    }
+
+    /**
+     * Returns the number of words in the document.
+     *
+     * @return The word count.
+     */
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Returns the number of paragraphs in the document, that is its number of lines.
+     *
+     * @return The paragraph count.
+     */
+    public int getParagraphCount() {
+        return newLineCount + 1;
+    }
+
+    /**
+     * Returns the number of characters in the document.
+     *
+     * @return The character count.
+     */
+    public int getCharacterCount() {
+        return characterCount;
+    }
+
+    /**
+     * Counts the word starts at positions between start and end, both inclusive.
+     * The position right after the range is included because whether it starts a word
+     * depends on the last character of the range.
+     *
+     * @param text  The text to scan.
+     * @param start The first position to check.
+     * @param end   The last position to check.
+     * @return The number of positions starting a word.
+     */
+    private static int countWordStarts(CharSequence text, int start, int end) {
+        int last = Math.min(end, text.length() - 1);
+        int count = 0;
+
+        boolean previousIsWhitespace = start == 0 || Character.isWhitespace(text.charAt(start - 1));
+
+        for (int i = start; i <= last; i++) {
+            boolean whitespace = Character.isWhitespace(text.charAt(i));
+            if (!whitespace && previousIsWhitespace) count++;
+            previousIsWhitespace = whitespace;
+        }
+
+        return count;
+    }
+
+    /**
+     * Counts the new line characters between start (inclusive) and end (exclusive).
+     *
+     * @param text  The text to scan.
+     * @param start The start offset.
+     * @param end   The end offset.
+     * @return The number of new line characters.
+     */
+    private static int countNewLines(CharSequence text, int start, int end) {
+        int count = 0;
+
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '\n') count++;
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,149 @@
+package org.texteditor.search;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A read-only CharSequence over the chunks of a document, as returned by
+ * {@link org.texteditor.model.document.TextDocument#chunks()}. The chunks are shared by all the
+ * views of a ChunkedText, while each view remembers the chunk it read last, so sequential reads
+ * do not search for their chunk. A view must stay on one thread; give every thread its own
+ * {@link #view()}.
+ */
+public class ChunkedText implements CharSequence {
+
+    private final CharBuffer[] chunks;
+    private final int[] offsets;
+    private final int length;
+
+    private int cursor;
+
+    /**
+     * Constructs a ChunkedText over the given chunks, which must not change afterwards.
+     *
+     * @param chunks The chunks of the text, in order.
+     */
+    public ChunkedText(Iterable<CharBuffer> chunks) {
+        List<CharBuffer> nonEmpty = new ArrayList<>();
+        for (CharBuffer chunk : chunks) {
+            if (chunk.hasRemaining()) nonEmpty.add(chunk);
+        }
+
+        this.chunks = nonEmpty.toArray(new CharBuffer[0]);
+        this.offsets = new int[this.chunks.length + 1];
+
+        for (int i = 0; i < this.chunks.length; i++) {
+            offsets[i + 1] = offsets[i] + this.chunks[i].remaining();
+        }
+
+        this.length = offsets[this.chunks.length];
+    }
+
+    /**
+     * Constructs a view sharing the chunks of another ChunkedText.
+     *
+     * @param text The ChunkedText to share.
+     */
+    private ChunkedText(ChunkedText text) {
+        this.chunks = text.chunks;
+        this.offsets = text.offsets;
+        this.length = text.length;
+    }
+
+    /**
+     * Returns a new view over the same chunks, with its own read position, for another thread.
+     *
+     * @return A view of this text.
+     */
+    public ChunkedText view() {
+        return new ChunkedText(this);
+    }
+
+    /**
+     * Returns the number of characters in the text.
+     *
+     * @return The length of the text.
+     */
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the character at the specified index, from the chunk read last when it contains the index.
+     *
+     * @param index The index of the character.
+     * @return The character at the index.
+     */
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+
+        if (index < offsets[cursor] || index >= offsets[cursor + 1]) {
+            int found = Arrays.binarySearch(offsets, index);
+            cursor = found >= 0 ? found : -found - 2;
+        }
+
+        CharBuffer chunk = chunks[cursor];
+        return chunk.get(chunk.position() + index - offsets[cursor]);
+    }
+
+    /**
+     * Returns a copy of a range of the text.
+     *
+     * @param start The start index (inclusive).
+     * @param end   The end index (exclusive).
+     * @return The characters of the range.
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+
+        StringBuilder stringBuilder = new StringBuilder(end - start);
+        appendTo(stringBuilder, start, end);
+        return stringBuilder;
+    }
+
+    /**
+     * Appends a range of the text to a StringBuilder, a chunk at a time rather than a character at a time.
+     *
+     * @param stringBuilder The StringBuilder to append to.
+     * @param start         The start index (inclusive).
+     * @param end           The end index (exclusive).
+     */
+    public void appendTo(StringBuilder stringBuilder, int start, int end) {
+        if (start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        if (start == end) return;
+
+        int found = Arrays.binarySearch(offsets, start);
+        int chunk = found >= 0 ? found : -found - 2;
+
+        for (int from = start; from < end; chunk++) {
+            CharBuffer buffer = chunks[chunk];
+            int offset = from - offsets[chunk];
+            int count = Math.min(end, offsets[chunk + 1]) - from;
+
+            if (buffer.hasArray())
+                stringBuilder.append(buffer.array(), buffer.arrayOffset() + buffer.position() + offset, count);
+            else
+                stringBuilder.append(buffer, offset, offset + count);
+
+            from += count;
+        }
+    }
+
+    /**
+     * Returns the whole text as a String.
+     *
+     * @return The text.
+     */
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+}
@@ -0,0 +1,11 @@
+package org.texteditor.search;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/*
+ * A Java record representing the matches a Find in Files found in one file: the path of the file
+ * and its matches, in order.
+ */
+public record FileHits(Path path, List<LineHit> hits) {
+}
@@ -0,0 +1,82 @@
+package org.texteditor.search;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.util.function.Consumer;
+
+/**
+ * A background task that finds every match of a search in a snapshot of a document and streams
+ * them to the JavaFX Application Thread in batches, so the first matches can be shown while the
+ * rest of the document is still being searched. The task stops between two matches as soon as
+ * it is cancelled. Its value is the number of matches.
+ */
+public class FindAllTask extends Task<Integer> {
+
+    private static final int BATCH_SIZE = 1024;
+
+    private final CharSequence text;
+    private final SearchEngine engine;
+
+    private Consumer<MatchBounds> onBatch = batch -> {};
+
+    /**
+     * Constructs a FindAllTask. The text must not change while the task runs, as a
+     * {@link ChunkedText} over the chunks of a document does not.
+     *
+     * @param text   The text to search.
+     * @param engine The compiled search.
+     */
+    public FindAllTask(CharSequence text, SearchEngine engine) {
+        this.text = text;
+        this.engine = engine;
+    }
+
+    /**
+     * Sets the handler receiving each batch of matches, in order, on the JavaFX Application Thread.
+     *
+     * @param onBatch The batch handler.
+     */
+    public void setOnBatch(Consumer<MatchBounds> onBatch) {
+        this.onBatch = onBatch;
+    }
+
+    /**
+     * Finds the matches, publishing them by batches.
+     *
+     * @return The number of matches, or the number found so far if the task was cancelled.
+     */
+    @Override
+    protected Integer call() {
+        TextMatcher matcher = engine.matcher(text);
+        MatchBounds batch = new MatchBounds();
+        int count = 0;
+
+        while (!isCancelled() && matcher.find()) {
+            batch.add(matcher.start(), matcher.end());
+            count++;
+
+            if (batch.size() == BATCH_SIZE) {
+                publish(batch);
+                batch = new MatchBounds();
+                updateProgress(matcher.end(), text.length());
+            }
+        }
+
+        publish(batch);
+        return count;
+    }
+
+    /**
+     * Hands a batch of matches to the JavaFX Application Thread, unless the task was cancelled.
+     *
+     * @param batch The matches.
+     */
+    private void publish(MatchBounds batch) {
+        if (batch.size() == 0) return;
+
+        Platform.runLater(() -> {
+            if (!isCancelled()) onBatch.accept(batch);
+        });
+    }
+}
@@ -0,0 +1,422 @@
+package org.texteditor.search;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import org.texteditor.io.MappedTextReader;
+import org.texteditor.io.TextChunkHandler;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Serial;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A background task searching every file of a directory tree, for Find in Files.
+ * Every directory is listed, and every file scanned, on its own virtual thread, so the walk
+ * proceeds in parallel and a slow directory does not hold up the others; at most
+ * {@link #SCAN_CONCURRENCY} files are decoded at the same time. Each file is read through
+ * memory-mapped windows by a {@link MappedTextReader} and searched one window of lines at a
+ * time, so a file is never loaded whole, nor turned into a String. Files that look binary and
+ * symbolic links are skipped.
+ * <p>
+ * When a {@link TrigramIndex} of the directory is given, the tree is not walked: only the files
+ * the index gives as candidates are searched.
+ * <p>
+ * The matches of each file are published to the JavaFX Application Thread as soon as the file is
+ * done. The task stops as soon as it is cancelled. Its value is the number of files with matches.
+ */
+public class FindInFilesTask extends Task<Integer> {
+
+    /**
+     * The maximum number of files decoded at the same time, set with the
+     * "texteditor.findInFiles.concurrency" system property.
+     */
+    private static final int SCAN_CONCURRENCY = Math.max(1,
+            Integer.getInteger("texteditor.findInFiles.concurrency", Runtime.getRuntime().availableProcessors()));
+
+    private static final int WINDOW_LENGTH = 1024 * 1024;
+    private static final int BINARY_PROBE_LENGTH = 8 * 1024;
+    private static final System.Logger LOGGER = System.getLogger(FindInFilesTask.class.getName());
+
+    private final Path directory;
+    private final SearchEngine engine;
+    private final GlobFilter filter;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger pendingWork = new AtomicInteger();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final Semaphore scanSlots = new Semaphore(SCAN_CONCURRENCY);
+    private final Queue<MappedTextReader> readers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger scannedFiles = new AtomicInteger();
+    private final AtomicInteger matchedFiles = new AtomicInteger();
+
+    private Consumer<FileHits> onFileHits = fileHits -> {};
+    private TrigramIndex index;
+    private SearchQuery query;
+
+    /**
+     * Constructs a FindInFilesTask.
+     *
+     * @param directory The directory to search.
+     * @param engine    The compiled search.
+     * @param filter    The filter selecting the files to search.
+     */
+    public FindInFilesTask(Path directory, SearchEngine engine, GlobFilter filter) {
+        this.directory = directory;
+        this.engine = engine;
+        this.filter = filter;
+    }
+
+    /**
+     * Sets the handler receiving the matches of each file with matches, on the JavaFX Application Thread.
+     *
+     * @param onFileHits The handler.
+     */
+    public void setOnFileHits(Consumer<FileHits> onFileHits) {
+        this.onFileHits = onFileHits;
+    }
+
+    /**
+     * Narrows the search with a trigram index of the directory: the index is brought up to date,
+     * and only the files it gives as candidates for the query are searched, instead of every file
+     * of the directory tree.
+     *
+     * @param index The trigram index of the directory.
+     * @param query The query the engine was compiled from.
+     */
+    public void setIndex(TrigramIndex index, SearchQuery query) {
+        this.index = index;
+        this.query = query;
+    }
+
+    /**
+     * Walks the directory tree, or asks the index for the candidate files, and searches the files,
+     * waiting until every file is done.
+     *
+     * @return The number of files with matches.
+     * @throws IOException If the index cannot be updated.
+     */
+    @Override
+    protected Integer call() throws IOException {
+        try {
+            if (index == null) {
+                submit(() -> walkDirectory(directory));
+            } else {
+                List<Path> candidates = findCandidates();
+                submit(() -> candidates.forEach(this::visitCandidate));
+            }
+
+            done.await();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        updateMessage(matchedFiles.get() + " arquivos com correspondências, " + scannedFiles.get()
+                + " arquivos pesquisados.");
+        return matchedFiles.get();
+    }
+
+    /**
+     * Runs a part of the search on its own virtual thread, counting it as pending until it is done.
+     *
+     * @param work The part of the search.
+     */
+    private void submit(Runnable work) {
+        pendingWork.incrementAndGet();
+
+        try {
+            executor.execute(() -> {
+                try {
+                    work.run();
+                } finally {
+                    workDone();
+                }
+            });
+
+        } catch (RejectedExecutionException e) {
+            workDone();
+        }
+    }
+
+    /**
+     * Counts a part of the search as done, releasing the task when it was the last one. A part
+     * submits the parts it starts before it is done, so the count only drops to zero at the end.
+     */
+    private void workDone() {
+        if (pendingWork.decrementAndGet() == 0) done.countDown();
+    }
+
+    /**
+     * Brings the index up to date and returns the files that may match the query.
+     *
+     * @return The candidate files.
+     * @throws IOException If the index cannot be updated or read.
+     */
+    private List<Path> findCandidates() throws IOException {
+        updateMessage("Atualizando o índice...");
+        index.update(this::isCancelled);
+
+        return index.candidates(query);
+    }
+
+    /**
+     * Searches a candidate file given by the index, if it is accepted along with the directories above it.
+     *
+     * @param file The candidate file.
+     */
+    private void visitCandidate(Path file) {
+        if (isCancelled()) return;
+
+        Path relativePath = directory.relativize(file);
+
+        for (int i = 1; i < relativePath.getNameCount(); i++) {
+            if (!filter.acceptsDirectory(relativePath.subpath(0, i))) return;
+        }
+
+        if (!filter.acceptsFile(relativePath)) return;
+
+        try {
+            long size = Files.size(file);
+            submit(() -> scanFile(file, size));
+
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Cannot read the size of " + file, e);
+        }
+    }
+
+    /**
+     * Lists a directory, walking its accepted subdirectories and searching its accepted files
+     * in parallel. Symbolic links are not followed, so the walk cannot loop.
+     *
+     * @param path The directory.
+     */
+    private void walkDirectory(Path path) {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+            for (Path entry : entries) {
+                if (isCancelled()) return;
+                visit(entry);
+            }
+
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Cannot list " + path, e);
+        }
+    }
+
+    /**
+     * Walks an entry of a directory if it is an accepted subdirectory, or searches it if it is an
+     * accepted file.
+     *
+     * @param entry The entry.
+     */
+    private void visit(Path entry) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class,
+                    LinkOption.NOFOLLOW_LINKS);
+            Path relativePath = directory.relativize(entry);
+
+            if (attributes.isDirectory() && filter.acceptsDirectory(relativePath))
+                submit(() -> walkDirectory(entry));
+            else if (attributes.isRegularFile() && attributes.size() > 0 && filter.acceptsFile(relativePath))
+                submit(() -> scanFile(entry, attributes.size()));
+
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Cannot read the attributes of " + entry, e);
+        }
+    }
+
+    /**
+     * Searches a file once a scan slot is free, and publishes its matches.
+     *
+     * @param path The file.
+     * @param size The size of the file in bytes.
+     */
+    private void scanFile(Path path, long size) {
+        try {
+            scanSlots.acquire();
+        } catch (InterruptedException e) {
+            return;
+        }
+
+        MappedTextReader reader = readers.poll();
+        if (reader == null) reader = new MappedTextReader();
+
+        try {
+            if (isCancelled() || isBinary(path)) return;
+
+            FileScanner scanner = new FileScanner(size);
+
+            try {
+                reader.read(path, scanner);
+                scanner.finish();
+            } catch (ScanStoppedException e) {
+                // The search of the file ended early; the matches found so far are kept.
+            }
+
+            List<LineHit> hits = scanner.collector.hits();
+
+            if (!hits.isEmpty() && !isCancelled()) {
+                matchedFiles.incrementAndGet();
+                Platform.runLater(() -> {
+                    if (!isCancelled()) onFileHits.accept(new FileHits(path, hits));
+                });
+            }
+
+            updateMessage(scannedFiles.incrementAndGet() + " arquivos pesquisados...");
+
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Cannot search " + path, e);
+        } finally {
+            readers.offer(reader);
+            scanSlots.release();
+        }
+    }
+
+    /**
+     * Returns whether a file looks binary, having a zero byte among its first bytes. UTF-16 text,
+     * which has zero bytes, is recognized by its byte order mark.
+     *
+     * @param path The file.
+     * @return True if the file should not be searched.
+     * @throws IOException If the file cannot be read.
+     */
+    static boolean isBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(BINARY_PROBE_LENGTH);
+            while (head.hasRemaining()) {
+                if (channel.read(head) < 0) break;
+            }
+
+            int length = head.position();
+            int b0 = length > 0 ? head.get(0) & 0xFF : -1;
+            int b1 = length > 1 ? head.get(1) & 0xFF : -1;
+            if ((b0 == 0xFE && b1 == 0xFF) || (b0 == 0xFF && b1 == 0xFE)) return false;
+
+            for (int i = 0; i < length; i++) {
+                if (head.get(i) == 0) return true;
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Receives the text of a file as it is decoded and searches it one window at a time. A window
+     * is cut after its last line separator, and the rest of the line is carried over to the next
+     * one, so a match is only cut in two when a single line is longer than a window. A regular
+     * expression anchored with ^ or $ sees each window as the whole input.
+     */
+    private class FileScanner implements TextChunkHandler {
+
+        private final char[] window;
+
+        private LineHitCollector collector = new LineHitCollector(engine);
+        private int length;
+        private long offset;
+
+        /**
+         * Constructs a FileScanner with a window no larger than the file, which never decodes
+         * to more characters than it has bytes.
+         *
+         * @param size The size of the file in bytes.
+         */
+        FileScanner(long size) {
+            this.window = new char[(int) Math.min(WINDOW_LENGTH, size + 1)];
+        }
+
+        /**
+         * Appends a decoded chunk to the window, searching the window each time it fills up.
+         *
+         * @param chunk      The decoded characters, from the buffer's position to its limit.
+         * @param bytesRead  The number of bytes of the file decoded so far.
+         * @param totalBytes The size of the file in bytes.
+         * @throws IOException If the task was cancelled, or the search must stop.
+         */
+        @Override
+        public void accept(CharBuffer chunk, long bytesRead, long totalBytes) throws IOException {
+            if (isCancelled()) throw new InterruptedIOException("Searching was cancelled");
+
+            while (chunk.hasRemaining()) {
+                int count = Math.min(chunk.remaining(), window.length - length);
+                chunk.get(window, length, count);
+                length += count;
+
+                if (length == window.length) searchWindow(false);
+            }
+        }
+
+        /**
+         * Forgets the matches found so far, because the file is decoded again with another charset.
+         *
+         * @param charset The charset the file is decoded with from now on.
+         */
+        @Override
+        public void restart(Charset charset) {
+            collector = new LineHitCollector(engine);
+            length = 0;
+            offset = 0;
+        }
+
+        /**
+         * Searches what remains in the window once the whole file is decoded.
+         *
+         * @throws IOException If the search must stop.
+         */
+        void finish() throws IOException {
+            searchWindow(true);
+        }
+
+        /**
+         * Searches the complete lines of the window, or all of it at the end of the file, and
+         * moves the rest to the start of the window.
+         *
+         * @param last Whether the window holds the end of the file.
+         * @throws IOException If the hit limit is reached or the task was cancelled.
+         */
+        private void searchWindow(boolean last) throws IOException {
+            int end = length;
+
+            if (!last) {
+                while (end > 0 && window[end - 1] != '\n') end--;
+                if (end == 0) end = length;
+            }
+
+            if (!collector.search(CharBuffer.wrap(window, 0, end), offset, FindInFilesTask.this::isCancelled))
+                throw new ScanStoppedException();
+
+            System.arraycopy(window, end, window, 0, length - end);
+            length -= end;
+            offset += end;
+        }
+    }
+
+    /**
+     * Stops decoding a file whose search is over before its end.
+     */
+    private static class ScanStoppedException extends IOException {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+    }
+}
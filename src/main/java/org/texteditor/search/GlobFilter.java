@@ -0,0 +1,86 @@
+package org.texteditor.search;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Selects the files of a Find in Files by their path, with include and exclude glob patterns
+ * separated by commas or semicolons, such as "*.java, *.txt". A pattern is matched against both
+ * the name of a file or directory and its path relative to the searched directory, so "target"
+ * excludes every directory named target while "src/**" only includes what is under src.
+ */
+public class GlobFilter {
+
+    private final List<PathMatcher> includes;
+    private final List<PathMatcher> excludes;
+
+    /**
+     * Constructs a GlobFilter.
+     *
+     * @param includes The patterns of the files to search, or an empty text to search every file.
+     * @param excludes The patterns of the files and directories to skip, or an empty text to skip none.
+     * @throws IllegalArgumentException If a pattern is not a valid glob.
+     */
+    public GlobFilter(String includes, String excludes) {
+        this.includes = compile(includes);
+        this.excludes = compile(excludes);
+    }
+
+    /**
+     * Returns whether a directory must be walked.
+     *
+     * @param relativePath The path of the directory, relative to the searched directory.
+     * @return True unless the directory is excluded.
+     */
+    public boolean acceptsDirectory(Path relativePath) {
+        return !matchesAny(excludes, relativePath);
+    }
+
+    /**
+     * Returns whether a file must be searched.
+     *
+     * @param relativePath The path of the file, relative to the searched directory.
+     * @return True if the file is included and not excluded.
+     */
+    public boolean acceptsFile(Path relativePath) {
+        return (includes.isEmpty() || matchesAny(includes, relativePath)) && !matchesAny(excludes, relativePath);
+    }
+
+    /**
+     * Returns whether a path matches one of the patterns.
+     *
+     * @param matchers     The compiled patterns.
+     * @param relativePath The path, relative to the searched directory.
+     * @return True if a pattern matches.
+     */
+    private static boolean matchesAny(List<PathMatcher> matchers, Path relativePath) {
+        Path name = relativePath.getFileName();
+
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(relativePath) || (name != null && matcher.matches(name))) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Compiles a list of glob patterns.
+     *
+     * @param patterns The patterns, separated by commas or semicolons.
+     * @return The compiled patterns.
+     */
+    private static List<PathMatcher> compile(String patterns) {
+        List<PathMatcher> matchers = new ArrayList<>();
+        if (patterns == null) return matchers;
+
+        for (String pattern : patterns.split("[,;]")) {
+            String glob = pattern.strip();
+            if (!glob.isEmpty()) matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+        }
+
+        return matchers;
+    }
+}
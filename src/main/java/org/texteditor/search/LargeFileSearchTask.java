@@ -0,0 +1,194 @@
+package org.texteditor.search;
+
+import javafx.concurrent.Task;
+import org.texteditor.io.LargeTextFile;
+import org.texteditor.io.TextSegment;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * A background task that finds the next or the previous line matching a search in a large file.
+ * The file is decoded one segment at a time, each ending on a line boundary, so it is never held
+ * in memory as a whole, and lines are counted while the segments are scanned, so the line index
+ * only serves to find where the search starts. The search wraps around the end of the file, or
+ * its start when searching backwards, once the file is fully indexed.
+ * <p>
+ * A line longer than a segment is cut on a character boundary, and the part of it read with one
+ * segment is carried over and searched again with the next one, so a match is only missed when it
+ * is itself longer than a segment. Its value is the zero-based line of the match, or -1 if there is
+ * none. A match spanning two segments that end on line boundaries, which only a multi-line regular
+ * expression can make, is not found.
+ */
+public class LargeFileSearchTask extends Task<Integer> {
+
+    private final LargeTextFile file;
+    private final SearchEngine engine;
+    private final int fromLine;
+    private final boolean backwards;
+
+    /**
+     * Constructs a LargeFileSearchTask.
+     *
+     * @param file      The file to search.
+     * @param engine    The compiled search.
+     * @param fromLine  The line the search starts from, excluded, or -1 to start at the start (or end) of the file.
+     * @param backwards Whether to find the previous match instead of the next.
+     */
+    public LargeFileSearchTask(LargeTextFile file, SearchEngine engine, int fromLine, boolean backwards) {
+        this.file = file;
+        this.engine = engine;
+        this.fromLine = fromLine;
+        this.backwards = backwards;
+    }
+
+    /**
+     * Searches the file.
+     *
+     * @return The zero-based line of the match, or -1 if there is none.
+     * @throws IOException If the file cannot be read.
+     */
+    @Override
+    protected Integer call() throws IOException {
+        return backwards ? searchBackwards() : searchForwards();
+    }
+
+    /**
+     * Searches from the line after the starting one to the end of the file, then from the start
+     * of the file up to the starting line.
+     *
+     * @return The line of the first match, or -1 if there is none.
+     * @throws IOException If the file cannot be read.
+     */
+    private int searchForwards() throws IOException {
+        int lineCount = file.lineCount();
+        int startLine = Math.min(fromLine + 1, lineCount - 1);
+        long start = file.lineOffset(startLine);
+
+        if (fromLine + 1 >= lineCount && file.isIndexed()) {
+            startLine = lineCount;
+            start = file.size();
+        }
+
+        int line = searchForwards(start, file.size(), startLine);
+        if (line >= 0 || fromLine < 0 || !file.isIndexed()) return line;
+
+        return searchForwards(file.dataStart(), start, 0);
+    }
+
+    /**
+     * Finds the first match between two offsets.
+     *
+     * @param start     The offset to start at, at the start of a line.
+     * @param end       The offset to stop at.
+     * @param startLine The line starting at the start offset.
+     * @return The line of the first match, or -1 if there is none.
+     * @throws IOException If the file cannot be read.
+     */
+    private int searchForwards(long start, long end, int startLine) throws IOException {
+        int line = startLine;
+        CharBuffer carried = null;
+
+        for (long position = start; position < end && !isCancelled(); ) {
+            TextSegment segment = file.readForward(position, end);
+            CharBuffer text = carried == null ? segment.text() : join(carried, segment.text());
+
+            TextMatcher matcher = engine.matcher(text);
+            if (matcher.find()) return line + countLines(text, 0, matcher.start());
+
+            int separators = countLines(segment.text(), 0, segment.text().length());
+            line += separators;
+            carried = separators == 0 && segment.end() < end ? segment.text() : null;
+            position = segment.end();
+            updateProgress(position - start, end - start);
+        }
+
+        return -1;
+    }
+
+    /**
+     * Searches from the line before the starting one to the start of the file, then from the end
+     * of the file down to the starting line.
+     *
+     * @return The line of the last match, or -1 if there is none.
+     * @throws IOException If the file cannot be read.
+     */
+    private int searchBackwards() throws IOException {
+        boolean wholeFile = fromLine < 0 || fromLine >= file.lineCount();
+        if (wholeFile && !file.isIndexed()) return -1;
+
+        int lastLine = file.lineCount() - 1;
+        long end = wholeFile ? file.size() : file.lineOffset(fromLine);
+
+        int line = searchBackwards(file.dataStart(), end, wholeFile ? lastLine : fromLine);
+        if (line >= 0 || wholeFile || !file.isIndexed()) return line;
+
+        return searchBackwards(end, file.size(), lastLine);
+    }
+
+    /**
+     * Finds the last match between two offsets.
+     *
+     * @param start   The offset to stop at.
+     * @param end     The offset to start at, at the start of a line or at the end of the file.
+     * @param endLine The line containing the end offset.
+     * @return The line of the last match, or -1 if there is none.
+     * @throws IOException If the file cannot be read.
+     */
+    private int searchBackwards(long start, long end, int endLine) throws IOException {
+        int line = endLine;
+        CharBuffer carried = null;
+
+        for (long position = end; position > start && !isCancelled(); ) {
+            TextSegment segment = file.readBackward(position, start);
+            CharBuffer text = carried == null ? segment.text() : join(segment.text(), carried);
+
+            int lastMatch = -1;
+            TextMatcher matcher = engine.matcher(text);
+            while (matcher.find()) lastMatch = matcher.start();
+
+            if (lastMatch >= 0) return line - countLines(text, lastMatch, text.length());
+
+            int separators = countLines(segment.text(), 0, segment.text().length());
+            line -= separators;
+            carried = separators == 0 && segment.start() > start ? segment.text() : null;
+            position = segment.start();
+            updateProgress(end - position, end - start);
+        }
+
+        return -1;
+    }
+
+    /**
+     * Joins two consecutive parts of a line into one buffer.
+     *
+     * @param first  The first part.
+     * @param second The part following it.
+     * @return A new buffer holding both parts.
+     */
+    private static CharBuffer join(CharBuffer first, CharBuffer second) {
+        CharBuffer joined = CharBuffer.allocate(first.remaining() + second.remaining());
+        joined.put(first.duplicate()).put(second.duplicate());
+        return joined.flip();
+    }
+
+    /**
+     * Counts the line separators in a range of a text, splitting lines as {@link LargeTextFile} does:
+     * at a line feed, or at a carriage return not followed by one.
+     *
+     * @param text  The text.
+     * @param start The start of the range (inclusive).
+     * @param end   The end of the range (exclusive).
+     * @return The number of line separators.
+     */
+    private static int countLines(CharSequence text, int start, int end) {
+        int count = 0;
+
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || (c == '\r' && (i + 1 == text.length() || text.charAt(i + 1) != '\n'))) count++;
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,9 @@
+package org.texteditor.search;
+
+/*
+ * A Java record representing one match listed in search results: the one-based number of the line it
+ * starts on, its start and end offsets in the searched text, and a preview of that line. The number and
+ * the offsets are longs, as a file searched on disk may hold more characters than an int can count.
+ */
+public record LineHit(long line, long start, long end, String preview) {
+}
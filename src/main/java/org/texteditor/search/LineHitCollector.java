@@ -0,0 +1,99 @@
+package org.texteditor.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Lists the matches of a search in a text, with the number and a preview of the line of each
+ * one. Lines are counted while the text is scanned, so no line index is needed. The text may be
+ * given in consecutive segments, as a file is read; the line count carries over from one segment
+ * to the next, which should end on a line separator so that no match is cut in two.
+ * At most {@link #MAX_HITS} matches are listed.
+ */
+public class LineHitCollector {
+
+    /**
+     * The maximum number of matches listed for one text.
+     */
+    public static final int MAX_HITS = 1000;
+
+    private static final int MAX_PREVIEW_LENGTH = 200;
+
+    private final SearchEngine engine;
+    private final List<LineHit> hits = new ArrayList<>();
+
+    private long line = 1;
+
+    /**
+     * Constructs a LineHitCollector for the given search.
+     *
+     * @param engine The compiled search.
+     */
+    public LineHitCollector(SearchEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Lists the matches of the next segment of the text.
+     *
+     * @param segment   The segment, following the previous one.
+     * @param offset    The offset of the segment in the whole text, which may exceed the range of an int.
+     * @param cancelled Tells whether the search was cancelled, checked between two matches.
+     * @return False if no more matches can be listed, because the limit is reached or the search was cancelled.
+     */
+    public boolean search(CharSequence segment, long offset, BooleanSupplier cancelled) {
+        TextMatcher matcher = engine.matcher(segment);
+
+        int lineStart = 0;
+        int scanned = 0;
+
+        while (hits.size() < MAX_HITS && !cancelled.getAsBoolean() && matcher.find()) {
+            int start = matcher.start();
+
+            for (; scanned < start; scanned++) {
+                if (segment.charAt(scanned) == '\n') {
+                    line++;
+                    lineStart = scanned + 1;
+                }
+            }
+
+            hits.add(new LineHit(line, offset + start, offset + matcher.end(), preview(segment, lineStart, start)));
+        }
+
+        if (hits.size() >= MAX_HITS || cancelled.getAsBoolean()) return false;
+
+        for (; scanned < segment.length(); scanned++) {
+            if (segment.charAt(scanned) == '\n') line++;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the matches listed so far.
+     *
+     * @return The matches, in order.
+     */
+    public List<LineHit> hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the line of a match, cut to {@link #MAX_PREVIEW_LENGTH} characters around the match.
+     *
+     * @param text       The searched text.
+     * @param lineStart  The offset of the start of the line.
+     * @param matchStart The offset of the start of the match.
+     * @return The preview of the line.
+     */
+    private static String preview(CharSequence text, int lineStart, int matchStart) {
+        int from = Math.max(lineStart, matchStart - MAX_PREVIEW_LENGTH / 2);
+        int limit = Math.min(text.length(), from + MAX_PREVIEW_LENGTH);
+        int to = from;
+
+        while (to < limit && text.charAt(to) != '\n' && text.charAt(to) != '\r') to++;
+
+        return text.subSequence(from, to).toString().strip();
+    }
+}
@@ -0,0 +1,39 @@
+package org.texteditor.search;
+
+import javafx.concurrent.Task;
+
+import java.util.List;
+
+/**
+ * A background task that lists the matches of a search in a snapshot of a document, with the
+ * number and a preview of the line of each one, as a {@link LineHitCollector} does.
+ */
+public class LineSearchTask extends Task<List<LineHit>> {
+
+    private final CharSequence text;
+    private final SearchEngine engine;
+
+    /**
+     * Constructs a LineSearchTask. The text must not change while the task runs, as a
+     * {@link ChunkedText} over the chunks of a document does not.
+     *
+     * @param text   The text to search.
+     * @param engine The compiled search.
+     */
+    public LineSearchTask(CharSequence text, SearchEngine engine) {
+        this.text = text;
+        this.engine = engine;
+    }
+
+    /**
+     * Lists the matches of the search.
+     *
+     * @return The matches, in order, at most {@link LineHitCollector#MAX_HITS} of them.
+     */
+    @Override
+    protected List<LineHit> call() {
+        LineHitCollector collector = new LineHitCollector(engine);
+        collector.search(text, 0, this::isCancelled);
+        return collector.hits();
+    }
+}
@@ -0,0 +1,248 @@
+package org.texteditor.search;
+
+import java.util.Arrays;
+
+/**
+ * Searches for a literal text with the Boyer-Moore-Horspool algorithm.
+ * The character under the end of the current window tells how far the window can skip, so most
+ * characters of the text are never compared. Case-insensitive searches compare case-folded
+ * characters, and whole word searches reject matches that touch a letter, a digit or an underscore
+ * on a side where the query itself starts or ends with one.
+ */
+public class LiteralSearchEngine implements SearchEngine {
+
+    private static final int SHIFT_TABLE_SIZE = 256;
+
+    private final char[] needle;
+    private final int[] shifts = new int[SHIFT_TABLE_SIZE];
+    private final int[] backwardShifts = new int[SHIFT_TABLE_SIZE];
+    private final boolean caseSensitive;
+    private final boolean wordAtStart;
+    private final boolean wordAtEnd;
+
+    /**
+     * Constructs a LiteralSearchEngine for the query and builds its skip tables, one for each
+     * direction. The tables are indexed by the low byte of a character; characters sharing a low byte keep
+     * the smallest of their skips, which is always safe.
+     *
+     * @param query The query, whose text is a non-empty literal.
+     * @throws IllegalArgumentException If the query text is empty.
+     */
+    public LiteralSearchEngine(SearchQuery query) {
+        if (query.text().isEmpty()) throw new IllegalArgumentException("Cannot search for an empty text");
+
+        this.caseSensitive = query.caseSensitive();
+        this.needle = new char[query.text().length()];
+
+        for (int i = 0; i < needle.length; i++) {
+            needle[i] = fold(query.text().charAt(i));
+        }
+
+        int last = needle.length - 1;
+        Arrays.fill(shifts, needle.length);
+
+        for (int i = 0; i < last; i++) {
+            shifts[needle[i] & (SHIFT_TABLE_SIZE - 1)] = last - i;
+        }
+
+        Arrays.fill(backwardShifts, needle.length);
+
+        for (int i = last; i > 0; i--) {
+            backwardShifts[needle[i] & (SHIFT_TABLE_SIZE - 1)] = i;
+        }
+
+        this.wordAtStart = query.matchWholeWord() && isWordCharacter(needle[0]);
+        this.wordAtEnd = query.matchWholeWord() && isWordCharacter(needle[last]);
+    }
+
+    /**
+     * Creates a matcher running the search over the given text.
+     *
+     * @param text The text to search.
+     * @return A matcher positioned before the first match.
+     */
+    @Override
+    public TextMatcher matcher(CharSequence text) {
+        return new LiteralTextMatcher(text);
+    }
+
+    /**
+     * Returns 1: besides its own characters, a literal match only depends on the character on
+     * each side of it, read by the whole word check.
+     *
+     * @return 1.
+     */
+    @Override
+    public int contextLength() {
+        return 1;
+    }
+
+    /**
+     * Returns the character as it is compared: unchanged for case-sensitive searches, folded
+     * to a single case otherwise.
+     *
+     * @param c The character.
+     * @return The character to compare.
+     */
+    private char fold(char c) {
+        return caseSensitive ? c : Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Returns whether the character is part of a word.
+     *
+     * @param c The character.
+     * @return True for letters, digits and the underscore.
+     */
+    private static boolean isWordCharacter(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * A matcher over one text, remembering the current match.
+     */
+    private class LiteralTextMatcher implements TextMatcher {
+
+        private CharSequence text;
+        private int start = -1;
+        private int end = 0;
+
+        /**
+         * Constructs a LiteralTextMatcher over the text.
+         *
+         * @param text The text to search.
+         */
+        private LiteralTextMatcher(CharSequence text) {
+            this.text = text;
+        }
+
+        /**
+         * Slides a window the length of the query over the text, from the given offset, until
+         * every character of the window matches and the match stands on its own as a word
+         * when required.
+         *
+         * @param from The offset at which the search starts.
+         * @return True if a match was found, false otherwise.
+         */
+        @Override
+        public boolean find(int from) {
+            int last = needle.length - 1;
+            int limit = text.length() - needle.length;
+
+            for (int i = Math.max(0, from); i <= limit; ) {
+                char c = fold(text.charAt(i + last));
+
+                if (c == needle[last] && matchesAt(i) && isWholeWord(i)) {
+                    start = i;
+                    end = i + needle.length;
+                    return true;
+                }
+
+                i += shifts[c & (SHIFT_TABLE_SIZE - 1)];
+            }
+
+            start = -1;
+            return false;
+        }
+
+        /**
+         * Finds the next match, after the previous one or from the start of the text.
+         *
+         * @return True if a match was found, false otherwise.
+         */
+        @Override
+        public boolean find() {
+            return find(start < 0 ? 0 : end);
+        }
+
+        /**
+         * Slides the window backwards from the given offset, skipping by the character under
+         * the start of the window, until a match is found: the match starting last, even when it
+         * overlaps an earlier one.
+         *
+         * @param before The offset the match must end at or before.
+         * @return True if a match was found, false otherwise.
+         */
+        @Override
+        public boolean findPrevious(int before) {
+            for (int i = Math.min(before, text.length()) - needle.length; i >= 0; ) {
+                char c = fold(text.charAt(i));
+
+                if (c == needle[0] && matchesAt(i) && isWholeWord(i)) {
+                    start = i;
+                    end = i + needle.length;
+                    return true;
+                }
+
+                i -= backwardShifts[c & (SHIFT_TABLE_SIZE - 1)];
+            }
+
+            start = -1;
+            return false;
+        }
+
+        /**
+         * Returns the start offset of the current match.
+         *
+         * @return The offset of the first matched character.
+         * @throws IllegalStateException If there is no current match.
+         */
+        @Override
+        public int start() {
+            if (start < 0) throw new IllegalStateException("No match available");
+            return start;
+        }
+
+        /**
+         * Returns the end offset of the current match.
+         *
+         * @return The offset after the last matched character.
+         * @throws IllegalStateException If there is no current match.
+         */
+        @Override
+        public int end() {
+            if (start < 0) throw new IllegalStateException("No match available");
+            return end;
+        }
+
+        /**
+         * Points the matcher at a new text and forgets the current match.
+         *
+         * @param text The text to search.
+         * @return This matcher.
+         */
+        @Override
+        public TextMatcher reset(CharSequence text) {
+            this.text = text;
+            this.start = -1;
+            this.end = 0;
+            return this;
+        }
+
+        /**
+         * Compares the window at the given offset with the query.
+         *
+         * @param offset The offset of the window.
+         * @return True if the window holds the query.
+         */
+        private boolean matchesAt(int offset) {
+            for (int j = needle.length - 1; j >= 0; j--) {
+                if (fold(text.charAt(offset + j)) != needle[j]) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Checks that the match at the given offset is not glued to a neighbouring word.
+         *
+         * @param offset The offset of the match.
+         * @return True if the match is a whole word, or whole words were not requested.
+         */
+        private boolean isWholeWord(int offset) {
+            if (wordAtStart && offset > 0 && isWordCharacter(text.charAt(offset - 1))) return false;
+
+            int after = offset + needle.length;
+            return !wordAtEnd || after >= text.length() || !isWordCharacter(text.charAt(after));
+        }
+    }
+}
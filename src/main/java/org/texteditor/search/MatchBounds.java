@@ -0,0 +1,95 @@
+package org.texteditor.search;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of match bounds, in order, kept as start and end pairs in one primitive int array.
+ */
+public class MatchBounds {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] bounds = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Appends a match after the matches already in the list.
+     *
+     * @param start The start offset of the match.
+     * @param end   The end offset of the match.
+     */
+    public void add(int start, int end) {
+        if (size * 2 == bounds.length) bounds = Arrays.copyOf(bounds, bounds.length * 2);
+
+        bounds[size * 2] = start;
+        bounds[size * 2 + 1] = end;
+        size++;
+    }
+
+    /**
+     * Appends the matches of another list, starting at one of its matches.
+     *
+     * @param other The list to copy from.
+     * @param from  The index of the first match to copy.
+     */
+    public void addAll(MatchBounds other, int from) {
+        int count = other.size - from;
+        if (count <= 0) return;
+
+        if ((size + count) * 2 > bounds.length)
+            bounds = Arrays.copyOf(bounds, Math.max(bounds.length * 2, (size + count) * 2));
+
+        System.arraycopy(other.bounds, from * 2, bounds, size * 2, count * 2);
+        size += count;
+    }
+
+    /**
+     * Returns the number of matches in the list.
+     *
+     * @return The number of matches.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the start offset of a match.
+     *
+     * @param index The index of the match.
+     * @return The offset of the first character of the match.
+     */
+    public int start(int index) {
+        return bounds[index * 2];
+    }
+
+    /**
+     * Returns the end offset of a match.
+     *
+     * @param index The index of the match.
+     * @return The offset after the last character of the match.
+     */
+    public int end(int index) {
+        return bounds[index * 2 + 1];
+    }
+
+    /**
+     * Binary searches the first match that ends after the offset. The matches do not overlap,
+     * so their ends are sorted like their starts.
+     *
+     * @param offset The offset.
+     * @return The index of the match, or the number of matches if there is none.
+     */
+    public int firstEndingAfter(int offset) {
+        int low = 0;
+        int high = size;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (end(middle) <= offset) low = middle + 1;
+            else high = middle;
+        }
+
+        return low;
+    }
+}
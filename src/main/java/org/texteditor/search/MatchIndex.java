@@ -0,0 +1,325 @@
+package org.texteditor.search;
+
+import org.texteditor.model.document.DocumentListener;
+import org.texteditor.model.document.TextDocument;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the position of every match of a search in a document, for counting and navigating
+ * matches without scanning the document again. Match starts and lengths are kept in primitive
+ * int arrays organized as a gap buffer, like the {@link org.texteditor.model.document.LineIndex}:
+ * starts before the gap are absolute offsets, starts after it are distances from the end of the
+ * document, so an edit only touches the matches around it.
+ * <p>
+ * The index records the document version it was computed for. After an edit, a search whose
+ * matches only depend on nearby text is repaired at once, by rescanning from the last match
+ * before the edit until the scan meets an old match past it. Other searches are rescanned
+ * entirely the next time the index is read. Counts and lookups are then O(log n).
+ */
+public final class MatchIndex implements DocumentListener {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final TextDocument document;
+    private final SearchEngine engine;
+    private final TextMatcher matcher;
+    private final ParallelSearch parallelSearch = new ParallelSearch();
+
+    private int[] starts;
+    private int[] lengths;
+    private int gapStart;
+    private int gapEnd;
+    private int documentLength;
+    private long version = -1;
+
+    /**
+     * Constructs a MatchIndex for the search over the document and starts following its edits.
+     * The document is scanned the first time the index is read.
+     *
+     * @param document The document to index.
+     * @param engine   The compiled search.
+     */
+    public MatchIndex(TextDocument document, SearchEngine engine) {
+        this.document = document;
+        this.engine = engine;
+        this.matcher = engine.matcher(document);
+
+        document.addDocumentListener(this);
+    }
+
+    /**
+     * Returns whether this index holds the matches of the given search in the given document.
+     *
+     * @param document The document.
+     * @param engine   The compiled search.
+     * @return True if both are the ones this index was built for.
+     */
+    public boolean isFor(TextDocument document, SearchEngine engine) {
+        return this.document == document && this.engine == engine;
+    }
+
+    /**
+     * Stops following the edits of the document.
+     */
+    public void close() {
+        document.removeDocumentListener(this);
+    }
+
+    /**
+     * Repairs the index after a range of the document was replaced, when the search only depends
+     * on nearby text. Matches that end far enough before the edit are kept as they are, matches
+     * that start far enough after it are kept and shifted by the gap, and the text in between is
+     * rescanned from the last kept match on. The rescan stops as soon as it finds a kept match
+     * again, since the matches that follow it cannot have changed.
+     *
+     * @param document The edited document.
+     * @param start    The start offset of the replaced range (inclusive).
+     * @param end      The end offset of the replaced range before the edit (exclusive).
+     * @param inserted The text that was inserted at the start offset.
+     */
+    @Override
+    public void replaced(TextDocument document, int start, int end, CharSequence inserted) {
+        int context = engine.contextLength();
+        if (context < 0 || version != document.version() - 1) return;
+
+        int firstAffected = firstEndingAfter(start - context);
+        int firstKept = firstStartingAtOrAfter(end + context);
+
+        moveGap(firstAffected);
+        gapEnd += firstKept - firstAffected;
+        documentLength += inserted.length() - (end - start);
+
+        int editEnd = start + inserted.length();
+        int from = gapStart > 0 ? startAt(gapStart - 1) + lengths[gapStart - 1] : 0;
+        boolean found = matcher.reset(document).find(from);
+
+        while (found) {
+            int matchStart = matcher.start();
+
+            while (gapEnd < starts.length && documentLength - starts[gapEnd] < matchStart) gapEnd++;
+
+            if (gapEnd < starts.length && matchStart - context >= editEnd
+                    && documentLength - starts[gapEnd] == matchStart
+                    && lengths[gapEnd] == matcher.end() - matchStart) break;
+
+            insert(matchStart, matcher.end() - matchStart);
+            found = matcher.find();
+        }
+
+        if (!found) gapEnd = starts.length;
+
+        version = document.version();
+    }
+
+    /**
+     * Returns the number of matches in the document.
+     *
+     * @return The number of matches.
+     */
+    public int count() {
+        update();
+        return size();
+    }
+
+    /**
+     * Returns the start offset of a match.
+     *
+     * @param index The zero-based index of the match.
+     * @return The offset of the first character of the match.
+     */
+    public int start(int index) {
+        update();
+        checkIndex(index);
+        return startAt(index);
+    }
+
+    /**
+     * Returns the end offset of a match.
+     *
+     * @param index The zero-based index of the match.
+     * @return The offset after the last character of the match.
+     */
+    public int end(int index) {
+        update();
+        checkIndex(index);
+        return startAt(index) + lengths[physical(index)];
+    }
+
+    /**
+     * Returns the first match starting at or after the given offset.
+     *
+     * @param offset The offset.
+     * @return The index of the match, or -1 if there is none.
+     */
+    public int indexAtOrAfter(int offset) {
+        update();
+        int index = firstStartingAtOrAfter(offset);
+        return index < size() ? index : -1;
+    }
+
+    /**
+     * Returns the last match ending at or before the given offset.
+     *
+     * @param offset The offset.
+     * @return The index of the match, or -1 if there is none.
+     */
+    public int indexBefore(int offset) {
+        update();
+        return firstEndingAfter(offset) - 1;
+    }
+
+    /**
+     * Scans the document again if the index is not current, on all cores when it is large.
+     */
+    private void update() {
+        if (version == document.version()) return;
+
+        starts = new int[INITIAL_CAPACITY];
+        lengths = new int[INITIAL_CAPACITY];
+        gapStart = 0;
+        gapEnd = starts.length;
+        documentLength = document.length();
+
+        if (parallelSearch.isWorthwhile(document)) {
+            MatchBounds matches = parallelSearch.findAll(document, engine);
+
+            for (int i = 0; i < matches.size(); i++) {
+                insert(matches.start(i), matches.end(i) - matches.start(i));
+            }
+
+        } else {
+            matcher.reset(document);
+            while (matcher.find()) {
+                insert(matcher.start(), matcher.end() - matcher.start());
+            }
+        }
+
+        version = document.version();
+    }
+
+    /**
+     * Returns the number of matches, without updating the index.
+     *
+     * @return The number of entries outside the gap.
+     */
+    private int size() {
+        return starts.length - (gapEnd - gapStart);
+    }
+
+    /**
+     * Returns the position in the arrays of a match.
+     *
+     * @param index The zero-based index of the match.
+     * @return The index of its entry in the arrays.
+     */
+    private int physical(int index) {
+        return index < gapStart ? index : index + gapEnd - gapStart;
+    }
+
+    /**
+     * Returns the absolute start offset of a match, without updating the index.
+     *
+     * @param index The zero-based index of the match.
+     * @return The offset of the first character of the match.
+     */
+    private int startAt(int index) {
+        return index < gapStart ? starts[index] : documentLength - starts[physical(index)];
+    }
+
+    /**
+     * Binary searches the first match that starts at or after the offset.
+     *
+     * @param offset The offset.
+     * @return The index of the match, or the number of matches if there is none.
+     */
+    private int firstStartingAtOrAfter(int offset) {
+        int low = 0;
+        int high = size();
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (startAt(middle) < offset) low = middle + 1;
+            else high = middle;
+        }
+
+        return low;
+    }
+
+    /**
+     * Binary searches the first match that ends after the offset. Matches do not overlap, so
+     * their ends are sorted like their starts.
+     *
+     * @param offset The offset.
+     * @return The index of the match, or the number of matches if there is none.
+     */
+    private int firstEndingAfter(int offset) {
+        int low = 0;
+        int high = size();
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (startAt(middle) + lengths[physical(middle)] <= offset) low = middle + 1;
+            else high = middle;
+        }
+
+        return low;
+    }
+
+    /**
+     * Throws if the index does not designate a match.
+     *
+     * @param index The zero-based index of the match.
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("match " + index + ", match count " + size());
+    }
+
+    /**
+     * Moves the gap so that it starts at the given match, converting the entries it passes over.
+     *
+     * @param index The match at which the gap must start.
+     */
+    private void moveGap(int index) {
+        while (gapStart > index) {
+            gapStart--;
+            gapEnd--;
+            starts[gapEnd] = documentLength - starts[gapStart];
+            lengths[gapEnd] = lengths[gapStart];
+        }
+
+        while (gapStart < index) {
+            starts[gapStart] = documentLength - starts[gapEnd];
+            lengths[gapStart] = lengths[gapEnd];
+            gapStart++;
+            gapEnd++;
+        }
+    }
+
+    /**
+     * Inserts a match at the gap, growing the arrays when the gap is empty.
+     *
+     * @param start  The absolute start offset of the match.
+     * @param length The length of the match.
+     */
+    private void insert(int start, int length) {
+        if (gapStart == gapEnd) {
+            int tailLength = starts.length - gapEnd;
+            int[] grownStarts = Arrays.copyOf(starts, starts.length * 2);
+            int[] grownLengths = Arrays.copyOf(lengths, lengths.length * 2);
+
+            System.arraycopy(starts, gapEnd, grownStarts, grownStarts.length - tailLength, tailLength);
+            System.arraycopy(lengths, gapEnd, grownLengths, grownLengths.length - tailLength, tailLength);
+
+            gapEnd = grownStarts.length - tailLength;
+            starts = grownStarts;
+            lengths = grownLengths;
+        }
+
+        starts[gapStart] = start;
+        lengths[gapStart++] = length;
+    }
+}
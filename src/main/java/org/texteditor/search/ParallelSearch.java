@@ -0,0 +1,222 @@
+package org.texteditor.search;
+
+import org.texteditor.model.document.TextDocument;
+
+import java.io.Serial;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds every match of a search in a large document on all cores, with fork/join.
+ * The document is split into chunks that each own the matches starting inside them; a chunk is
+ * scanned from its first character, but its last match may run past its end, so the chunks
+ * overlap by the length of a match. When two neighbouring results are joined, a match of the
+ * left one may cover the first matches of the right one, which the right scan found from a
+ * different starting point. The joint is then rescanned from the end of the left matches until
+ * the scan meets one of the right matches, from which on both scans agree; no match on a chunk
+ * boundary is lost or counted twice, and the result is the same as a sequential scan.
+ */
+public class ParallelSearch {
+
+    /**
+     * The length from which a document is searched in parallel, set with the
+     * "texteditor.search.parallelThreshold" system property.
+     */
+    private static final int PARALLEL_THRESHOLD =
+            Math.max(1, Integer.getInteger("texteditor.search.parallelThreshold", 4 * 1024 * 1024));
+
+    private static final int MIN_CHUNK_SIZE = 256 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a ParallelSearch running on the common fork/join pool.
+     */
+    public ParallelSearch() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a ParallelSearch running on the given pool.
+     *
+     * @param pool The pool running the chunk scans.
+     */
+    public ParallelSearch(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Returns whether a text is large enough, and there are enough cores, for a parallel search
+     * to pay off.
+     *
+     * @param text The text to search.
+     * @return True if the text should be searched in parallel.
+     */
+    public boolean isWorthwhile(CharSequence text) {
+        return text.length() >= PARALLEL_THRESHOLD && pool.getParallelism() > 1;
+    }
+
+    /**
+     * Finds every match of the search in the document, in parallel. The document is read through
+     * its chunks, which stay valid and unchanged for the whole search.
+     *
+     * @param document The document to search.
+     * @param engine   The compiled search.
+     * @return The matches, in order.
+     */
+    public MatchBounds findAll(TextDocument document, SearchEngine engine) {
+        return findAll(new ChunkedText(document.chunks()), engine);
+    }
+
+    /**
+     * Finds every match of the search in a snapshot of a document, in parallel.
+     *
+     * @param text   The chunks of the document to search.
+     * @param engine The compiled search.
+     * @return The matches, in order.
+     */
+    public MatchBounds findAll(ChunkedText text, SearchEngine engine) {
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, text.length() / (pool.getParallelism() * CHUNKS_PER_THREAD));
+
+        return pool.invoke(new SearchTask(text, engine, 0, text.length(), chunkSize));
+    }
+
+    /**
+     * Finds, sequentially, the matches starting in a range of a text.
+     *
+     * @param text    The text to search.
+     * @param engine  The compiled search.
+     * @param from    The start of the range (inclusive).
+     * @param to      The end of the range (exclusive); the last match may end after it.
+     * @param matches The list receiving the matches.
+     */
+    private static void scan(CharSequence text, SearchEngine engine, int from, int to, MatchBounds matches) {
+        TextMatcher matcher = engine.matcher(text);
+        boolean found = matcher.find(from);
+        int limit = limitOf(text, to);
+
+        while (found && matcher.start() < limit) {
+            matches.add(matcher.start(), matcher.end());
+            found = matcher.find();
+        }
+    }
+
+    /**
+     * Joins the matches of two neighbouring ranges into the matches of the whole range.
+     * The joint is rescanned from where the left matches end until the scan finds one of the right
+     * matches again, as the matches after it are the ones a sequential scan would find.
+     *
+     * @param text   The text searched.
+     * @param engine The compiled search.
+     * @param left   The matches of the left range.
+     * @param right  The matches of the right range.
+     * @param middle The offset at which the right range starts.
+     * @param to     The offset at which the right range ends.
+     * @return The matches of both ranges.
+     */
+    private static MatchBounds joinMatches(CharSequence text, SearchEngine engine, MatchBounds left, MatchBounds right,
+                                           int middle, int to) {
+        int resume = middle;
+
+        if (left.size() > 0) {
+            int lastStart = left.start(left.size() - 1);
+            int lastEnd = left.end(left.size() - 1);
+            resume = Math.max(middle, lastEnd == lastStart ? lastEnd + 1 : lastEnd);
+        }
+
+        if (resume == middle) {
+            left.addAll(right, 0);
+            return left;
+        }
+
+        TextMatcher matcher = engine.matcher(text);
+        boolean found = resume <= text.length() && matcher.find(resume);
+        int limit = limitOf(text, to);
+        int next = 0;
+
+        while (found && matcher.start() < limit) {
+            while (next < right.size() && right.start(next) < matcher.start()) next++;
+
+            if (next < right.size() && right.start(next) == matcher.start() && right.end(next) == matcher.end()) {
+                left.addAll(right, next);
+                return left;
+            }
+
+            left.add(matcher.start(), matcher.end());
+            found = matcher.find();
+        }
+
+        return left;
+    }
+
+    /**
+     * Returns the offset before which the matches owned by a range start. The last range also
+     * owns an empty match at the very end of the text.
+     *
+     * @param text The text searched.
+     * @param to   The offset at which the range ends.
+     * @return The limit of the match starts.
+     */
+    private static int limitOf(CharSequence text, int to) {
+        return to < text.length() ? to : Integer.MAX_VALUE;
+    }
+
+    /**
+     * A fork/join task finding the matches starting in a range of the text, splitting the range
+     * in halves until it is no longer than a chunk.
+     */
+    private static class SearchTask extends RecursiveTask<MatchBounds> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient ChunkedText text;
+        private final transient SearchEngine engine;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        /**
+         * Constructs a SearchTask.
+         *
+         * @param text      The text to search, shared by all tasks.
+         * @param engine    The compiled search.
+         * @param from      The start of the range (inclusive).
+         * @param to        The end of the range (exclusive).
+         * @param chunkSize The length under which a range is scanned rather than split.
+         */
+        private SearchTask(ChunkedText text, SearchEngine engine, int from, int to, int chunkSize) {
+            this.text = text;
+            this.engine = engine;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        /**
+         * Scans the range, or splits it and joins the matches of both halves.
+         *
+         * @return The matches starting in the range.
+         */
+        @Override
+        protected MatchBounds compute() {
+            if (to - from <= chunkSize) {
+                MatchBounds matches = new MatchBounds();
+                scan(text.view(), engine, from, to, matches);
+                return matches;
+            }
+
+            int middle = from + (to - from) / 2;
+
+            SearchTask leftTask = new SearchTask(text, engine, from, middle, chunkSize);
+            SearchTask rightTask = new SearchTask(text, engine, middle, to, chunkSize);
+
+            leftTask.fork();
+            MatchBounds right = rightTask.compute();
+            MatchBounds left = leftTask.join();
+
+            return joinMatches(text.view(), engine, left, right, middle, to);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.texteditor.search;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Searches for a regular expression with {@link Pattern}.
+ * Case-insensitive searches fold Unicode letters too, and whole word searches use Unicode word
+ * boundaries, so that accented letters are treated like the literal engine treats them.
+ */
+public class RegexSearchEngine implements SearchEngine {
+
+    private final Pattern pattern;
+
+    /**
+     * Constructs a RegexSearchEngine by compiling the query.
+     *
+     * @param query The query, whose text is a regular expression.
+     * @throws java.util.regex.PatternSyntaxException If the expression is invalid.
+     */
+    public RegexSearchEngine(SearchQuery query) {
+        String regex = query.text();
+        int flags = 0;
+
+        if (query.matchWholeWord()) {
+            regex = "\\b(?:" + regex + ")\\b";
+            flags |= Pattern.UNICODE_CHARACTER_CLASS;
+        }
+
+        if (!query.caseSensitive()) flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+
+        this.pattern = Pattern.compile(regex, flags);
+    }
+
+    /**
+     * Creates a matcher running the expression over the given text.
+     *
+     * @param text The text to search.
+     * @return A matcher positioned before the first match.
+     */
+    @Override
+    public TextMatcher matcher(CharSequence text) {
+        return new RegexTextMatcher(text);
+    }
+
+    /**
+     * Returns -1: lookarounds and greedy quantifiers can make a match depend on any part of the text.
+     *
+     * @return -1.
+     */
+    @Override
+    public int contextLength() {
+        return -1;
+    }
+
+    /**
+     * A matcher over one text, searching regions of it with a single {@link Matcher}.
+     * The regions have transparent, non-anchoring bounds: word boundaries and lookarounds see
+     * the text outside the region, and ^ and $ only match at real line boundaries.
+     */
+    private class RegexTextMatcher implements TextMatcher {
+
+        private final Matcher matcher;
+        private CharSequence text;
+        private int start = -1;
+        private int end = 0;
+
+        /**
+         * Constructs a RegexTextMatcher over the text.
+         *
+         * @param text The text to search.
+         */
+        private RegexTextMatcher(CharSequence text) {
+            this.text = text;
+            this.matcher = pattern.matcher(text).useTransparentBounds(true).useAnchoringBounds(false);
+        }
+
+        /**
+         * Finds the first match starting at or after the given offset.
+         *
+         * @param from The offset at which the search starts.
+         * @return True if a match was found, false otherwise.
+         */
+        @Override
+        public boolean find(int from) {
+            if (from < 0 || from > text.length()) return fail();
+
+            matcher.region(from, text.length());
+            return matcher.find() ? accept(matcher.start(), matcher.end()) : fail();
+        }
+
+        /**
+         * Finds the next match, after the previous one or from the start of the text.
+         * An empty match is stepped over, so the search always moves forward.
+         *
+         * @return True if a match was found, false otherwise.
+         */
+        @Override
+        public boolean find() {
+            if (start < 0) return find(0);
+            return find(end == start ? end + 1 : end);
+        }
+
+        /**
+         * Finds the last match ending at or before the given offset. Each offset is tried in turn,
+         * backwards from the given one, for a match starting right there; the first one found is
+         * the match starting last, even when it overlaps an earlier match, as with the literal
+         * engine. A match near the offset is found without scanning the text from its start.
+         *
+         * @param before The offset the match must end at or before.
+         * @return True if a match was found, false otherwise.
+         */
+        @Override
+        public boolean findPrevious(int before) {
+            int limit = Math.min(before, text.length());
+
+            for (int from = limit - 1; from >= 0; from--) {
+                matcher.region(from, limit);
+
+                if (matcher.lookingAt() && matcher.end() > matcher.start())
+                    return accept(matcher.start(), matcher.end());
+            }
+
+            return fail();
+        }
+
+        /**
+         * Returns the start offset of the current match.
+         *
+         * @return The offset of the first matched character.
+         * @throws IllegalStateException If there is no current match.
+         */
+        @Override
+        public int start() {
+            if (start < 0) throw new IllegalStateException("No match available");
+            return start;
+        }
+
+        /**
+         * Returns the end offset of the current match.
+         *
+         * @return The offset after the last matched character.
+         * @throws IllegalStateException If there is no current match.
+         */
+        @Override
+        public int end() {
+            if (start < 0) throw new IllegalStateException("No match available");
+            return end;
+        }
+
+        /**
+         * Points the matcher at a new text and forgets the current match.
+         *
+         * @param text The text to search.
+         * @return This matcher.
+         */
+        @Override
+        public TextMatcher reset(CharSequence text) {
+            this.text = text;
+            this.start = -1;
+            this.end = 0;
+            matcher.reset(text);
+            return this;
+        }
+
+        /**
+         * Makes the given bounds the current match.
+         *
+         * @param start The start offset of the match.
+         * @param end   The end offset of the match.
+         * @return True.
+         */
+        private boolean accept(int start, int end) {
+            this.start = start;
+            this.end = end;
+            return true;
+        }
+
+        /**
+         * Forgets the current match.
+         *
+         * @return False.
+         */
+        private boolean fail() {
+            this.start = -1;
+            return false;
+        }
+    }
+}
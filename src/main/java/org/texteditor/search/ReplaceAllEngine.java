@@ -0,0 +1,81 @@
+package org.texteditor.search;
+
+/**
+ * Replaces every match of a search in a document in a single pass.
+ * The chunks of the document are scanned once with the compiled search, in parallel when the
+ * document is large, and the match bounds are kept in a primitive array. The exact length of the
+ * result is then known, so the text between the first and the last match is copied, a chunk at a
+ * time and with the replacements, into one buffer of that size. Only the matches change: the text
+ * around them, including its whitespace, is copied as is. As the chunks do not change while the
+ * document is edited, the scan can run on a background thread.
+ */
+public class ReplaceAllEngine {
+
+    private final ParallelSearch parallelSearch = new ParallelSearch();
+
+    /**
+     * Replaces every match of the search in the document with the literal replacement.
+     * Empty matches are left alone.
+     *
+     * @param text        The chunks of the document to search, read in place.
+     * @param engine      The compiled search.
+     * @param replacement The literal text replacing each match.
+     * @return The replacement as a single ranged edit, or null if nothing matched.
+     */
+    public Replacement replaceAll(ChunkedText text, SearchEngine engine, String replacement) {
+        MatchBounds matches = findAll(text, engine);
+
+        int count = 0;
+        int start = -1;
+        int end = -1;
+        long matchedLength = 0;
+
+        for (int i = 0; i < matches.size(); i++) {
+            if (matches.end(i) == matches.start(i)) continue;
+
+            if (start < 0) start = matches.start(i);
+            end = matches.end(i);
+            matchedLength += matches.end(i) - matches.start(i);
+            count++;
+        }
+
+        if (count == 0) return null;
+
+        long length = (end - start) - matchedLength + (long) count * replacement.length();
+        if (length > Integer.MAX_VALUE - 8)
+            throw new IllegalStateException("Replacement result too large: " + length + " characters");
+
+        StringBuilder stringBuilder = new StringBuilder((int) length);
+        int copied = start;
+
+        for (int i = 0; i < matches.size(); i++) {
+            if (matches.end(i) == matches.start(i)) continue;
+
+            text.appendTo(stringBuilder, copied, matches.start(i));
+            stringBuilder.append(replacement);
+            copied = matches.end(i);
+        }
+
+        return new Replacement(start, end, stringBuilder.toString(), count);
+    }
+
+    /**
+     * Finds every match of the search in the text, on all cores when the text is large.
+     *
+     * @param text   The text to search.
+     * @param engine The compiled search.
+     * @return The matches, in order.
+     */
+    private MatchBounds findAll(ChunkedText text, SearchEngine engine) {
+        if (parallelSearch.isWorthwhile(text)) return parallelSearch.findAll(text, engine);
+
+        MatchBounds matches = new MatchBounds();
+        TextMatcher matcher = engine.matcher(text);
+
+        while (matcher.find()) {
+            matches.add(matcher.start(), matcher.end());
+        }
+
+        return matches;
+    }
+}
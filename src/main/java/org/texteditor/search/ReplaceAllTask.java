@@ -0,0 +1,43 @@
+package org.texteditor.search;
+
+import javafx.concurrent.Task;
+
+/**
+ * A background task that computes a Replace All over a snapshot of a document, so the JavaFX
+ * Application Thread only applies the result. Its value is the replacement, or null if nothing
+ * matched.
+ */
+public class ReplaceAllTask extends Task<Replacement> {
+
+    private final ReplaceAllEngine replaceAllEngine;
+    private final ChunkedText text;
+    private final SearchEngine engine;
+    private final String replacement;
+
+    /**
+     * Constructs a ReplaceAllTask. The text must not change while the task runs, as a
+     * {@link ChunkedText} over the chunks of a document does not.
+     *
+     * @param replaceAllEngine The engine computing the replacement.
+     * @param text             The text to search.
+     * @param engine           The compiled search.
+     * @param replacement      The literal text replacing each match.
+     */
+    public ReplaceAllTask(ReplaceAllEngine replaceAllEngine, ChunkedText text, SearchEngine engine,
+                          String replacement) {
+        this.replaceAllEngine = replaceAllEngine;
+        this.text = text;
+        this.engine = engine;
+        this.replacement = replacement;
+    }
+
+    /**
+     * Scans the text and builds the replacement.
+     *
+     * @return The replacement as a single ranged edit, or null if nothing matched.
+     */
+    @Override
+    protected Replacement call() {
+        return replaceAllEngine.replaceAll(text, engine, replacement);
+    }
+}
@@ -0,0 +1,8 @@
+package org.texteditor.search;
+
+/*
+ * A Java record describing the outcome of a Replace All as one ranged edit: the range from the start of
+ * the first match to the end of the last one, the text replacing that range, and the number of matches.
+ */
+public record Replacement(int start, int end, String text, int count) {
+}
@@ -0,0 +1,36 @@
+package org.texteditor.search;
+
+/**
+ * A compiled search, ready to be run over any number of texts.
+ * Plain text queries are compiled to a {@link LiteralSearchEngine}, which skips through the text
+ * without backtracking; only regular expressions go through {@link java.util.regex.Pattern}.
+ */
+public interface SearchEngine {
+
+    /**
+     * Creates a matcher running this search over the given text.
+     *
+     * @param text The text to search.
+     * @return A matcher positioned before the first match.
+     */
+    TextMatcher matcher(CharSequence text);
+
+    /**
+     * Returns how many characters on each side of a match can decide whether it matches,
+     * beyond the match itself. An edit further away than that from a match leaves it valid.
+     *
+     * @return The number of characters of context, or -1 if it is unbounded.
+     */
+    int contextLength();
+
+    /**
+     * Compiles a query into the engine best suited to it.
+     *
+     * @param query The query to compile.
+     * @return The literal engine for plain text, the regex engine for regular expressions.
+     * @throws java.util.regex.PatternSyntaxException If the query is an invalid regular expression.
+     */
+    static SearchEngine compile(SearchQuery query) {
+        return query.regex() ? new RegexSearchEngine(query) : new LiteralSearchEngine(query);
+    }
+}
@@ -0,0 +1,70 @@
+package org.texteditor.search;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small least-recently-used cache of compiled searches, so that repeating a search, as holding
+ * F3 does, compiles its query only once. The cache counts its hits and misses. It is safe to use
+ * from several threads.
+ */
+public class SearchEngineCache {
+
+    private final Map<SearchQuery, SearchEngine> engines;
+
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Constructs a SearchEngineCache holding at most the given number of compiled searches.
+     *
+     * @param capacity The maximum number of compiled searches kept.
+     */
+    public SearchEngineCache(int capacity) {
+        this.engines = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SearchQuery, SearchEngine> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the compiled search for the query, compiling it only if it is not cached.
+     *
+     * @param query The query to compile.
+     * @return The compiled search.
+     * @throws java.util.regex.PatternSyntaxException If the query is an invalid regular expression.
+     */
+    public synchronized SearchEngine get(SearchQuery query) {
+        SearchEngine engine = engines.get(query);
+
+        if (engine != null) {
+            hitCount++;
+            return engine;
+        }
+
+        missCount++;
+        engine = SearchEngine.compile(query);
+        engines.put(query, engine);
+        return engine;
+    }
+
+    /**
+     * Returns the number of queries found already compiled.
+     *
+     * @return The number of cache hits.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of queries that had to be compiled.
+     *
+     * @return The number of cache misses.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+}
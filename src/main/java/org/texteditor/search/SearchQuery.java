@@ -0,0 +1,8 @@
+package org.texteditor.search;
+
+/*
+ * A Java record representing what the user searches for: the text typed in the find pane and the
+ * options selected with it. The text is a regular expression when regex is true, a literal otherwise.
+ */
+public record SearchQuery(String text, boolean caseSensitive, boolean matchWholeWord, boolean regex) {
+}
@@ -0,0 +1,55 @@
+package org.texteditor.search;
+
+/**
+ * Finds the successive matches of a search in one text, in the manner of a regex Matcher.
+ * The text is read in place through its CharSequence methods and never copied.
+ */
+public interface TextMatcher {
+
+    /**
+     * Finds the first match starting at or after the given offset.
+     *
+     * @param from The offset at which the search starts.
+     * @return True if a match was found, false otherwise.
+     */
+    boolean find(int from);
+
+    /**
+     * Finds the next match, after the previous one or from the start of the text.
+     *
+     * @return True if a match was found, false otherwise.
+     */
+    boolean find();
+
+    /**
+     * Finds the last match that ends at or before the given offset, for searching backwards.
+     * The last match is the one starting last, even when it overlaps an earlier match.
+     *
+     * @param before The offset the match must end at or before.
+     * @return True if a match was found, false otherwise.
+     */
+    boolean findPrevious(int before);
+
+    /**
+     * Returns the start offset of the current match.
+     *
+     * @return The offset of the first matched character.
+     */
+    int start();
+
+    /**
+     * Returns the end offset of the current match.
+     *
+     * @return The offset after the last matched character.
+     */
+    int end();
+
+    /**
+     * Points the matcher at a new text and forgets the current match, so one matcher can serve
+     * search after search without being allocated again.
+     *
+     * @param text The text to search.
+     * @return This matcher.
+     */
+    TextMatcher reset(CharSequence text);
+}
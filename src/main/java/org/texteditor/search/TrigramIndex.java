@@ -0,0 +1,806 @@
+package org.texteditor.search;
+
+import org.texteditor.io.MappedTextReader;
+import org.texteditor.io.TextChunkHandler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A persistent trigram index over the files of a workspace directory, so that a Find in Files
+ * only reads the files that can match. For every trigram of the indexed text, the index keeps
+ * the sorted list of the files containing it; a query is narrowed to the files holding all of
+ * its {@link Trigrams}, and only those are then searched.
+ * <p>
+ * The index is kept in one binary file: the indexed files with their size and modification
+ * time, the posting lists as delta-encoded varints, then the table of trigrams with the offset
+ * of their posting list. The table is loaded in memory and the posting lists are read from the
+ * file when a query needs them. An update only reads the files whose size or modification time
+ * changed: their old entries are marked deleted, their new postings are kept in memory and
+ * merged into a new index file, which replaces the old one at once. Deleted entries are dropped
+ * whenever the file is rewritten, and the memory taken by new postings is bounded by writing
+ * the file before {@link #FLUSH_THRESHOLD} postings are pending.
+ */
+public class TrigramIndex {
+
+    private static final int MAGIC = 0x54524749;
+    private static final int FORMAT_VERSION = 1;
+    private static final int FLUSH_THRESHOLD = 16 * 1024 * 1024;
+    private static final int INDEX_CONCURRENCY = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final System.Logger LOGGER = System.getLogger(TrigramIndex.class.getName());
+
+    private final Path workspace;
+    private final Path indexFile;
+
+    private final List<FileEntry> files = new ArrayList<>();
+    private final Map<String, Integer> idsByPath = new HashMap<>();
+    private final Map<Long, IdList> pendingPostings = new HashMap<>();
+    private final Object pendingLock = new Object();
+    private long pendingCount;
+    private boolean loaded;
+
+    private FileChannel channel;
+    private long[] keys = new long[0];
+    private long[] offsets = new long[1];
+
+    /**
+     * Constructs a TrigramIndex over a workspace, kept in the given directory. The index file
+     * is read the first time the index is updated.
+     *
+     * @param workspace The directory whose files are indexed.
+     * @param directory The directory of the index files.
+     */
+    public TrigramIndex(Path workspace, Path directory) {
+        this.workspace = workspace.toAbsolutePath().normalize();
+
+        String name = UUID.nameUUIDFromBytes(this.workspace.toString().getBytes(StandardCharsets.UTF_8)) + ".idx";
+        this.indexFile = directory.toAbsolutePath().normalize().resolve(name);
+    }
+
+    /**
+     * Returns the default index directory, in the user's home directory.
+     *
+     * @return The path of the default index directory.
+     */
+    public static Path defaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".texteditor", "index");
+    }
+
+    /**
+     * Returns the directory whose files are indexed.
+     *
+     * @return The workspace directory.
+     */
+    public Path getWorkspace() {
+        return workspace;
+    }
+
+    /**
+     * Brings the index up to date with the workspace. Every file is checked by its size and
+     * modification time; the new and modified files are indexed in parallel and the deleted
+     * ones are forgotten. The index file is rewritten only if something changed.
+     *
+     * @param cancelled Tells whether the update was cancelled, checked between two files.
+     * @throws IOException If the workspace cannot be walked or the index cannot be written.
+     */
+    public synchronized void update(BooleanSupplier cancelled) throws IOException {
+        load();
+
+        boolean[] unchanged = new boolean[files.size()];
+        List<FileStat> toIndex = new ArrayList<>();
+
+        Files.walkFileTree(workspace, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                return directory.equals(indexFile.getParent()) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (cancelled.getAsBoolean()) return FileVisitResult.TERMINATE;
+                if (!attributes.isRegularFile() || attributes.size() == 0) return FileVisitResult.CONTINUE;
+
+                String path = relativize(file);
+                long modified = attributes.lastModifiedTime().toMillis();
+                Integer id = idsByPath.get(path);
+
+                if (id != null && files.get(id).size() == attributes.size() && files.get(id).modified() == modified)
+                    unchanged[id] = true;
+                else
+                    toIndex.add(new FileStat(file, path, attributes.size(), modified));
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                LOGGER.log(System.Logger.Level.DEBUG, "Cannot index " + file, e);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        if (cancelled.getAsBoolean()) throw new InterruptedIOException("Updating the index was cancelled");
+
+        boolean changed = !toIndex.isEmpty();
+
+        for (int id = 0; id < unchanged.length; id++) {
+            if (!unchanged[id] && files.get(id).live()) {
+                delete(id);
+                changed = true;
+            }
+        }
+
+        indexFiles(toIndex, cancelled);
+
+        if (changed) write();
+    }
+
+    /**
+     * Returns the files that may contain a match of the query: the files holding every trigram
+     * of the query, or every file when the query has no trigram. The index must be up to date.
+     *
+     * @param query The query.
+     * @return The candidate files, in the order they were indexed.
+     * @throws IOException If the index file cannot be read.
+     */
+    public synchronized List<Path> candidates(SearchQuery query) throws IOException {
+        load();
+
+        long[] trigrams = Trigrams.of(query);
+        List<Path> candidates = new ArrayList<>();
+
+        if (trigrams.length == 0) {
+            for (FileEntry entry : files) {
+                if (entry.live()) candidates.add(workspace.resolve(entry.path()));
+            }
+
+            return candidates;
+        }
+
+        List<int[]> postings = new ArrayList<>();
+        for (long trigram : trigrams) {
+            int[] ids = postings(trigram);
+            if (ids.length == 0) return candidates;
+            postings.add(ids);
+        }
+
+        postings.sort(Comparator.comparingInt(ids -> ids.length));
+
+        int[] ids = postings.get(0);
+        for (int i = 1; i < postings.size() && ids.length > 0; i++) {
+            ids = intersect(ids, postings.get(i));
+        }
+
+        for (int id : ids) {
+            FileEntry entry = files.get(id);
+            if (entry.live()) candidates.add(workspace.resolve(entry.path()));
+        }
+
+        return candidates;
+    }
+
+    /**
+     * Reads the index file, the first time the index is used. An index file that cannot be
+     * read is ignored, and the workspace is indexed again.
+     *
+     * @throws IOException If the index directory cannot be created.
+     */
+    private void load() throws IOException {
+        if (loaded) return;
+        loaded = true;
+
+        Files.createDirectories(indexFile.getParent());
+        if (!Files.exists(indexFile)) return;
+
+        try {
+            read();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Cannot read index " + indexFile + ", rebuilding it", e);
+            reset();
+        }
+    }
+
+    /**
+     * Forgets every indexed file.
+     *
+     * @throws IOException If the index file cannot be closed.
+     */
+    private void reset() throws IOException {
+        if (channel != null) channel.close();
+
+        channel = null;
+        files.clear();
+        idsByPath.clear();
+        pendingPostings.clear();
+        pendingCount = 0;
+        keys = new long[0];
+        offsets = new long[1];
+    }
+
+    /**
+     * Reads the file table and the trigram table of the index file, and keeps the file open
+     * for reading posting lists.
+     *
+     * @throws IOException If the file cannot be read or is not an index of this workspace.
+     */
+    private void read() throws IOException {
+        channel = FileChannel.open(indexFile, StandardOpenOption.READ);
+
+        ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES);
+        readFully(trailer, channel.size() - Long.BYTES);
+        long tableOffset = trailer.getLong(0);
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(workspace.toString()))
+            throw new IOException("Not an index of " + workspace);
+
+        int fileCount = in.readInt();
+        for (int id = 0; id < fileCount; id++) {
+            FileEntry entry = new FileEntry(in.readUTF(), in.readLong(), in.readLong(), true);
+            files.add(entry);
+            idsByPath.put(entry.path(), id);
+        }
+
+        in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(tableOffset))));
+
+        int trigramCount = in.readInt();
+        keys = new long[trigramCount];
+        offsets = new long[trigramCount + 1];
+
+        for (int i = 0; i < trigramCount; i++) {
+            keys[i] = in.readLong();
+            offsets[i] = in.readLong();
+        }
+
+        offsets[trigramCount] = tableOffset;
+    }
+
+    /**
+     * Indexes files in parallel, at most {@link #INDEX_CONCURRENCY} at a time. When too many
+     * postings are pending, the index file is written once the files being indexed are done.
+     *
+     * @param toIndex   The files to index.
+     * @param cancelled Tells whether the update was cancelled.
+     * @throws IOException If the index file cannot be written, or the update was cancelled.
+     */
+    private void indexFiles(List<FileStat> toIndex, BooleanSupplier cancelled) throws IOException {
+        Semaphore slots = new Semaphore(INDEX_CONCURRENCY);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (FileStat file : toIndex) {
+                slots.acquire();
+
+                if (cancelled.getAsBoolean()) {
+                    slots.release();
+                    break;
+                }
+
+                if (pendingCount() > FLUSH_THRESHOLD) {
+                    slots.acquire(INDEX_CONCURRENCY - 1);
+                    write();
+                    slots.release(INDEX_CONCURRENCY - 1);
+                }
+
+                executor.execute(() -> {
+                    try {
+                        indexFile(file, cancelled);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Updating the index was interrupted");
+        }
+
+        if (cancelled.getAsBoolean()) {
+            write();
+            throw new InterruptedIOException("Updating the index was cancelled");
+        }
+    }
+
+    /**
+     * Extracts the trigrams of a file and adds them to the pending postings. A file that looks
+     * binary is recorded without trigrams, so it is not read again until it changes.
+     *
+     * @param file      The file to index.
+     * @param cancelled Tells whether the update was cancelled.
+     */
+    private void indexFile(FileStat file, BooleanSupplier cancelled) {
+        try {
+            long[] trigrams = FindInFilesTask.isBinary(file.file()) ? new long[0] : extract(file.file(), cancelled);
+            add(file, trigrams);
+
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Cannot index " + file.file(), e);
+        }
+    }
+
+    /**
+     * Decodes a file through memory-mapped windows and collects its distinct trigrams.
+     *
+     * @param file      The file.
+     * @param cancelled Tells whether the update was cancelled.
+     * @return The trigrams of the file, sorted.
+     * @throws IOException If the file cannot be read, or the update was cancelled.
+     */
+    private static long[] extract(Path file, BooleanSupplier cancelled) throws IOException {
+        TrigramSet trigrams = new TrigramSet();
+
+        new MappedTextReader().read(file, new TextChunkHandler() {
+
+            private char first;
+            private char second;
+            private int length;
+
+            @Override
+            public void accept(CharBuffer chunk, long bytesRead, long totalBytes) throws IOException {
+                if (cancelled.getAsBoolean()) throw new InterruptedIOException("Indexing was cancelled");
+
+                while (chunk.hasRemaining()) {
+                    char third = Trigrams.fold(chunk.get());
+                    if (++length >= 3) trigrams.add(Trigrams.key(first, second, third));
+
+                    first = second;
+                    second = third;
+                }
+            }
+
+            @Override
+            public void restart(Charset charset) {
+                trigrams.clear();
+                length = 0;
+            }
+        });
+
+        return trigrams.toSortedArray();
+    }
+
+    /**
+     * Records an indexed file and adds its postings to the pending ones. Files are indexed in
+     * parallel, so they are recorded one at a time.
+     *
+     * @param file     The indexed file.
+     * @param trigrams Its trigrams.
+     */
+    private void add(FileStat file, long[] trigrams) {
+        synchronized (pendingLock) {
+            Integer previous = idsByPath.get(file.path());
+            if (previous != null) delete(previous);
+
+            int id = files.size();
+            files.add(new FileEntry(file.path(), file.size(), file.modified(), true));
+            idsByPath.put(file.path(), id);
+
+            for (long trigram : trigrams) {
+                pendingPostings.computeIfAbsent(trigram, key -> new IdList()).add(id);
+            }
+
+            pendingCount += trigrams.length;
+        }
+    }
+
+    /**
+     * Returns the number of postings not written yet.
+     *
+     * @return The number of pending postings.
+     */
+    private long pendingCount() {
+        synchronized (pendingLock) {
+            return pendingCount;
+        }
+    }
+
+    /**
+     * Marks an indexed file as deleted. Its postings are dropped when the index file is rewritten.
+     *
+     * @param id The ID of the file.
+     */
+    private void delete(int id) {
+        FileEntry entry = files.get(id);
+        files.set(id, new FileEntry(entry.path(), entry.size(), entry.modified(), false));
+        idsByPath.remove(entry.path());
+    }
+
+    /**
+     * Writes a new index file merging the postings of the current one with the pending ones,
+     * without the deleted files, and replaces the current file with it. The files are numbered
+     * again in the same order, so the posting lists stay sorted. No file is being indexed
+     * meanwhile.
+     *
+     * @throws IOException If the index file cannot be written.
+     */
+    private void write() throws IOException {
+        int[] newIds = new int[files.size()];
+        List<FileEntry> liveFiles = new ArrayList<>();
+
+        for (int id = 0; id < files.size(); id++) {
+            FileEntry entry = files.get(id);
+            newIds[id] = entry.live() ? liveFiles.size() : -1;
+            if (entry.live()) liveFiles.add(entry);
+        }
+
+        long[] pendingKeys = pendingPostings.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        Path temporaryFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+
+        List<Long> newKeys = new ArrayList<>();
+        List<Long> newOffsets = new ArrayList<>();
+
+        try (PositionOutputStream position = new PositionOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporaryFile)));
+             DataOutputStream out = new DataOutputStream(position)) {
+
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(workspace.toString());
+            out.writeInt(liveFiles.size());
+
+            for (FileEntry entry : liveFiles) {
+                out.writeUTF(entry.path());
+                out.writeLong(entry.size());
+                out.writeLong(entry.modified());
+            }
+
+            int current = 0;
+            int pending = 0;
+
+            while (current < keys.length || pending < pendingKeys.length) {
+                long key = pending >= pendingKeys.length || (current < keys.length && keys[current] <= pendingKeys[pending])
+                        ? keys[current] : pendingKeys[pending];
+
+                IdList ids = new IdList();
+                if (current < keys.length && keys[current] == key) readPostings(current++, newIds, ids);
+                if (pending < pendingKeys.length && pendingKeys[pending] == key)
+                    pendingPostings.get(pendingKeys[pending++]).remapTo(newIds, ids);
+
+                if (ids.size == 0) continue;
+
+                newKeys.add(key);
+                newOffsets.add(position.position);
+
+                int previous = 0;
+                for (int i = 0; i < ids.size; i++) {
+                    writeVarInt(out, ids.ids[i] - previous);
+                    previous = ids.ids[i];
+                }
+            }
+
+            long tableOffset = position.position;
+
+            out.writeInt(newKeys.size());
+            for (int i = 0; i < newKeys.size(); i++) {
+                out.writeLong(newKeys.get(i));
+                out.writeLong(newOffsets.get(i));
+            }
+
+            out.writeLong(tableOffset);
+        }
+
+        if (channel != null) channel.close();
+        Files.move(temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        reset();
+        read();
+    }
+
+    /**
+     * Reads a posting list of the index file, renumbering its files and dropping the deleted ones.
+     *
+     * @param index  The position of the trigram in the table.
+     * @param newIds The new ID of every file, or -1 for a deleted file.
+     * @param ids    The list receiving the IDs.
+     * @throws IOException If the index file cannot be read.
+     */
+    private void readPostings(int index, int[] newIds, IdList ids) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate((int) (offsets[index + 1] - offsets[index]));
+        readFully(bytes, offsets[index]);
+        bytes.flip();
+
+        int id = 0;
+        while (bytes.hasRemaining()) {
+            id += readVarInt(bytes);
+            if (newIds == null) ids.add(id);
+            else if (newIds[id] >= 0) ids.add(newIds[id]);
+        }
+    }
+
+    /**
+     * Returns the files containing a trigram, from the index file and the pending postings.
+     * Pending files were all added after the files of the index file, so their IDs come last.
+     *
+     * @param trigram The trigram.
+     * @return The sorted IDs of the files.
+     * @throws IOException If the index file cannot be read.
+     */
+    private int[] postings(long trigram) throws IOException {
+        IdList ids = new IdList();
+
+        int index = Arrays.binarySearch(keys, trigram);
+        if (index >= 0) readPostings(index, null, ids);
+
+        IdList pending = pendingPostings.get(trigram);
+        if (pending != null) pending.remapTo(null, ids);
+
+        return Arrays.copyOf(ids.ids, ids.size);
+    }
+
+    /**
+     * Intersects two sorted lists of IDs.
+     *
+     * @param a The first list.
+     * @param b The second list.
+     * @return The IDs in both lists.
+     */
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Fills a buffer from the index file, starting at the given position.
+     *
+     * @param buffer   The buffer.
+     * @param position The position in the file.
+     * @throws IOException If the file ends before the buffer is full.
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new IOException("Truncated index " + indexFile);
+        }
+    }
+
+    /**
+     * Returns the path of a file relative to the workspace, with '/' separators.
+     *
+     * @param file The file.
+     * @return The relative path.
+     */
+    private String relativize(Path file) {
+        return workspace.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    /**
+     * Writes a non-negative int in as few bytes as needed, seven bits per byte.
+     *
+     * @param out   The output.
+     * @param value The value.
+     * @throws IOException If the output fails.
+     */
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads an int written by {@link #writeVarInt(DataOutputStream, int)}.
+     *
+     * @param bytes The buffer.
+     * @return The value.
+     */
+    private static int readVarInt(ByteBuffer bytes) {
+        int value = 0;
+
+        for (int shift = 0; ; shift += 7) {
+            byte b = bytes.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    /*
+     * An indexed file: its path relative to the workspace, its size and modification time when it was
+     * indexed, and whether it is still part of the index.
+     */
+    private record FileEntry(String path, long size, long modified, boolean live) {
+    }
+
+    /*
+     * A file to index: its path, its path relative to the workspace, its size and modification time.
+     */
+    private record FileStat(Path file, String path, long size, long modified) {
+    }
+
+    /**
+     * A growable list of file IDs.
+     */
+    private static class IdList {
+
+        private int[] ids = new int[4];
+        private int size;
+
+        /**
+         * Appends an ID.
+         *
+         * @param id The ID.
+         */
+        void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        /**
+         * Appends the IDs of this list to another, renumbered and without the deleted files.
+         *
+         * @param newIds The new ID of every file, -1 for a deleted file, or null to keep the IDs.
+         * @param target The list receiving the IDs.
+         */
+        void remapTo(int[] newIds, IdList target) {
+            for (int i = 0; i < size; i++) {
+                int id = newIds == null ? ids[i] : newIds[ids[i]];
+                if (id >= 0) target.add(id);
+            }
+        }
+    }
+
+    /**
+     * An open-addressing hash set of trigrams, without boxing. Zero is never a trigram of a
+     * decoded file, which holds no NUL character, so it marks the free slots.
+     */
+    private static class TrigramSet {
+
+        private long[] slots = new long[1024];
+        private int size;
+
+        /**
+         * Adds a trigram.
+         *
+         * @param trigram The trigram, not zero.
+         */
+        void add(long trigram) {
+            if (size * 2 >= slots.length) grow();
+
+            int mask = slots.length - 1;
+            int slot = hash(trigram) & mask;
+
+            while (slots[slot] != 0) {
+                if (slots[slot] == trigram) return;
+                slot = (slot + 1) & mask;
+            }
+
+            slots[slot] = trigram;
+            size++;
+        }
+
+        /**
+         * Removes every trigram.
+         */
+        void clear() {
+            slots = new long[1024];
+            size = 0;
+        }
+
+        /**
+         * Returns the trigrams, sorted.
+         *
+         * @return The sorted trigrams.
+         */
+        long[] toSortedArray() {
+            long[] trigrams = new long[size];
+            int count = 0;
+
+            for (long slot : slots) {
+                if (slot != 0) trigrams[count++] = slot;
+            }
+
+            Arrays.sort(trigrams);
+            return trigrams;
+        }
+
+        /**
+         * Doubles the number of slots.
+         */
+        private void grow() {
+            long[] old = slots;
+            slots = new long[old.length * 2];
+            size = 0;
+
+            for (long trigram : old) {
+                if (trigram != 0) add(trigram);
+            }
+        }
+
+        /**
+         * Spreads the bits of a trigram.
+         *
+         * @param trigram The trigram.
+         * @return The hash.
+         */
+        private static int hash(long trigram) {
+            long h = trigram * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    /**
+     * An output stream counting the bytes written through it.
+     */
+    private static class PositionOutputStream extends FilterOutputStream {
+
+        private long position;
+
+        /**
+         * Constructs a PositionOutputStream.
+         *
+         * @param out The underlying stream.
+         */
+        PositionOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        /**
+         * Writes a byte.
+         *
+         * @param b The byte.
+         * @throws IOException If the underlying stream fails.
+         */
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        /**
+         * Writes bytes.
+         *
+         * @param b      The bytes.
+         * @param offset The offset of the first byte.
+         * @param length The number of bytes.
+         * @throws IOException If the underlying stream fails.
+         */
+        @Override
+        public void write(byte[] b, int offset, int length) throws IOException {
+            out.write(b, offset, length);
+            position += length;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package org.texteditor.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Extracts the trigrams of a query, for narrowing a search to the files of a {@link TrigramIndex}
+ * that contain them all. A trigram is three consecutive characters, case-folded as the literal
+ * engine folds them, packed into a long, so the index serves case-sensitive and case-insensitive
+ * searches alike.
+ * <p>
+ * The trigrams of a regular expression are those of the literal runs every match must contain.
+ * Characters made optional by a quantifier, and groups made optional as a whole, are left out.
+ * An expression with an alternation, or with flags other than case-insensitivity, yields no
+ * trigram, which makes every file a candidate.
+ */
+public class Trigrams {
+
+    /**
+     * Utility class, not instantiated.
+     */
+    private Trigrams() {
+    }
+
+    /**
+     * Folds a character as the index stores it.
+     *
+     * @param c The character.
+     * @return The case-folded character.
+     */
+    public static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Packs three folded characters into a trigram.
+     *
+     * @param first  The first character.
+     * @param second The second character.
+     * @param third  The third character.
+     * @return The trigram.
+     */
+    public static long key(char first, char second, char third) {
+        return ((long) first << 32) | ((long) second << 16) | third;
+    }
+
+    /**
+     * Returns the trigrams every match of the query contains.
+     *
+     * @param query The query.
+     * @return The sorted, distinct trigrams, or an empty array if the query cannot be narrowed.
+     */
+    public static long[] of(SearchQuery query) {
+        List<String> runs = query.regex() ? literalRuns(query.text()) : List.of(query.text());
+        if (runs == null) return new long[0];
+
+        long[] trigrams = new long[runs.stream().mapToInt(run -> Math.max(0, run.length() - 2)).sum()];
+        int count = 0;
+
+        for (String run : runs) {
+            for (int i = 0; i + 2 < run.length(); i++) {
+                trigrams[count++] = key(fold(run.charAt(i)), fold(run.charAt(i + 1)), fold(run.charAt(i + 2)));
+            }
+        }
+
+        return Arrays.stream(trigrams, 0, count).sorted().distinct().toArray();
+    }
+
+    /**
+     * Returns the literal runs every match of a regular expression contains.
+     *
+     * @param regex The regular expression.
+     * @return The runs, or null if the expression cannot be narrowed.
+     */
+    private static List<String> literalRuns(String regex) {
+        List<String> runs = new ArrayList<>();
+        List<Integer> groupStarts = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        boolean lastIsLiteral = false;
+
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+
+            switch (c) {
+                case '|':
+                    return null;
+
+                case '\\':
+                    if (i + 1 >= regex.length()) return null;
+                    char escaped = regex.charAt(++i);
+
+                    if (Character.isLetterOrDigit(escaped)) {
+                        if (escaped == 'Q') return null;
+                        endRun(runs, run);
+                        lastIsLiteral = false;
+                    } else {
+                        run.append(escaped);
+                        lastIsLiteral = true;
+                    }
+                    break;
+
+                case '[':
+                    endRun(runs, run);
+                    i = endOfClass(regex, i);
+                    if (i < 0) return null;
+                    lastIsLiteral = false;
+                    break;
+
+                case '(':
+                    if (regex.startsWith("(?:", i)) i += 2;
+                    else if (regex.startsWith("(?i)", i)) {
+                        i += 3;
+                        lastIsLiteral = false;
+                        break;
+                    } else if (i + 1 < regex.length() && regex.charAt(i + 1) == '?') return null;
+
+                    endRun(runs, run);
+                    groupStarts.add(runs.size());
+                    lastIsLiteral = false;
+                    break;
+
+                case ')':
+                    if (groupStarts.isEmpty()) return null;
+                    endRun(runs, run);
+
+                    int groupStart = groupStarts.remove(groupStarts.size() - 1);
+                    if (isOptionalQuantifier(regex, i + 1)) runs.subList(groupStart, runs.size()).clear();
+                    lastIsLiteral = false;
+                    break;
+
+                case '*':
+                case '?':
+                case '{':
+                    if (isOptionalQuantifier(regex, i) && lastIsLiteral) run.setLength(run.length() - 1);
+                    endRun(runs, run);
+                    i = endOfQuantifier(regex, i);
+                    lastIsLiteral = false;
+                    break;
+
+                case '+':
+                    endRun(runs, run);
+                    i = endOfQuantifier(regex, i);
+                    lastIsLiteral = false;
+                    break;
+
+                case '.':
+                case '^':
+                case '$':
+                    endRun(runs, run);
+                    lastIsLiteral = false;
+                    break;
+
+                default:
+                    run.append(c);
+                    lastIsLiteral = true;
+            }
+        }
+
+        endRun(runs, run);
+        return runs;
+    }
+
+    /**
+     * Adds the current run to the runs and starts a new one.
+     *
+     * @param runs The runs.
+     * @param run  The current run.
+     */
+    private static void endRun(List<String> runs, StringBuilder run) {
+        if (run.length() > 0) runs.add(run.toString());
+        run.setLength(0);
+    }
+
+    /**
+     * Returns whether a quantifier allowing zero occurrences starts at the given index.
+     *
+     * @param regex The regular expression.
+     * @param index The index.
+     * @return True for '*', '?' and a repetition with a minimum of zero.
+     */
+    private static boolean isOptionalQuantifier(String regex, int index) {
+        if (index >= regex.length()) return false;
+
+        char c = regex.charAt(index);
+        return c == '*' || c == '?' || (c == '{' && regex.startsWith("{0", index));
+    }
+
+    /**
+     * Returns the index of the last character of the quantifier starting at the given index,
+     * including a lazy or possessive suffix.
+     *
+     * @param regex The regular expression.
+     * @param index The index of the first character of the quantifier.
+     * @return The index of its last character.
+     */
+    private static int endOfQuantifier(String regex, int index) {
+        int end = index;
+
+        if (regex.charAt(index) == '{') {
+            int close = regex.indexOf('}', index);
+            end = close < 0 ? regex.length() - 1 : close;
+        }
+
+        if (end + 1 < regex.length() && (regex.charAt(end + 1) == '?' || regex.charAt(end + 1) == '+')) end++;
+
+        return end;
+    }
+
+    /**
+     * Returns the index of the ']' closing the character class starting at the given index.
+     *
+     * @param regex The regular expression.
+     * @param index The index of the '['.
+     * @return The index of the closing ']', or -1 if there is none or classes are nested.
+     */
+    private static int endOfClass(String regex, int index) {
+        int i = index + 1;
+        if (i < regex.length() && regex.charAt(i) == '^') i++;
+        if (i < regex.length() && regex.charAt(i) == ']') i++;
+
+        for (; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+
+            if (c == '\\') i++;
+            else if (c == '[') return -1;
+            else if (c == ']') return i;
+        }
+
+        return -1;
+    }
+}
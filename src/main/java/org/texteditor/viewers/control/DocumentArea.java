@@ -0,0 +1,947 @@
+package org.texteditor.viewers.control;
+
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.css.CssMetaData;
+import javafx.css.FontCssMetaData;
+import javafx.css.SimpleStyleableObjectProperty;
+import javafx.css.Styleable;
+import javafx.css.StyleableObjectProperty;
+import javafx.css.StyleableProperty;
+import javafx.scene.control.Control;
+import javafx.scene.control.IndexRange;
+import javafx.scene.control.Skin;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.text.Font;
+import org.texteditor.model.document.DocumentListener;
+import org.texteditor.model.document.LineIndex;
+import org.texteditor.model.document.TextDocument;
+import org.texteditor.search.ChunkedText;
+import org.texteditor.viewers.skin.DocumentViewSkin;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The DocumentArea class is the control editing the document of a tab. The document is the only
+ * copy of the text: the control reads it through its line index and edits it with ranged
+ * replacements, so opening or editing a file never builds the whole text as a String, as a TextArea
+ * does on every read of its text property.
+ * <p>
+ * The control owns what a TextArea would keep next to its text: the caret and anchor, the
+ * editable flag, the font, the scroll position and the undo history. Its editing methods mirror
+ * those of a TextArea, so the actions of the editor read the same. Edits made to the document
+ * directly, such as the chunks appended while a file loads, move the caret along with the text and
+ * clear the undo history, since the edits recorded before them no longer apply.
+ * <p>
+ * The undo history does not copy large edits: the text an edit removed, and the text it inserted,
+ * are kept as views over the chunks of the document, which never change once written, so a
+ * Replace All over a whole file costs its undo record a few views rather than a copy of the file.
+ * Only short texts, such as typed characters, are copied, as they take less room than a view.
+ * <p>
+ * The control is drawn by a {@link DocumentViewSkin}, which only renders the visible lines.
+ */
+public final class DocumentArea extends Control {
+
+    private static final long MERGE_INTERVAL_NANOS = 1_000_000_000L;
+    private static final int COPY_LIMIT = 256;
+
+    private static final CssMetaData<DocumentArea, Font> FONT = new FontCssMetaData<>("-fx-font",
+            Font.getDefault()) {
+        @Override
+        public boolean isSettable(DocumentArea area) {
+            return !area.font.isBound();
+        }
+
+        @Override
+        public StyleableProperty<Font> getStyleableProperty(DocumentArea area) {
+            return area.font;
+        }
+    };
+
+    private static final List<CssMetaData<? extends Styleable, ?>> CSS_META_DATA;
+
+    static {
+        List<CssMetaData<? extends Styleable, ?>> cssMetaData = new ArrayList<>(Control.getClassCssMetaData());
+        cssMetaData.add(FONT);
+        CSS_META_DATA = Collections.unmodifiableList(cssMetaData);
+    }
+
+    private final TextDocument document;
+    private final LineIndex lineIndex;
+
+    private final ReadOnlyIntegerWrapper anchor = new ReadOnlyIntegerWrapper(this, "anchor");
+    private final ReadOnlyIntegerWrapper caretPosition = new ReadOnlyIntegerWrapper(this, "caretPosition");
+    private final ReadOnlyObjectWrapper<IndexRange> selection =
+            new ReadOnlyObjectWrapper<>(this, "selection", new IndexRange(0, 0));
+    private final BooleanProperty editable = new SimpleBooleanProperty(this, "editable", true);
+    private final StyleableObjectProperty<Font> font =
+            new SimpleStyleableObjectProperty<>(FONT, this, "font", Font.getDefault());
+    private final DoubleProperty scrollTop = new SimpleDoubleProperty(this, "scrollTop");
+    private final DoubleProperty scrollLeft = new SimpleDoubleProperty(this, "scrollLeft");
+    private final IntegerProperty prefColumnCount = new SimpleIntegerProperty(this, "prefColumnCount", 40);
+    private final IntegerProperty prefRowCount = new SimpleIntegerProperty(this, "prefRowCount", 10);
+
+    private final Deque<Edit> undoHistory = new ArrayDeque<>();
+    private final Deque<Edit> redoHistory = new ArrayDeque<>();
+    private final ReadOnlyBooleanWrapper undoable = new ReadOnlyBooleanWrapper(this, "undoable");
+    private final ReadOnlyBooleanWrapper redoable = new ReadOnlyBooleanWrapper(this, "redoable");
+
+    private boolean editing;
+
+    /**
+     * Constructs a new DocumentArea editing the given document.
+     *
+     * @param document  The document edited by the control.
+     * @param lineIndex The line index of the document, kept up to date by the caller.
+     */
+    public DocumentArea(TextDocument document, LineIndex lineIndex) {
+        this.document = document;
+        this.lineIndex = lineIndex;
+
+        getStyleClass().addAll("text-input", "text-area");
+        document.addDocumentListener(new DocumentListener() {
+            @Override
+            public void replaced(TextDocument editedDocument, int start, int end, CharSequence inserted) {
+                if (!editing) onExternalEdit(start, end, inserted.length());
+            }
+        });
+    }
+
+    /**
+     * Creates the skin drawing the visible lines of the document.
+     *
+     * @return A new DocumentViewSkin.
+     */
+    @Override
+    protected Skin<?> createDefaultSkin() {
+        return new DocumentViewSkin(this);
+    }
+
+    /**
+     * Returns the CSS metadata of the DocumentArea class.
+     *
+     * @return The CSS metadata of the Control class and the font.
+     */
+    public static List<CssMetaData<? extends Styleable, ?>> getClassCssMetaData() {
+        return CSS_META_DATA;
+    }
+
+    /**
+     * Returns the CSS metadata of the control.
+     *
+     * @return The CSS metadata of the DocumentArea class.
+     */
+    @Override
+    public List<CssMetaData<? extends Styleable, ?>> getControlCssMetaData() {
+        return getClassCssMetaData();
+    }
+
+    /**
+     * Returns the document edited by the control.
+     *
+     * @return The document.
+     */
+    public TextDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * Returns the line index of the document.
+     *
+     * @return The line index.
+     */
+    public LineIndex getLineIndex() {
+        return lineIndex;
+    }
+
+    /**
+     * Returns the number of characters in the document.
+     *
+     * @return The length of the document.
+     */
+    public int getLength() {
+        return document.length();
+    }
+
+    /**
+     * Returns the anchor of the selection, the end that stays in place when it is extended.
+     *
+     * @return The offset of the anchor.
+     */
+    public int getAnchor() {
+        return anchor.get();
+    }
+
+    /**
+     * Returns the anchor property.
+     *
+     * @return The read-only anchor property.
+     */
+    public ReadOnlyIntegerProperty anchorProperty() {
+        return anchor.getReadOnlyProperty();
+    }
+
+    /**
+     * Returns the position of the caret.
+     *
+     * @return The offset of the caret.
+     */
+    public int getCaretPosition() {
+        return caretPosition.get();
+    }
+
+    /**
+     * Returns the caret position property.
+     *
+     * @return The read-only caret position property.
+     */
+    public ReadOnlyIntegerProperty caretPositionProperty() {
+        return caretPosition.getReadOnlyProperty();
+    }
+
+    /**
+     * Returns the selected range, between the anchor and the caret.
+     *
+     * @return The selection.
+     */
+    public IndexRange getSelection() {
+        return selection.get();
+    }
+
+    /**
+     * Returns the selection property.
+     *
+     * @return The read-only selection property.
+     */
+    public ReadOnlyObjectProperty<IndexRange> selectionProperty() {
+        return selection.getReadOnlyProperty();
+    }
+
+    /**
+     * Returns a copy of the selected text.
+     *
+     * @return The selected text.
+     */
+    public String getSelectedText() {
+        IndexRange range = getSelection();
+        return document.subSequence(range.getStart(), range.getEnd()).toString();
+    }
+
+    /**
+     * Determines whether the user can edit the document.
+     *
+     * @return True if the document is editable, false otherwise.
+     */
+    public boolean isEditable() {
+        return editable.get();
+    }
+
+    /**
+     * Sets whether the user can edit the document.
+     *
+     * @param value True to make the document editable, false otherwise.
+     */
+    public void setEditable(boolean value) {
+        editable.set(value);
+    }
+
+    /**
+     * Returns the editable property.
+     *
+     * @return The editable property.
+     */
+    public BooleanProperty editableProperty() {
+        return editable;
+    }
+
+    /**
+     * Returns the font the text is drawn with.
+     *
+     * @return The font.
+     */
+    public Font getFont() {
+        return font.get();
+    }
+
+    /**
+     * Sets the font the text is drawn with.
+     *
+     * @param value The font.
+     */
+    public void setFont(Font value) {
+        font.set(value);
+    }
+
+    /**
+     * Returns the font property, which can be set from CSS with -fx-font and its sub-properties.
+     *
+     * @return The font property.
+     */
+    public ObjectProperty<Font> fontProperty() {
+        return font;
+    }
+
+    /**
+     * Returns the distance the content is scrolled down by.
+     *
+     * @return The vertical scroll position, in pixels.
+     */
+    public double getScrollTop() {
+        return scrollTop.get();
+    }
+
+    /**
+     * Sets the distance the content is scrolled down by.
+     *
+     * @param value The vertical scroll position, in pixels.
+     */
+    public void setScrollTop(double value) {
+        scrollTop.set(value);
+    }
+
+    /**
+     * Returns the vertical scroll position property.
+     *
+     * @return The scroll top property.
+     */
+    public DoubleProperty scrollTopProperty() {
+        return scrollTop;
+    }
+
+    /**
+     * Returns the distance the content is scrolled right by.
+     *
+     * @return The horizontal scroll position, in pixels.
+     */
+    public double getScrollLeft() {
+        return scrollLeft.get();
+    }
+
+    /**
+     * Sets the distance the content is scrolled right by.
+     *
+     * @param value The horizontal scroll position, in pixels.
+     */
+    public void setScrollLeft(double value) {
+        scrollLeft.set(value);
+    }
+
+    /**
+     * Returns the horizontal scroll position property.
+     *
+     * @return The scroll left property.
+     */
+    public DoubleProperty scrollLeftProperty() {
+        return scrollLeft;
+    }
+
+    /**
+     * Returns the number of columns the preferred width of the control is computed for.
+     *
+     * @return The preferred column count.
+     */
+    public int getPrefColumnCount() {
+        return prefColumnCount.get();
+    }
+
+    /**
+     * Returns the preferred column count property.
+     *
+     * @return The preferred column count property.
+     */
+    public IntegerProperty prefColumnCountProperty() {
+        return prefColumnCount;
+    }
+
+    /**
+     * Returns the number of rows the preferred height of the control is computed for.
+     *
+     * @return The preferred row count.
+     */
+    public int getPrefRowCount() {
+        return prefRowCount.get();
+    }
+
+    /**
+     * Returns the preferred row count property.
+     *
+     * @return The preferred row count property.
+     */
+    public IntegerProperty prefRowCountProperty() {
+        return prefRowCount;
+    }
+
+    /**
+     * Determines whether an edit can be undone.
+     *
+     * @return True if the undo history is not empty.
+     */
+    public boolean isUndoable() {
+        return undoable.get();
+    }
+
+    /**
+     * Returns the undoable property.
+     *
+     * @return The read-only undoable property.
+     */
+    public ReadOnlyBooleanProperty undoableProperty() {
+        return undoable.getReadOnlyProperty();
+    }
+
+    /**
+     * Determines whether an undone edit can be redone.
+     *
+     * @return True if the redo history is not empty.
+     */
+    public boolean isRedoable() {
+        return redoable.get();
+    }
+
+    /**
+     * Returns the redoable property.
+     *
+     * @return The read-only redoable property.
+     */
+    public ReadOnlyBooleanProperty redoableProperty() {
+        return redoable.getReadOnlyProperty();
+    }
+
+    /**
+     * Selects the characters between the anchor and the caret, in either order.
+     *
+     * @param anchor        The offset of the anchor.
+     * @param caretPosition The offset of the caret.
+     */
+    public void selectRange(int anchor, int caretPosition) {
+        int length = document.length();
+        int clampedAnchor = Math.max(0, Math.min(anchor, length));
+        int clampedCaret = Math.max(0, Math.min(caretPosition, length));
+
+        this.anchor.set(clampedAnchor);
+        this.caretPosition.set(clampedCaret);
+        selection.set(IndexRange.normalize(clampedAnchor, clampedCaret));
+    }
+
+    /**
+     * Moves the caret and the anchor to an offset, clearing the selection.
+     *
+     * @param position The new caret position.
+     */
+    public void positionCaret(int position) {
+        selectRange(position, position);
+    }
+
+    /**
+     * Moves the caret to an offset, extending the selection from the anchor.
+     *
+     * @param position The new caret position.
+     */
+    public void selectPositionCaret(int position) {
+        selectRange(getAnchor(), position);
+    }
+
+    /**
+     * Clears the selection, leaving the caret where it is.
+     */
+    public void deselect() {
+        positionCaret(getCaretPosition());
+    }
+
+    /**
+     * Selects the whole document, with the caret at its end.
+     */
+    public void selectAll() {
+        selectRange(0, document.length());
+    }
+
+    /**
+     * Moves the caret to the start of the document.
+     */
+    public void home() {
+        positionCaret(0);
+    }
+
+    /**
+     * Moves the caret to the end of the document.
+     */
+    public void end() {
+        positionCaret(document.length());
+    }
+
+    /**
+     * Moves the caret one character right, or to the end of the selection if there is one.
+     */
+    public void forward() {
+        IndexRange range = getSelection();
+        positionCaret(range.getLength() > 0 ? range.getEnd() : nextCharacter(getCaretPosition()));
+    }
+
+    /**
+     * Moves the caret one character left, or to the start of the selection if there is one.
+     */
+    public void backward() {
+        IndexRange range = getSelection();
+        positionCaret(range.getLength() > 0 ? range.getStart() : previousCharacter(getCaretPosition()));
+    }
+
+    /**
+     * Extends the selection one character right.
+     */
+    public void selectForward() {
+        selectPositionCaret(nextCharacter(getCaretPosition()));
+    }
+
+    /**
+     * Extends the selection one character left.
+     */
+    public void selectBackward() {
+        selectPositionCaret(previousCharacter(getCaretPosition()));
+    }
+
+    /**
+     * Moves the caret to the start of the current or previous word.
+     */
+    public void previousWord() {
+        positionCaret(previousWordStart(getCaretPosition()));
+    }
+
+    /**
+     * Moves the caret to the end of the current or next word.
+     */
+    public void endOfNextWord() {
+        positionCaret(nextWordEnd(getCaretPosition()));
+    }
+
+    /**
+     * Extends the selection to the start of the current or previous word.
+     */
+    public void selectPreviousWord() {
+        selectPositionCaret(previousWordStart(getCaretPosition()));
+    }
+
+    /**
+     * Extends the selection to the end of the current or next word.
+     */
+    public void selectEndOfNextWord() {
+        selectPositionCaret(nextWordEnd(getCaretPosition()));
+    }
+
+    /**
+     * Selects the word, or the run of other characters, around an offset, without crossing its line.
+     *
+     * @param offset The offset.
+     */
+    public void selectWord(int offset) {
+        int line = lineIndex.lineOfOffset(offset);
+        int lineStart = lineIndex.lineStart(line);
+        int lineEnd = lineIndex.lineEnd(line);
+        if (lineStart == lineEnd) {
+            positionCaret(offset);
+            return;
+        }
+
+        int at = Math.min(offset, lineEnd - 1);
+        boolean word = isWordCharacter(document.charAt(at));
+
+        int start = at;
+        while (start > lineStart && isWordCharacter(document.charAt(start - 1)) == word) start--;
+
+        int end = at + 1;
+        while (end < lineEnd && isWordCharacter(document.charAt(end)) == word) end++;
+
+        selectRange(start, end);
+    }
+
+    /**
+     * Deletes the selection, or the character before the caret if nothing is selected.
+     */
+    public void deletePreviousChar() {
+        int caret = getCaretPosition();
+
+        if (getSelection().getLength() > 0) replaceSelection("");
+        else if (caret > 0) deleteText(previousCharacter(caret), caret);
+    }
+
+    /**
+     * Deletes the selection, or the character after the caret if nothing is selected.
+     */
+    public void deleteNextChar() {
+        int caret = getCaretPosition();
+
+        if (getSelection().getLength() > 0) replaceSelection("");
+        else if (caret < document.length()) deleteText(caret, nextCharacter(caret));
+    }
+
+    /**
+     * Replaces the selection with the given text, leaving the caret after it.
+     *
+     * @param text The replacement text.
+     */
+    public void replaceSelection(String text) {
+        IndexRange range = getSelection();
+        replaceText(range.getStart(), range.getEnd(), text);
+    }
+
+    /**
+     * Inserts text at an offset.
+     *
+     * @param offset The offset at which the text is inserted.
+     * @param text   The text to insert.
+     */
+    public void insertText(int offset, String text) {
+        replaceText(offset, offset, text);
+    }
+
+    /**
+     * Appends text to the end of the document.
+     *
+     * @param text The text to append.
+     */
+    public void appendText(String text) {
+        insertText(document.length(), text);
+    }
+
+    /**
+     * Deletes a range of the document.
+     *
+     * @param range The range to delete.
+     */
+    public void deleteText(IndexRange range) {
+        deleteText(range.getStart(), range.getEnd());
+    }
+
+    /**
+     * Deletes a range of the document.
+     *
+     * @param start The start offset of the range (inclusive).
+     * @param end   The end offset of the range (exclusive).
+     */
+    public void deleteText(int start, int end) {
+        replaceText(start, end, "");
+    }
+
+    /**
+     * Removes the whole content of the document.
+     */
+    public void clear() {
+        deleteText(0, document.length());
+    }
+
+    /**
+     * Replaces a range of the document with the given text as one ranged edit that can be undone,
+     * and leaves the caret after the inserted text. Control characters other than new lines and
+     * tabs are dropped from the text, as a TextArea drops them.
+     *
+     * @param start The start offset of the range (inclusive).
+     * @param end   The end offset of the range (exclusive).
+     * @param text  The replacement text.
+     * @throws IndexOutOfBoundsException If the range is outside the document.
+     */
+    public void replaceText(int start, int end, String text) {
+        if (start < 0 || end > document.length() || start > end)
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + document.length());
+
+        String inserted = stripInvalidCharacters(text);
+        if (start == end && inserted.isEmpty()) return;
+
+        CharSequence removed = keep(start, end);
+        apply(start, end, inserted);
+
+        record(new Edit(start, removed, keep(start, start + inserted.length()), System.nanoTime()));
+        redoHistory.clear();
+        updateHistoryProperties();
+
+        positionCaret(start + inserted.length());
+    }
+
+    /**
+     * Undoes the last edit made through the control and selects the text it restored.
+     */
+    public void undo() {
+        Edit edit = undoHistory.pollLast();
+        if (edit == null) return;
+
+        apply(edit.start(), edit.start() + edit.inserted().length(), edit.removed());
+        redoHistory.addLast(edit);
+        updateHistoryProperties();
+
+        selectRange(edit.start(), edit.start() + edit.removed().length());
+    }
+
+    /**
+     * Redoes the last undone edit and places the caret after the text it inserted.
+     */
+    public void redo() {
+        Edit edit = redoHistory.pollLast();
+        if (edit == null) return;
+
+        apply(edit.start(), edit.start() + edit.removed().length(), edit.inserted());
+        undoHistory.addLast(edit);
+        updateHistoryProperties();
+
+        positionCaret(edit.start() + edit.inserted().length());
+    }
+
+    /**
+     * Copies the selected text to the clipboard.
+     */
+    public void copy() {
+        if (getSelection().getLength() == 0) return;
+
+        ClipboardContent content = new ClipboardContent();
+        content.putString(getSelectedText());
+        Clipboard.getSystemClipboard().setContent(content);
+    }
+
+    /**
+     * Copies the selected text to the clipboard and removes it from the document.
+     */
+    public void cut() {
+        if (getSelection().getLength() == 0) return;
+
+        copy();
+        replaceSelection("");
+    }
+
+    /**
+     * Replaces the selection with the text of the clipboard, if it holds any.
+     */
+    public void paste() {
+        Clipboard clipboard = Clipboard.getSystemClipboard();
+        if (clipboard.hasString()) replaceSelection(clipboard.getString());
+    }
+
+    /**
+     * Replaces a range of the document, marking the edit as made by the control so that it is
+     * not taken for an outside edit.
+     *
+     * @param start The start offset of the range (inclusive).
+     * @param end   The end offset of the range (exclusive).
+     * @param text  The replacement text.
+     */
+    private void apply(int start, int end, CharSequence text) {
+        editing = true;
+        try {
+            document.replace(start, end, text);
+        } finally {
+            editing = false;
+        }
+    }
+
+    /**
+     * Returns a range of the document as kept by the undo history: a copy if it is short, a view
+     * over the chunks of the document otherwise, which holds the range as it is now whatever edits
+     * follow.
+     *
+     * @param start The start offset of the range (inclusive).
+     * @param end   The end offset of the range (exclusive).
+     * @return The text of the range.
+     */
+    private CharSequence keep(int start, int end) {
+        if (end - start <= COPY_LIMIT) return document.subSequence(start, end).toString();
+        return new ChunkedText(document.chunks(start, end));
+    }
+
+    /**
+     * Adds an edit to the undo history, merging it with the previous one when both type or delete
+     * single adjacent characters in quick succession, so that undo removes a typed run at once.
+     *
+     * @param edit The edit.
+     */
+    private void record(Edit edit) {
+        Edit last = undoHistory.peekLast();
+
+        if (last != null && edit.time() - last.time() < MERGE_INTERVAL_NANOS) {
+            Edit merged = last.merge(edit);
+
+            if (merged != null) {
+                undoHistory.removeLast();
+                undoHistory.addLast(merged);
+                return;
+            }
+        }
+
+        undoHistory.addLast(edit);
+    }
+
+    /**
+     * Updates the undoable and redoable properties from the histories.
+     */
+    private void updateHistoryProperties() {
+        undoable.set(!undoHistory.isEmpty());
+        redoable.set(!redoHistory.isEmpty());
+    }
+
+    /**
+     * Follows an edit made to the document without the control: the caret and the anchor move with
+     * the text around them, and the undo history, whose offsets no longer apply, is cleared.
+     *
+     * @param start    The start offset of the replaced range.
+     * @param end      The end offset of the replaced range before the edit.
+     * @param inserted The length of the inserted text.
+     */
+    private void onExternalEdit(int start, int end, int inserted) {
+        undoHistory.clear();
+        redoHistory.clear();
+        updateHistoryProperties();
+
+        selectRange(shift(getAnchor(), start, end, inserted), shift(getCaretPosition(), start, end, inserted));
+    }
+
+    /**
+     * Returns where an offset lands after a range of the document was replaced.
+     *
+     * @param offset   The offset before the edit.
+     * @param start    The start offset of the replaced range.
+     * @param end      The end offset of the replaced range before the edit.
+     * @param inserted The length of the inserted text.
+     * @return The offset after the edit.
+     */
+    private static int shift(int offset, int start, int end, int inserted) {
+        if (offset <= start) return offset;
+        if (offset >= end) return offset + inserted - (end - start);
+        return start;
+    }
+
+    /**
+     * Returns the offset after the character at an offset, keeping surrogate pairs together.
+     *
+     * @param offset The offset.
+     * @return The next character boundary, or the length of the document at its end.
+     */
+    private int nextCharacter(int offset) {
+        if (offset >= document.length()) return document.length();
+        return Character.offsetByCodePoints(document, offset, 1);
+    }
+
+    /**
+     * Returns the offset of the character before an offset, keeping surrogate pairs together.
+     *
+     * @param offset The offset.
+     * @return The previous character boundary, or zero at the start of the document.
+     */
+    private int previousCharacter(int offset) {
+        if (offset <= 0) return 0;
+        return Character.offsetByCodePoints(document, offset, -1);
+    }
+
+    /**
+     * Returns the start of the word before an offset, skipping the characters between them.
+     *
+     * @param offset The offset.
+     * @return The offset of the start of the word.
+     */
+    private int previousWordStart(int offset) {
+        int position = offset;
+        while (position > 0 && !isWordCharacter(document.charAt(position - 1))) position--;
+        while (position > 0 && isWordCharacter(document.charAt(position - 1))) position--;
+        return position;
+    }
+
+    /**
+     * Returns the end of the word after an offset, skipping the characters between them.
+     *
+     * @param offset The offset.
+     * @return The offset of the end of the word.
+     */
+    private int nextWordEnd(int offset) {
+        int length = document.length();
+        int position = offset;
+        while (position < length && !isWordCharacter(document.charAt(position))) position++;
+        while (position < length && isWordCharacter(document.charAt(position))) position++;
+        return position;
+    }
+
+    /**
+     * Determines whether a character belongs to a word.
+     *
+     * @param c The character.
+     * @return True for letters, digits and underscores.
+     */
+    private static boolean isWordCharacter(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * Removes the control characters the document does not hold.
+     *
+     * @param text The text of an edit.
+     * @return The text without control characters other than new lines and tabs.
+     */
+    private static String stripInvalidCharacters(String text) {
+        int i = 0;
+        while (i < text.length() && !isInvalidCharacter(text.charAt(i))) {
+            i++;
+        }
+
+        if (i == text.length()) return text;
+
+        StringBuilder stringBuilder = new StringBuilder(text.length());
+        for (int j = 0; j < text.length(); j++) {
+            char c = text.charAt(j);
+            if (!isInvalidCharacter(c)) stringBuilder.append(c);
+        }
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Determines whether a character is left out of the document.
+     *
+     * @param c The character to check.
+     * @return True for control characters other than new lines and tabs, false otherwise.
+     */
+    private static boolean isInvalidCharacter(char c) {
+        return (c < 0x20 && c != '\n' && c != '\t') || c == 0x7F;
+    }
+
+    /**
+     * An edit recorded in the undo history.
+     *
+     * @param start    The offset where the edit starts.
+     * @param removed  The text the edit removed, a copy or a view over the document.
+     * @param inserted The text the edit inserted, a copy or a view over the document.
+     * @param time     The time of the edit, from {@link System#nanoTime()}.
+     */
+    private record Edit(int start, CharSequence removed, CharSequence inserted, long time) {
+
+        /**
+         * Merges this edit with the next one if both type, or both delete, a single character next
+         * to each other.
+         *
+         * @param next The next edit.
+         * @return The merged edit, or null if the edits do not merge.
+         */
+        Edit merge(Edit next) {
+            if (removed.isEmpty() && next.removed.isEmpty() && next.inserted.length() == 1
+                    && next.inserted.charAt(0) != '\n' && next.start == start + inserted.length())
+                return new Edit(start, "", inserted.toString() + next.inserted, next.time);
+
+            if (!inserted.isEmpty() || !next.inserted.isEmpty() || next.removed.length() != 1) return null;
+
+            if (next.start + 1 == start)
+                return new Edit(next.start, next.removed.toString() + removed, "", next.time);
+
+            if (next.start == start)
+                return new Edit(start, removed.toString() + next.removed, "", next.time);
+
+            return null;
+        }
+    }
+}
@@ -39,6 +39,7 @@ public class EditMenu extends Menu implements CustomMenu {
         configurePasteMenuItem();
         configureDeleteMenuItem();
         configureSelectAllMenuItem();
+        configureGoToLineMenuItem();
     }
 
     /**
@@ -111,6 +112,15 @@ public class EditMenu extends Menu implements CustomMenu {
         addComponents(selectAllItem);
     }
 
+    /**
+     * Configures the menu item for going to a line of the current tab.
+     */
+    private void configureGoToLineMenuItem() {
+        MenuItem goToLineItem = createMenuItem("Ir para a linha...", eventController::onGoToLineEvent,
+                KeyCode.G, KeyCombination.CONTROL_DOWN);
+        addComponents(goToLineItem);
+    }
+
     /**
      * Adds an array of MenuItems to the menu.
      *
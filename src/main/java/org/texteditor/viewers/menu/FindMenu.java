@@ -34,6 +34,8 @@ public class FindMenu extends Menu implements CustomMenu {
         configureFindMenuItem();
         configureFindAndReplaceMenuItem();
         configureFindNearbyMenuItem();
+        configureFindPreviousMenuItem();
+        configureFindInFilesMenuItem();
     }
 
     /**
@@ -66,6 +68,26 @@ public class FindMenu extends Menu implements CustomMenu {
         addComponents(findNearbyItem);
     }
 
+    /**
+     * Configures the Find Previous menu item and its associated action.
+     */
+    private void configureFindPreviousMenuItem() {
+        MenuItem findPreviousItem = createMenuItem("Localizar anterior", eventController::onFindPreviousEvent,
+                KeyCode.F3, KeyCombination.SHIFT_DOWN);
+        findPreviousItem.setGraphic(createIcon("find.png"));
+        addComponents(findPreviousItem);
+    }
+
+    /**
+     * Configures the Find in Files menu item and its associated action.
+     */
+    private void configureFindInFilesMenuItem() {
+        MenuItem findInFilesItem = createMenuItem("Localizar nos arquivos...", eventController::onFindInFilesEvent,
+                KeyCode.F, KeyCombination.CONTROL_DOWN, KeyCombination.SHIFT_DOWN);
+        findInFilesItem.setGraphic(createIcon("find_in_file.png"));
+        addComponents(findInFilesItem);
+    }
+
     /**
      * Adds an array of MenuItems to the menu.
      *
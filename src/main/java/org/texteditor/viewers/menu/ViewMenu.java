@@ -35,6 +35,7 @@ public class ViewMenu extends Menu implements CustomMenu {
         configureLargeMenuItem();
         configureReduceMenuItem();
         configureRestoreDefaultZoomMenuItem();
+        configureFollowMenuItem();
     }
 
     /**
@@ -67,6 +68,15 @@ public class ViewMenu extends Menu implements CustomMenu {
         addComponents(restoreDefaultZoomItem);
     }
 
+    /**
+     * Configures the menu item for following the file of the current tab as it grows.
+     */
+    private void configureFollowMenuItem() {
+        MenuItem followItem = createMenuItem("Acompanhar arquivo", eventController::onFollowEvent,
+                KeyCode.T, KeyCombination.CONTROL_DOWN);
+        addComponents(followItem);
+    }
+
     /**
      * Adds an array of MenuItems to the menu.
      *
@@ -165,10 +165,11 @@ public class AlertPane extends BorderPane implements CustomPane {
 
             stage.close();
 
-            if (selectedTab.getTabPane().getTabs().size() == 1)
+            boolean lastTab = tabPane.getTabs().size() == 1;
+            tabPane.getTabs().remove(selectedTab);
+
+            if (lastTab)
                 Platform.exit();
-            else
-                selectedTab.getTabPane().getTabs().remove(selectedTab);
         });
         return button;
     }
@@ -7,10 +7,11 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import org.texteditor.controllers.EventController;
 import org.texteditor.viewers.tab.find.FindAndReplaceTab;
+import org.texteditor.viewers.tab.find.FindInFilesTab;
 import org.texteditor.viewers.tab.find.FindTab;
 
 /**
- * The FindPane class represents a custom BorderPane used for displaying find and find-and-replace tabs.
+ * The FindPane class represents a custom BorderPane used for displaying find, find-and-replace and find-in-files tabs.
  * It provides methods to configure the pane with tabs and additional components.
  */
 public class FindPane extends BorderPane implements CustomPane {
@@ -30,7 +31,7 @@ public class FindPane extends BorderPane implements CustomPane {
     }
 
     /**
-     * Configures the FindPane by creating and adding find and find-and-replace tabs, and setting the layout.
+     * Configures the FindPane by creating and adding find, find-and-replace and find-in-files tabs, and setting the layout.
      */
     @Override
     public void configure() {
@@ -42,7 +43,10 @@ public class FindPane extends BorderPane implements CustomPane {
         FindAndReplaceTab findAndReplaceTab = new FindAndReplaceTab(eventController);
         findAndReplaceTab.configure();
 
-        addComponents(tabPane, findTab, findAndReplaceTab);
+        FindInFilesTab findInFilesTab = new FindInFilesTab(eventController);
+        findInFilesTab.configure();
+
+        addComponents(tabPane, findTab, findAndReplaceTab, findInFilesTab);
 
         tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
 
@@ -0,0 +1,192 @@
+package org.texteditor.viewers.pane;
+
+import javafx.geometry.Bounds;
+import javafx.geometry.Insets;
+import javafx.geometry.Point2D;
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import org.texteditor.model.document.LineIndex;
+import org.texteditor.model.document.TextDocument;
+import org.texteditor.search.MatchBounds;
+import org.texteditor.viewers.control.DocumentArea;
+import org.texteditor.viewers.skin.DocumentViewSkin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The HighlightPane class highlights the matches of a search over a DocumentArea.
+ * It lies on top of the DocumentArea without taking its mouse events. Like the LineNumberPane,
+ * only the lines inside the viewport are painted, with a small pool of recycled rectangles,
+ * so the cost of a refresh does not depend on the number of matches in the document.
+ * The positions come from the skin of the DocumentArea, from the advances it caches and the
+ * checkpoints it keeps on long lines, so the highlights line up with the text as drawn.
+ * The highlights are removed as soon as the text is edited, since their offsets no longer apply.
+ */
+public class HighlightPane extends Pane implements CustomPane {
+
+    private static final int MAX_HIGHLIGHTS = 512;
+    private static final Color HIGHLIGHT_COLOR = Color.rgb(255, 200, 0, 0.4);
+
+    private final DocumentArea documentArea;
+    private final TextDocument document;
+    private final LineIndex lineIndex;
+
+    private final List<Rectangle> cells = new ArrayList<>();
+    private final Rectangle clip = new Rectangle();
+
+    private MatchBounds matches = new MatchBounds();
+
+    /**
+     * Constructs a new HighlightPane over the given DocumentArea.
+     *
+     * @param documentArea The DocumentArea whose text is highlighted.
+     * @param document     The document edited by the DocumentArea.
+     * @param lineIndex    The line index of the document.
+     */
+    public HighlightPane(DocumentArea documentArea, TextDocument document, LineIndex lineIndex) {
+        super();
+        this.documentArea = documentArea;
+        this.document = document;
+        this.lineIndex = lineIndex;
+    }
+
+    /**
+     * Configures the HighlightPane to follow the bounds, scroll position and font of the DocumentArea, and the
+     * edits of its document.
+     */
+    @Override
+    public void configure() {
+        setId("highlight-pane");
+        setManaged(false);
+        setMouseTransparent(true);
+        setClip(clip);
+
+        documentArea.boundsInParentProperty().addListener((observable, oldBounds, bounds) ->
+                resizeRelocate(bounds.getMinX(), bounds.getMinY(), bounds.getWidth(), bounds.getHeight()));
+        documentArea.scrollTopProperty().addListener(observable -> requestLayout());
+        documentArea.scrollLeftProperty().addListener(observable -> requestLayout());
+        documentArea.fontProperty().addListener(observable -> requestLayout());
+        document.addDocumentListener((editedDocument, start, end, inserted) -> clear());
+    }
+
+    /**
+     * Adds matches to highlight, after the ones already highlighted.
+     *
+     * @param batch The matches, in order, all after the current ones.
+     */
+    public void addMatches(MatchBounds batch) {
+        matches.addAll(batch, 0);
+        requestLayout();
+    }
+
+    /**
+     * Removes every highlight.
+     */
+    public void clear() {
+        if (matches.size() == 0) return;
+
+        matches = new MatchBounds();
+        requestLayout();
+    }
+
+    /**
+     * Lays out one recycled rectangle per visible match, or per line of a match spanning lines.
+     * Positions are measured from the content node of the DocumentArea, which already moves with the
+     * scroll position.
+     */
+    @Override
+    protected void layoutChildren() {
+        int used = 0;
+
+        Region content = (Region) documentArea.lookup(".content");
+        Node viewport = documentArea.lookup(".viewport");
+
+        if (documentArea.getSkin() instanceof DocumentViewSkin skin && content != null && viewport != null
+                && matches.size() > 0) {
+            Bounds visible = sceneToLocal(viewport.localToScene(viewport.getLayoutBounds()));
+            clip.setX(visible.getMinX());
+            clip.setY(visible.getMinY());
+            clip.setWidth(visible.getWidth());
+            clip.setHeight(visible.getHeight());
+
+            Insets padding = content.getInsets();
+            Point2D origin = sceneToLocal(content.localToScene(padding.getLeft(), padding.getTop()));
+
+            if (skin.getLineHeight() > 0)
+                used = layoutVisibleMatches(skin, origin, visible);
+        }
+
+        for (int i = used; i < cells.size(); i++) {
+            cells.get(i).setVisible(false);
+        }
+    }
+
+    /**
+     * Places the rectangles of the matches on the visible lines.
+     *
+     * @param skin    The skin drawing the DocumentArea.
+     * @param origin  The position of the start of the first line.
+     * @param visible The bounds of the viewport.
+     * @return The number of rectangles used.
+     */
+    private int layoutVisibleMatches(DocumentViewSkin skin, Point2D origin, Bounds visible) {
+        double lineHeight = skin.getLineHeight();
+        int lineCount = lineIndex.lineCount();
+        int firstLine = (int) Math.max(0, Math.floor((visible.getMinY() - origin.getY()) / lineHeight));
+        int lastLine = (int) Math.min(lineCount - 1, Math.ceil((visible.getMaxY() - origin.getY()) / lineHeight));
+        if (firstLine >= lineCount || lastLine < firstLine) return 0;
+
+        int visibleStart = lineIndex.lineStart(firstLine);
+        int visibleEnd = lineIndex.lineEnd(lastLine);
+        int used = 0;
+
+        for (int i = matches.firstEndingAfter(visibleStart); i < matches.size() && used < MAX_HIGHLIGHTS; i++) {
+            int start = Math.max(matches.start(i), visibleStart);
+            int end = Math.min(matches.end(i), visibleEnd);
+            if (start > visibleEnd || end > document.length()) break;
+
+            for (int line = lineIndex.lineOfOffset(start); start < end && used < MAX_HIGHLIGHTS; line++) {
+                int segmentEnd = Math.min(end, lineIndex.lineEnd(line));
+
+                double startX = skin.xOfOffset(start);
+                double x = origin.getX() + startX;
+                double width = Math.max(1.0, skin.xOfOffset(segmentEnd) - startX);
+                double y = origin.getY() + line * lineHeight;
+
+                Rectangle cell = ensureCell(used++);
+                cell.setX(x);
+                cell.setY(y);
+                cell.setWidth(width);
+                cell.setHeight(lineHeight);
+                cell.setVisible(true);
+
+                start = lineIndex.lineEnd(line) + 1;
+            }
+        }
+
+        return used;
+    }
+
+    /**
+     * Returns the rectangle at the given position of the pool, creating it if needed.
+     *
+     * @param index The position in the pool.
+     * @return The rectangle.
+     */
+    private Rectangle ensureCell(int index) {
+        while (cells.size() <= index) {
+            Rectangle cell = new Rectangle();
+            cell.setFill(HIGHLIGHT_COLOR);
+            cell.setManaged(false);
+
+            cells.add(cell);
+            getChildren().add(cell);
+        }
+
+        return cells.get(index);
+    }
+}
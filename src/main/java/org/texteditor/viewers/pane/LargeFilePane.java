@@ -0,0 +1,217 @@
+package org.texteditor.viewers.pane;
+
+import javafx.collections.ObservableListBase;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import org.texteditor.io.LargeTextFile;
+
+/**
+ * The LargeFilePane class shows a large file, read-only, one row per line. The rows are virtual:
+ * the list only asks the file for the lines it displays, which are paged in from the file on
+ * demand, so scrolling costs the same anywhere in the file. Rows are added as the line index of
+ * the file is built, and whole lines can be selected and copied.
+ */
+public class LargeFilePane extends ListView<String> implements CustomPane {
+
+    private static final Font FONT = Font.font("Monospaced", 12.0);
+    private static final double ROW_PADDING = 6.0;
+
+    private final LargeTextFile file;
+    private final Lines lines;
+
+    /**
+     * Constructs a new LargeFilePane showing the given file.
+     *
+     * @param file The file to show.
+     */
+    public LargeFilePane(LargeTextFile file) {
+        super();
+        this.file = file;
+        this.lines = new Lines();
+    }
+
+    /**
+     * Configures the list of lines, with fixed-height rows numbered like the lines of a tab.
+     */
+    @Override
+    public void configure() {
+        setId("large-file-pane");
+        setItems(lines);
+        getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+
+        Text measuringText = new Text("0");
+        measuringText.setFont(FONT);
+        setFixedCellSize(Math.ceil(measuringText.getLayoutBounds().getHeight() + ROW_PADDING));
+
+        setCellFactory(listView -> new LineCell());
+    }
+
+    /**
+     * Returns the file shown by the pane.
+     *
+     * @return The file.
+     */
+    public LargeTextFile getFile() {
+        return file;
+    }
+
+    /**
+     * Adds the rows of the lines indexed since the last refresh.
+     */
+    public void refresh() {
+        lines.grow();
+    }
+
+    /**
+     * Adds the rows of the lines indexed since the last refresh, as {@link #refresh()} does. If the
+     * last line had the focus, the new last line takes it, and is scrolled to.
+     */
+    public void grow() {
+        int lastRow = lines.size() - 1;
+        boolean following = getFocusModel().getFocusedIndex() == lastRow;
+
+        refresh();
+
+        int newLastRow = lines.size() - 1;
+        if (!following || newLastRow == lastRow) return;
+
+        getSelectionModel().clearAndSelect(newLastRow);
+        getFocusModel().focus(newLastRow);
+        scrollTo(newLastRow);
+    }
+
+    /**
+     * Scrolls to a line and selects it, or the last indexed line if the line is not indexed yet.
+     *
+     * @param line The zero-based line.
+     */
+    public void goToLine(int line) {
+        refresh();
+
+        int row = Math.max(0, Math.min(line, lines.size() - 1));
+        int visibleRows = (int) (getHeight() / getFixedCellSize());
+
+        scrollTo(Math.max(0, row - visibleRows / 2));
+        getSelectionModel().clearAndSelect(row);
+        getFocusModel().focus(row);
+        requestFocus();
+    }
+
+    /**
+     * Returns the line holding the focus, where searches start.
+     *
+     * @return The zero-based line, or -1 if no line has the focus.
+     */
+    public int getCurrentLine() {
+        return getFocusModel().getFocusedIndex();
+    }
+
+    /**
+     * Returns the selected lines, joined by line feeds.
+     *
+     * @param maxLines The maximum number of lines returned.
+     * @return The text of the first selected lines, in order.
+     */
+    public String getSelectedText(int maxLines) {
+        StringBuilder text = new StringBuilder();
+        int count = 0;
+
+        for (int row : getSelectionModel().getSelectedIndices()) {
+            if (count++ == maxLines) break;
+            if (count > 1) text.append('\n');
+            text.append(file.line(row));
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * The lines of the file as a list, reading each line only when the list displays it.
+     */
+    private class Lines extends ObservableListBase<String> {
+
+        private int size = file.lineCount();
+
+        /**
+         * Returns a line of the file.
+         *
+         * @param index The zero-based line.
+         * @return The text of the line.
+         */
+        @Override
+        public String get(int index) {
+            return file.line(index);
+        }
+
+        /**
+         * Returns the number of rows, the lines indexed at the last refresh.
+         *
+         * @return The number of rows.
+         */
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Adds the rows of the newly indexed lines. The last row is updated as well, since its line
+         * may have been read before it was complete.
+         */
+        void grow() {
+            int newSize = file.lineCount();
+            if (newSize <= size) return;
+
+            beginChange();
+            nextUpdate(size - 1);
+            nextAdd(size, newSize);
+            size = newSize;
+            endChange();
+        }
+    }
+
+    /**
+     * A row showing the number and the text of a line.
+     */
+    private static class LineCell extends ListCell<String> {
+
+        private final Label number = new Label();
+
+        /**
+         * Constructs a new, empty LineCell.
+         */
+        LineCell() {
+            super();
+            number.setFont(FONT);
+            number.setAlignment(Pos.CENTER_RIGHT);
+            number.setMinWidth(70.0);
+            number.setStyle("-fx-text-fill: gray;");
+            setFont(FONT);
+        }
+
+        /**
+         * Shows the given line.
+         *
+         * @param line  The text of the line.
+         * @param empty Whether the row shows no line.
+         */
+        @Override
+        protected void updateItem(String line, boolean empty) {
+            super.updateItem(line, empty);
+
+            if (empty || line == null) {
+                setText(null);
+                setGraphic(null);
+                return;
+            }
+
+            number.setText(Integer.toString(getIndex() + 1));
+            setText(line);
+            setGraphic(number);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.texteditor.viewers.pane;
+
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Pane;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import org.texteditor.model.document.LineIndex;
+import org.texteditor.viewers.control.DocumentArea;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The LineNumberPane class displays the line numbers of a DocumentArea.
+ * Only the rows inside the viewport are rendered: a small pool of labels is recycled and
+ * positioned from the DocumentArea's scroll position, so the cost of a refresh depends on the
+ * height of the pane and not on the number of lines in the document.
+ */
+public class LineNumberPane extends Pane implements CustomPane {
+
+    private static final double DEFAULT_WIDTH = 40.0;
+    private static final double RIGHT_PADDING = 6.0;
+
+    private final DocumentArea documentArea;
+    private final LineIndex lineIndex;
+
+    private final List<Label> cells = new ArrayList<>();
+    private final Text measuringText = new Text("0");
+
+    /**
+     * Constructs a new LineNumberPane for the given DocumentArea and line index.
+     *
+     * @param documentArea The DocumentArea whose lines are numbered.
+     * @param lineIndex    The line index of the document edited by the DocumentArea.
+     */
+    public LineNumberPane(DocumentArea documentArea, LineIndex lineIndex) {
+        super();
+        this.documentArea = documentArea;
+        this.lineIndex = lineIndex;
+    }
+
+    /**
+     * Configures the LineNumberPane, clipping it to its bounds and following the scroll
+     * position and font of the DocumentArea.
+     */
+    @Override
+    public void configure() {
+        setId("line-box");
+        setPrefWidth(DEFAULT_WIDTH);
+
+        Rectangle clip = new Rectangle();
+        clip.widthProperty().bind(widthProperty());
+        clip.heightProperty().bind(heightProperty());
+        setClip(clip);
+
+        documentArea.scrollTopProperty().addListener(observable -> requestLayout());
+        documentArea.fontProperty().addListener(observable -> requestLayout());
+    }
+
+    /**
+     * Refreshes the visible line numbers, typically after the document changed.
+     */
+    public void refresh() {
+        requestLayout();
+    }
+
+    /**
+     * Lays out one recycled label per visible line.
+     */
+    @Override
+    protected void layoutChildren() {
+        Font font = documentArea.getFont();
+        measuringText.setFont(font);
+
+        double lineHeight = measuringText.getLayoutBounds().getHeight();
+        if (lineHeight <= 0) return;
+
+        Insets insets = getInsets();
+        double top = insets.getTop() + font.getSize() / 3.0;
+        double scrollTop = documentArea.getScrollTop();
+
+        int firstLine = Math.max(0, (int) Math.floor((scrollTop - top) / lineHeight));
+        int visibleRows = (int) Math.ceil(getHeight() / lineHeight) + 1;
+        int lastLine = Math.min(lineIndex.lineCount(), firstLine + visibleRows);
+
+        int rows = Math.max(0, lastLine - firstLine);
+        ensureCells(rows);
+
+        double cellWidth = Math.max(0, getWidth() - insets.getLeft() - RIGHT_PADDING);
+
+        for (int i = 0; i < cells.size(); i++) {
+            Label cell = cells.get(i);
+
+            if (i >= rows) {
+                cell.setVisible(false);
+                continue;
+            }
+
+            String number = Integer.toString(firstLine + i + 1);
+            if (!number.equals(cell.getText())) cell.setText(number);
+
+            cell.setVisible(true);
+            cell.resizeRelocate(insets.getLeft(), top + (firstLine + i) * lineHeight - scrollTop,
+                    cellWidth, lineHeight);
+        }
+    }
+
+    /**
+     * Makes sure the pool holds at least the given number of labels.
+     *
+     * @param count The number of labels required.
+     */
+    private void ensureCells(int count) {
+        while (cells.size() < count) {
+            Label cell = new Label();
+            cell.setAlignment(Pos.CENTER_RIGHT);
+            cell.setManaged(false);
+
+            cells.add(cell);
+            getChildren().add(cell);
+        }
+    }
+}
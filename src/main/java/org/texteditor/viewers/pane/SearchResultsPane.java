@@ -0,0 +1,108 @@
+package org.texteditor.viewers.pane;
+
+import javafx.scene.control.Label;
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeView;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import org.texteditor.search.LineHit;
+import org.texteditor.search.LineHitCollector;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The SearchResultsPane class lists the matches of a search over several texts, grouped by text.
+ * Groups are added one by one as the texts are searched, and clicking a match opens it.
+ */
+public class SearchResultsPane extends BorderPane implements CustomPane {
+
+    private final TreeView<String> treeView = new TreeView<>();
+    private final TreeItem<String> root = new TreeItem<>();
+    private final Map<TreeItem<String>, Runnable> openActions = new HashMap<>();
+    private final Label infoLabel = new Label("");
+
+    /**
+     * Constructs a new, empty SearchResultsPane.
+     */
+    public SearchResultsPane() {
+        super();
+    }
+
+    /**
+     * Configures the tree of results, opening a match on a click or on Enter, and the information label.
+     */
+    @Override
+    public void configure() {
+        setId("search-results-pane");
+
+        treeView.setRoot(root);
+        treeView.setShowRoot(false);
+
+        treeView.setOnMouseClicked(event -> {
+            if (event.getButton() == MouseButton.PRIMARY) openSelected();
+        });
+        treeView.setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.ENTER) openSelected();
+        });
+
+        HBox infoPane = new HBox(infoLabel);
+        infoPane.setPrefHeight(20.0);
+
+        setCenter(treeView);
+        setBottom(infoPane);
+    }
+
+    /**
+     * Removes every result.
+     */
+    public void clear() {
+        root.getChildren().clear();
+        openActions.clear();
+        infoLabel.setText("");
+    }
+
+    /**
+     * Adds the matches found in one text, under a group named after it.
+     *
+     * @param title  The name of the text.
+     * @param hits   The matches, in order.
+     * @param onOpen The action opening a match.
+     */
+    public void addResults(String title, List<LineHit> hits, Consumer<LineHit> onOpen) {
+        String count = hits.size() >= LineHitCollector.MAX_HITS ? hits.size() + "+" : String.valueOf(hits.size());
+        TreeItem<String> group = new TreeItem<>(title + " (" + count + ")");
+
+        for (LineHit hit : hits) {
+            TreeItem<String> item = new TreeItem<>("Linha " + hit.line() + ": " + hit.preview());
+            openActions.put(item, () -> onOpen.accept(hit));
+            group.getChildren().add(item);
+        }
+
+        root.getChildren().add(group);
+    }
+
+    /**
+     * Shows a message under the results, such as the progress of the search.
+     *
+     * @param text The message.
+     */
+    public void setInfo(String text) {
+        infoLabel.setText(text);
+    }
+
+    /**
+     * Opens the selected match. Selecting a group only expands or collapses it.
+     */
+    private void openSelected() {
+        TreeItem<String> selected = treeView.getSelectionModel().getSelectedItem();
+        if (selected == null) return;
+
+        Runnable action = openActions.get(selected);
+        if (action != null) action.run();
+    }
+}
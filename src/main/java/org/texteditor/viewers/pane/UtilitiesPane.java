@@ -73,6 +73,7 @@ public class UtilitiesPane extends AnchorPane {
                 createButton(createIcon("remake.png"), "Refazer", eventController::onRemakeEvent),
                 createButton(createIcon("find.png"), "Localizar...", eventController::onFindEvent),
                 createButton(createIcon("find_replace.png"), "Substituir...", eventController::onFindAndReplaceEvent),
+                createButton(createIcon("find_in_file.png"), "Localizar nos arquivos...", eventController::onFindInFilesEvent),
                 createButton(createIcon("zoom_in.png"), "Ampliar", eventController::onEnlargeEvent),
                 createButton(createIcon("zoom_out.png"), "Reduzir", eventController::onReduceEvent)};
     }
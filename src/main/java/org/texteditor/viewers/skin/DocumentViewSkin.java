@@ -0,0 +1,1154 @@
+package org.texteditor.viewers.skin;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.InvalidationListener;
+import javafx.beans.value.ChangeListener;
+import javafx.event.EventHandler;
+import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
+import javafx.geometry.Point2D;
+import javafx.geometry.VPos;
+import javafx.scene.Cursor;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.IndexRange;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.SeparatorMenuItem;
+import javafx.scene.control.SkinBase;
+import javafx.scene.input.InputMethodEvent;
+import javafx.scene.input.InputMethodRequests;
+import javafx.scene.input.InputMethodTextRun;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.util.Duration;
+import org.texteditor.model.document.DocumentListener;
+import org.texteditor.model.document.LineIndex;
+import org.texteditor.model.document.TextDocument;
+import org.texteditor.viewers.control.DocumentArea;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The DocumentViewSkin class draws a {@link DocumentArea} from the document it edits, on a canvas the
+ * size of the viewport. Only the visible lines are read from the document, at the offsets given by its
+ * line index, so the cost of a frame depends on the size of the viewport and not on the size of the
+ * document, whereas the skin of a TextArea lays out the whole text and becomes unusable past a few
+ * megabytes.
+ * <p>
+ * The skin turns keys, mouse and input method events into the editing methods of the control, which
+ * owns the caret, the selection, the undo history and the scroll position. Lines are not wrapped, and
+ * characters are placed one after the other with their own advance, which suits text drawn left to
+ * right without shaping.
+ * <p>
+ * On long lines, the position of every {@value #CHECKPOINT_INTERVAL}th character is kept once measured,
+ * so that drawing a line scrolled far to the right, or placing the caret deep into it, walks from the
+ * nearest checkpoint rather than from the start of the line. Past its last checkpoint, the width of a
+ * long line is estimated from the characters measured so far.
+ */
+public final class DocumentViewSkin extends SkinBase<DocumentArea> {
+
+    private static final int TAB_SIZE = 8;
+    private static final int CHECKPOINT_INTERVAL = 1024;
+    private static final Duration CARET_BLINK_PERIOD = Duration.millis(500);
+
+    private static final Color TEXT_COLOR = Color.BLACK;
+    private static final Color SELECTION_COLOR = Color.rgb(0, 150, 201);
+    private static final Color UNFOCUSED_SELECTION_COLOR = Color.rgb(211, 211, 211);
+    private static final Color SELECTED_TEXT_COLOR = Color.WHITE;
+    private static final Color COMPOSED_TEXT_COLOR = Color.WHITE;
+
+    private final TextDocument document;
+    private final LineIndex lineIndex;
+
+    private final Pane viewport = new Pane();
+    private final Region content = new Region();
+    private final Canvas canvas = new Canvas();
+    private final Rectangle clip = new Rectangle();
+    private final ScrollBar verticalScrollBar = new ScrollBar();
+    private final ScrollBar horizontalScrollBar = new ScrollBar();
+
+    private final Text measuringText = new Text();
+    private final double[] latinAdvances = new double[256];
+    private final Map<Integer, Double> otherAdvances = new HashMap<>();
+    private Map<Integer, Checkpoints> lineCheckpoints = new HashMap<>();
+
+    private final Timeline caretBlink = new Timeline();
+
+    private final InvalidationListener redrawListener = observable -> getSkinnable().requestLayout();
+    private final ChangeListener<Number> caretListener = (observable, oldPosition, position) -> onCaretMoved();
+    private final InvalidationListener focusListener = observable -> onFocusChanged();
+    private final EventHandler<KeyEvent> keyPressedHandler = this::onKeyPressed;
+    private final EventHandler<KeyEvent> keyTypedHandler = this::onKeyTyped;
+    private final DocumentListener documentListener = (editedDocument, start, end, inserted) -> {
+        moveCheckpoints(start, end, inserted.length());
+        getSkinnable().requestLayout();
+    };
+
+    private Font font;
+    private double lineHeight;
+    private double baselineOffset;
+    private double contentWidth;
+
+    private double preferredCaretX = -1;
+    private boolean caretVisible = true;
+    private boolean caretFollowed;
+    private String composedText = "";
+
+    /**
+     * Constructs a new DocumentViewSkin for the given DocumentArea.
+     *
+     * @param documentArea The DocumentArea drawn by the skin.
+     */
+    public DocumentViewSkin(DocumentArea documentArea) {
+        super(documentArea);
+        this.document = documentArea.getDocument();
+        this.lineIndex = documentArea.getLineIndex();
+
+        configureViewport();
+        configureScrollBars();
+        configureCaretBlink();
+        configureInputMethod();
+        configureContextMenu();
+
+        documentArea.selectionProperty().addListener(redrawListener);
+        documentArea.fontProperty().addListener(redrawListener);
+        documentArea.scrollTopProperty().addListener(redrawListener);
+        documentArea.scrollLeftProperty().addListener(redrawListener);
+        documentArea.caretPositionProperty().addListener(caretListener);
+        documentArea.focusedProperty().addListener(focusListener);
+        documentArea.addEventHandler(KeyEvent.KEY_PRESSED, keyPressedHandler);
+        documentArea.addEventHandler(KeyEvent.KEY_TYPED, keyTypedHandler);
+        document.addDocumentListener(documentListener);
+
+        getChildren().addAll(viewport, verticalScrollBar, horizontalScrollBar);
+        onFocusChanged();
+    }
+
+    /**
+     * Configures the viewport holding the canvas, and the content region that follows the scroll
+     * position so that the panes laid over the DocumentArea find the origin of the text.
+     */
+    private void configureViewport() {
+        viewport.getStyleClass().add("viewport");
+        viewport.setCursor(Cursor.TEXT);
+        viewport.setClip(clip);
+
+        content.getStyleClass().add("content");
+        content.setManaged(false);
+        content.setMouseTransparent(true);
+
+        canvas.setManaged(false);
+        viewport.getChildren().addAll(canvas, content);
+
+        viewport.addEventHandler(MouseEvent.MOUSE_PRESSED, this::onMousePressed);
+        viewport.addEventHandler(MouseEvent.MOUSE_DRAGGED, this::onMouseDragged);
+        viewport.addEventHandler(ScrollEvent.SCROLL, this::onScroll);
+    }
+
+    /**
+     * Configures the scroll bars, which edit the scroll position of the DocumentArea directly.
+     */
+    private void configureScrollBars() {
+        verticalScrollBar.setOrientation(Orientation.VERTICAL);
+        verticalScrollBar.valueProperty().bindBidirectional(getSkinnable().scrollTopProperty());
+        horizontalScrollBar.valueProperty().bindBidirectional(getSkinnable().scrollLeftProperty());
+    }
+
+    /**
+     * Configures the blinking of the caret, which only runs while the DocumentArea has the focus.
+     */
+    private void configureCaretBlink() {
+        caretBlink.getKeyFrames().add(new KeyFrame(CARET_BLINK_PERIOD, event -> {
+            caretVisible = !caretVisible;
+            getSkinnable().requestLayout();
+        }));
+        caretBlink.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    /**
+     * Enables input methods on the DocumentArea: committed text replaces the selection, and the text
+     * being composed is drawn at the caret until it is committed.
+     */
+    private void configureInputMethod() {
+        DocumentArea documentArea = getSkinnable();
+
+        documentArea.setInputMethodRequests(new InputMethodRequests() {
+            @Override
+            public Point2D getTextLocation(int offset) {
+                int caret = getSkinnable().getCaretPosition();
+                int line = lineIndex.lineOfOffset(caret);
+                Point2D position = contentToViewport(xOf(line, caret), (line + 1) * lineHeight);
+                return viewport.localToScreen(position);
+            }
+
+            @Override
+            public int getLocationOffset(int x, int y) {
+                return 0;
+            }
+
+            @Override
+            public void cancelLatestCommittedText() {
+            }
+
+            @Override
+            public String getSelectedText() {
+                return getSkinnable().getSelectedText();
+            }
+        });
+        documentArea.setOnInputMethodTextChanged(this::onInputMethodTextChanged);
+    }
+
+    /**
+     * Gives the DocumentArea the context menu of a text control, unless it already has one. The
+     * items follow whether the DocumentArea is editable and whether it can undo or redo.
+     */
+    private void configureContextMenu() {
+        DocumentArea documentArea = getSkinnable();
+        if (documentArea.getContextMenu() != null) return;
+
+        MenuItem undoItem = createMenuItem("Desfazer", documentArea::undo);
+        MenuItem redoItem = createMenuItem("Refazer", documentArea::redo);
+        MenuItem cutItem = createMenuItem("Recortar", documentArea::cut);
+        MenuItem copyItem = createMenuItem("Copiar", documentArea::copy);
+        MenuItem pasteItem = createMenuItem("Colar", documentArea::paste);
+        MenuItem deleteItem = createMenuItem("Deletar", () -> documentArea.replaceSelection(""));
+        MenuItem selectAllItem = createMenuItem("Selecionar tudo", documentArea::selectAll);
+
+        ContextMenu contextMenu = new ContextMenu(undoItem, redoItem, new SeparatorMenuItem(), cutItem, copyItem,
+                pasteItem, deleteItem, new SeparatorMenuItem(), selectAllItem);
+        contextMenu.setOnShowing(event -> {
+            boolean editable = documentArea.isEditable();
+            boolean selected = documentArea.getSelection().getLength() > 0;
+
+            undoItem.setDisable(!editable || !documentArea.isUndoable());
+            redoItem.setDisable(!editable || !documentArea.isRedoable());
+            cutItem.setDisable(!editable || !selected);
+            copyItem.setDisable(!selected);
+            pasteItem.setDisable(!editable);
+            deleteItem.setDisable(!editable || !selected);
+        });
+
+        documentArea.setContextMenu(contextMenu);
+    }
+
+    /**
+     * Creates an item of the context menu.
+     *
+     * @param text   The text of the item.
+     * @param action The action run when the item is chosen.
+     * @return The item.
+     */
+    private static MenuItem createMenuItem(String text, Runnable action) {
+        MenuItem menuItem = new MenuItem(text);
+        menuItem.setOnAction(event -> action.run());
+        return menuItem;
+    }
+
+    /**
+     * Restores the DocumentArea, removing every listener and handler installed by the skin.
+     */
+    @Override
+    public void dispose() {
+        DocumentArea documentArea = getSkinnable();
+        if (documentArea == null) return;
+
+        caretBlink.stop();
+
+        documentArea.selectionProperty().removeListener(redrawListener);
+        documentArea.fontProperty().removeListener(redrawListener);
+        documentArea.scrollTopProperty().removeListener(redrawListener);
+        documentArea.scrollLeftProperty().removeListener(redrawListener);
+        documentArea.caretPositionProperty().removeListener(caretListener);
+        documentArea.focusedProperty().removeListener(focusListener);
+        documentArea.removeEventHandler(KeyEvent.KEY_PRESSED, keyPressedHandler);
+        documentArea.removeEventHandler(KeyEvent.KEY_TYPED, keyTypedHandler);
+        document.removeDocumentListener(documentListener);
+        documentArea.setInputMethodRequests(null);
+        documentArea.setOnInputMethodTextChanged(null);
+
+        verticalScrollBar.valueProperty().unbindBidirectional(documentArea.scrollTopProperty());
+        horizontalScrollBar.valueProperty().unbindBidirectional(documentArea.scrollLeftProperty());
+
+        super.dispose();
+    }
+
+    /**
+     * Computes the preferred width from the preferred column count of the DocumentArea.
+     *
+     * @param height     The height the width is computed for.
+     * @param topInset   The top inset of the DocumentArea.
+     * @param rightInset The right inset of the DocumentArea.
+     * @param bottomInset The bottom inset of the DocumentArea.
+     * @param leftInset  The left inset of the DocumentArea.
+     * @return The preferred width.
+     */
+    @Override
+    protected double computePrefWidth(double height, double topInset, double rightInset, double bottomInset,
+                                      double leftInset) {
+        updateFontMetrics();
+        Insets padding = content.getPadding();
+        return leftInset + padding.getLeft() + getSkinnable().getPrefColumnCount() * advance('W')
+                + padding.getRight() + verticalScrollBar.prefWidth(-1) + rightInset;
+    }
+
+    /**
+     * Computes the preferred height from the preferred row count of the DocumentArea.
+     *
+     * @param width      The width the height is computed for.
+     * @param topInset   The top inset of the DocumentArea.
+     * @param rightInset The right inset of the DocumentArea.
+     * @param bottomInset The bottom inset of the DocumentArea.
+     * @param leftInset  The left inset of the DocumentArea.
+     * @return The preferred height.
+     */
+    @Override
+    protected double computePrefHeight(double width, double topInset, double rightInset, double bottomInset,
+                                       double leftInset) {
+        updateFontMetrics();
+        Insets padding = content.getPadding();
+        return topInset + padding.getTop() + getSkinnable().getPrefRowCount() * lineHeight
+                + padding.getBottom() + horizontalScrollBar.prefHeight(-1) + bottomInset;
+    }
+
+    /**
+     * Lays out the viewport and the scroll bars, then draws the visible lines.
+     *
+     * @param x      The left of the content area of the DocumentArea.
+     * @param y      The top of the content area of the DocumentArea.
+     * @param width  The width of the content area.
+     * @param height The height of the content area.
+     */
+    @Override
+    protected void layoutChildren(double x, double y, double width, double height) {
+        updateFontMetrics();
+
+        Insets padding = content.getPadding();
+        double contentHeight = padding.getTop() + lineIndex.lineCount() * lineHeight + padding.getBottom();
+        measureVisibleLines(height);
+
+        double barWidth = verticalScrollBar.prefWidth(-1);
+        double barHeight = horizontalScrollBar.prefHeight(-1);
+
+        boolean vertical = contentHeight > height;
+        boolean horizontal = paddedWidth() > width - (vertical ? barWidth : 0);
+        vertical = vertical || contentHeight > height - (horizontal ? barHeight : 0);
+
+        double viewportWidth = Math.max(0, width - (vertical ? barWidth : 0));
+        double viewportHeight = Math.max(0, height - (horizontal ? barHeight : 0));
+
+        viewport.resizeRelocate(x, y, viewportWidth, viewportHeight);
+        clip.setWidth(viewportWidth);
+        clip.setHeight(viewportHeight);
+        canvas.setWidth(viewportWidth);
+        canvas.setHeight(viewportHeight);
+
+        if (caretFollowed) {
+            caretFollowed = false;
+            scrollToCaret(viewportWidth, viewportHeight);
+        }
+
+        layoutScrollBar(verticalScrollBar, vertical, contentHeight, viewportHeight, lineHeight);
+        verticalScrollBar.resizeRelocate(x + viewportWidth, y, barWidth, viewportHeight);
+
+        draw(viewportWidth, viewportHeight);
+
+        layoutScrollBar(horizontalScrollBar, horizontal, paddedWidth(), viewportWidth, advance('0'));
+        horizontalScrollBar.resizeRelocate(x, y + viewportHeight, viewportWidth, barHeight);
+
+        content.resizeRelocate(-getSkinnable().getScrollLeft(), -getSkinnable().getScrollTop(), 0, 0);
+    }
+
+    /**
+     * Widens the content to the widest of the lines about to be drawn, before the scroll bars are laid out.
+     *
+     * @param height The height of the viewport.
+     */
+    private void measureVisibleLines(double height) {
+        if (lineHeight <= 0) return;
+
+        double top = getSkinnable().getScrollTop() - content.getPadding().getTop();
+        int firstLine = (int) Math.max(0, Math.floor(top / lineHeight));
+        int lastLine = (int) Math.min(lineIndex.lineCount() - 1, Math.floor((top + height) / lineHeight));
+
+        for (int line = firstLine; line <= lastLine; line++) {
+            contentWidth = Math.max(contentWidth, lineWidth(line));
+        }
+    }
+
+    /**
+     * Sizes the range of a scroll bar to the content and keeps its value inside it.
+     *
+     * @param scrollBar     The scroll bar.
+     * @param visible       Whether the scroll bar is needed.
+     * @param contentSize   The size of the content along the scroll bar.
+     * @param viewportSize  The size of the viewport along the scroll bar.
+     * @param unitIncrement The distance scrolled by the arrows of the scroll bar.
+     */
+    private void layoutScrollBar(ScrollBar scrollBar, boolean visible, double contentSize, double viewportSize,
+                                 double unitIncrement) {
+        double max = Math.max(0, contentSize - viewportSize);
+
+        scrollBar.setVisible(visible);
+        scrollBar.setMax(max);
+        scrollBar.setVisibleAmount(viewportSize);
+        scrollBar.setBlockIncrement(viewportSize);
+        scrollBar.setUnitIncrement(unitIncrement);
+
+        if (scrollBar.getValue() > max) scrollBar.setValue(max);
+        if (scrollBar.getValue() < 0) scrollBar.setValue(0);
+    }
+
+    /**
+     * Measures the font of the DocumentArea again when it changed, forgetting the advances measured in the
+     * previous one.
+     */
+    private void updateFontMetrics() {
+        Font currentFont = getSkinnable().getFont();
+        if (currentFont.equals(font)) return;
+
+        font = currentFont;
+        measuringText.setFont(font);
+        measuringText.setText("0");
+        lineHeight = measuringText.getLayoutBounds().getHeight();
+        baselineOffset = measuringText.getBaselineOffset();
+
+        Arrays.fill(latinAdvances, -1);
+        otherAdvances.clear();
+        lineCheckpoints.clear();
+        contentWidth = 0;
+    }
+
+    /**
+     * Returns the width of the widest line drawn so far, with the padding of the content.
+     *
+     * @return The width of the content.
+     */
+    private double paddedWidth() {
+        Insets padding = content.getPadding();
+        return padding.getLeft() + contentWidth + padding.getRight();
+    }
+
+    /**
+     * Draws the visible lines, the selection, the text being composed and the caret.
+     *
+     * @param width  The width of the viewport.
+     * @param height The height of the viewport.
+     */
+    private void draw(double width, double height) {
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        graphics.clearRect(0, 0, width, height);
+        if (lineHeight <= 0) return;
+
+        graphics.setFont(font);
+        graphics.setTextBaseline(VPos.BASELINE);
+
+        Insets padding = content.getPadding();
+        double top = getSkinnable().getScrollTop() - padding.getTop();
+        int lineCount = lineIndex.lineCount();
+        int firstLine = (int) Math.max(0, Math.floor(top / lineHeight));
+        int lastLine = (int) Math.min(lineCount - 1, Math.floor((top + height) / lineHeight));
+
+        for (int line = firstLine; line <= lastLine; line++) {
+            drawLine(graphics, line, width);
+        }
+
+        drawCaret(graphics);
+    }
+
+    /**
+     * Draws the part of a line inside the viewport, with its selected characters highlighted.
+     * The line is walked from the last checkpoint left of the viewport, and no further than its
+     * right edge.
+     *
+     * @param graphics The graphics context of the canvas.
+     * @param line     The line.
+     * @param width    The width of the viewport.
+     */
+    private void drawLine(GraphicsContext graphics, int line, double width) {
+        DocumentArea documentArea = getSkinnable();
+        IndexRange selection = documentArea.getSelection();
+        Color selectionColor = documentArea.isFocused() ? SELECTION_COLOR : UNFOCUSED_SELECTION_COLOR;
+
+        int start = lineIndex.lineStart(line);
+        int end = lineIndex.lineEnd(line);
+        double left = documentArea.getScrollLeft() - content.getPadding().getLeft();
+        double right = left + width;
+
+        StringBuilder run = new StringBuilder();
+        double runX = 0;
+        boolean runSelected = false;
+        Checkpoints checkpoints = checkpointsOf(start, end);
+        int index = checkpoints == null ? 0 : checkpoints.lastAt(left);
+        int i = start + index * CHECKPOINT_INTERVAL;
+        double x = checkpoints == null ? 0 : checkpoints.position(index);
+
+        for (; i < end && x < right; i++) {
+            char c = document.charAt(i);
+            double advance = advanceAt(i, start, end, x);
+
+            if (x + advance > left && x < right) {
+                boolean selected = i >= selection.getStart() && i < selection.getEnd();
+
+                if (c == '\t' || selected != runSelected) {
+                    drawRun(graphics, run, runX, line, runSelected);
+                    runX = x;
+                    runSelected = selected;
+                }
+
+                if (selected) fillContent(graphics, selectionColor, x, line, advance);
+                if (c != '\t') run.append(c);
+                else runX = x + advance;
+            } else if (run.length() == 0) {
+                runX = x + advance;
+            }
+
+            x += advance;
+            if (checkpoints != null) checkpoints.reach(i + 1 - start, x);
+        }
+
+        drawRun(graphics, run, runX, line, runSelected);
+        if (i < end) return;
+
+        boolean newLineSelected = end < document.length() && end >= selection.getStart() && end < selection.getEnd();
+        if (newLineSelected) fillContent(graphics, selectionColor, x, line, advance(' '));
+
+        contentWidth = Math.max(contentWidth, x);
+    }
+
+    /**
+     * Draws a run of characters of a line and empties it.
+     *
+     * @param graphics The graphics context of the canvas.
+     * @param run      The characters.
+     * @param x        The position of the run in the line.
+     * @param line     The line.
+     * @param selected Whether the characters are selected.
+     */
+    private void drawRun(GraphicsContext graphics, StringBuilder run, double x, int line, boolean selected) {
+        if (run.length() == 0) return;
+
+        boolean highlighted = selected && getSkinnable().isFocused();
+        Point2D position = contentToViewport(x, line * lineHeight + baselineOffset);
+
+        graphics.setFill(highlighted ? SELECTED_TEXT_COLOR : TEXT_COLOR);
+        graphics.fillText(run.toString(), position.getX(), position.getY());
+        run.setLength(0);
+    }
+
+    /**
+     * Fills the background of a cell of a line.
+     *
+     * @param graphics The graphics context of the canvas.
+     * @param color    The color of the cell.
+     * @param x        The position of the cell in the line.
+     * @param line     The line.
+     * @param width    The width of the cell.
+     */
+    private void fillContent(GraphicsContext graphics, Color color, double x, int line, double width) {
+        Point2D position = contentToViewport(x, line * lineHeight);
+
+        graphics.setFill(color);
+        graphics.fillRect(position.getX(), position.getY(), width, lineHeight);
+    }
+
+    /**
+     * Draws the text being composed by the input method, then the caret, if the DocumentArea has the focus.
+     *
+     * @param graphics The graphics context of the canvas.
+     */
+    private void drawCaret(GraphicsContext graphics) {
+        DocumentArea documentArea = getSkinnable();
+        if (!documentArea.isFocused()) return;
+
+        int caret = documentArea.getCaretPosition();
+        int line = lineIndex.lineOfOffset(caret);
+        double x = xOf(line, caret);
+
+        if (!composedText.isEmpty()) {
+            double composedWidth = 0;
+            for (int i = 0; i < composedText.length(); i++) {
+                composedWidth += advance(composedText.charAt(i));
+            }
+
+            fillContent(graphics, TEXT_COLOR, x, line, composedWidth);
+
+            Point2D position = contentToViewport(x, line * lineHeight + baselineOffset);
+            graphics.setFill(COMPOSED_TEXT_COLOR);
+            graphics.fillText(composedText, position.getX(), position.getY());
+            x += composedWidth;
+        }
+
+        if (!caretVisible) return;
+
+        fillContent(graphics, TEXT_COLOR, x, line, 1.0);
+    }
+
+    /**
+     * Converts a position in the content, with lines starting at zero, into the viewport.
+     *
+     * @param x The position in the line.
+     * @param y The position from the top of the first line.
+     * @return The position in the viewport.
+     */
+    private Point2D contentToViewport(double x, double y) {
+        Insets padding = content.getPadding();
+        return new Point2D(padding.getLeft() + x - getSkinnable().getScrollLeft(),
+                padding.getTop() + y - getSkinnable().getScrollTop());
+    }
+
+    /**
+     * Returns the offset of the character boundary nearest to a position in the viewport.
+     *
+     * @param x The horizontal position in the viewport.
+     * @param y The vertical position in the viewport.
+     * @return The offset.
+     */
+    private int offsetAt(double x, double y) {
+        Insets padding = content.getPadding();
+        double contentY = y + getSkinnable().getScrollTop() - padding.getTop();
+        int line = (int) Math.max(0, Math.min(lineIndex.lineCount() - 1, Math.floor(contentY / lineHeight)));
+
+        return offsetInLine(line, x + getSkinnable().getScrollLeft() - padding.getLeft());
+    }
+
+    /**
+     * Returns the offset of the character boundary of a line nearest to a position in the line.
+     *
+     * @param line The line.
+     * @param x    The position in the line.
+     * @return The offset.
+     */
+    private int offsetInLine(int line, double x) {
+        int start = lineIndex.lineStart(line);
+        int end = lineIndex.lineEnd(line);
+
+        Checkpoints checkpoints = checkpointsOf(start, end);
+        int index = checkpoints == null ? 0 : checkpoints.lastAt(x);
+        double position = checkpoints == null ? 0 : checkpoints.position(index);
+
+        for (int i = start + index * CHECKPOINT_INTERVAL; i < end; i++) {
+            double advance = advanceAt(i, start, end, position);
+            if (advance > 0 && x < position + advance / 2) return i;
+            position += advance;
+            if (checkpoints != null) checkpoints.reach(i + 1 - start, position);
+        }
+
+        return end;
+    }
+
+    /**
+     * Returns the height of a line in the font of the DocumentArea, once the skin was laid out.
+     *
+     * @return The height of a line, or 0 before the first layout.
+     */
+    public double getLineHeight() {
+        return lineHeight;
+    }
+
+    /**
+     * Returns the position of an offset in its line, as the skin draws it, so that overlays such as
+     * highlights line up with the text without measuring it again.
+     *
+     * @param offset The offset.
+     * @return The position from the start of the line.
+     */
+    public double xOfOffset(int offset) {
+        return xOf(lineIndex.lineOfOffset(offset), offset);
+    }
+
+    /**
+     * Returns the position of an offset in its line.
+     *
+     * @param line   The line containing the offset.
+     * @param offset The offset.
+     * @return The position from the start of the line.
+     */
+    private double xOf(int line, int offset) {
+        int start = lineIndex.lineStart(line);
+        int end = lineIndex.lineEnd(line);
+        int target = Math.max(start, Math.min(offset, end));
+
+        Checkpoints checkpoints = checkpointsOf(start, end);
+        int index = checkpoints == null ? 0 : Math.min(checkpoints.count() - 1, (target - start) / CHECKPOINT_INTERVAL);
+        double x = checkpoints == null ? 0 : checkpoints.position(index);
+
+        for (int i = start + index * CHECKPOINT_INTERVAL; i < target; i++) {
+            x += advanceAt(i, start, end, x);
+            if (checkpoints != null) checkpoints.reach(i + 1 - start, x);
+        }
+
+        return x;
+    }
+
+    /**
+     * Returns the width of a line. A short line, or a long one measured to within a checkpoint of its
+     * end, is measured exactly; otherwise the rest is estimated from the average advance of the measured part.
+     *
+     * @param line The line.
+     * @return The width of the line.
+     */
+    private double lineWidth(int line) {
+        int start = lineIndex.lineStart(line);
+        int end = lineIndex.lineEnd(line);
+
+        Checkpoints checkpoints = checkpointsOf(start, end);
+        if (checkpoints == null) return xOf(line, end);
+        if (checkpoints.count() == 1) xOf(line, start + CHECKPOINT_INTERVAL);
+
+        int measured = (checkpoints.count() - 1) * CHECKPOINT_INTERVAL;
+        if (end - start - measured < CHECKPOINT_INTERVAL) return xOf(line, end);
+
+        return checkpoints.position(checkpoints.count() - 1) * (end - start) / measured;
+    }
+
+    /**
+     * Returns the checkpoints of a line, if it is long enough to keep them.
+     *
+     * @param start The start offset of the line.
+     * @param end   The end offset of the line.
+     * @return The checkpoints of the line, or null if it is shorter than the checkpoint interval.
+     */
+    private Checkpoints checkpointsOf(int start, int end) {
+        if (end - start < CHECKPOINT_INTERVAL) return null;
+        return lineCheckpoints.computeIfAbsent(start, key -> new Checkpoints());
+    }
+
+    /**
+     * Keeps the checkpoints still valid after an edit: those of the edited line before the edit, and
+     * those of the lines after it, moved by the length the edit added or removed.
+     *
+     * @param start    The start offset of the replaced range.
+     * @param end      The end offset of the replaced range before the edit.
+     * @param inserted The length of the inserted text.
+     */
+    private void moveCheckpoints(int start, int end, int inserted) {
+        if (lineCheckpoints.isEmpty()) return;
+
+        Map<Integer, Checkpoints> moved = new HashMap<>();
+        int delta = inserted - (end - start);
+
+        lineCheckpoints.forEach((lineStart, checkpoints) -> {
+            if (lineStart <= start) {
+                checkpoints.truncate(start - lineStart);
+                moved.put(lineStart, checkpoints);
+            } else if (lineStart > end) {
+                moved.put(lineStart + delta, checkpoints);
+            }
+        });
+
+        lineCheckpoints = moved;
+    }
+
+    /**
+     * Returns the advance of the character at an offset of a line. A tab advances to the next tab stop,
+     * and a surrogate pair advances as one character, on its high surrogate.
+     *
+     * @param offset The offset of the character.
+     * @param start  The start offset of the line.
+     * @param end    The end offset of the line.
+     * @param x      The position of the character in the line.
+     * @return The advance.
+     */
+    private double advanceAt(int offset, int start, int end, double x) {
+        char c = document.charAt(offset);
+
+        if (c == '\t') {
+            double tabWidth = TAB_SIZE * advance(' ');
+            return tabWidth > 0 ? tabWidth - x % tabWidth : 0;
+        }
+
+        if (Character.isHighSurrogate(c) && offset + 1 < end) {
+            char low = document.charAt(offset + 1);
+            if (Character.isLowSurrogate(low)) return advance(Character.toCodePoint(c, low));
+        }
+
+        if (Character.isLowSurrogate(c) && offset > start && Character.isHighSurrogate(document.charAt(offset - 1)))
+            return 0;
+
+        return advance(c);
+    }
+
+    /**
+     * Returns the advance of a character in the font of the DocumentArea, measuring it once.
+     *
+     * @param codePoint The character.
+     * @return The advance.
+     */
+    private double advance(int codePoint) {
+        if (codePoint < latinAdvances.length && latinAdvances[codePoint] >= 0) return latinAdvances[codePoint];
+
+        Double known = otherAdvances.get(codePoint);
+        if (known != null) return known;
+
+        measuringText.setText(new String(Character.toChars(codePoint)));
+        double advance = measuringText.getLayoutBounds().getWidth();
+
+        if (codePoint < latinAdvances.length) latinAdvances[codePoint] = advance;
+        else otherAdvances.put(codePoint, advance);
+
+        return advance;
+    }
+
+    /**
+     * Scrolls the viewport so that the caret is visible.
+     *
+     * @param width  The width of the viewport.
+     * @param height The height of the viewport.
+     */
+    private void scrollToCaret(double width, double height) {
+        DocumentArea documentArea = getSkinnable();
+        Insets padding = content.getPadding();
+
+        int caret = documentArea.getCaretPosition();
+        int line = lineIndex.lineOfOffset(caret);
+        double caretX = padding.getLeft() + xOf(line, caret);
+        double caretY = padding.getTop() + line * lineHeight;
+
+        contentWidth = Math.max(contentWidth, caretX - padding.getLeft());
+
+        if (caretY < documentArea.getScrollTop()) documentArea.setScrollTop(caretY - padding.getTop());
+        else if (caretY + lineHeight > documentArea.getScrollTop() + height)
+            documentArea.setScrollTop(caretY + lineHeight + padding.getBottom() - height);
+
+        if (caretX < documentArea.getScrollLeft()) documentArea.setScrollLeft(Math.max(0, caretX - width / 4));
+        else if (caretX + 1 > documentArea.getScrollLeft() + width)
+            documentArea.setScrollLeft(caretX + 1 - width * 3 / 4);
+    }
+
+    /**
+     * Brings the caret into view after it moved, and shows it for a full blink period.
+     */
+    private void onCaretMoved() {
+        caretFollowed = true;
+        restartCaretBlink();
+        getSkinnable().requestLayout();
+    }
+
+    /**
+     * Starts the caret blinking when the DocumentArea gains the focus, and hides it when it loses it.
+     */
+    private void onFocusChanged() {
+        if (getSkinnable().isFocused()) restartCaretBlink();
+        else caretBlink.stop();
+
+        getSkinnable().requestLayout();
+    }
+
+    /**
+     * Shows the caret and restarts its blinking period, if the DocumentArea has the focus.
+     */
+    private void restartCaretBlink() {
+        caretVisible = true;
+        if (getSkinnable().isFocused()) caretBlink.playFromStart();
+    }
+
+    /**
+     * Handles the keys moving the caret, deleting text and running the editing shortcuts.
+     *
+     * @param event The key event.
+     */
+    private void onKeyPressed(KeyEvent event) {
+        DocumentArea documentArea = getSkinnable();
+        KeyCode code = event.getCode();
+        boolean shift = event.isShiftDown();
+        boolean shortcut = event.isShortcutDown();
+        boolean editable = documentArea.isEditable();
+        boolean handled = true;
+
+        if (code == KeyCode.LEFT) {
+            if (shortcut) {
+                if (shift) documentArea.selectPreviousWord();
+                else documentArea.previousWord();
+            } else if (shift) documentArea.selectBackward();
+            else documentArea.backward();
+        } else if (code == KeyCode.RIGHT) {
+            if (shortcut) {
+                if (shift) documentArea.selectEndOfNextWord();
+                else documentArea.endOfNextWord();
+            } else if (shift) documentArea.selectForward();
+            else documentArea.forward();
+        } else if (code == KeyCode.UP) {
+            moveVertically(-1, shift);
+        } else if (code == KeyCode.DOWN) {
+            moveVertically(1, shift);
+        } else if (code == KeyCode.PAGE_UP) {
+            moveVertically(-visibleLineCount(), shift);
+        } else if (code == KeyCode.PAGE_DOWN) {
+            moveVertically(visibleLineCount(), shift);
+        } else if (code == KeyCode.HOME) {
+            int line = lineIndex.lineOfOffset(documentArea.getCaretPosition());
+            moveCaret(shortcut ? 0 : lineIndex.lineStart(line), shift);
+        } else if (code == KeyCode.END) {
+            int line = lineIndex.lineOfOffset(documentArea.getCaretPosition());
+            moveCaret(shortcut ? documentArea.getLength() : lineIndex.lineEnd(line), shift);
+        } else if (code == KeyCode.BACK_SPACE && editable) {
+            if (shortcut && documentArea.getSelection().getLength() == 0) documentArea.selectPreviousWord();
+
+            if (documentArea.getSelection().getLength() > 0) documentArea.replaceSelection("");
+            else documentArea.deletePreviousChar();
+        } else if (code == KeyCode.DELETE && editable) {
+            if (shortcut && documentArea.getSelection().getLength() == 0) documentArea.selectEndOfNextWord();
+
+            if (documentArea.getSelection().getLength() > 0) documentArea.replaceSelection("");
+            else documentArea.deleteNextChar();
+        } else if (code == KeyCode.ENTER && editable && !shortcut) {
+            documentArea.replaceSelection("\n");
+        } else if (code == KeyCode.TAB && editable && !shortcut && !shift) {
+            documentArea.replaceSelection("\t");
+        } else if (shortcut && code == KeyCode.A) {
+            documentArea.selectAll();
+        } else if (shortcut && (code == KeyCode.C || code == KeyCode.INSERT)) {
+            documentArea.copy();
+        } else if (shortcut && code == KeyCode.X && editable) {
+            documentArea.cut();
+        } else if (shortcut && code == KeyCode.V && editable) {
+            documentArea.paste();
+        } else if (shortcut && code == KeyCode.Z && editable) {
+            if (shift) documentArea.redo();
+            else documentArea.undo();
+        } else if (shortcut && code == KeyCode.Y && editable) {
+            documentArea.redo();
+        } else {
+            handled = false;
+        }
+
+        if (handled) {
+            if (code != KeyCode.UP && code != KeyCode.DOWN && code != KeyCode.PAGE_UP && code != KeyCode.PAGE_DOWN)
+                preferredCaretX = -1;
+
+            event.consume();
+        }
+    }
+
+    /**
+     * Inserts the typed character in place of the selection. Characters typed with the shortcut
+     * modifier are left to the accelerators, except with AltGr, which some layouts need to type.
+     *
+     * @param event The key event.
+     */
+    private void onKeyTyped(KeyEvent event) {
+        DocumentArea documentArea = getSkinnable();
+        String character = event.getCharacter();
+
+        if (!documentArea.isEditable() || character.isEmpty()) return;
+        if (event.isMetaDown() || (event.isControlDown() && !event.isAltDown())) return;
+        if (Character.isISOControl(character.charAt(0))) return;
+
+        documentArea.replaceSelection(character);
+        preferredCaretX = -1;
+        event.consume();
+    }
+
+    /**
+     * Moves the caret up or down by lines, keeping its horizontal position across short lines.
+     *
+     * @param lines  The number of lines, negative to move up.
+     * @param extend Whether the selection is extended to the new position.
+     */
+    private void moveVertically(int lines, boolean extend) {
+        int caret = getSkinnable().getCaretPosition();
+        int line = lineIndex.lineOfOffset(caret);
+        if (preferredCaretX < 0) preferredCaretX = xOf(line, caret);
+
+        int target = Math.max(0, Math.min(lineIndex.lineCount() - 1, line + lines));
+        moveCaret(offsetInLine(target, preferredCaretX), extend);
+    }
+
+    /**
+     * Moves the caret to an offset, either extending the selection or clearing it.
+     *
+     * @param offset The new caret position.
+     * @param extend Whether the selection is extended to the new position.
+     */
+    private void moveCaret(int offset, boolean extend) {
+        if (extend) getSkinnable().selectPositionCaret(offset);
+        else getSkinnable().positionCaret(offset);
+    }
+
+    /**
+     * Returns the number of lines fitting in the viewport, the distance moved by a page.
+     *
+     * @return The number of lines, at least one.
+     */
+    private int visibleLineCount() {
+        return lineHeight > 0 ? Math.max(1, (int) (viewport.getHeight() / lineHeight)) : 1;
+    }
+
+    /**
+     * Places the caret where the viewport is pressed, extending the selection with Shift.
+     * A double click selects the word under the mouse, and a triple click its line.
+     *
+     * @param event The mouse event.
+     */
+    private void onMousePressed(MouseEvent event) {
+        if (event.getButton() != MouseButton.PRIMARY) return;
+
+        DocumentArea documentArea = getSkinnable();
+        documentArea.requestFocus();
+
+        int offset = offsetAt(event.getX(), event.getY());
+
+        if (event.getClickCount() == 2) {
+            documentArea.selectWord(offset);
+        } else if (event.getClickCount() >= 3) {
+            int line = lineIndex.lineOfOffset(offset);
+            int end = lineIndex.lineEnd(line);
+            documentArea.selectRange(lineIndex.lineStart(line), end < documentArea.getLength() ? end + 1 : end);
+        } else {
+            moveCaret(offset, event.isShiftDown());
+        }
+
+        preferredCaretX = -1;
+        event.consume();
+    }
+
+    /**
+     * Extends the selection to where the mouse is dragged, scrolling when it leaves the viewport.
+     *
+     * @param event The mouse event.
+     */
+    private void onMouseDragged(MouseEvent event) {
+        if (event.getButton() != MouseButton.PRIMARY) return;
+
+        getSkinnable().selectPositionCaret(offsetAt(event.getX(), event.getY()));
+        event.consume();
+    }
+
+    /**
+     * Scrolls the viewport with the mouse wheel or the touchpad. The event is left to the
+     * enclosing panes when the viewport cannot scroll in its direction.
+     *
+     * @param event The scroll event.
+     */
+    private void onScroll(ScrollEvent event) {
+        boolean scrolled = scrollBy(verticalScrollBar, -event.getDeltaY());
+        scrolled |= scrollBy(horizontalScrollBar, -event.getDeltaX());
+
+        if (scrolled) event.consume();
+    }
+
+    /**
+     * Moves a scroll bar by a distance, inside its range.
+     *
+     * @param scrollBar The scroll bar.
+     * @param delta     The distance.
+     * @return True if the scroll bar moved.
+     */
+    private boolean scrollBy(ScrollBar scrollBar, double delta) {
+        if (delta == 0 || !scrollBar.isVisible()) return false;
+
+        double value = Math.max(0, Math.min(scrollBar.getMax(), scrollBar.getValue() + delta));
+        if (value == scrollBar.getValue()) return false;
+
+        scrollBar.setValue(value);
+        return true;
+    }
+
+    /**
+     * Replaces the selection with the text committed by the input method, and keeps the text
+     * still being composed to draw it at the caret.
+     *
+     * @param event The input method event.
+     */
+    private void onInputMethodTextChanged(InputMethodEvent event) {
+        DocumentArea documentArea = getSkinnable();
+        if (!documentArea.isEditable()) return;
+
+        if (!event.getCommitted().isEmpty()) documentArea.replaceSelection(event.getCommitted());
+
+        StringBuilder composed = new StringBuilder();
+        for (InputMethodTextRun run : event.getComposed()) {
+            composed.append(run.getText());
+        }
+
+        composedText = composed.toString();
+        documentArea.requestLayout();
+        event.consume();
+    }
+
+    /**
+     * The positions of the characters of a long line at every {@value #CHECKPOINT_INTERVAL}th offset
+     * from its start, recorded in order as the line is walked. The first checkpoint, at the start of
+     * the line, is always known.
+     */
+    private static final class Checkpoints {
+
+        private double[] positions = new double[16];
+        private int count = 1;
+
+        /**
+         * Returns the number of checkpoints known.
+         *
+         * @return The number of checkpoints.
+         */
+        int count() {
+            return count;
+        }
+
+        /**
+         * Returns the position of a checkpoint.
+         *
+         * @param index The index of the checkpoint.
+         * @return The position of the character at the checkpoint, from the start of the line.
+         */
+        double position(int index) {
+            return positions[index];
+        }
+
+        /**
+         * Returns the last known checkpoint at or left of a position, found by binary search since
+         * positions grow along the line.
+         *
+         * @param x The position in the line.
+         * @return The index of the checkpoint.
+         */
+        int lastAt(double x) {
+            int low = 0;
+            int high = count - 1;
+
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (positions[middle] <= x) low = middle;
+                else high = middle - 1;
+            }
+
+            return low;
+        }
+
+        /**
+         * Records the position of a column reached while walking the line, if it is the next checkpoint.
+         *
+         * @param column The column, counted in characters from the start of the line.
+         * @param x      The position of the column.
+         */
+        void reach(int column, double x) {
+            if (column % CHECKPOINT_INTERVAL != 0 || column / CHECKPOINT_INTERVAL != count) return;
+
+            if (count == positions.length) positions = Arrays.copyOf(positions, count * 2);
+            positions[count++] = x;
+        }
+
+        /**
+         * Forgets the checkpoints after a column, whose positions an edit at that column may have changed.
+         *
+         * @param column The column of the edit.
+         */
+        void truncate(int column) {
+            count = Math.min(count, column / CHECKPOINT_INTERVAL + 1);
+        }
+    }
+}
@@ -23,6 +23,7 @@ public class FindAndReplaceTab extends Tab implements CustomTab {
 
     private final CheckBox matchWholeWordCheckBox;
     private final CheckBox differentiateUppercaseOrLowercaseLetters;
+    private final CheckBox regularExpressionCheckBox;
 
     private final Button findAndReplaceAllButton;
     private final Button findAndReplaceButton;
@@ -41,6 +42,7 @@ public class FindAndReplaceTab extends Tab implements CustomTab {
         this.textField2 = createTextField(61.0);
         this.matchWholeWordCheckBox = createCheckBox("Coincidir palavra inteira", 144.0);
         this.differentiateUppercaseOrLowercaseLetters = createCheckBox("Diferenciar maísculas/mínusculas", 178.0);
+        this.regularExpressionCheckBox = createCheckBox("Expressão regular", 212.0);
         this.findNextButton = createButton("Localizar próximo", 28.0);
         this.findAndReplaceButton = createButton("Substituir", 61.0);
         this.findAndReplaceAllButton = createButton("Substituir todos", 93.0);
@@ -65,11 +67,12 @@ public class FindAndReplaceTab extends Tab implements CustomTab {
         textField2.setId("findandreplace-textfield2-id");
         matchWholeWordCheckBox.setId("findandreplace-checkbox1-id");
         differentiateUppercaseOrLowercaseLetters.setId("findandreplace-checkbox2-id");
+        regularExpressionCheckBox.setId("findandreplace-checkbox3-id");
         Text text1 = createText("Localizar :", 63.0, 45.0);
         Text text2 = createText("Substituir por :", 35.0, 78.0);
         AnchorPane pane = createAnchorPane(textField1, textField2, text1, text2, findNextButton,
                 findAndReplaceButton, findAndReplaceAllButton, closeButton,
-                matchWholeWordCheckBox, differentiateUppercaseOrLowercaseLetters);
+                matchWholeWordCheckBox, differentiateUppercaseOrLowercaseLetters, regularExpressionCheckBox);
         setContent(pane);
     }
 
@@ -88,7 +91,7 @@ public class FindAndReplaceTab extends Tab implements CustomTab {
      */
     private void onFindNextButtonClick() {
         eventController.onNextFindButtonEvent("findandreplace-textfield1-id",
-                "findandreplace-checkbox1-id", "findandreplace-checkbox2-id");
+                "findandreplace-checkbox1-id", "findandreplace-checkbox2-id", "findandreplace-checkbox3-id");
     }
 
     /**
@@ -96,7 +99,7 @@ public class FindAndReplaceTab extends Tab implements CustomTab {
      */
     private void onFindAndReplaceButtonClick() {
         eventController.onFindAndReplaceButtonEvent("findandreplace-textfield1-id", "findandreplace-textfield2-id",
-                "findandreplace-checkbox1-id", "findandreplace-checkbox2-id");
+                "findandreplace-checkbox1-id", "findandreplace-checkbox2-id", "findandreplace-checkbox3-id");
     }
 
     /**
@@ -104,7 +107,7 @@ public class FindAndReplaceTab extends Tab implements CustomTab {
      */
     private void onFindAndReplaceAllButtonClick() {
         eventController.onFindAndReplaceAllButtonEvent("findandreplace-textfield1-id", "findandreplace-textfield2-id",
-                "findandreplace-checkbox1-id", "findandreplace-checkbox2-id");
+                "findandreplace-checkbox1-id", "findandreplace-checkbox2-id", "findandreplace-checkbox3-id");
     }
 
     /**
@@ -0,0 +1,133 @@
+package org.texteditor.viewers.tab.find;
+
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.AnchorPane;
+import javafx.scene.text.Text;
+import org.texteditor.controllers.EventController;
+import org.texteditor.viewers.tab.CustomTab;
+
+import static org.texteditor.viewers.tab.find.FindTabBuild.*;
+
+/**
+ * Represents a tab for locating text in the files of a directory.
+ */
+public class FindInFilesTab extends Tab implements CustomTab {
+
+    private final EventController eventController;
+
+    private final TextField textField;
+    private final TextField directoryTextField;
+    private final TextField includeTextField;
+    private final TextField excludeTextField;
+
+    private final CheckBox matchWholeWordCheckBox;
+    private final CheckBox differentiateUppercaseOrLowercaseLetters;
+    private final CheckBox regularExpressionCheckBox;
+    private final CheckBox useIndexCheckBox;
+
+    private final Button findAllButton;
+    private final Button chooseDirectoryButton;
+    private final Button cancelButton;
+    private final Button closeButton;
+
+    /**
+     * Constructs a new FindInFilesTab.
+     *
+     * @param eventController The event controller for handling tab events.
+     */
+    public FindInFilesTab(EventController eventController) {
+        super("Localizar nos arquivos");
+        this.eventController = eventController;
+        this.textField = createTextField(28.0);
+        this.directoryTextField = createTextField(61.0);
+        this.includeTextField = createTextField(94.0);
+        this.excludeTextField = createTextField(127.0);
+        this.matchWholeWordCheckBox = createCheckBox("Coincidir palavra inteira", 160.0);
+        this.differentiateUppercaseOrLowercaseLetters = createCheckBox("Diferenciar maísculas/mínusculas", 184.0);
+        this.regularExpressionCheckBox = createCheckBox("Expressão regular", 208.0);
+        this.useIndexCheckBox = createCheckBox("Usar índice", 232.0);
+        this.findAllButton = createButton("Localizar todos", 28.0);
+        this.chooseDirectoryButton = createButton("Escolher pasta...", 61.0);
+        this.cancelButton = createButton("Cancelar", 94.0);
+        this.closeButton = createButton("Fechar", 132.0);
+    }
+
+    /**
+     * Configures the appearance and behavior of the FindInFilesTab.
+     */
+    @Override
+    public void configure() {
+        setId("findinfiles-tabpane-section");
+        configureComponents();
+        configureActions();
+    }
+
+    /**
+     * Configures the UI components within the FindInFilesTab.
+     */
+    private void configureComponents() {
+        textField.setId("findinfiles-textfield1-id");
+        directoryTextField.setId("findinfiles-textfield2-id");
+        includeTextField.setId("findinfiles-textfield3-id");
+        excludeTextField.setId("findinfiles-textfield4-id");
+        includeTextField.setPromptText("*.txt, *.java");
+        excludeTextField.setPromptText(".git, target");
+        matchWholeWordCheckBox.setId("findinfiles-checkbox1-id");
+        differentiateUppercaseOrLowercaseLetters.setId("findinfiles-checkbox2-id");
+        regularExpressionCheckBox.setId("findinfiles-checkbox3-id");
+        useIndexCheckBox.setId("findinfiles-checkbox4-id");
+        Text text1 = createText("Localizar :", 63.0, 45.0);
+        Text text2 = createText("Pasta :", 80.0, 78.0);
+        Text text3 = createText("Incluir :", 73.0, 111.0);
+        Text text4 = createText("Excluir :", 71.0, 144.0);
+        AnchorPane pane = createAnchorPane(textField, directoryTextField, includeTextField, excludeTextField,
+                text1, text2, text3, text4, findAllButton, chooseDirectoryButton, cancelButton, closeButton,
+                matchWholeWordCheckBox, differentiateUppercaseOrLowercaseLetters, regularExpressionCheckBox,
+                useIndexCheckBox);
+        setContent(pane);
+    }
+
+    /**
+     * Configures the actions (event handlers) for UI components within the FindInFilesTab.
+     */
+    private void configureActions() {
+        findAllButton.setOnAction(event -> onFindAllButtonClick());
+        chooseDirectoryButton.setOnAction(event -> onChooseDirectoryButtonClick());
+        cancelButton.setOnAction(event -> onCancelButtonClick());
+        closeButton.setOnAction(event -> onCloseButtonClick());
+    }
+
+    /**
+     * Event handler for the findAllButton click event. Lists the occurrences of text in the files of the directory.
+     */
+    private void onFindAllButtonClick() {
+        eventController.onFindInFilesButtonEvent("findinfiles-textfield1-id", "findinfiles-textfield2-id",
+                "findinfiles-textfield3-id", "findinfiles-textfield4-id",
+                "findinfiles-checkbox1-id", "findinfiles-checkbox2-id", "findinfiles-checkbox3-id",
+                "findinfiles-checkbox4-id");
+    }
+
+    /**
+     * Event handler for the chooseDirectoryButton click event. Chooses the directory to search.
+     */
+    private void onChooseDirectoryButtonClick() {
+        eventController.onChooseSearchDirectoryEvent("findinfiles-textfield2-id");
+    }
+
+    /**
+     * Event handler for the cancelButton click event. Cancels the running search.
+     */
+    private void onCancelButtonClick() {
+        eventController.onCancelFindInFilesEvent();
+    }
+
+    /**
+     * Event handler for the closeButton click event. Closes the find pane.
+     */
+    private void onCloseButtonClick() {
+        eventController.onCloseFindPaneEvent();
+    }
+}
@@ -22,9 +22,12 @@ public class FindTab extends Tab implements CustomTab {
 
     private final CheckBox matchWholeWordCheckBox;
     private final CheckBox differentiateUppercaseOrLowercaseLetters;
+    private final CheckBox regularExpressionCheckBox;
 
     private final Button findNextButton;
+    private final Button findPreviousButton;
     private final Button countButton;
+    private final Button findInAllTabsButton;
     private final Button closeButton;
 
     /**
@@ -38,9 +41,12 @@ public class FindTab extends Tab implements CustomTab {
         this.textField = createTextField(28.0);
         this.matchWholeWordCheckBox = createCheckBox("Coincidir palavra inteira", 144.0);
         this.differentiateUppercaseOrLowercaseLetters = createCheckBox("Diferenciar maísculas/mínusculas", 178.0);
+        this.regularExpressionCheckBox = createCheckBox("Expressão regular", 212.0);
         this.findNextButton = createButton("Localizar próximo", 28.0);
+        this.findPreviousButton = createButton("Localizar anterior", 57.0);
         this.countButton = createButton("Contar", 86.0);
-        this.closeButton = createButton("Fechar", 140.0);
+        this.findInAllTabsButton = createButton("Em todas as guias", 115.0);
+        this.closeButton = createButton("Fechar", 169.0);
     }
 
     /**
@@ -60,9 +66,10 @@ public class FindTab extends Tab implements CustomTab {
         textField.setId("find-textfield-id");
         matchWholeWordCheckBox.setId("find-checkbox1-id");
         differentiateUppercaseOrLowercaseLetters.setId("find-checkbox2-id");
+        regularExpressionCheckBox.setId("find-checkbox3-id");
         Text text = createText("Localizar :", 63.0, 45.0);
-        AnchorPane pane = createAnchorPane(textField, text, findNextButton,
-                countButton, closeButton, matchWholeWordCheckBox, differentiateUppercaseOrLowercaseLetters);
+        AnchorPane pane = createAnchorPane(textField, text, findNextButton, findPreviousButton,
+                countButton, findInAllTabsButton, closeButton, matchWholeWordCheckBox, differentiateUppercaseOrLowercaseLetters, regularExpressionCheckBox);
         setContent(pane);
     }
 
@@ -71,8 +78,23 @@ public class FindTab extends Tab implements CustomTab {
      */
     private void configureActions() {
         findNextButton.setOnAction(event -> onNextFindButtonClick());
+        findPreviousButton.setOnAction(event -> onPreviousFindButtonClick());
         countButton.setOnAction(event -> onCountButtonClick());
+        findInAllTabsButton.setOnAction(event -> onFindInAllTabsButtonClick());
         closeButton.setOnAction(event -> onCloseButtonClick());
+
+        textField.textProperty().addListener(observable -> onFindTextChanged());
+        matchWholeWordCheckBox.selectedProperty().addListener(observable -> onFindTextChanged());
+        differentiateUppercaseOrLowercaseLetters.selectedProperty().addListener(observable -> onFindTextChanged());
+        regularExpressionCheckBox.selectedProperty().addListener(observable -> onFindTextChanged());
+    }
+
+    /**
+     * Event handler for changes of the text or the options to find. Highlights the occurrences of text in the editor.
+     */
+    private void onFindTextChanged() {
+        eventController.onFindTextChangedEvent("find-textfield-id",
+                "find-checkbox1-id", "find-checkbox2-id", "find-checkbox3-id");
     }
 
     /**
@@ -80,7 +102,15 @@ public class FindTab extends Tab implements CustomTab {
      */
     private void onNextFindButtonClick() {
         eventController.onNextFindButtonEvent("find-textfield-id",
-                "find-checkbox1-id", "find-checkbox2-id");
+                "find-checkbox1-id", "find-checkbox2-id", "find-checkbox3-id");
+    }
+
+    /**
+     * Event handler for the findPreviousButton click event. Find previous occurrence of text in the editor.
+     */
+    private void onPreviousFindButtonClick() {
+        eventController.onPreviousFindButtonEvent("find-textfield-id",
+                "find-checkbox1-id", "find-checkbox2-id", "find-checkbox3-id");
     }
 
     /**
@@ -88,7 +118,15 @@ public class FindTab extends Tab implements CustomTab {
      */
     private void onCountButtonClick() {
         eventController.onCountEvent("find-textfield-id",
-                "find-checkbox1-id", "find-checkbox2-id");
+                "find-checkbox1-id", "find-checkbox2-id", "find-checkbox3-id");
+    }
+
+    /**
+     * Event handler for the findInAllTabsButton click event. Lists the occurrences of text in every open tab.
+     */
+    private void onFindInAllTabsButtonClick() {
+        eventController.onFindInAllTabsEvent("find-textfield-id",
+                "find-checkbox1-id", "find-checkbox2-id", "find-checkbox3-id");
     }
 
     /**
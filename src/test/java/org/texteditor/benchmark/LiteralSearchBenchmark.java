@@ -0,0 +1,129 @@
+package org.texteditor.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.texteditor.search.SearchEngine;
+import org.texteditor.search.SearchQuery;
+import org.texteditor.search.TextMatcher;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * JMH benchmark comparing the time {@link org.texteditor.search.LiteralSearchEngine} takes to count
+ * the matches of plain text queries with the path it replaced, which quoted the query into a
+ * regular expression: "(?i)" for a case-insensitive search, "\b" around it for a whole word search.
+ * <p>
+ * Usage: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=LiteralSearchBenchmark}.
+ * Both searches count the matches of each query over the same generated text, 100 MB by default,
+ * set with {@code -Dbenchmark="LiteralSearchBenchmark -p megabytes=10"}. The setup fails if the
+ * two searches find a different number of matches.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class LiteralSearchBenchmark {
+
+    private static final String MARKER = "NEEDLE";
+
+    /**
+     * The queries measured, each with the options it is searched with.
+     */
+    public enum Query {
+        CASE_SENSITIVE(new SearchQuery(MARKER, true, false, false)),
+        IGNORE_CASE(new SearchQuery("needle", false, false, false)),
+        WHOLE_WORD(new SearchQuery("index", true, true, false)),
+        IGNORE_CASE_WHOLE_WORD(new SearchQuery("Table", false, true, false)),
+        PHRASE(new SearchQuery("piece table rope", true, false, false));
+
+        private final SearchQuery searchQuery;
+
+        Query(SearchQuery searchQuery) {
+            this.searchQuery = searchQuery;
+        }
+    }
+
+    @Param({"100"})
+    public int megabytes;
+
+    @Param
+    public Query query;
+
+    private String text;
+    private Pattern pattern;
+    private SearchEngine engine;
+
+    /**
+     * Generates the text and compiles the query both ways, then checks that both find the same
+     * matches.
+     *
+     * @throws IllegalStateException If the match counts differ.
+     */
+    @Setup
+    public void setUp() {
+        text = new SampleText(12, MARKER, 10_000).next(megabytes * 1_000_000);
+        pattern = quotedPattern(query.searchQuery);
+        engine = SearchEngine.compile(query.searchQuery);
+
+        int quotedCount = quotedPattern();
+        int literalCount = literalEngine();
+        if (quotedCount != literalCount)
+            throw new IllegalStateException("Match counts differ for " + query + ": "
+                    + quotedCount + " quoted, " + literalCount + " literal");
+    }
+
+    /**
+     * Counts the matches through the quoted regular expression.
+     *
+     * @return The number of matches.
+     */
+    @Benchmark
+    public int quotedPattern() {
+        Matcher matcher = pattern.matcher(text);
+        int count = 0;
+        while (matcher.find()) count++;
+
+        return count;
+    }
+
+    /**
+     * Counts the matches through the search engine compiled for the query.
+     *
+     * @return The number of matches.
+     */
+    @Benchmark
+    public int literalEngine() {
+        TextMatcher matcher = engine.matcher(text);
+        int count = 0;
+        while (matcher.find()) count++;
+
+        return count;
+    }
+
+    /**
+     * Compiles a query the way plain text searches were compiled before the literal engine.
+     *
+     * @param query The query.
+     * @return The quoted pattern.
+     */
+    private static Pattern quotedPattern(SearchQuery query) {
+        String regex = Pattern.quote(query.text());
+        if (query.matchWholeWord()) regex = "\\b" + regex + "\\b";
+        if (!query.caseSensitive()) regex = "(?i)" + regex;
+
+        return Pattern.compile(regex);
+    }
+}
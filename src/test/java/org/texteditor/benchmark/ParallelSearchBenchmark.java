@@ -0,0 +1,104 @@
+package org.texteditor.benchmark;
+
+import org.texteditor.model.document.PieceTable;
+import org.texteditor.model.document.TextDocument;
+import org.texteditor.search.MatchBounds;
+import org.texteditor.search.ParallelSearch;
+import org.texteditor.search.SearchEngine;
+import org.texteditor.search.SearchQuery;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how {@link ParallelSearch} scales with the number of threads: every match of a literal
+ * and of a regular expression query is found in a large document on fork/join pools of 1, 2, 4,
+ * 8 and 16 threads.
+ * <p>
+ * Usage: {@code java -Xmx3g -cp target/test-classes:target/classes org.texteditor.benchmark.ParallelSearchBenchmark [megachars] [runs]}.
+ * The document is a PieceTable filled in pieces, as when a file is opened, with 1024 million
+ * characters by default, which take 2 GB of heap. The first run of each pool warms it up and is
+ * not counted; the best of the other runs is printed, with its speedup over one thread. Every
+ * pool must find the same matches as the single thread.
+ */
+public class ParallelSearchBenchmark {
+
+    private static final String MARKER = "NEEDLE";
+    private static final int PIECE_LENGTH = 1 << 20;
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16};
+
+    private static final List<SearchQuery> QUERIES = List.of(
+            new SearchQuery(MARKER, true, false, false),
+            new SearchQuery("ind[a-z]x|NEE+DLE", true, false, true));
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The length of the document in millions of characters and the number of runs,
+     *             both optional.
+     */
+    public static void main(String[] args) {
+        int megachars = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        TextDocument document = generate((long) megachars << 20);
+        System.out.printf("%,d characters, %d available processors, best of %d runs%n",
+                document.length(), Runtime.getRuntime().availableProcessors(), runs);
+
+        for (SearchQuery query : QUERIES) {
+            SearchEngine engine = SearchEngine.compile(query);
+            long single = 0;
+            int expected = -1;
+
+            for (int threads : THREAD_COUNTS) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                ParallelSearch search = new ParallelSearch(pool);
+                long best = Long.MAX_VALUE;
+                int count = 0;
+
+                try {
+                    for (int run = 0; run <= runs; run++) {
+                        long start = System.nanoTime();
+                        MatchBounds matches = search.findAll(document, engine);
+                        long elapsed = System.nanoTime() - start;
+
+                        count = matches.size();
+                        if (run > 0) best = Math.min(best, elapsed);
+                    }
+                } finally {
+                    pool.shutdown();
+                }
+
+                if (expected < 0) {
+                    expected = count;
+                    single = best;
+                } else if (count != expected) {
+                    throw new IllegalStateException(threads + " threads found " + count + " matches of "
+                            + query.text() + ", 1 thread found " + expected);
+                }
+
+                System.out.printf("%-20s %2d threads  %,9d matches  %7.1f ms  %5.2f GB/s  %5.2fx%n",
+                        "\"" + query.text() + "\"", threads, count, best / 1e6,
+                        document.length() * 2.0 / best, (double) single / best);
+            }
+        }
+    }
+
+    /**
+     * Fills a PieceTable with generated text, one piece at a time.
+     *
+     * @param length The number of characters, at most the largest length of a document.
+     * @return The document.
+     */
+    private static TextDocument generate(long length) {
+        int capped = (int) Math.min(length, Integer.MAX_VALUE - 8);
+        SampleText sampleText = new SampleText(16, MARKER, 10_000);
+        TextDocument document = new PieceTable();
+
+        while (document.length() < capped) {
+            document.insert(document.length(), sampleText.next(Math.min(PIECE_LENGTH, capped - document.length())));
+        }
+
+        return document;
+    }
+}
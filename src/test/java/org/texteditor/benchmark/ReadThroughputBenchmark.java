@@ -0,0 +1,122 @@
+package org.texteditor.benchmark;
+
+import org.texteditor.io.MappedTextReader;
+import org.texteditor.io.TextChunkHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Measures how fast {@link MappedTextReader} decodes a large file, next to how fast the same file
+ * is read raw through its channel, which bounds what any decoder can reach.
+ * <p>
+ * Usage: {@code java -cp target/test-classes:target/classes org.texteditor.benchmark.ReadThroughputBenchmark [gigabytes] [runs] [file]}.
+ * Without a file, one of the given size, 1 GB by default, is generated in the temporary directory
+ * and deleted afterwards. The file is decoded in chunks, as when a tab is opened, so its size is
+ * not bounded by the heap. Once the first run has read it, the file is served from the page cache
+ * as long as it fits in memory.
+ */
+public class ReadThroughputBenchmark {
+
+    private static final int RAW_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The size of the generated file in gigabytes, the number of runs, and the file
+     *             to read instead of a generated one, all optional.
+     * @throws IOException If the file cannot be written or read.
+     */
+    public static void main(String[] args) throws IOException {
+        double gigabytes = args.length > 0 ? Double.parseDouble(args[0]) : 1;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        boolean generated = args.length <= 2;
+        Path path = generated ? Files.createTempFile("texteditor-read", ".txt") : Path.of(args[2]);
+
+        try {
+            if (generated) new SampleText(6).write(path, (long) (gigabytes * (1L << 30)));
+
+            long size = Files.size(path);
+            System.out.printf("%s: %d MB%n", path, size >> 20);
+
+            for (int run = 1; run <= runs; run++) {
+                long start = System.nanoTime();
+                long bytes = readRaw(path);
+                report(run, "raw channel read", bytes, "bytes", size, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                long chars = decode(path);
+                report(run, "MappedTextReader", chars, "chars", size, System.nanoTime() - start);
+            }
+        } finally {
+            if (generated) Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Reads a file into a direct buffer, without looking at its bytes.
+     *
+     * @param path The file.
+     * @return The number of bytes read.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long readRaw(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(RAW_BUFFER_SIZE);
+        long bytes = 0;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (int read; (read = channel.read(buffer)) >= 0; buffer.clear()) {
+                bytes += read;
+            }
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Decodes a file in chunks with a MappedTextReader, counting the characters.
+     *
+     * @param path The file.
+     * @return The number of characters decoded.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long decode(Path path) throws IOException {
+        long[] chars = new long[1];
+
+        new MappedTextReader().read(path, new TextChunkHandler() {
+            @Override
+            public void accept(CharBuffer chunk, long bytesRead, long totalBytes) {
+                chars[0] += chunk.remaining();
+            }
+
+            @Override
+            public void restart(Charset charset) {
+                chars[0] = 0;
+            }
+        });
+
+        return chars[0];
+    }
+
+    /**
+     * Prints the time and the throughput of a run.
+     *
+     * @param run     The run.
+     * @param name    The name of what was measured.
+     * @param count   The number of units read.
+     * @param unit    The unit read.
+     * @param size    The size of the file in bytes.
+     * @param elapsed The time taken, in nanoseconds.
+     */
+    private static void report(int run, String name, long count, String unit, long size, long elapsed) {
+        double seconds = elapsed / 1e9;
+        System.out.printf("run %d  %-18s %,15d %-5s in %6.2f s  %7.0f MB/s%n",
+                run, name, count, unit, seconds, (size >> 20) / seconds);
+    }
+}
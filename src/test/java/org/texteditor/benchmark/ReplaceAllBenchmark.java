@@ -0,0 +1,117 @@
+package org.texteditor.benchmark;
+
+import javafx.application.Platform;
+import org.texteditor.model.document.LineIndex;
+import org.texteditor.model.document.PieceTable;
+import org.texteditor.model.document.TextDocument;
+import org.texteditor.search.ChunkedText;
+import org.texteditor.search.ReplaceAllEngine;
+import org.texteditor.search.Replacement;
+import org.texteditor.search.SearchEngine;
+import org.texteditor.search.SearchQuery;
+import org.texteditor.viewers.control.DocumentArea;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures the time and the peak heap of a Replace All with {@link ReplaceAllEngine}: by default,
+ * one million replacements in 100 MB of text.
+ * <p>
+ * Usage: {@code java -cp target/test-classes:target/classes org.texteditor.benchmark.ReplaceAllBenchmark [megabytes] [replacements] [runs]}.
+ * Each run replaces every marker of a fresh document over the same text, scanning a snapshot of
+ * its chunks as the editor does, then applies the replacement through the {@link DocumentArea}
+ * showing the document: the edit, the update of its line index and the undo record are all
+ * measured. The control needs the JavaFX toolkit, which is started first; without a display, run
+ * it with a headless platform such as Monocle. The peak is read from the heap memory pools, reset
+ * after a collection before the run, and is given above the heap the document already held.
+ */
+public class ReplaceAllBenchmark {
+
+    private static final String MARKER = "NEEDLE";
+    private static final String REPLACEMENT = "pin";
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The size of the text in megabytes, the number of replacements and the number
+     *             of runs, all optional.
+     * @throws InterruptedException If interrupted while the JavaFX toolkit starts.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int replacements = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        int length = megabytes * 1_000_000;
+        String text = new SampleText(11, MARKER, length / replacements).next(length);
+        SearchEngine engine = SearchEngine.compile(new SearchQuery(MARKER, true, false, false));
+        ReplaceAllEngine replaceAllEngine = new ReplaceAllEngine();
+
+        CountDownLatch started = new CountDownLatch(1);
+        Platform.startup(started::countDown);
+        started.await();
+
+        System.out.printf("%d MB of text, \"%s\" -> \"%s\"%n", megabytes, MARKER, REPLACEMENT);
+
+        for (int run = 1; run <= runs; run++) {
+            TextDocument document = new PieceTable(text);
+            LineIndex lineIndex = new LineIndex(document);
+            document.addDocumentListener(lineIndex);
+            DocumentArea documentArea = new DocumentArea(document, lineIndex);
+            long baseline = resetPeakHeap();
+
+            long start = System.nanoTime();
+            Replacement replacement = replaceAllEngine.replaceAll(new ChunkedText(document.chunks()), engine,
+                    REPLACEMENT);
+            long scanned = System.nanoTime();
+            documentArea.replaceText(replacement.start(), replacement.end(), replacement.text());
+            long applied = System.nanoTime();
+
+            long peak = peakHeap();
+
+            System.out.printf("run %d  %,d replacements  replaceAll %5d ms  apply %4d ms  total %5d ms"
+                            + "  peak heap %4d MB (%4d MB above the %d MB before)%n",
+                    run, replacement.count(), (scanned - start) / 1_000_000, (applied - scanned) / 1_000_000,
+                    (applied - start) / 1_000_000, peak >> 20, (peak - baseline) >> 20, baseline >> 20);
+        }
+
+        Platform.exit();
+    }
+
+    /**
+     * Collects the heap, then resets the peak usage of its memory pools.
+     *
+     * @return The heap used after the collection, in bytes.
+     */
+    private static long resetPeakHeap() {
+        System.gc();
+
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) continue;
+
+            pool.resetPeakUsage();
+            used += pool.getUsage().getUsed();
+        }
+
+        return used;
+    }
+
+    /**
+     * Returns the peak heap usage since the last reset, summed over the heap memory pools. Pools
+     * peak at different times, so the sum can only overstate the real peak.
+     *
+     * @return The peak usage, in bytes.
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+        }
+
+        return peak;
+    }
+}
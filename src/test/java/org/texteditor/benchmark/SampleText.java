@@ -0,0 +1,120 @@
+package org.texteditor.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Generates the text the benchmarks run over: lines of about {@value #LINE_LENGTH} characters made
+ * of words drawn from a fixed vocabulary by a seeded generator, so that every run of a benchmark
+ * sees the same text. A marker can be placed once every so many characters, to give a search a
+ * known number of matches; no word of the vocabulary contains it.
+ * <p>
+ * The text is produced in consecutive pieces, so that a text larger than a String can be written
+ * to a file or appended to a document one piece at a time.
+ */
+public class SampleText {
+
+    private static final int LINE_LENGTH = 80;
+    private static final String[] WORDS = {
+            "the", "editor", "reads", "mapped", "windows", "of", "text", "while", "lines", "are",
+            "decoded", "into", "chunks", "and", "a", "search", "skips", "through", "every", "buffer",
+            "index", "piece", "table", "rope", "caret", "selection", "undo", "history", "journal", "tab"
+    };
+
+    private final SplittableRandom random;
+    private final String marker;
+    private final long markerSpacing;
+    private final StringBuilder pending = new StringBuilder();
+
+    private long generated;
+    private long nextMarker;
+    private int lineLength;
+
+    /**
+     * Constructs a generator of text without markers.
+     *
+     * @param seed The seed of the word generator.
+     */
+    public SampleText(long seed) {
+        this(seed, null, 0);
+    }
+
+    /**
+     * Constructs a generator of text holding a marker once every given number of characters.
+     *
+     * @param seed          The seed of the word generator.
+     * @param marker        The marker, which must not be found in any word of the vocabulary.
+     * @param markerSpacing The number of characters between two markers.
+     */
+    public SampleText(long seed, String marker, long markerSpacing) {
+        this.random = new SplittableRandom(seed);
+        this.marker = marker;
+        this.markerSpacing = markerSpacing;
+        this.nextMarker = markerSpacing / 2;
+    }
+
+    /**
+     * Returns the next characters of the text.
+     *
+     * @param length The number of characters.
+     * @return The characters, following the ones returned before.
+     */
+    public String next(int length) {
+        while (pending.length() < length) {
+            appendWord();
+        }
+
+        String piece = pending.substring(0, length);
+        pending.delete(0, length);
+        generated += length;
+        return piece;
+    }
+
+    /**
+     * Writes the next bytes of the text to a file, in UTF-8, which takes one byte per character
+     * since the text is ASCII.
+     *
+     * @param path The file, created or replaced.
+     * @param size The number of bytes to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path path, long size) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (long written = 0; written < size; ) {
+                int length = (int) Math.min(1 << 20, size - written);
+                writer.write(next(length));
+                written += length;
+            }
+        }
+    }
+
+    /**
+     * Appends a word to the pending characters, preceded by a space or by a line feed once the
+     * line is long enough. The word is the marker when the text has reached its next position.
+     */
+    private void appendWord() {
+        String word;
+
+        if (marker != null && generated + pending.length() >= nextMarker) {
+            word = marker;
+            nextMarker += markerSpacing;
+        } else {
+            word = WORDS[random.nextInt(WORDS.length)];
+        }
+
+        if (lineLength >= LINE_LENGTH) {
+            pending.append('\n');
+            lineLength = 0;
+        } else if (lineLength > 0) {
+            pending.append(' ');
+            lineLength++;
+        }
+
+        pending.append(word);
+        lineLength += word.length();
+    }
+}